@@ -33,6 +33,7 @@ android {
 
 dependencies {
 
+    implementation(project(":budget-core"))
     implementation(libs.appcompat)
     implementation(libs.material)
     implementation(libs.activity)
@@ -0,0 +1,115 @@
+package ensa.application01.app_budget.DataBase;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.DatabaseUtils;
+import android.database.sqlite.SQLiteDatabase;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests de migration : une base au schéma de la version 2 (la première publiée) est ouverte
+ * par DatabaseHelper et doit arriver au schéma courant avec ses données et ses triggers.
+ */
+@RunWith(AndroidJUnit4.class)
+public class MigrationTest {
+
+    private static final String TEST_DATABASE = "migration_test.db";
+
+    private Context context;
+    private DatabaseHelper helper;
+
+    @Before
+    public void setUp() {
+        context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        context.deleteDatabase(TEST_DATABASE);
+    }
+
+    @After
+    public void tearDown() {
+        if (helper != null) {
+            helper.close();
+        }
+        context.deleteDatabase(TEST_DATABASE);
+    }
+
+    @Test
+    public void upgradeFromVersion2_reachesCurrentSchema() {
+        createVersion2Database();
+
+        helper = new DatabaseHelper(context, TEST_DATABASE);
+        SQLiteDatabase db = helper.getWritableDatabase();
+
+        assertEquals(12, db.getVersion());
+        assertEquals(0, longForQuery(db, "SELECT COUNT(*) FROM migration_jobs WHERE finished <> 1"));
+
+        // Montants en centimes et catégories par id ; la catégorie vide devient 'Autre'
+        assertEquals(3, longForQuery(db, "SELECT COUNT(*) FROM transactions WHERE date_day IS NOT NULL"));
+        assertEquals(1250, longForQuery(db, "SELECT amount_minor FROM transactions WHERE note = 'Courses'"));
+        assertEquals(1, longForQuery(db, "SELECT COUNT(*) FROM transactions t JOIN categories c"
+                + " ON c.id = t.category_id WHERE c.name = 'Autre'"));
+
+        // Tables dérivées remplies
+        assertEquals(300000, longForQuery(db, "SELECT income FROM totals WHERE id = 1"));
+        assertEquals(1250 + 4000, longForQuery(db, "SELECT expenses FROM totals WHERE id = 1"));
+        assertEquals(1250, longForQuery(db, "SELECT total FROM monthly_summary WHERE year = 2024 AND month = 3"
+                + " AND type = 'Dépense' AND category_id = (SELECT id FROM categories WHERE name = 'Nourriture')"));
+        assertEquals(1, longForQuery(db, "SELECT COUNT(*) FROM transactions_fts WHERE transactions_fts MATCH 'courses'"));
+
+        // Tous les triggers de la table transactions existent après les reconstructions de la table
+        for (String trigger : new String[]{"trg_totals_insert", "trg_totals_delete", "trg_totals_update",
+                "trg_summary_insert", "trg_summary_delete", "trg_summary_update",
+                "trg_fts_insert", "trg_fts_delete", "trg_fts_update", "trg_fts_category_rename"}) {
+            assertEquals(trigger, 1, longForQuery(db, "SELECT COUNT(*) FROM sqlite_master"
+                    + " WHERE type = 'trigger' AND name = '" + trigger + "'"));
+        }
+
+        // Et ils maintiennent les tables dérivées
+        ContentValues values = new ContentValues();
+        values.put("type", "Dépense");
+        values.put("amount_minor", 750L);
+        values.put("category_id", longForQuery(db, "SELECT id FROM categories WHERE name = 'Nourriture'"));
+        values.put("date", "20/03/2024");
+        values.put("note", "Marché");
+        values.put("date_day", longForQuery(db, "SELECT date_day FROM transactions WHERE note = 'Courses'") + 5);
+        assertTrue(db.insert("transactions", null, values) > 0);
+        assertEquals(1250 + 4000 + 750, longForQuery(db, "SELECT expenses FROM totals WHERE id = 1"));
+        assertEquals(2000, longForQuery(db, "SELECT total FROM monthly_summary WHERE year = 2024 AND month = 3"
+                + " AND type = 'Dépense' AND category_id = (SELECT id FROM categories WHERE name = 'Nourriture')"));
+        assertEquals(1, longForQuery(db, "SELECT COUNT(*) FROM transactions_fts WHERE transactions_fts MATCH 'marché'"));
+    }
+
+    // Crée la base telle que l'écrivait la version 2 de l'application
+    private void createVersion2Database() {
+        SQLiteDatabase db = SQLiteDatabase.openOrCreateDatabase(context.getDatabasePath(TEST_DATABASE), null);
+        try {
+            db.execSQL("CREATE TABLE transactions(id INTEGER PRIMARY KEY AUTOINCREMENT,type TEXT,amount REAL,"
+                    + "category TEXT,date TEXT,note TEXT,isAlarmEnabled INTEGER,alarmDate TEXT,alarmTime TEXT,"
+                    + "UNIQUE(type, amount, category, date, note))");
+            db.execSQL("CREATE TABLE categories(id INTEGER PRIMARY KEY AUTOINCREMENT,name TEXT UNIQUE)");
+            db.execSQL("INSERT INTO categories (name) VALUES ('Salaire')");
+            db.execSQL("INSERT INTO categories (name) VALUES ('Nourriture')");
+            db.execSQL("INSERT INTO transactions (type, amount, category, date, note, isAlarmEnabled)"
+                    + " VALUES ('Revenu', 3000.0, 'Salaire', '01/03/2024', 'Paie', 0)");
+            db.execSQL("INSERT INTO transactions (type, amount, category, date, note, isAlarmEnabled)"
+                    + " VALUES ('Dépense', 12.5, 'Nourriture', '15/03/2024', 'Courses', 0)");
+            db.execSQL("INSERT INTO transactions (type, amount, category, date, note, isAlarmEnabled)"
+                    + " VALUES ('Dépense', 40.0, '', '16/03/2024', 'Divers', 0)");
+            db.setVersion(2);
+        } finally {
+            db.close();
+        }
+    }
+
+    private static long longForQuery(SQLiteDatabase db, String sql) {
+        return DatabaseUtils.longForQuery(db, sql, null);
+    }
+}
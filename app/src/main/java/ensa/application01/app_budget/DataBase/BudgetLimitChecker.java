@@ -0,0 +1,132 @@
+package ensa.application01.app_budget.DataBase;
+
+import android.util.Log;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import ensa.application01.app_budget.Receiver.ReminderScheduler;
+import ensa.application01.app_budget.module.BudgetLimit;
+import ensa.application01.app_budget.utils.DateCodec;
+import ensa.application01.app_budget.utils.Money;
+
+/**
+ * BudgetLimitChecker compare chaque dépense ajoutée à la limite mensuelle de sa catégorie.
+ * Le cumul du mois est lu dans monthly_summary, tenue à jour par triggers : la vérification fait
+ * deux lectures par clé primaire, quel que soit le nombre de transactions. Un seuil franchi est
+ * ajouté à la file des rappels avec une échéance immédiate, et la notification part par AlarmReceiver.
+ * Toute écriture de dépense se fait en tenant le verrou de cet objet jusqu'à sa vérification : ajout unitaire
+ * (vérifié par {@link #check}) comme écritures en masse (import, répétitions), qui cumulent leurs dépenses
+ * dans un {@link ExpenseBatch} vérifié en fin de lot par {@link #checkBatch}.
+ */
+public class BudgetLimitChecker {
+
+    private static final String TAG = "BudgetLimitChecker";
+
+    private final DatabaseHelper dbHelper; // Limites et cumuls mensuels
+    private final ReminderScheduler reminderScheduler; // File des rappels, pour la notification
+
+    /**
+     * Constructeur de BudgetLimitChecker.
+     *
+     * @param dbHelper          Le helper de la base de données.
+     * @param reminderScheduler La file des rappels.
+     */
+    public BudgetLimitChecker(DatabaseHelper dbHelper, ReminderScheduler reminderScheduler) {
+        this.dbHelper = dbHelper;
+        this.reminderScheduler = reminderScheduler;
+    }
+
+    /**
+     * Vérifie une transaction qui vient d'être insérée et notifie le plus haut seuil franchi.
+     * Le cumul avant la dépense est déduit du cumul après : l'appelant ne doit pas laisser une autre
+     * insertion s'intercaler entre l'ajout et la vérification. Doit être appelée hors du thread principal.
+     *
+     * @param transactionId L'id de la transaction insérée.
+     * @param type          Le type de la transaction (seules les dépenses sont vérifiées).
+     * @param amountMinor   Le montant en centimes.
+     * @param categoryId    L'id de la catégorie.
+     * @param day           La date en jours depuis le 01/01/1970.
+     * @return Le seuil franchi en pourcentage, ou BudgetLimit.NO_THRESHOLD.
+     */
+    public int check(long transactionId, String type, long amountMinor, long categoryId, int day) {
+        if (!isCheckedExpense(type, amountMinor, day)) {
+            return BudgetLimit.NO_THRESHOLD;
+        }
+        int[] civil = DateCodec.toCivil(day);
+        return checkMonth(transactionId, categoryId, civil[0], civil[1], amountMinor);
+    }
+
+    /**
+     * Vérifie les dépenses cumulées par une écriture en masse qui vient d'être validée, puis vide le lot.
+     * Un seul seuil (le plus haut franchi) est notifié par catégorie et par mois. L'appelant doit tenir
+     * le verrou de ce checker depuis la première insertion du lot. Doit être appelée hors du thread principal.
+     *
+     * @param batch Les dépenses insérées depuis la dernière vérification.
+     */
+    public void checkBatch(ExpenseBatch batch) {
+        for (long[] month : batch.months.values()) {
+            checkMonth(month[4], month[0], (int) month[1], (int) month[2], month[3]);
+        }
+        batch.months.clear();
+    }
+
+    // Notifie le plus haut seuil franchi par le cumul d'un mois en passant de (cumul - ajout) à cumul
+    private int checkMonth(long transactionId, long categoryId, int year, int month, long addedMinor) {
+        BudgetLimit limit = dbHelper.getCategoryLimit(categoryId);
+        if (limit == null) {
+            return BudgetLimit.NO_THRESHOLD;
+        }
+
+        long spentAfter = dbHelper.getMonthExpenses(categoryId, year, month);
+        int threshold = limit.crossedThreshold(spentAfter - addedMinor, spentAfter);
+        if (threshold != BudgetLimit.NO_THRESHOLD) {
+            String category = dbHelper.getCategoryDictionary().getName(categoryId);
+            String title = threshold >= 100 ? "Budget dépassé : " + category : "Budget bientôt atteint : " + category;
+            String message = category + " : " + Money.format(spentAfter) + " DH dépensés sur " + Money.format(limit.getLimitMinor())
+                    + " DH en " + String.format("%02d/%d", month, year) + " (" + limit.percentOf(spentAfter) + " %)";
+            reminderScheduler.add(transactionId, System.currentTimeMillis(), title, message);
+            Log.d(TAG, "Seuil de " + threshold + " % franchi pour la catégorie " + categoryId);
+        }
+        return threshold;
+    }
+
+    // Seules les dépenses datées et de montant positif comptent dans les limites
+    private static boolean isCheckedExpense(String type, long amountMinor, int day) {
+        return DatabaseHelper.TYPE_EXPENSE.equals(type) && day != DateCodec.INVALID_DAY && amountMinor > 0;
+    }
+
+    /**
+     * ExpenseBatch cumule, par catégorie et par mois, les dépenses insérées par une écriture en masse.
+     * Il n'est pas thread-safe : chaque écriture utilise le sien.
+     */
+    public static final class ExpenseBatch {
+
+        // Par clé (catégorie, mois) : {id de catégorie, année, mois, montant ajouté, id de la dernière transaction}
+        private final Map<Long, long[]> months = new HashMap<>();
+
+        /**
+         * Ajoute une transaction insérée au lot (les revenus et les dates invalides sont ignorés).
+         *
+         * @param transactionId L'id de la transaction insérée.
+         * @param type          Le type de la transaction.
+         * @param amountMinor   Le montant en centimes.
+         * @param categoryId    L'id de la catégorie.
+         * @param day           La date en jours depuis le 01/01/1970.
+         */
+        public void add(long transactionId, String type, long amountMinor, long categoryId, int day) {
+            if (!isCheckedExpense(type, amountMinor, day)) {
+                return;
+            }
+            int[] civil = DateCodec.toCivil(day);
+            long key = categoryId * 100_000L + civil[0] * 12L + civil[1];
+            long[] month = months.get(key);
+            if (month == null) {
+                month = new long[]{categoryId, civil[0], civil[1], 0, 0};
+                months.put(key, month);
+            }
+            month[3] += amountMinor;
+            month[4] = transactionId;
+        }
+    }
+}
@@ -0,0 +1,724 @@
+package ensa.application01.app_budget.DataBase;
+
+import android.content.ContentResolver;
+import android.content.Context;
+import android.database.Cursor;
+import android.net.Uri;
+import android.os.CancellationSignal;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.OperationCanceledException;
+import android.provider.DocumentsContract;
+import android.util.Log;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import ensa.application01.app_budget.Receiver.ReminderScheduler;
+import ensa.application01.app_budget.importer.TransactionParser;
+import ensa.application01.app_budget.importer.TransactionParsers;
+import ensa.application01.app_budget.module.BucketSeries;
+import ensa.application01.app_budget.module.BudgetLimit;
+import ensa.application01.app_budget.module.CategoryCard;
+import ensa.application01.app_budget.module.ImportStats;
+import ensa.application01.app_budget.module.MonthSummary;
+import ensa.application01.app_budget.module.RecurrenceRule;
+import ensa.application01.app_budget.module.Totals;
+import ensa.application01.app_budget.utils.DateCodec;
+import ensa.application01.app_budget.utils.LedgerSnapshot;
+import ensa.application01.app_budget.utils.Money;
+
+/**
+ * BudgetRepository exécute toutes les lectures et écritures SQLite sur un pool de threads
+ * borné et renvoie les résultats sur le thread principal via des callbacks.
+ * Les activités regroupent leurs tâches dans un {@link TaskGroup} qu'elles annulent dans onDestroy :
+ * une tâche annulée ne livre jamais son résultat.
+ * Les lectures répétées sont servies par un {@link QueryCache}, invalidé par les écritures que notifie
+ * {@link DatabaseHelper} ; ces mêmes écritures sont relayées aux écrans abonnés par un {@link InvalidationTracker}.
+ */
+public class BudgetRepository {
+
+    private static final String TAG = "BudgetRepository";
+    private static final int THREAD_COUNT = 2; // Nombre de threads d'arrière-plan
+    private static final int QUEUE_CAPACITY = 64; // Nombre maximal de tâches en attente
+    private static final long KEEP_ALIVE_SECONDS = 30; // Durée de vie d'un thread inactif
+    private static final int CACHE_ENTRIES = 64; // Nombre de résultats de requêtes gardés en mémoire
+
+    // Tables lues par les requêtes mises en cache
+    private static final String[] TOTALS_TABLES = {DatabaseHelper.TABLE_TOTALS};
+    private static final String[] SUMMARY_TABLES = {DatabaseHelper.TABLE_MONTHLY_SUMMARY, DatabaseHelper.TABLE_CATEGORIES};
+    private static final String[] MONTH_SUMMARY_TABLES = {DatabaseHelper.TABLE_MONTHLY_SUMMARY, DatabaseHelper.TABLE_CATEGORIES,
+            DatabaseHelper.TABLE_CATEGORY_LIMITS};
+    private static final String[] LIMITS_TABLES = {DatabaseHelper.TABLE_CATEGORY_LIMITS};
+    private static final String[] BUCKET_TABLES = {DatabaseHelper.TABLE_TRANSACTIONS, DatabaseHelper.TABLE_MONTHLY_SUMMARY};
+    private static final String[] PAGE_TABLES = {DatabaseHelper.TABLE_TRANSACTIONS, DatabaseHelper.TABLE_CATEGORIES,
+            DatabaseHelper.TABLE_TRANSACTIONS_FTS};
+
+    private static BudgetRepository instance; // Instance unique du repository
+
+    private final DatabaseHelper dbHelper; // Helper pour interagir avec la base de données
+    private final ThreadPoolExecutor executor; // Pool borné pour les accès à la base
+    private final Handler mainHandler = new Handler(Looper.getMainLooper()); // Livraison des résultats sur le thread principal
+    private LedgerSnapshot ledgerSnapshot; // Dernier snapshot en colonnes des transactions, ou null
+    private final QueryCache queryCache = new QueryCache(CACHE_ENTRIES); // Résultats récents, invalidés par les écritures
+    private final InvalidationTracker invalidationTracker = new InvalidationTracker(mainHandler); // Écritures relayées aux écrans
+    private final ReminderScheduler reminderScheduler; // File des rappels et alarme système unique
+    private final RecurrenceMaterializer recurrenceMaterializer; // Génération des transactions répétées
+    private final BudgetLimitChecker budgetLimitChecker; // Alertes de dépassement des limites mensuelles
+
+    /**
+     * Callback recevant le résultat d'une tâche sur le thread principal.
+     *
+     * @param <T> Le type du résultat.
+     */
+    public interface Callback<T> {
+        void onResult(T result);
+    }
+
+    private BudgetRepository(Context context) {
+        dbHelper = DatabaseHelper.getInstance(context);
+        reminderScheduler = new ReminderScheduler(context);
+        budgetLimitChecker = new BudgetLimitChecker(dbHelper, reminderScheduler);
+        recurrenceMaterializer = new RecurrenceMaterializer(dbHelper, budgetLimitChecker);
+        dbHelper.addChangeListener(queryCache); // Avant le tracker : un écran notifié relit des résultats à jour
+        dbHelper.addChangeListener(invalidationTracker);
+
+        AtomicInteger threadNumber = new AtomicInteger(1);
+        ThreadFactory threadFactory = runnable -> {
+            Thread thread = new Thread(runnable, "budget-db-" + threadNumber.getAndIncrement());
+            thread.setPriority(Thread.NORM_PRIORITY - 1);
+            return thread;
+        };
+        executor = new ThreadPoolExecutor(THREAD_COUNT, THREAD_COUNT, KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(QUEUE_CAPACITY), threadFactory);
+        executor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Retourne l'instance unique du repository, créée à la première utilisation.
+     *
+     * @param context Un contexte quelconque (seul le contexte de l'application est conservé).
+     * @return L'instance du repository.
+     */
+    public static synchronized BudgetRepository getInstance(Context context) {
+        if (instance == null) {
+            instance = new BudgetRepository(context);
+        }
+        return instance;
+    }
+
+    /**
+     * Retourne le helper partagé par le repository, pour les composants qui lisent eux-mêmes
+     * leurs curseurs en arrière-plan (exemple : {@link TransactionPagingSource}).
+     *
+     * @return Le DatabaseHelper du repository.
+     */
+    public DatabaseHelper getDatabaseHelper() {
+        return dbHelper;
+    }
+
+    /**
+     * Exécute un travail en arrière-plan et livre son résultat sur le thread principal.
+     *
+     * @param work     Le travail à exécuter (accès à la base de données).
+     * @param callback Le callback appelé avec le résultat, ou null si le résultat est ignoré.
+     * @param <T>      Le type du résultat.
+     * @return La tâche, qui peut être annulée.
+     */
+    public <T> Task execute(Callable<T> work, Callback<T> callback) {
+        return execute(new Task(), work, callback);
+    }
+
+    // Soumet le travail d'une tâche créée par l'appelant (qui peut ainsi consulter son signal d'annulation)
+    private <T> Task execute(Task task, Callable<T> work, Callback<T> callback) {
+        try {
+            executor.execute(() -> {
+                if (task.isCancelled()) {
+                    return;
+                }
+                T result;
+                try {
+                    result = work.call();
+                } catch (Exception e) {
+                    Log.e(TAG, "Erreur lors de l'exécution d'une tâche en arrière-plan", e);
+                    task.finish();
+                    return;
+                }
+                mainHandler.post(() -> {
+                    if (!task.isCancelled() && callback != null) {
+                        callback.onResult(result);
+                    } else if (result instanceof Closeable) {
+                        closeQuietly((Closeable) result); // Curseur non livré : personne d'autre ne le fermera
+                    }
+                    task.finish();
+                });
+            });
+        } catch (RejectedExecutionException e) {
+            Log.e(TAG, "File d'attente pleine, tâche rejetée", e);
+            task.cancel();
+        }
+        return task;
+    }
+
+    // Exécute un travail en arrière-plan puis, dans tous les cas, onDone : sur le thread d'arrière-plan,
+    // ou sur le thread appelant si la tâche est rejetée
+    private void executeThenRun(Runnable work, Runnable onDone) {
+        try {
+            executor.execute(() -> {
+                try {
+                    work.run();
+                } catch (Exception e) {
+                    Log.e(TAG, "Erreur lors de l'exécution d'une tâche en arrière-plan", e);
+                } finally {
+                    if (onDone != null) {
+                        onDone.run();
+                    }
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            Log.e(TAG, "File d'attente pleine, tâche rejetée", e);
+            if (onDone != null) {
+                onDone.run();
+            }
+        }
+    }
+
+    // Exécute une requête en arrière-plan en passant par le cache : un résultat encore valide est servi depuis la mémoire
+    private <T> Task executeCached(String key, String[] tables, int fromDay, int toDay, Callable<T> work, Callback<T> callback) {
+        return execute(() -> queryCache.getOrLoad(key, tables, fromDay, toDay, work), callback);
+    }
+
+    /**
+     * Retourne le cache des résultats de requêtes, pour consulter ses compteurs.
+     *
+     * @return Le cache du repository.
+     */
+    public QueryCache getQueryCache() {
+        return queryCache;
+    }
+
+    /**
+     * Retourne le tracker auquel les écrans s'abonnent pour être prévenus des écritures.
+     *
+     * @return Le tracker d'invalidation.
+     */
+    public InvalidationTracker getInvalidationTracker() {
+        return invalidationTracker;
+    }
+
+    // Ferme une ressource dont le résultat n'a pas été livré
+    private static void closeQuietly(Closeable closeable) {
+        try {
+            closeable.close();
+        } catch (IOException e) {
+            Log.e(TAG, "Erreur lors de la fermeture d'un résultat non livré", e);
+        }
+    }
+
+    /**
+     * Charge les totaux des revenus et des dépenses.
+     *
+     * @param callback Le callback recevant les totaux.
+     * @return La tâche, qui peut être annulée.
+     */
+    public Task loadTotals(Callback<Totals> callback) {
+        return executeCached("totals", TOTALS_TABLES, DateCodec.INVALID_DAY, DateCodec.INVALID_DAY,
+                dbHelper::getTotals, callback);
+    }
+
+    /**
+     * Ajoute une transaction (voir {@link DatabaseHelper#addTransaction}), montant en centimes.
+     * Si l'alarme est activée, le rappel est ajouté à la file des rappels dans la même tâche.
+     * Une dépense est ensuite comparée à la limite mensuelle de sa catégorie (voir {@link BudgetLimitChecker}).
+     *
+     * @param callback Le callback recevant l'id de la nouvelle ligne, ou -1 en cas d'erreur.
+     * @return La tâche, qui peut être annulée.
+     */
+    public Task addTransaction(String type, long amountMinor, long categoryId, String date, String note,
+                               boolean isAlarmEnabled, String alarmDate, String alarmTime, Callback<Long> callback) {
+        return execute(() -> {
+            long id;
+            // Insertion et vérification sous le même verrou : aucun autre ajout ne modifie le cumul entre les deux
+            synchronized (budgetLimitChecker) {
+                id = dbHelper.addTransaction(type, amountMinor, categoryId, date, note, isAlarmEnabled, alarmDate, alarmTime);
+                if (id != -1) {
+                    budgetLimitChecker.check(id, type, amountMinor, categoryId, DateCodec.parse(date));
+                }
+            }
+            if (id != -1 && isAlarmEnabled) {
+                long fireAt = ReminderScheduler.fireTimeOf(alarmDate, alarmTime);
+                if (fireAt != -1) {
+                    reminderScheduler.add(id, fireAt, "Rappel de transaction", note);
+                }
+            }
+            return id;
+        }, callback);
+    }
+
+    /**
+     * Ajoute une règle de répétition puis génère ses occurrences échues (jusqu'à aujourd'hui).
+     * Une occurrence déjà saisie (même type, montant, catégorie, date et note) n'est pas dupliquée.
+     *
+     * @param rule     La règle de répétition.
+     * @param callback Le callback recevant l'id de la règle, ou -1 en cas d'erreur.
+     * @return La tâche, qui peut être annulée.
+     */
+    public Task addRecurrenceRule(RecurrenceRule rule, Callback<Long> callback) {
+        return execute(() -> {
+            long id = dbHelper.addRecurrenceRule(rule);
+            if (id != -1) {
+                recurrenceMaterializer.materialize(DateCodec.today());
+            }
+            return id;
+        }, callback);
+    }
+
+    /**
+     * Génère les occurrences des règles de répétition échues depuis le dernier passage (jusqu'à aujourd'hui).
+     * Sans règle échue, seule une lecture de l'index des règles actives est effectuée.
+     *
+     * @param callback Le callback recevant le nombre de transactions générées, ou null.
+     * @return La tâche, qui peut être annulée.
+     */
+    public Task materializeRecurrences(Callback<Integer> callback) {
+        return execute(() -> recurrenceMaterializer.materialize(DateCodec.today()), callback);
+    }
+
+    /**
+     * Notifie les rappels échus (regroupés en une notification) et reprogramme l'alarme pour le suivant.
+     *
+     * @param onDone Appelé en arrière-plan une fois le travail terminé, même en cas d'erreur ou de tâche rejetée
+     *               (exemple : PendingResult.finish() d'un receiver), ou null.
+     */
+    public void deliverDueReminders(Runnable onDone) {
+        executeThenRun(reminderScheduler::deliverDue, onDone);
+    }
+
+    /**
+     * Reprogramme l'alarme des rappels à partir de la file (démarrage de l'appareil ou de l'application).
+     *
+     * @param onDone Appelé en arrière-plan une fois l'alarme programmée, même en cas d'erreur ou de tâche rejetée,
+     *               ou null.
+     */
+    public void rescheduleReminders(Runnable onDone) {
+        executeThenRun(reminderScheduler::reschedule, onDone);
+    }
+
+    /**
+     * Charge la liste des noms de catégories.
+     *
+     * @param callback Le callback recevant les catégories.
+     * @return La tâche, qui peut être annulée.
+     */
+    public Task loadCategories(Callback<List<String>> callback) {
+        return execute(() -> dbHelper.getCategoryDictionary().getNames(), callback);
+    }
+
+    /**
+     * Charge le dictionnaire id ↔ nom des catégories (lu une seule fois, puis servi depuis la mémoire).
+     *
+     * @param callback Le callback recevant le dictionnaire.
+     * @return La tâche, qui peut être annulée.
+     */
+    public Task loadCategoryDictionary(Callback<CategoryDictionary> callback) {
+        return execute(dbHelper::getCategoryDictionary, callback);
+    }
+
+    /**
+     * Ajoute une catégorie.
+     *
+     * @param name     Le nom de la catégorie.
+     * @param callback Le callback recevant l'id de la nouvelle ligne, ou -1 si elle existe déjà.
+     * @return La tâche, qui peut être annulée.
+     */
+    public Task addCategory(String name, Callback<Long> callback) {
+        return execute(() -> dbHelper.addCategory(name), callback);
+    }
+
+    /**
+     * Supprime une catégorie. Une catégorie utilisée par des transactions n'est pas supprimée.
+     *
+     * @param categoryId L'id de la catégorie.
+     * @param callback   Le callback recevant le nombre de lignes supprimées, ou -1 si la catégorie est utilisée.
+     * @return La tâche, qui peut être annulée.
+     */
+    public Task deleteCategory(long categoryId, Callback<Integer> callback) {
+        return execute(() -> dbHelper.deleteCategory(categoryId), callback);
+    }
+
+    /**
+     * Importe en masse un relevé bancaire CSV ou OFX (voir {@link TransactionImporter}).
+     *
+     * @param resolver Le ContentResolver permettant d'ouvrir le document.
+     * @param uri      L'URI du document choisi par l'utilisateur.
+     * @param callback Le callback recevant le bilan de l'import, ou null si le fichier n'a pas pu être lu.
+     * @return La tâche, qui peut être annulée.
+     */
+    public Task importTransactions(ContentResolver resolver, Uri uri, Callback<ImportStats> callback) {
+        return execute(() -> {
+            try (InputStream input = resolver.openInputStream(uri)) {
+                if (input == null) {
+                    throw new IOException("Impossible d'ouvrir le document : " + uri);
+                }
+                try (TransactionParser parser = TransactionParsers.open(input, StandardCharsets.UTF_8)) {
+                    return new TransactionImporter(dbHelper, budgetLimitChecker).importAll(parser);
+                }
+            } catch (IOException e) {
+                Log.e(TAG, "Erreur lors de l'import du relevé", e);
+                return null;
+            }
+        }, callback);
+    }
+
+    /**
+     * Exporte en CSV ou en JSON les transactions d'un filtre (voir {@link TransactionExporter}).
+     * Si la tâche est annulée, l'export s'arrête et le document partiel est supprimé.
+     *
+     * @param resolver Le ContentResolver permettant d'écrire le document.
+     * @param uri      L'URI du document créé par l'utilisateur.
+     * @param filter   Le filtre des transactions à exporter.
+     * @param format   Le format du fichier.
+     * @param progress Le callback recevant le nombre de transactions exportées sur le thread principal, ou null.
+     * @param callback Le callback recevant le nombre de transactions exportées, ou -1 en cas d'erreur.
+     * @return La tâche, qui peut être annulée.
+     */
+    public Task exportTransactions(ContentResolver resolver, Uri uri, TransactionFilter filter, TransactionExporter.Format format,
+                                   Callback<Integer> progress, Callback<Integer> callback) {
+        Task task = new Task();
+        TransactionExporter.ProgressListener listener = progress == null ? null : (exported, total) ->
+                mainHandler.post(() -> {
+                    if (!task.isCancelled()) {
+                        progress.onResult(total == 0 ? 100 : (int) (exported * 100L / total));
+                    }
+                });
+        return execute(task, () -> {
+            try (OutputStream output = resolver.openOutputStream(uri)) {
+                if (output == null) {
+                    throw new IOException("Impossible d'ouvrir le document : " + uri);
+                }
+                return new TransactionExporter(dbHelper).export(filter, format, output, listener, task.getCancellationSignal());
+            } catch (OperationCanceledException e) {
+                Log.d(TAG, "Export annulé, suppression du document partiel");
+                deleteDocument(resolver, uri);
+                return -1;
+            } catch (IOException e) {
+                Log.e(TAG, "Erreur lors de l'export des transactions", e);
+                deleteDocument(resolver, uri);
+                return -1;
+            }
+        }, callback);
+    }
+
+    // Supprime un document créé par le sélecteur de documents
+    private static void deleteDocument(ContentResolver resolver, Uri uri) {
+        try {
+            DocumentsContract.deleteDocument(resolver, uri);
+        } catch (Exception e) {
+            Log.e(TAG, "Impossible de supprimer le document " + uri, e);
+        }
+    }
+
+    /**
+     * Ouvre le curseur des lignes de l'historique correspondant au filtre. La requête est exécutée et la
+     * première fenêtre du curseur remplie en arrière-plan ; l'appelant devient propriétaire du curseur
+     * et doit le fermer.
+     *
+     * @param filter   Le filtre appliqué.
+     * @param callback Le callback recevant le curseur (null en cas d'erreur).
+     * @return La tâche, qui peut être annulée : le curseur est alors fermé sans être livré.
+     */
+    public Task loadTransactionRows(TransactionFilter filter, Callback<Cursor> callback) {
+        return execute(() -> {
+            Cursor cursor = dbHelper.getTransactionRows(filter);
+            if (cursor != null) {
+                cursor.getCount(); // Exécute la requête ici plutôt qu'au premier affichage
+            }
+            return cursor;
+        }, callback);
+    }
+
+    /**
+     * Charge la page de transactions qui suit anchorKey (plus anciennes, ou moins pertinentes).
+     *
+     * @param pagingSource La source paginée qui lit les lignes.
+     * @param filter       Le filtre appliqué.
+     * @param anchorKey    La clé de la dernière transaction déjà chargée.
+     * @param callback     Le callback recevant la page.
+     * @return La tâche, qui peut être annulée.
+     */
+    public Task loadPageBefore(TransactionPagingSource pagingSource, TransactionFilter filter, long anchorKey,
+                               Callback<TransactionPagingSource.Page> callback) {
+        return executeCached("page_before|" + filter.getCacheKey() + "|" + anchorKey, PAGE_TABLES,
+                filter.getFromDay(), filter.getToDay(), () -> pagingSource.fetchBefore(filter, anchorKey), callback);
+    }
+
+    /**
+     * Charge la page de transactions qui précède anchorKey (plus récentes, ou plus pertinentes).
+     *
+     * @param pagingSource La source paginée qui lit les lignes.
+     * @param filter       Le filtre appliqué.
+     * @param anchorKey    La clé de la première transaction déjà chargée.
+     * @param callback     Le callback recevant la page.
+     * @return La tâche, qui peut être annulée.
+     */
+    public Task loadPageAfter(TransactionPagingSource pagingSource, TransactionFilter filter, long anchorKey,
+                              Callback<TransactionPagingSource.Page> callback) {
+        return executeCached("page_after|" + filter.getCacheKey() + "|" + anchorKey, PAGE_TABLES,
+                filter.getFromDay(), filter.getToDay(), () -> pagingSource.fetchAfter(filter, anchorKey), callback);
+    }
+
+    /**
+     * Charge le récapitulatif d'un mois en une seule lecture de la table monthly_summary : les cartes
+     * des revenus et des dépenses (textes déjà formatés) et les totaux du camembert.
+     *
+     * @param month    Le mois, de 1 à 12.
+     * @param year     L'année.
+     * @param callback Le callback recevant le récapitulatif (partagé par le cache, non modifiable).
+     * @return La tâche, qui peut être annulée.
+     */
+    public Task loadMonthSummary(int month, int year, Callback<MonthSummary> callback) {
+        return executeCached("month_summary|" + year + "|" + month, MONTH_SUMMARY_TABLES,
+                DateCodec.firstDayOfMonth(year, month), DateCodec.lastDayOfMonth(year, month), () -> {
+            List<CategoryCard> incomeCards = new ArrayList<>();
+            List<CategoryCard> expenseCards = new ArrayList<>();
+            long totalIncome = 0;
+            long totalExpenses = 0;
+            Cursor cursor = dbHelper.getMonthlyTransactionsByCategory(year, month);
+            if (cursor != null) {
+                CategoryDictionary categories = dbHelper.getCategoryDictionary();
+                Map<Long, BudgetLimit> limits = dbHelper.getCategoryLimits(); // Une ligne par catégorie limitée
+                try {
+                    int categoryIndex = cursor.getColumnIndexOrThrow(DatabaseHelper.COLUMN_CATEGORY_ID);
+                    int typeIndex = cursor.getColumnIndexOrThrow(DatabaseHelper.COLUMN_TYPE);
+                    int totalIndex = cursor.getColumnIndexOrThrow(DatabaseHelper.COLUMN_TOTAL);
+                    while (cursor.moveToNext()) {
+                        // Une ligne par catégorie et par type : chaque ligne donne directement une carte
+                        long categoryId = cursor.getLong(categoryIndex);
+                        String type = cursor.getString(typeIndex);
+                        long total = cursor.getLong(totalIndex);
+                        if (DatabaseHelper.TYPE_INCOME.equals(type)) {
+                            incomeCards.add(new CategoryCard(categoryId, categories.getName(categoryId), total,
+                                    Money.format(total) + " DH", CategoryCard.NO_LIMIT));
+                            totalIncome += total;
+                        } else if (DatabaseHelper.TYPE_EXPENSE.equals(type)) {
+                            BudgetLimit limit = limits.get(categoryId);
+                            long limitMinor = limit != null ? limit.getLimitMinor() : CategoryCard.NO_LIMIT;
+                            String amountText = limit != null
+                                    ? Money.format(total) + " / " + Money.format(limitMinor) + " DH"
+                                    : Money.format(total) + " DH";
+                            expenseCards.add(new CategoryCard(categoryId, categories.getName(categoryId), total, amountText, limitMinor));
+                            totalExpenses += total;
+                        }
+                    }
+                } finally {
+                    cursor.close();
+                }
+            }
+            return new MonthSummary(incomeCards, expenseCards, totalIncome, totalExpenses);
+        }, callback);
+    }
+
+    /**
+     * Charge les limites mensuelles de toutes les catégories.
+     *
+     * @param callback Le callback recevant les limites par id de catégorie.
+     * @return La tâche, qui peut être annulée.
+     */
+    public Task loadCategoryLimits(Callback<Map<Long, BudgetLimit>> callback) {
+        return executeCached("category_limits", LIMITS_TABLES, DateCodec.INVALID_DAY, DateCodec.INVALID_DAY,
+                () -> Collections.unmodifiableMap(dbHelper.getCategoryLimits()), callback);
+    }
+
+    /**
+     * Définit (ou remplace) la limite mensuelle d'une catégorie.
+     *
+     * @param limit    La limite et ses seuils d'alerte.
+     * @param callback Le callback recevant le résultat (-1 en cas d'erreur), ou null.
+     * @return La tâche, qui peut être annulée.
+     */
+    public Task setCategoryLimit(BudgetLimit limit, Callback<Long> callback) {
+        return execute(() -> dbHelper.setCategoryLimit(limit), callback);
+    }
+
+    /**
+     * Supprime la limite mensuelle d'une catégorie.
+     *
+     * @param categoryId L'id de la catégorie.
+     * @param callback   Le callback recevant le nombre de limites supprimées, ou null.
+     * @return La tâche, qui peut être annulée.
+     */
+    public Task deleteCategoryLimit(long categoryId, Callback<Integer> callback) {
+        return execute(() -> dbHelper.deleteCategoryLimit(categoryId), callback);
+    }
+
+    /**
+     * Charge la première et la dernière année ayant des transactions.
+     *
+     * @param callback Le callback recevant {année min, année max}, ou null si aucune transaction.
+     * @return La tâche, qui peut être annulée.
+     */
+    public Task loadYearRange(Callback<int[]> callback) {
+        return executeCached("year_range", SUMMARY_TABLES, DateCodec.INVALID_DAY, DateCodec.INVALID_DAY,
+                dbHelper::getYearRange, callback);
+    }
+
+    /**
+     * Calcule les totaux par période (voir {@link TimeBucketAggregator#aggregate}). Les jours et semaines
+     * sont calculés sur le snapshot en mémoire des transactions, les périodes plus longues sur monthly_summary.
+     *
+     * @param callback Le callback recevant les totaux de chaque période.
+     * @return La tâche, qui peut être annulée.
+     */
+    public Task loadBuckets(TimeBucketAggregator.Granularity granularity, int fromDay, int toDay, long categoryId,
+                            Callback<BucketSeries> callback) {
+        return executeCached("buckets|" + granularity + "|" + fromDay + "|" + toDay + "|" + categoryId, BUCKET_TABLES, fromDay, toDay,
+                () -> {
+                    LedgerSnapshot snapshot = granularity.usesMonthlySummary() ? null : refreshLedgerSnapshot();
+                    return new TimeBucketAggregator(dbHelper, snapshot).aggregate(granularity, fromDay, toDay, categoryId);
+                }, callback);
+    }
+
+    /**
+     * Calcule les totaux sur une fenêtre glissante (voir {@link TimeBucketAggregator#aggregateRolling}).
+     *
+     * @param callback Le callback recevant une période par jour.
+     * @return La tâche, qui peut être annulée.
+     */
+    public Task loadRollingBuckets(int windowDays, int fromDay, int toDay, long categoryId, Callback<BucketSeries> callback) {
+        // Chaque fenêtre glissante lit aussi les windowDays - 1 jours qui précèdent fromDay
+        return executeCached("rolling|" + windowDays + "|" + fromDay + "|" + toDay + "|" + categoryId, BUCKET_TABLES,
+                fromDay - windowDays + 1, toDay,
+                () -> new TimeBucketAggregator(dbHelper, refreshLedgerSnapshot())
+                        .aggregateRolling(windowDays, fromDay, toDay, categoryId), callback);
+    }
+
+    /**
+     * Charge le snapshot en colonnes des transactions pour les agrégations en mémoire.
+     * Le premier appel lit toute la table ; les suivants n'ajoutent que les nouvelles transactions.
+     *
+     * @param callback Le callback recevant le snapshot.
+     * @return La tâche, qui peut être annulée.
+     */
+    public Task loadLedgerSnapshot(Callback<LedgerSnapshot> callback) {
+        return execute(this::refreshLedgerSnapshot, callback);
+    }
+
+    // Crée ou complète le snapshot partagé (un seul à la fois, les deux threads du pool pouvant l'appeler)
+    private synchronized LedgerSnapshot refreshLedgerSnapshot() {
+        ledgerSnapshot = LedgerSnapshotLoader.appendNewRows(dbHelper, ledgerSnapshot);
+        return ledgerSnapshot;
+    }
+
+    /**
+     * Recalcule les totaux à partir des transactions et corrige la table totals si elle a dérivé
+     * (voir {@link DatabaseHelper#verifyTotals()}).
+     *
+     * @param callback Le callback recevant `true` si un écart a été corrigé, ou null.
+     * @return La tâche, qui peut être annulée.
+     */
+    public Task verifyTotals(Callback<Boolean> callback) {
+        return execute(dbHelper::verifyTotals, callback);
+    }
+
+    /**
+     * Reconstruit la table monthly_summary à partir des transactions (voir {@link DatabaseHelper#rebuildMonthlySummary()}).
+     *
+     * @param callback Le callback recevant le nombre de lignes reconstruites, ou -1 en cas d'erreur.
+     * @return La tâche, qui peut être annulée.
+     */
+    public Task rebuildMonthlySummary(Callback<Integer> callback) {
+        return execute(dbHelper::rebuildMonthlySummary, callback);
+    }
+
+    /**
+     * Task représente un travail soumis au repository. Une fois annulée, elle ne livre plus de résultat.
+     */
+    public static class Task {
+        private volatile boolean cancelled; // La tâche a été annulée
+        private volatile boolean finished; // Le résultat a été livré
+        private final CancellationSignal cancellationSignal = new CancellationSignal(); // Interrompt les travaux longs
+
+        /**
+         * Annule la tâche : le travail n'est pas lancé s'il attend encore, un travail long en cours
+         * s'interrompt à sa prochaine vérification, et son résultat n'est pas livré.
+         */
+        public void cancel() {
+            cancelled = true;
+            cancellationSignal.cancel();
+        }
+
+        CancellationSignal getCancellationSignal() {
+            return cancellationSignal;
+        }
+
+        /**
+         * Indique si la tâche a été annulée.
+         *
+         * @return `true` si la tâche est annulée, sinon `false`.
+         */
+        public boolean isCancelled() {
+            return cancelled;
+        }
+
+        /**
+         * Indique si la tâche est terminée (résultat livré ou annulée).
+         *
+         * @return `true` si la tâche est terminée, sinon `false`.
+         */
+        public boolean isDone() {
+            return finished || cancelled;
+        }
+
+        void finish() {
+            finished = true;
+        }
+    }
+
+    /**
+     * TaskGroup regroupe les tâches d'un écran pour les annuler ensemble lors de sa destruction.
+     * Doit être utilisé depuis le thread principal.
+     */
+    public static class TaskGroup {
+        private final List<Task> tasks = new ArrayList<>(); // Tâches en cours de l'écran
+
+        /**
+         * Ajoute une tâche au groupe et retire les tâches terminées.
+         *
+         * @param task La tâche à suivre.
+         * @return La même tâche, pour permettre le chaînage.
+         */
+        public Task add(Task task) {
+            for (int i = tasks.size() - 1; i >= 0; i--) {
+                if (tasks.get(i).isDone()) {
+                    tasks.remove(i);
+                }
+            }
+            tasks.add(task);
+            return task;
+        }
+
+        /**
+         * Annule toutes les tâches du groupe.
+         */
+        public void cancelAll() {
+            for (Task task : tasks) {
+                task.cancel();
+            }
+            tasks.clear();
+        }
+    }
+}
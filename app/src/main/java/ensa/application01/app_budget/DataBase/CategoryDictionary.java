@@ -0,0 +1,95 @@
+package ensa.application01.app_budget.DataBase;
+
+import android.database.Cursor;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * CategoryDictionary associe les ids de la table categories à leurs noms.
+ * Une instance est une photographie immuable de la table : elle peut être partagée entre threads.
+ * L'instance courante est conservée par {@link DatabaseHelper#getCategoryDictionary()} et remplacée
+ * uniquement lorsque les catégories changent.
+ */
+public final class CategoryDictionary {
+
+    public static final long NO_ID = -1; // Id retourné pour un nom inconnu
+    static final CategoryDictionary EMPTY = new CategoryDictionary(
+            new ArrayList<>(), new HashMap<>(), new HashMap<>()); // Dictionnaire sans catégorie
+
+    private final List<String> names; // Noms des catégories, par id croissant
+    private final Map<Long, String> namesById; // Nom de chaque catégorie, par id
+    private final Map<String, Long> idsByName; // Id de chaque catégorie, par nom
+
+    private CategoryDictionary(List<String> names, Map<Long, String> namesById, Map<String, Long> idsByName) {
+        this.names = Collections.unmodifiableList(names);
+        this.namesById = namesById;
+        this.idsByName = idsByName;
+    }
+
+    /**
+     * Construit le dictionnaire à partir d'un curseur (id, nom) et le ferme.
+     *
+     * @param cursor Le curseur des catégories, trié par id.
+     * @return Le dictionnaire.
+     */
+    static CategoryDictionary fromCursor(Cursor cursor) {
+        List<String> names = new ArrayList<>();
+        Map<Long, String> namesById = new HashMap<>();
+        Map<String, Long> idsByName = new HashMap<>();
+        try {
+            while (cursor.moveToNext()) {
+                long id = cursor.getLong(0);
+                String name = cursor.getString(1);
+                names.add(name);
+                namesById.put(id, name);
+                idsByName.put(name, id);
+            }
+        } finally {
+            cursor.close();
+        }
+        return new CategoryDictionary(names, namesById, idsByName);
+    }
+
+    /**
+     * Retourne le nom d'une catégorie.
+     *
+     * @param id L'id de la catégorie.
+     * @return Le nom, ou null si l'id est inconnu.
+     */
+    public String getName(long id) {
+        return namesById.get(id);
+    }
+
+    /**
+     * Retourne l'id d'une catégorie.
+     *
+     * @param name Le nom de la catégorie.
+     * @return L'id, ou {@link #NO_ID} si le nom est inconnu.
+     */
+    public long getId(String name) {
+        Long id = idsByName.get(name);
+        return id != null ? id : NO_ID;
+    }
+
+    /**
+     * Retourne les noms des catégories, dans l'ordre de création.
+     *
+     * @return La liste non modifiable des noms.
+     */
+    public List<String> getNames() {
+        return names;
+    }
+
+    /**
+     * Retourne le nombre de catégories.
+     *
+     * @return Le nombre de catégories.
+     */
+    public int size() {
+        return names.size();
+    }
+}
@@ -0,0 +1,72 @@
+package ensa.application01.app_budget.DataBase;
+
+import android.database.sqlite.SQLiteDatabase;
+
+/**
+ * ChunkedJob est un travail de migration exécuté par lots d'ids, chaque lot dans sa propre
+ * transaction, après l'ouverture de la base. Sa progression est enregistrée avec chaque lot :
+ * si le processus est tué, le travail reprend au lot suivant à la prochaine ouverture.
+ * Un travail sans table source n'a pas de lots et exécute seulement {@link #finish}.
+ */
+public abstract class ChunkedJob {
+
+    private final String name; // Nom unique du travail, enregistré dans le journal des migrations
+    private final String sourceTable; // Table parcourue par lots d'ids, ou null
+
+    /**
+     * Constructeur de ChunkedJob.
+     *
+     * @param name        Le nom unique du travail (ne doit jamais changer une fois publié).
+     * @param sourceTable La table dont les ids sont parcourus par lots, ou null s'il n'y a pas de lots.
+     */
+    protected ChunkedJob(String name, String sourceTable) {
+        this.name = name;
+        this.sourceTable = sourceTable;
+    }
+
+    /**
+     * Retourne le nom unique du travail.
+     *
+     * @return Le nom du travail.
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Retourne la table parcourue par lots.
+     *
+     * @return Le nom de la table, ou null s'il n'y a pas de lots.
+     */
+    public String getSourceTable() {
+        return sourceTable;
+    }
+
+    /**
+     * Prépare le travail avant son premier lot, à chaque exécution (première ou reprise après interruption).
+     * Exécuté dans sa propre transaction.
+     *
+     * @param db La base de données.
+     */
+    public void prepare(SQLiteDatabase db) {
+    }
+
+    /**
+     * Traite les lignes de la table source dont l'id est dans l'intervalle ]fromId, toId].
+     *
+     * @param db     La base de données, dans la transaction du lot.
+     * @param fromId L'id exclu à partir duquel traiter.
+     * @param toId   Le dernier id inclus du lot.
+     */
+    public void processRange(SQLiteDatabase db, long fromId, long toId) {
+    }
+
+    /**
+     * Termine le travail une fois tous les lots traités (construction des index, bascule de table...).
+     * Exécuté dans la même transaction que le marquage du travail comme terminé.
+     *
+     * @param db La base de données.
+     */
+    public void finish(SQLiteDatabase db) {
+    }
+}
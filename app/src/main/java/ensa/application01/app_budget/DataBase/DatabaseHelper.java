@@ -3,34 +3,206 @@ package ensa.application01.app_budget.DataBase;
 import android.content.ContentValues;
 import android.content.Context;
 import android.database.Cursor;
+import android.database.sqlite.SQLiteConstraintException;
 import android.database.sqlite.SQLiteDatabase;
 import android.database.sqlite.SQLiteOpenHelper;
 import android.util.Log;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import ensa.application01.app_budget.module.BudgetLimit;
+import ensa.application01.app_budget.module.RecurrenceRule;
+import ensa.application01.app_budget.module.Totals;
+import ensa.application01.app_budget.module.Transaction;
+import ensa.application01.app_budget.utils.DateCodec;
 
 public class DatabaseHelper extends SQLiteOpenHelper {
     private static final String DATABASE_NAME = "budget.db";
-    private static final int DATABASE_VERSION = 2;
+    private static final int DATABASE_VERSION = 12;
     private static final String TAG = "DatabaseHelper";
 
     // Noms des tables et colonnes
     public static final String TABLE_TRANSACTIONS = "transactions";
     public static final String TABLE_CATEGORIES = "categories";
+    public static final String TABLE_TOTALS = "totals";
+    public static final String TABLE_MONTHLY_SUMMARY = "monthly_summary";
+    public static final String TABLE_TRANSACTIONS_FTS = "transactions_fts"; // Index plein texte (docid = id de la transaction)
+    public static final String TABLE_REMINDERS = "reminders"; // Rappels à notifier, par heure de déclenchement
+    public static final String TABLE_RECURRENCE_RULES = "recurrence_rules"; // Transactions répétées, générées à la demande
+    public static final String TABLE_CATEGORY_LIMITS = "category_limits"; // Limite mensuelle des dépenses par catégorie
     public static final String COLUMN_ID = "id";
     public static final String COLUMN_TYPE = "type";
-    public static final String COLUMN_AMOUNT = "amount";
-    public static final String COLUMN_CATEGORY = "category";
+    public static final String COLUMN_AMOUNT_MINOR = "amount_minor"; // Montant en centimes (entier 64 bits)
+    public static final String COLUMN_CATEGORY = "category"; // Nom de la catégorie dans les résultats (et les anciens schémas)
+    public static final String COLUMN_CATEGORY_ID = "category_id"; // Clé étrangère vers categories.id
     public static final String COLUMN_DATE = "date";
+    public static final String COLUMN_DATE_DAY = "date_day"; // Date en jours depuis le 01/01/1970, indexée
     public static final String COLUMN_NOTE = "note";
     public static final String COLUMN_IS_ALARM_ENABLED = "isAlarmEnabled";
     public static final String COLUMN_ALARM_DATE = "alarmDate";
     public static final String COLUMN_ALARM_TIME = "alarmTime";
     public static final String COLUMN_CATEGORY_NAME = "name";
+    public static final String COLUMN_INCOME = "income";
+    public static final String COLUMN_EXPENSES = "expenses";
+    public static final String COLUMN_YEAR = "year";
+    public static final String COLUMN_MONTH = "month"; // Mois de 1 à 12
+    public static final String COLUMN_TOTAL = "total"; // Somme des montants en centimes
+    public static final String COLUMN_COUNT = "count"; // Nombre de transactions
+    public static final String COLUMN_PAGE_KEY = "page_key"; // Clé de pagination des résultats de recherche (rang, puis id)
+    public static final String COLUMN_TRANSACTION_ID = "transaction_id"; // Transaction rappelée
+    public static final String COLUMN_FIRE_AT = "fire_at"; // Heure de déclenchement du rappel (ms depuis le 01/01/1970)
+    public static final String COLUMN_TITLE = "title";
+    public static final String COLUMN_MESSAGE = "message";
+    public static final String COLUMN_FREQUENCY = "frequency"; // DAILY, WEEKLY, MONTHLY ou YEARLY
+    public static final String COLUMN_START_DAY = "start_day"; // Première occurrence (jours depuis le 01/01/1970)
+    public static final String COLUMN_END_DAY = "end_day"; // Dernière date possible (incluse), ou NULL
+    public static final String COLUMN_MAX_COUNT = "max_count"; // Nombre maximal d'occurrences, ou NULL
+    public static final String COLUMN_GENERATED_COUNT = "generated_count"; // Occurrences déjà générées
+    public static final String COLUMN_NEXT_DAY = "next_day"; // Prochaine occurrence à générer, ou NULL si la règle est terminée
+    public static final String COLUMN_LIMIT_MINOR = "limit_minor"; // Limite mensuelle en centimes
+    public static final String COLUMN_THRESHOLDS = "thresholds"; // Seuils d'alerte en pourcentage (exemple : "80,100")
+
+    // Types de transaction
+    public static final String TYPE_INCOME = Transaction.TYPE_INCOME;
+    public static final String TYPE_EXPENSE = Transaction.TYPE_EXPENSE;
+
+    // Ligne unique de la table totals
+    private static final long TOTALS_ROW_ID = 1;
+
+    // Index
+    private static final String INDEX_TRANSACTIONS_DATE_DAY = "idx_transactions_date_day";
+    private static final String INDEX_TRANSACTIONS_TYPE_CATEGORY_DATE = "idx_transactions_type_category_date";
+    private static final String INDEX_TRANSACTIONS_CATEGORY_DATE = "idx_transactions_category_date";
+    private static final String INDEX_REMINDERS_FIRE_AT = "idx_reminders_fire_at";
+    private static final String INDEX_RECURRENCE_RULES_NEXT_DAY = "idx_recurrence_rules_next_day";
+
+    private static DatabaseHelper instance; // Instance unique, liée au contexte de l'application
+    private static final AtomicInteger openCount = new AtomicInteger(); // Nombre d'ouvertures du fichier de base
+
+    private final MigrationRunner migrationRunner = Migrations.createRunner(); // Étapes de schéma et travaux par lots
+    private CategoryDictionary categoryDictionary; // Dictionnaire id ↔ nom des catégories, chargé à la première utilisation
+    private final List<ChangeListener> changeListeners = new CopyOnWriteArrayList<>(); // Abonnés aux écritures
+
+    private DatabaseHelper(Context context) {
+        this(context, DATABASE_NAME);
+    }
+
+    /**
+     * Constructeur sur un fichier de base donné, pour les tests de migration (l'application passe par getInstance).
+     *
+     * @param context Le contexte.
+     * @param name    Le nom du fichier de base de données.
+     */
+    DatabaseHelper(Context context, String name) {
+        super(context, name, null, DATABASE_VERSION);
+        // Journal WAL : les lectures ne sont plus bloquées par les écritures
+        setWriteAheadLoggingEnabled(true);
+    }
+
+    /**
+     * Retourne l'instance unique du helper, créée à la première utilisation.
+     * La connexion reste ouverte pendant toute la vie du processus : ne pas appeler close().
+     *
+     * @param context Un contexte quelconque (seul le contexte de l'application est conservé).
+     * @return L'instance du helper.
+     */
+    public static synchronized DatabaseHelper getInstance(Context context) {
+        if (instance == null) {
+            instance = new DatabaseHelper(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    /**
+     * Retourne le nombre de fois où le fichier de base de données a été ouvert dans ce processus.
+     * Avec l'instance unique, cette valeur doit rester à 1.
+     *
+     * @return Le nombre d'ouvertures.
+     */
+    public static int getOpenCount() {
+        return openCount.get();
+    }
+
+    /**
+     * ChangeListener est notifié après chaque écriture validée par le helper, sur le thread qui a écrit.
+     */
+    public interface ChangeListener {
+        /**
+         * Appelée après une écriture validée dans une table.
+         *
+         * @param change La table modifiée et l'intervalle de dates concerné.
+         */
+        void onTableChanged(TableChange change);
+    }
+
+    /**
+     * Abonne un listener aux écritures dans la base.
+     *
+     * @param listener Le listener à ajouter.
+     */
+    public void addChangeListener(ChangeListener listener) {
+        changeListeners.add(listener);
+    }
+
+    /**
+     * Désabonne un listener des écritures dans la base.
+     *
+     * @param listener Le listener à retirer.
+     */
+    public void removeChangeListener(ChangeListener listener) {
+        changeListeners.remove(listener);
+    }
+
+    // Notifie les listeners d'une écriture validée dans une table (rowIds null si les lignes sont inconnues)
+    void notifyTableChanged(String table, long[] rowIds, int fromDay, int toDay) {
+        if (changeListeners.isEmpty()) {
+            return;
+        }
+        TableChange change = new TableChange(table, rowIds, fromDay, toDay);
+        for (ChangeListener listener : changeListeners) {
+            listener.onTableChanged(change);
+        }
+    }
+
+    // Notifie une écriture dans transactions et dans les tables que ses triggers tiennent à jour
+    void notifyTransactionsChanged(long[] rowIds, int fromDay, int toDay) {
+        notifyTableChanged(TABLE_TRANSACTIONS, rowIds, fromDay, toDay);
+        notifyTableChanged(TABLE_TOTALS, null, fromDay, toDay);
+        notifyTableChanged(TABLE_MONTHLY_SUMMARY, null, fromDay, toDay);
+        notifyTableChanged(TABLE_TRANSACTIONS_FTS, rowIds, fromDay, toDay); // docid = id de la transaction
+    }
 
-    public DatabaseHelper(Context context) {
-        super(context, DATABASE_NAME, null, DATABASE_VERSION);
+    @Override
+    public void onConfigure(SQLiteDatabase db) {
+        super.onConfigure(db);
+        // SQLite n'applique les clés étrangères que si elles sont activées sur la connexion
+        db.setForeignKeyConstraintsEnabled(true);
+    }
+
+    @Override
+    public void onOpen(SQLiteDatabase db) {
+        super.onOpen(db);
+        int count = openCount.incrementAndGet();
+        Log.d(TAG, "Base de données ouverte (ouverture n°" + count + ", WAL : " + db.isWriteAheadLoggingEnabled() + ")");
+
+        // Reprendre les travaux de migration non terminés (un lot par transaction). En cas d'échec l'exception
+        // remonte à getWritableDatabase() : la base n'est pas ouverte sur un schéma incomplet et l'accès suivant réessaie
+        migrationRunner.runPending(db);
+    }
+
+    /**
+     * Définit le listener notifié de l'avancement des migrations par lots.
+     * À appeler avant le premier accès à la base pour suivre une mise à jour.
+     *
+     * @param listener Le listener, ou null pour se contenter des logs.
+     */
+    public void setMigrationProgressListener(MigrationRunner.ProgressListener listener) {
+        migrationRunner.setProgressListener(listener);
     }
 
     @Override
@@ -38,29 +210,39 @@ public class DatabaseHelper extends SQLiteOpenHelper {
         try {
             Log.d(TAG, "Création de la base de données");
 
-            // Créer la table transactions
+            // Créer la table categories (référencée par la table transactions)
+            String createCategoriesTable = "CREATE TABLE " + TABLE_CATEGORIES + "("
+                    + COLUMN_ID + " INTEGER PRIMARY KEY AUTOINCREMENT,"
+                    + COLUMN_CATEGORY_NAME + " TEXT UNIQUE"
+                    + ")";
+            db.execSQL(createCategoriesTable);
+            Log.d(TAG, "Table categories créée");
+
+            // Créer la table transactions ; une catégorie utilisée ne peut pas être supprimée
             String createTableQuery = "CREATE TABLE " + TABLE_TRANSACTIONS + "("
                     + COLUMN_ID + " INTEGER PRIMARY KEY AUTOINCREMENT,"
                     + COLUMN_TYPE + " TEXT,"
-                    + COLUMN_AMOUNT + " REAL,"
-                    + COLUMN_CATEGORY + " TEXT,"
+                    + COLUMN_AMOUNT_MINOR + " INTEGER NOT NULL,"
+                    + COLUMN_CATEGORY_ID + " INTEGER NOT NULL REFERENCES " + TABLE_CATEGORIES + "(" + COLUMN_ID + ") ON DELETE RESTRICT,"
                     + COLUMN_DATE + " TEXT,"
                     + COLUMN_NOTE + " TEXT,"
                     + COLUMN_IS_ALARM_ENABLED + " INTEGER,"
                     + COLUMN_ALARM_DATE + " TEXT,"
                     + COLUMN_ALARM_TIME + " TEXT,"
-                    + "UNIQUE(" + COLUMN_TYPE + ", " + COLUMN_AMOUNT + ", " + COLUMN_CATEGORY + ", " + COLUMN_DATE + ", " + COLUMN_NOTE + ")"
+                    + COLUMN_DATE_DAY + " INTEGER,"
+                    + "UNIQUE(" + COLUMN_TYPE + ", " + COLUMN_AMOUNT_MINOR + ", " + COLUMN_CATEGORY_ID + ", " + COLUMN_DATE + ", " + COLUMN_NOTE + ")"
                     + ")";
             db.execSQL(createTableQuery);
+            createDateDayIndex(db);
+            createFilterIndexes(db);
             Log.d(TAG, "Table transactions créée");
 
-            // Créer la table categories
-            String createCategoriesTable = "CREATE TABLE " + TABLE_CATEGORIES + "("
-                    + COLUMN_ID + " INTEGER PRIMARY KEY AUTOINCREMENT,"
-                    + COLUMN_CATEGORY_NAME + " TEXT UNIQUE"
-                    + ")";
-            db.execSQL(createCategoriesTable);
-            Log.d(TAG, "Table categories créée");
+            createTotalsTable(db);
+            createMonthlySummaryTable(db);
+            createSearchIndex(db);
+            createRemindersTable(db);
+            createRecurrenceRulesTable(db);
+            createCategoryLimitsTable(db);
 
             // Insérer des catégories par défaut
             db.execSQL("INSERT INTO " + TABLE_CATEGORIES + " (" + COLUMN_CATEGORY_NAME + ") VALUES ('Salaire')");
@@ -78,37 +260,456 @@ public class DatabaseHelper extends SQLiteOpenHelper {
         try {
             Log.d(TAG, "Mise à jour de la base de données de la version " + oldVersion + " à " + newVersion);
 
-            // Supprimer les tables existantes et les recréer
-            db.execSQL("DROP TABLE IF EXISTS " + TABLE_TRANSACTIONS);
-            db.execSQL("DROP TABLE IF EXISTS " + TABLE_CATEGORIES);
-            Log.d(TAG, "Anciennes tables supprimées");
+            if (oldVersion < 2) {
+                // Schéma trop ancien : supprimer les tables existantes et les recréer
+                db.execSQL("DROP TABLE IF EXISTS " + TABLE_TRANSACTIONS);
+                db.execSQL("DROP TABLE IF EXISTS " + TABLE_CATEGORIES);
+                Log.d(TAG, "Anciennes tables supprimées");
 
-            onCreate(db);
+                onCreate(db);
+                return;
+            }
+
+            // Étapes de schéma dans la transaction ; les travaux par lots s'exécutent dans onOpen
+            migrationRunner.upgrade(db, oldVersion, newVersion);
         } catch (Exception e) {
             Log.e(TAG, "Erreur lors de la mise à jour de la base de données", e);
+            // Relancer pour annuler la transaction : la base reste à l'ancienne version
+            throw e;
+        }
+    }
+
+    // Créer la table des rappels, indexée par heure de déclenchement (le prochain rappel est lu en tête d'index)
+    private void createRemindersTable(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE IF NOT EXISTS " + TABLE_REMINDERS + "("
+                + COLUMN_ID + " INTEGER PRIMARY KEY AUTOINCREMENT,"
+                + COLUMN_TRANSACTION_ID + " INTEGER REFERENCES " + TABLE_TRANSACTIONS + "(" + COLUMN_ID + ") ON DELETE CASCADE,"
+                + COLUMN_FIRE_AT + " INTEGER NOT NULL,"
+                + COLUMN_TITLE + " TEXT,"
+                + COLUMN_MESSAGE + " TEXT"
+                + ")");
+        db.execSQL("CREATE INDEX IF NOT EXISTS " + INDEX_REMINDERS_FIRE_AT
+                + " ON " + TABLE_REMINDERS + "(" + COLUMN_FIRE_AT + ")");
+    }
+
+    // Créer la table des règles de répétition ; l'index partiel sur next_day ne contient que les règles actives
+    private void createRecurrenceRulesTable(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE IF NOT EXISTS " + TABLE_RECURRENCE_RULES + "("
+                + COLUMN_ID + " INTEGER PRIMARY KEY AUTOINCREMENT,"
+                + COLUMN_TYPE + " TEXT NOT NULL,"
+                + COLUMN_AMOUNT_MINOR + " INTEGER NOT NULL,"
+                + COLUMN_CATEGORY_ID + " INTEGER NOT NULL REFERENCES " + TABLE_CATEGORIES + "(" + COLUMN_ID + ") ON DELETE RESTRICT,"
+                + COLUMN_NOTE + " TEXT,"
+                + COLUMN_FREQUENCY + " TEXT NOT NULL,"
+                + COLUMN_START_DAY + " INTEGER NOT NULL,"
+                + COLUMN_END_DAY + " INTEGER,"
+                + COLUMN_MAX_COUNT + " INTEGER,"
+                + COLUMN_GENERATED_COUNT + " INTEGER NOT NULL DEFAULT 0,"
+                + COLUMN_NEXT_DAY + " INTEGER"
+                + ")");
+        db.execSQL("CREATE INDEX IF NOT EXISTS " + INDEX_RECURRENCE_RULES_NEXT_DAY
+                + " ON " + TABLE_RECURRENCE_RULES + "(" + COLUMN_NEXT_DAY + ") WHERE " + COLUMN_NEXT_DAY + " IS NOT NULL");
+    }
+
+    // Créer la table des limites mensuelles : au plus une par catégorie, supprimée avec la catégorie
+    private void createCategoryLimitsTable(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE IF NOT EXISTS " + TABLE_CATEGORY_LIMITS + "("
+                + COLUMN_CATEGORY_ID + " INTEGER PRIMARY KEY REFERENCES " + TABLE_CATEGORIES + "(" + COLUMN_ID + ") ON DELETE CASCADE,"
+                + COLUMN_LIMIT_MINOR + " INTEGER NOT NULL,"
+                + COLUMN_THRESHOLDS + " TEXT NOT NULL DEFAULT '80,100'"
+                + ")");
+    }
+
+    // Créer l'index sur la date entière des transactions
+    private void createDateDayIndex(SQLiteDatabase db) {
+        db.execSQL("CREATE INDEX IF NOT EXISTS " + INDEX_TRANSACTIONS_DATE_DAY
+                + " ON " + TABLE_TRANSACTIONS + "(" + COLUMN_DATE_DAY + ")");
+    }
+
+    // Créer les index composites utilisés par les filtres de l'historique
+    private void createFilterIndexes(SQLiteDatabase db) {
+        db.execSQL("CREATE INDEX IF NOT EXISTS " + INDEX_TRANSACTIONS_TYPE_CATEGORY_DATE
+                + " ON " + TABLE_TRANSACTIONS + "(" + COLUMN_TYPE + ", " + COLUMN_CATEGORY_ID + ", " + COLUMN_DATE_DAY + ")");
+        // Filtre par catégorie sans type : (type, ...) ne peut pas servir de préfixe.
+        // Sert aussi à la vérification de la clé étrangère lors de la suppression d'une catégorie
+        db.execSQL("CREATE INDEX IF NOT EXISTS " + INDEX_TRANSACTIONS_CATEGORY_DATE
+                + " ON " + TABLE_TRANSACTIONS + "(" + COLUMN_CATEGORY_ID + ", " + COLUMN_DATE_DAY + ")");
+    }
+
+    /**
+     * Crée la table totals (une seule ligne) et les triggers qui la tiennent à jour
+     * à chaque insertion, modification ou suppression de transaction.
+     *
+     * @param db La base de données.
+     */
+    private void createTotalsTable(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE IF NOT EXISTS " + TABLE_TOTALS + "("
+                + COLUMN_ID + " INTEGER PRIMARY KEY,"
+                + COLUMN_INCOME + " INTEGER NOT NULL DEFAULT 0,"
+                + COLUMN_EXPENSES + " INTEGER NOT NULL DEFAULT 0"
+                + ")");
+        db.execSQL("INSERT OR IGNORE INTO " + TABLE_TOTALS + " (" + COLUMN_ID + ") VALUES (" + TOTALS_ROW_ID + ")");
+
+        db.execSQL("CREATE TRIGGER IF NOT EXISTS trg_totals_insert AFTER INSERT ON " + TABLE_TRANSACTIONS + " BEGIN "
+                + "UPDATE " + TABLE_TOTALS + " SET "
+                + COLUMN_INCOME + " = " + COLUMN_INCOME + " + " + amountOfType("NEW", TYPE_INCOME) + ", "
+                + COLUMN_EXPENSES + " = " + COLUMN_EXPENSES + " + " + amountOfType("NEW", TYPE_EXPENSE)
+                + " WHERE " + COLUMN_ID + " = " + TOTALS_ROW_ID + "; END");
+        db.execSQL("CREATE TRIGGER IF NOT EXISTS trg_totals_delete AFTER DELETE ON " + TABLE_TRANSACTIONS + " BEGIN "
+                + "UPDATE " + TABLE_TOTALS + " SET "
+                + COLUMN_INCOME + " = " + COLUMN_INCOME + " - " + amountOfType("OLD", TYPE_INCOME) + ", "
+                + COLUMN_EXPENSES + " = " + COLUMN_EXPENSES + " - " + amountOfType("OLD", TYPE_EXPENSE)
+                + " WHERE " + COLUMN_ID + " = " + TOTALS_ROW_ID + "; END");
+        db.execSQL("CREATE TRIGGER IF NOT EXISTS trg_totals_update AFTER UPDATE OF " + COLUMN_TYPE + ", " + COLUMN_AMOUNT_MINOR
+                + " ON " + TABLE_TRANSACTIONS + " BEGIN "
+                + "UPDATE " + TABLE_TOTALS + " SET "
+                + COLUMN_INCOME + " = " + COLUMN_INCOME + " - " + amountOfType("OLD", TYPE_INCOME) + " + " + amountOfType("NEW", TYPE_INCOME) + ", "
+                + COLUMN_EXPENSES + " = " + COLUMN_EXPENSES + " - " + amountOfType("OLD", TYPE_EXPENSE) + " + " + amountOfType("NEW", TYPE_EXPENSE)
+                + " WHERE " + COLUMN_ID + " = " + TOTALS_ROW_ID + "; END");
+        Log.d(TAG, "Table totals et triggers créés");
+    }
+
+    /**
+     * Crée la table monthly_summary (un total et un nombre de transactions par mois, catégorie et type)
+     * et les triggers qui la tiennent à jour : les graphiques lisent quelques lignes précalculées
+     * quel que soit le nombre de transactions.
+     *
+     * @param db La base de données.
+     */
+    private void createMonthlySummaryTable(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE IF NOT EXISTS " + TABLE_MONTHLY_SUMMARY + "("
+                + COLUMN_YEAR + " INTEGER NOT NULL,"
+                + COLUMN_MONTH + " INTEGER NOT NULL,"
+                + COLUMN_CATEGORY_ID + " INTEGER NOT NULL,"
+                + COLUMN_TYPE + " TEXT NOT NULL,"
+                + COLUMN_TOTAL + " INTEGER NOT NULL DEFAULT 0,"
+                + COLUMN_COUNT + " INTEGER NOT NULL DEFAULT 0,"
+                + "PRIMARY KEY(" + COLUMN_YEAR + ", " + COLUMN_MONTH + ", " + COLUMN_CATEGORY_ID + ", " + COLUMN_TYPE + ")"
+                + ") WITHOUT ROWID");
+
+        db.execSQL("CREATE TRIGGER IF NOT EXISTS trg_summary_insert AFTER INSERT ON " + TABLE_TRANSACTIONS + " BEGIN "
+                + addToSummary("NEW") + " END");
+        db.execSQL("CREATE TRIGGER IF NOT EXISTS trg_summary_delete AFTER DELETE ON " + TABLE_TRANSACTIONS + " BEGIN "
+                + removeFromSummary("OLD") + " END");
+        db.execSQL("CREATE TRIGGER IF NOT EXISTS trg_summary_update AFTER UPDATE OF " + COLUMN_TYPE + ", " + COLUMN_AMOUNT_MINOR + ", "
+                + COLUMN_CATEGORY_ID + ", " + COLUMN_DATE_DAY + " ON " + TABLE_TRANSACTIONS + " BEGIN "
+                + removeFromSummary("OLD") + " " + addToSummary("NEW") + " END");
+        Log.d(TAG, "Table monthly_summary et triggers créés");
+    }
+
+    /**
+     * Crée l'index plein texte transactions_fts (note et nom de catégorie de chaque transaction)
+     * et les triggers qui le synchronisent avec les tables transactions et categories.
+     * Le tokenizer unicode61 ignore la casse et les accents : "cafe" trouve "Café".
+     *
+     * @param db La base de données.
+     */
+    private void createSearchIndex(SQLiteDatabase db) {
+        db.execSQL("CREATE VIRTUAL TABLE IF NOT EXISTS " + TABLE_TRANSACTIONS_FTS + " USING fts4("
+                + COLUMN_NOTE + ", " + COLUMN_CATEGORY + ", tokenize=unicode61)");
+
+        db.execSQL("CREATE TRIGGER IF NOT EXISTS trg_fts_insert AFTER INSERT ON " + TABLE_TRANSACTIONS + " BEGIN "
+                + "INSERT INTO " + TABLE_TRANSACTIONS_FTS + " (docid, " + COLUMN_NOTE + ", " + COLUMN_CATEGORY + ") "
+                + "VALUES (NEW." + COLUMN_ID + ", NEW." + COLUMN_NOTE + ", " + categoryNameOf("NEW") + "); END");
+        db.execSQL("CREATE TRIGGER IF NOT EXISTS trg_fts_delete AFTER DELETE ON " + TABLE_TRANSACTIONS + " BEGIN "
+                + "DELETE FROM " + TABLE_TRANSACTIONS_FTS + " WHERE docid = OLD." + COLUMN_ID + "; END");
+        db.execSQL("CREATE TRIGGER IF NOT EXISTS trg_fts_update AFTER UPDATE OF " + COLUMN_NOTE + ", " + COLUMN_CATEGORY_ID
+                + " ON " + TABLE_TRANSACTIONS + " BEGIN "
+                + "UPDATE " + TABLE_TRANSACTIONS_FTS + " SET " + COLUMN_NOTE + " = NEW." + COLUMN_NOTE + ", "
+                + COLUMN_CATEGORY + " = " + categoryNameOf("NEW") + " WHERE docid = NEW." + COLUMN_ID + "; END");
+        db.execSQL("CREATE TRIGGER IF NOT EXISTS trg_fts_category_rename AFTER UPDATE OF " + COLUMN_CATEGORY_NAME
+                + " ON " + TABLE_CATEGORIES + " BEGIN "
+                + "UPDATE " + TABLE_TRANSACTIONS_FTS + " SET " + COLUMN_CATEGORY + " = NEW." + COLUMN_CATEGORY_NAME
+                + " WHERE docid IN (SELECT " + COLUMN_ID + " FROM " + TABLE_TRANSACTIONS
+                + " WHERE " + COLUMN_CATEGORY_ID + " = NEW." + COLUMN_ID + "); END");
+        Log.d(TAG, "Index plein texte et triggers créés");
+    }
+
+    // Sous-requête SQL du nom de catégorie d'une transaction (NEW ou OLD)
+    private static String categoryNameOf(String row) {
+        return "(SELECT " + COLUMN_CATEGORY_NAME + " FROM " + TABLE_CATEGORIES
+                + " WHERE " + COLUMN_ID + " = " + row + "." + COLUMN_CATEGORY_ID + ")";
+    }
+
+    // Instructions SQL (corps de trigger) ajoutant une ligne (NEW) à son mois ; les dates invalides sont ignorées
+    private static String addToSummary(String row) {
+        return "INSERT OR IGNORE INTO " + TABLE_MONTHLY_SUMMARY + " (" + COLUMN_YEAR + ", " + COLUMN_MONTH + ", "
+                + COLUMN_CATEGORY_ID + ", " + COLUMN_TYPE + ") SELECT " + yearOf(row + "." + COLUMN_DATE_DAY) + ", "
+                + monthOf(row + "." + COLUMN_DATE_DAY) + ", " + row + "." + COLUMN_CATEGORY_ID + ", " + row + "." + COLUMN_TYPE
+                + " WHERE " + yearOf(row + "." + COLUMN_DATE_DAY) + " IS NOT NULL AND " + row + "." + COLUMN_TYPE + " IS NOT NULL; "
+                + "UPDATE " + TABLE_MONTHLY_SUMMARY + " SET "
+                + COLUMN_TOTAL + " = " + COLUMN_TOTAL + " + " + row + "." + COLUMN_AMOUNT_MINOR + ", "
+                + COLUMN_COUNT + " = " + COLUMN_COUNT + " + 1 WHERE " + summaryKeyOf(row) + ";";
+    }
+
+    // Instructions SQL (corps de trigger) retirant une ligne (OLD) de son mois, et le mois s'il devient vide
+    private static String removeFromSummary(String row) {
+        return "UPDATE " + TABLE_MONTHLY_SUMMARY + " SET "
+                + COLUMN_TOTAL + " = " + COLUMN_TOTAL + " - " + row + "." + COLUMN_AMOUNT_MINOR + ", "
+                + COLUMN_COUNT + " = " + COLUMN_COUNT + " - 1 WHERE " + summaryKeyOf(row) + "; "
+                + "DELETE FROM " + TABLE_MONTHLY_SUMMARY + " WHERE " + summaryKeyOf(row) + " AND " + COLUMN_COUNT + " <= 0;";
+    }
+
+    // Condition SQL sélectionnant la ligne de monthly_summary d'une transaction (NEW ou OLD)
+    private static String summaryKeyOf(String row) {
+        return COLUMN_YEAR + " = " + yearOf(row + "." + COLUMN_DATE_DAY)
+                + " AND " + COLUMN_MONTH + " = " + monthOf(row + "." + COLUMN_DATE_DAY)
+                + " AND " + COLUMN_CATEGORY_ID + " = " + row + "." + COLUMN_CATEGORY_ID
+                + " AND " + COLUMN_TYPE + " = " + row + "." + COLUMN_TYPE;
+    }
+
+    // Expression SQL de l'année d'une date en jours depuis le 01/01/1970 (NULL si la date est invalide)
+    private static String yearOf(String dateDay) {
+        return "CAST(strftime('%Y', " + dateDay + " * 86400, 'unixepoch') AS INTEGER)";
+    }
+
+    // Expression SQL du mois (1 à 12) d'une date en jours depuis le 01/01/1970
+    private static String monthOf(String dateDay) {
+        return "CAST(strftime('%m', " + dateDay + " * 86400, 'unixepoch') AS INTEGER)";
+    }
+
+    /**
+     * Reconstruit entièrement la table monthly_summary à partir des transactions.
+     * Destiné aux opérations de maintenance (parcours complet de la table).
+     *
+     * @return Le nombre de lignes de la table reconstruite, ou -1 en cas d'erreur.
+     */
+    public int rebuildMonthlySummary() {
+        SQLiteDatabase db = getWritableDatabase();
+        int rows = -1;
+        db.beginTransaction();
+        try {
+            db.execSQL("DELETE FROM " + TABLE_MONTHLY_SUMMARY);
+            db.execSQL("INSERT INTO " + TABLE_MONTHLY_SUMMARY + " (" + COLUMN_YEAR + ", " + COLUMN_MONTH + ", "
+                    + COLUMN_CATEGORY_ID + ", " + COLUMN_TYPE + ", " + COLUMN_TOTAL + ", " + COLUMN_COUNT + ") "
+                    + "SELECT " + yearOf(COLUMN_DATE_DAY) + " AS y, " + monthOf(COLUMN_DATE_DAY) + " AS m, "
+                    + COLUMN_CATEGORY_ID + ", " + COLUMN_TYPE + ", SUM(" + COLUMN_AMOUNT_MINOR + "), COUNT(*) "
+                    + "FROM " + TABLE_TRANSACTIONS + " WHERE y IS NOT NULL AND " + COLUMN_TYPE + " IS NOT NULL "
+                    + "GROUP BY y, m, " + COLUMN_CATEGORY_ID + ", " + COLUMN_TYPE);
+            Cursor cursor = db.rawQuery("SELECT COUNT(*) FROM " + TABLE_MONTHLY_SUMMARY, null);
+            try {
+                rows = cursor.moveToFirst() ? cursor.getInt(0) : 0;
+            } finally {
+                cursor.close();
+            }
+            db.setTransactionSuccessful();
+            Log.d(TAG, "Table monthly_summary reconstruite : " + rows + " lignes");
+        } catch (Exception e) {
+            Log.e(TAG, "Erreur lors de la reconstruction de monthly_summary", e);
+            rows = -1;
+        } finally {
+            db.endTransaction();
+        }
+        if (rows >= 0) {
+            notifyTableChanged(TABLE_MONTHLY_SUMMARY, null, DateCodec.INVALID_DAY, DateCodec.INVALID_DAY);
+        }
+        return rows;
+    }
+
+    // Expression SQL du montant d'une ligne (NEW ou OLD) s'il est du type donné, 0 sinon
+    private static String amountOfType(String row, String type) {
+        return "(CASE WHEN " + row + "." + COLUMN_TYPE + " = '" + type + "' THEN " + row + "." + COLUMN_AMOUNT_MINOR + " ELSE 0 END)";
+    }
+
+    // Ajouter une transaction
+    public long addTransaction(String type, long amountMinor, long categoryId, String date, String note, boolean isAlarmEnabled, String alarmDate, String alarmTime) {
+        int day = DateCodec.parse(date);
+        if (day == DateCodec.INVALID_DAY) {
+            // Sans date_day, la ligne échapperait aux triggers des résumés, aux filtres par date et au snapshot
+            Log.e(TAG, "Date invalide, transaction non ajoutée : " + date);
+            return -1;
+        }
+        SQLiteDatabase db = getWritableDatabase();
+        long result = -1;
+        try {
+            ContentValues values = new ContentValues();
+            values.put(COLUMN_TYPE, type);
+            values.put(COLUMN_AMOUNT_MINOR, amountMinor);
+            values.put(COLUMN_CATEGORY_ID, categoryId);
+            values.put(COLUMN_DATE, date);
+            values.put(COLUMN_DATE_DAY, day);
+            values.put(COLUMN_NOTE, note);
+            values.put(COLUMN_IS_ALARM_ENABLED, isAlarmEnabled ? 1 : 0);
+            values.put(COLUMN_ALARM_DATE, alarmDate);
+            values.put(COLUMN_ALARM_TIME, alarmTime);
+
+            result = db.insert(TABLE_TRANSACTIONS, null, values);
+        } catch (Exception e) {
+            Log.e(TAG, "Erreur lors de l'ajout de la transaction", e);
+        }
+        if (result != -1) {
+            notifyTransactionsChanged(new long[]{result}, day, day);
+        }
+        return result;
+    }
+
+    /**
+     * Récupère les transactions correspondant à un filtre avec les seules colonnes affichées par une ligne
+     * de l'historique, le nom de catégorie étant lu dans la table categories (colonne "category").
+     * Le curseur est destiné à être lié directement à la liste, sans créer d'objet Transaction.
+     *
+     * @param filter Le filtre appliqué.
+     * @return Le curseur trié par id décroissant, ou null en cas d'erreur.
+     */
+    public Cursor getTransactionRows(TransactionFilter filter) {
+        SQLiteDatabase db = getReadableDatabase();
+        Cursor cursor = null;
+        try {
+            List<String> args = new ArrayList<>();
+            String selection = filter.buildSelection(args);
+            cursor = db.rawQuery("SELECT " + COLUMN_ID + ", " + COLUMN_TYPE + ", " + COLUMN_AMOUNT_MINOR + ", "
+                    + "(SELECT c." + COLUMN_CATEGORY_NAME + " FROM " + TABLE_CATEGORIES + " c WHERE c." + COLUMN_ID
+                    + " = " + TABLE_TRANSACTIONS + "." + COLUMN_CATEGORY_ID + ") AS " + COLUMN_CATEGORY + ", "
+                    + COLUMN_DATE + ", " + COLUMN_NOTE + ", " + COLUMN_IS_ALARM_ENABLED + ", "
+                    + COLUMN_ALARM_DATE + ", " + COLUMN_ALARM_TIME
+                    + " FROM " + TABLE_TRANSACTIONS
+                    + (selection == null ? "" : " WHERE " + selection)
+                    + " ORDER BY " + COLUMN_ID + " DESC", args.toArray(new String[0]));
+        } catch (Exception e) {
+            Log.e(TAG, "Erreur lors de la récupération des lignes de l'historique", e);
         }
+        return cursor;
     }
 
-    // Récupérer toutes les transactions
-    public Cursor getAllTransactions() {
+    // Récupérer une page de transactions plus anciennes que anchorKey (pagination par clé, clé décroissante)
+    public Cursor getTransactionsPageBefore(TransactionFilter filter, long anchorKey, int limit) {
+        return getTransactionsPage(filter, "<", anchorKey, "DESC", limit);
+    }
+
+    // Récupérer une page de transactions plus récentes que anchorKey (pagination par clé, clé croissante)
+    public Cursor getTransactionsPageAfter(TransactionFilter filter, long anchorKey, int limit) {
+        return getTransactionsPage(filter, ">", anchorKey, "ASC", limit);
+    }
+
+    /**
+     * Exécute une requête de pagination par clé, sans OFFSET.
+     * Sans recherche de texte, la clé est l'id. Avec une recherche, les transactions sont classées par
+     * pertinence : la clé page_key vaut (nombre d'occurrences des mots << 40) | id, si bien que les
+     * résultats les plus pertinents viennent en premier, puis les plus récents à pertinence égale.
+     *
+     * @param filter    Le filtre appliqué.
+     * @param operator  "<" pour les clés inférieures à anchorKey, ">" pour les clés supérieures.
+     * @param anchorKey La clé à partir de laquelle lire.
+     * @param direction "DESC" ou "ASC".
+     * @param limit     Le nombre maximal de transactions.
+     * @return Le curseur de la page, ou null en cas d'erreur.
+     */
+    private Cursor getTransactionsPage(TransactionFilter filter, String operator, long anchorKey, String direction, int limit) {
         SQLiteDatabase db = getReadableDatabase();
         Cursor cursor = null;
         try {
-            cursor = db.query(
-                    TABLE_TRANSACTIONS,
-                    null,
-                    null,
-                    null,
-                    null,
-                    null,
-                    COLUMN_ID + " DESC"
-            );
+            List<String> args = new ArrayList<>();
+            if (!filter.hasSearch()) {
+                String keyCondition = COLUMN_ID + " " + operator + " ?";
+                String selection = filter.buildSelection(args);
+                selection = selection == null ? keyCondition : selection + " AND " + keyCondition;
+                args.add(String.valueOf(anchorKey));
+                cursor = db.query(
+                        TABLE_TRANSACTIONS,
+                        null,
+                        selection,
+                        args.toArray(new String[0]),
+                        null,
+                        null,
+                        COLUMN_ID + " " + direction,
+                        String.valueOf(limit)
+                );
+            } else {
+                // offsets() renvoie 4 entiers par occurrence trouvée : leur nombre / 4 sert de score (FTS4 n'a pas de bm25)
+                String offsets = "offsets(" + TABLE_TRANSACTIONS_FTS + ")";
+                String hits = "((length(" + offsets + ") - length(replace(" + offsets + ", ' ', '')) + 1) / 4)";
+                args.add(filter.getMatchExpression());
+                String selection = filter.buildAttributeSelection(args);
+                args.add(String.valueOf(anchorKey));
+                cursor = db.rawQuery("SELECT t.*, f." + COLUMN_PAGE_KEY + " FROM "
+                        + "(SELECT docid, (" + hits + " << 40) | docid AS " + COLUMN_PAGE_KEY
+                        + " FROM " + TABLE_TRANSACTIONS_FTS + " WHERE " + TABLE_TRANSACTIONS_FTS + " MATCH ?) f "
+                        + "JOIN " + TABLE_TRANSACTIONS + " t ON t." + COLUMN_ID + " = f.docid "
+                        + "WHERE " + (selection == null ? "" : selection + " AND ")
+                        + "f." + COLUMN_PAGE_KEY + " " + operator + " ? "
+                        + "ORDER BY f." + COLUMN_PAGE_KEY + " " + direction + " LIMIT " + limit,
+                        args.toArray(new String[0]));
+            }
         } catch (Exception e) {
-            Log.e(TAG, "Erreur lors de la récupération des transactions", e);
+            Log.e(TAG, "Erreur lors de la récupération d'une page de transactions", e);
         }
         return cursor;
     }
 
+    // Récupérer les totaux (revenus, dépenses) par une lecture de clé primaire
+    public Totals getTotals() {
+        SQLiteDatabase db = getReadableDatabase();
+        Cursor cursor = null;
+        try {
+            cursor = db.query(TABLE_TOTALS, new String[]{COLUMN_INCOME, COLUMN_EXPENSES},
+                    COLUMN_ID + " = " + TOTALS_ROW_ID, null, null, null, null);
+            if (cursor.moveToFirst()) {
+                return new Totals(cursor.getLong(0), cursor.getLong(1));
+            }
+        } catch (Exception e) {
+            Log.e(TAG, "Erreur lors de la récupération des totaux", e);
+        } finally {
+            if (cursor != null) {
+                cursor.close();
+            }
+        }
+        return new Totals(0, 0);
+    }
+
+    /**
+     * Recalcule les totaux à partir de toutes les transactions et corrige la table totals
+     * si elle a dérivé. Destiné aux opérations de maintenance (parcours complet de la table).
+     *
+     * @return `true` si un écart a été détecté et corrigé, sinon `false`.
+     */
+    public boolean verifyTotals() {
+        SQLiteDatabase db = getWritableDatabase();
+        boolean repaired = false;
+        db.beginTransaction();
+        try {
+            Totals stored = getTotals();
+            Totals actual = computeTotals(db);
+            if (stored.getIncome() != actual.getIncome() || stored.getExpenses() != actual.getExpenses()) {
+                Log.w(TAG, "Écart détecté dans les totaux, correction en cours");
+                writeTotals(db, actual);
+                repaired = true;
+            }
+            db.setTransactionSuccessful();
+        } catch (Exception e) {
+            Log.e(TAG, "Erreur lors de la vérification des totaux", e);
+            repaired = false;
+        } finally {
+            db.endTransaction();
+        }
+        if (repaired) {
+            notifyTableChanged(TABLE_TOTALS, new long[]{TOTALS_ROW_ID}, DateCodec.INVALID_DAY, DateCodec.INVALID_DAY);
+        }
+        return repaired;
+    }
+
+    // Calculer les totaux par agrégation SQL entière (SUM exacte, et non TOTAL qui renvoie un réel)
+    private Totals computeTotals(SQLiteDatabase db) {
+        Cursor cursor = db.rawQuery("SELECT "
+                + "COALESCE(SUM(CASE WHEN " + COLUMN_TYPE + " = ? THEN " + COLUMN_AMOUNT_MINOR + " END), 0), "
+                + "COALESCE(SUM(CASE WHEN " + COLUMN_TYPE + " = ? THEN " + COLUMN_AMOUNT_MINOR + " END), 0) "
+                + "FROM " + TABLE_TRANSACTIONS, new String[]{TYPE_INCOME, TYPE_EXPENSE});
+        try {
+            cursor.moveToFirst();
+            return new Totals(cursor.getLong(0), cursor.getLong(1));
+        } finally {
+            cursor.close();
+        }
+    }
+
+    // Écrire les totaux dans la ligne unique de la table totals
+    private void writeTotals(SQLiteDatabase db, Totals totals) {
+        ContentValues values = new ContentValues();
+        values.put(COLUMN_ID, TOTALS_ROW_ID);
+        values.put(COLUMN_INCOME, totals.getIncome());
+        values.put(COLUMN_EXPENSES, totals.getExpenses());
+        db.insertWithOnConflict(TABLE_TOTALS, null, values, SQLiteDatabase.CONFLICT_REPLACE);
+    }
+
     // Ajouter une catégorie
     public long addCategory(String name) {
         SQLiteDatabase db = getWritableDatabase();
@@ -122,6 +723,7 @@ public class DatabaseHelper extends SQLiteOpenHelper {
             if (result == -1) {
                 Log.e(TAG, "Erreur lors de l'ajout de la catégorie : " + name);
             } else {
+                onCategoriesChanged(new long[]{result});
                 Log.d(TAG, "Catégorie ajoutée avec succès : " + name);
             }
         } catch (Exception e) {
@@ -130,12 +732,20 @@ public class DatabaseHelper extends SQLiteOpenHelper {
         return result;
     }
 
-    // Supprimer une catégorie par son nom
-    public int deleteCategoryByName(String name) {
+    // Supprimer une catégorie par son id ; retourne -1 si des transactions l'utilisent encore (ON DELETE RESTRICT)
+    public int deleteCategory(long categoryId) {
         SQLiteDatabase db = getWritableDatabase();
         int result = 0;
         try {
-            result = db.delete(TABLE_CATEGORIES, COLUMN_CATEGORY_NAME + " = ?", new String[]{name});
+            result = db.delete(TABLE_CATEGORIES, COLUMN_ID + " = ?", new String[]{String.valueOf(categoryId)});
+            if (result > 0) {
+                onCategoriesChanged(new long[]{categoryId});
+                // La limite de la catégorie a été supprimée en cascade
+                notifyTableChanged(TABLE_CATEGORY_LIMITS, new long[]{categoryId}, DateCodec.INVALID_DAY, DateCodec.INVALID_DAY);
+            }
+        } catch (SQLiteConstraintException e) {
+            Log.d(TAG, "Catégorie " + categoryId + " utilisée par des transactions, suppression refusée");
+            result = -1;
         } catch (Exception e) {
             Log.e(TAG, "Erreur lors de la suppression de la catégorie", e);
         }
@@ -147,47 +757,320 @@ public class DatabaseHelper extends SQLiteOpenHelper {
         SQLiteDatabase db = getReadableDatabase();
         Cursor cursor = null;
         try {
-            cursor = db.query(TABLE_CATEGORIES, null, null, null, null, null, null);
+            cursor = db.query(TABLE_CATEGORIES, new String[]{COLUMN_ID, COLUMN_CATEGORY_NAME},
+                    null, null, null, null, COLUMN_ID);
         } catch (Exception e) {
             Log.e(TAG, "Erreur lors de la récupération des catégories", e);
         }
         return cursor;
     }
 
-    // Récupérer toutes les catégories sous forme de liste
-    public List<String> getAllCategoriesAsList() {
-        List<String> categories = new ArrayList<>();
+    /**
+     * Retourne le dictionnaire id ↔ nom des catégories. Il est chargé une seule fois puis partagé
+     * par tout le processus, jusqu'à la prochaine modification de la table categories.
+     * Doit être appelée hors du thread principal au premier appel.
+     *
+     * @return Le dictionnaire courant (vide si la lecture a échoué).
+     */
+    public synchronized CategoryDictionary getCategoryDictionary() {
+        if (categoryDictionary == null) {
+            Cursor cursor = getAllCategories();
+            if (cursor == null) {
+                return CategoryDictionary.EMPTY; // Ne pas mémoriser un échec de lecture
+            }
+            categoryDictionary = CategoryDictionary.fromCursor(cursor);
+            Log.d(TAG, "Dictionnaire des catégories chargé : " + categoryDictionary.size() + " catégories");
+        }
+        return categoryDictionary;
+    }
+
+    /**
+     * Oublie le dictionnaire des catégories : il sera relu au prochain appel de {@link #getCategoryDictionary()}.
+     * Notifie aussi l'écriture aux listeners. À appeler après toute écriture dans la table categories.
+     */
+    public void invalidateCategoryDictionary() {
+        onCategoriesChanged(null);
+    }
+
+    // Oublie le dictionnaire des catégories et notifie l'écriture des lignes données (null si inconnues)
+    private void onCategoriesChanged(long[] rowIds) {
+        synchronized (this) {
+            categoryDictionary = null;
+        }
+        notifyTableChanged(TABLE_CATEGORIES, rowIds, DateCodec.INVALID_DAY, DateCodec.INVALID_DAY);
+    }
+
+    // Récupérer les transactions par mois et année (lignes précalculées de monthly_summary, en temps constant ; mois de 1 à 12)
+    public Cursor getMonthlyTransactionsByCategory(int year, int month) {
+        SQLiteDatabase db = getReadableDatabase();
         Cursor cursor = null;
         try {
-            cursor = getAllCategories();
-            if (cursor.moveToFirst()) {
-                do {
-                    categories.add(cursor.getString(cursor.getColumnIndex(COLUMN_CATEGORY_NAME)));
-                } while (cursor.moveToNext());
+            cursor = db.query(TABLE_MONTHLY_SUMMARY,
+                    new String[]{COLUMN_CATEGORY_ID, COLUMN_TYPE, COLUMN_TOTAL, COLUMN_COUNT},
+                    COLUMN_YEAR + " = ? AND " + COLUMN_MONTH + " = ?",
+                    new String[]{String.valueOf(year), String.valueOf(month)},
+                    null, null, COLUMN_TOTAL + " DESC, " + COLUMN_CATEGORY_ID); // Ordre stable d'un chargement à l'autre
+        } catch (Exception e) {
+            Log.e(TAG, "Erreur lors de la récupération des transactions mensuelles par catégorie", e);
+        }
+        return cursor;
+    }
+
+    // Récupérer les transactions par année (au plus 12 lignes de monthly_summary par catégorie et type)
+    public Cursor getYearlyTransactionsByCategory(String year) {
+        SQLiteDatabase db = getReadableDatabase();
+        Cursor cursor = null;
+        try {
+            String query = "SELECT " + COLUMN_CATEGORY_ID + ", " + COLUMN_TYPE + ", SUM(" + COLUMN_TOTAL + ") AS " + COLUMN_TOTAL
+                    + ", SUM(" + COLUMN_COUNT + ") AS " + COLUMN_COUNT + " FROM " + TABLE_MONTHLY_SUMMARY
+                    + " WHERE " + COLUMN_YEAR + " = ? GROUP BY " + COLUMN_CATEGORY_ID + ", " + COLUMN_TYPE;
+            cursor = db.rawQuery(query, new String[]{String.valueOf(Integer.parseInt(year))});
+        } catch (Exception e) {
+            Log.e(TAG, "Erreur lors de la récupération des transactions annuelles par catégorie", e);
+        }
+        return cursor;
+    }
+
+    // Récupérer la première et la dernière année ayant des transactions ({année min, année max}), ou null si aucune
+    public int[] getYearRange() {
+        SQLiteDatabase db = getReadableDatabase();
+        Cursor cursor = null;
+        try {
+            // MIN et MAX sur la première colonne de la clé primaire : deux lectures d'index
+            cursor = db.rawQuery("SELECT MIN(" + COLUMN_YEAR + "), MAX(" + COLUMN_YEAR + ") FROM " + TABLE_MONTHLY_SUMMARY, null);
+            if (cursor.moveToFirst() && !cursor.isNull(0)) {
+                return new int[]{cursor.getInt(0), cursor.getInt(1)};
             }
         } catch (Exception e) {
-            Log.e(TAG, "Erreur lors de la récupération des catégories sous forme de liste", e);
+            Log.e(TAG, "Erreur lors de la récupération des années disponibles", e);
         } finally {
             if (cursor != null) {
                 cursor.close();
             }
         }
-        return categories;
+        return null;
     }
 
-    // Récupérer les transactions par mois et année
-    public Cursor getMonthlyTransactionsByCategory(String month, String year) {
+    // Récupérer les totaux par catégorie et type sur un intervalle de dates (parcours de l'index date_day)
+    public Cursor getTransactionsByCategoryBetween(int fromDay, int toDay) {
         SQLiteDatabase db = getReadableDatabase();
         Cursor cursor = null;
         try {
-            String query = "SELECT " + COLUMN_CATEGORY + ", " + COLUMN_TYPE + ", SUM(" + COLUMN_AMOUNT + ") AS total, COUNT(*) AS count " +
+            String query = "SELECT " + COLUMN_CATEGORY_ID + ", " + COLUMN_TYPE + ", SUM(" + COLUMN_AMOUNT_MINOR + ") AS " + COLUMN_TOTAL
+                    + ", COUNT(*) AS " + COLUMN_COUNT + " " +
                     "FROM " + TABLE_TRANSACTIONS + " " +
-                    "WHERE substr(" + COLUMN_DATE + ", 4, 2) = ? AND substr(" + COLUMN_DATE + ", 7, 4) = ? " +
-                    "GROUP BY " + COLUMN_CATEGORY + ", " + COLUMN_TYPE;
-            cursor = db.rawQuery(query, new String[]{month, year});
+                    "WHERE " + COLUMN_DATE_DAY + " BETWEEN ? AND ? " +
+                    "GROUP BY " + COLUMN_CATEGORY_ID + ", " + COLUMN_TYPE;
+            cursor = db.rawQuery(query, new String[]{String.valueOf(fromDay), String.valueOf(toDay)});
         } catch (Exception e) {
             Log.e(TAG, "Erreur lors de la récupération des transactions mensuelles par catégorie", e);
         }
         return cursor;
     }
-}
\ No newline at end of file
+
+    // Définir (ou remplacer) la limite mensuelle d'une catégorie ; retourne -1 en cas d'erreur
+    public long setCategoryLimit(BudgetLimit limit) {
+        SQLiteDatabase db = getWritableDatabase();
+        long result = -1;
+        try {
+            ContentValues values = new ContentValues();
+            values.put(COLUMN_CATEGORY_ID, limit.getCategoryId());
+            values.put(COLUMN_LIMIT_MINOR, limit.getLimitMinor());
+            values.put(COLUMN_THRESHOLDS, BudgetLimit.formatThresholds(limit.getThresholds()));
+            result = db.insertWithOnConflict(TABLE_CATEGORY_LIMITS, null, values, SQLiteDatabase.CONFLICT_REPLACE);
+            if (result != -1) {
+                notifyTableChanged(TABLE_CATEGORY_LIMITS, new long[]{limit.getCategoryId()}, DateCodec.INVALID_DAY, DateCodec.INVALID_DAY);
+            }
+        } catch (Exception e) {
+            Log.e(TAG, "Erreur lors de l'enregistrement de la limite de la catégorie", e);
+        }
+        return result;
+    }
+
+    // Supprimer la limite mensuelle d'une catégorie
+    public int deleteCategoryLimit(long categoryId) {
+        SQLiteDatabase db = getWritableDatabase();
+        int result = 0;
+        try {
+            result = db.delete(TABLE_CATEGORY_LIMITS, COLUMN_CATEGORY_ID + " = ?", new String[]{String.valueOf(categoryId)});
+            if (result > 0) {
+                notifyTableChanged(TABLE_CATEGORY_LIMITS, new long[]{categoryId}, DateCodec.INVALID_DAY, DateCodec.INVALID_DAY);
+            }
+        } catch (Exception e) {
+            Log.e(TAG, "Erreur lors de la suppression de la limite de la catégorie", e);
+        }
+        return result;
+    }
+
+    // Récupérer la limite d'une catégorie (lecture par clé primaire), ou null si elle n'en a pas
+    public BudgetLimit getCategoryLimit(long categoryId) {
+        SQLiteDatabase db = getReadableDatabase();
+        Cursor cursor = null;
+        try {
+            cursor = db.query(TABLE_CATEGORY_LIMITS, new String[]{COLUMN_LIMIT_MINOR, COLUMN_THRESHOLDS},
+                    COLUMN_CATEGORY_ID + " = ?", new String[]{String.valueOf(categoryId)}, null, null, null);
+            if (cursor.moveToFirst()) {
+                return toBudgetLimit(categoryId, cursor.getLong(0), cursor.getString(1));
+            }
+        } catch (Exception e) {
+            Log.e(TAG, "Erreur lors de la récupération de la limite de la catégorie", e);
+        } finally {
+            if (cursor != null) {
+                cursor.close();
+            }
+        }
+        return null;
+    }
+
+    // Récupérer toutes les limites, par id de catégorie (au plus une ligne par catégorie)
+    public Map<Long, BudgetLimit> getCategoryLimits() {
+        Map<Long, BudgetLimit> limits = new HashMap<>();
+        SQLiteDatabase db = getReadableDatabase();
+        Cursor cursor = null;
+        try {
+            cursor = db.query(TABLE_CATEGORY_LIMITS, new String[]{COLUMN_CATEGORY_ID, COLUMN_LIMIT_MINOR, COLUMN_THRESHOLDS},
+                    null, null, null, null, null);
+            while (cursor.moveToNext()) {
+                long categoryId = cursor.getLong(0);
+                limits.put(categoryId, toBudgetLimit(categoryId, cursor.getLong(1), cursor.getString(2)));
+            }
+        } catch (Exception e) {
+            Log.e(TAG, "Erreur lors de la récupération des limites des catégories", e);
+        } finally {
+            if (cursor != null) {
+                cursor.close();
+            }
+        }
+        return limits;
+    }
+
+    // Construire une limite lue en base ; des seuils illisibles sont remplacés par les seuils par défaut
+    private static BudgetLimit toBudgetLimit(long categoryId, long limitMinor, String thresholdsText) {
+        int[] thresholds = BudgetLimit.parseThresholds(thresholdsText);
+        return new BudgetLimit(categoryId, limitMinor, thresholds != null ? thresholds : BudgetLimit.DEFAULT_THRESHOLDS);
+    }
+
+    // Récupérer le cumul des dépenses d'une catégorie sur un mois (une ligne de monthly_summary, lue par clé primaire)
+    public long getMonthExpenses(long categoryId, int year, int month) {
+        SQLiteDatabase db = getReadableDatabase();
+        Cursor cursor = null;
+        try {
+            cursor = db.query(TABLE_MONTHLY_SUMMARY, new String[]{COLUMN_TOTAL},
+                    COLUMN_YEAR + " = ? AND " + COLUMN_MONTH + " = ? AND " + COLUMN_CATEGORY_ID + " = ? AND " + COLUMN_TYPE + " = ?",
+                    new String[]{String.valueOf(year), String.valueOf(month), String.valueOf(categoryId), TYPE_EXPENSE},
+                    null, null, null);
+            if (cursor.moveToFirst()) {
+                return cursor.getLong(0);
+            }
+        } catch (Exception e) {
+            Log.e(TAG, "Erreur lors de la récupération des dépenses du mois", e);
+        } finally {
+            if (cursor != null) {
+                cursor.close();
+            }
+        }
+        return 0;
+    }
+
+    // Ajouter un rappel ; retourne l'id du rappel, ou -1 en cas d'erreur
+    public long addReminder(long transactionId, long fireAt, String title, String message) {
+        SQLiteDatabase db = getWritableDatabase();
+        long result = -1;
+        try {
+            ContentValues values = new ContentValues();
+            values.put(COLUMN_TRANSACTION_ID, transactionId);
+            values.put(COLUMN_FIRE_AT, fireAt);
+            values.put(COLUMN_TITLE, title);
+            values.put(COLUMN_MESSAGE, message);
+            result = db.insert(TABLE_REMINDERS, null, values);
+            if (result != -1) {
+                notifyTableChanged(TABLE_REMINDERS, new long[]{result}, DateCodec.INVALID_DAY, DateCodec.INVALID_DAY);
+            }
+        } catch (Exception e) {
+            Log.e(TAG, "Erreur lors de l'ajout du rappel", e);
+        }
+        return result;
+    }
+
+    // Ajouter une règle de répétition ; ses occurrences sont générées par RecurrenceMaterializer. Retourne l'id, ou -1
+    public long addRecurrenceRule(RecurrenceRule rule) {
+        SQLiteDatabase db = getWritableDatabase();
+        long result = -1;
+        try {
+            int firstDay = rule.firstPendingDay();
+            ContentValues values = new ContentValues();
+            values.put(COLUMN_TYPE, rule.getType());
+            values.put(COLUMN_AMOUNT_MINOR, rule.getAmountMinor());
+            values.put(COLUMN_CATEGORY_ID, rule.getCategoryId());
+            values.put(COLUMN_NOTE, rule.getNote());
+            values.put(COLUMN_FREQUENCY, rule.getFrequency().name());
+            values.put(COLUMN_START_DAY, rule.getStartDay());
+            if (rule.getEndDay() != DateCodec.INVALID_DAY) {
+                values.put(COLUMN_END_DAY, rule.getEndDay());
+            }
+            if (rule.getMaxCount() != RecurrenceRule.NO_MAX_COUNT) {
+                values.put(COLUMN_MAX_COUNT, rule.getMaxCount());
+            }
+            if (firstDay != DateCodec.INVALID_DAY) {
+                values.put(COLUMN_NEXT_DAY, firstDay);
+            }
+            result = db.insert(TABLE_RECURRENCE_RULES, null, values);
+            if (result != -1) {
+                notifyTableChanged(TABLE_RECURRENCE_RULES, new long[]{result}, DateCodec.INVALID_DAY, DateCodec.INVALID_DAY);
+            }
+        } catch (Exception e) {
+            Log.e(TAG, "Erreur lors de l'ajout de la règle de répétition", e);
+        }
+        return result;
+    }
+
+    // Récupérer l'heure du prochain rappel (première entrée de l'index fire_at), ou -1 s'il n'y en a aucun
+    public long getNextReminderTime() {
+        SQLiteDatabase db = getReadableDatabase();
+        Cursor cursor = null;
+        try {
+            cursor = db.rawQuery("SELECT MIN(" + COLUMN_FIRE_AT + ") FROM " + TABLE_REMINDERS, null);
+            if (cursor.moveToFirst() && !cursor.isNull(0)) {
+                return cursor.getLong(0);
+            }
+        } catch (Exception e) {
+            Log.e(TAG, "Erreur lors de la récupération du prochain rappel", e);
+        } finally {
+            if (cursor != null) {
+                cursor.close();
+            }
+        }
+        return -1;
+    }
+
+    // Récupérer les rappels dont l'heure est passée ou atteinte avant upTo, du plus ancien au plus récent
+    public Cursor getRemindersDueBefore(long upTo) {
+        SQLiteDatabase db = getReadableDatabase();
+        Cursor cursor = null;
+        try {
+            cursor = db.query(TABLE_REMINDERS,
+                    new String[]{COLUMN_ID, COLUMN_FIRE_AT, COLUMN_TITLE, COLUMN_MESSAGE},
+                    COLUMN_FIRE_AT + " <= ?", new String[]{String.valueOf(upTo)},
+                    null, null, COLUMN_FIRE_AT + ", " + COLUMN_ID);
+        } catch (Exception e) {
+            Log.e(TAG, "Erreur lors de la récupération des rappels à notifier", e);
+        }
+        return cursor;
+    }
+
+    // Supprimer les rappels notifiés : échus avant upTo et déjà lus (id <= maxId), sans toucher à ceux ajoutés depuis
+    public int deleteRemindersDueBefore(long upTo, long maxId) {
+        SQLiteDatabase db = getWritableDatabase();
+        int result = 0;
+        try {
+            result = db.delete(TABLE_REMINDERS, COLUMN_FIRE_AT + " <= ? AND " + COLUMN_ID + " <= ?",
+                    new String[]{String.valueOf(upTo), String.valueOf(maxId)});
+            if (result > 0) {
+                notifyTableChanged(TABLE_REMINDERS, null, DateCodec.INVALID_DAY, DateCodec.INVALID_DAY);
+            }
+        } catch (Exception e) {
+            Log.e(TAG, "Erreur lors de la suppression des rappels notifiés", e);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,173 @@
+package ensa.application01.app_budget.DataBase;
+
+import android.os.Handler;
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import ensa.application01.app_budget.utils.DateCodec;
+
+/**
+ * InvalidationTracker relaie aux écrans les écritures notifiées par {@link DatabaseHelper}.
+ * Chaque écran s'abonne aux tables qu'il affiche (et, s'il le souhaite, à un intervalle de dates) :
+ * les écritures pertinentes sont fusionnées par table, puis livrées en une seule fois sur le thread
+ * principal après un court délai, de sorte qu'une rafale d'écritures ne provoque qu'un rechargement.
+ * Un abonnement en pause accumule les écritures et ne les livre qu'à sa reprise.
+ */
+public class InvalidationTracker implements DatabaseHelper.ChangeListener {
+
+    private static final String TAG = "InvalidationTracker";
+    static final long COALESCE_DELAY_MS = 100; // Délai de regroupement des écritures avant livraison
+
+    private final Handler mainHandler; // Livraison des écritures sur le thread principal
+    private final CopyOnWriteArrayList<Subscription> subscriptions = new CopyOnWriteArrayList<>(); // Abonnements actifs ou en pause
+
+    /**
+     * Observateur recevant, sur le thread principal, les écritures regroupées depuis la dernière livraison.
+     */
+    public interface Observer {
+        void onChanged(List<TableChange> changes);
+    }
+
+    /**
+     * Constructeur d'InvalidationTracker.
+     *
+     * @param mainHandler Le handler du thread principal.
+     */
+    public InvalidationTracker(Handler mainHandler) {
+        this.mainHandler = mainHandler;
+    }
+
+    /**
+     * Abonne un observateur aux écritures dans les tables données. L'abonnement est actif dès sa création.
+     *
+     * @param tables   Les tables observées.
+     * @param observer L'observateur.
+     * @return L'abonnement, à mettre en pause, reprendre et fermer selon le cycle de vie de l'écran.
+     */
+    public Subscription subscribe(String[] tables, Observer observer) {
+        Subscription subscription = new Subscription(tables, observer);
+        subscriptions.add(subscription);
+        return subscription;
+    }
+
+    /**
+     * Transmet une écriture aux abonnements qui observent la table et l'intervalle de dates touchés.
+     * Appelée depuis le thread de l'écriture.
+     *
+     * @param change L'écriture notifiée.
+     */
+    @Override
+    public void onTableChanged(TableChange change) {
+        for (Subscription subscription : subscriptions) {
+            subscription.offer(change);
+        }
+    }
+
+    /**
+     * Abonnement d'un écran aux écritures dans certaines tables.
+     */
+    public final class Subscription {
+
+        private final String[] tables; // Tables observées
+        private final Observer observer; // Observateur, appelé sur le thread principal
+        private final LinkedHashMap<String, TableChange> pending = new LinkedHashMap<>(); // Écritures en attente, fusionnées par table
+        private final Runnable dispatchRunnable = this::dispatch; // Livraison différée des écritures en attente
+        private int fromDay = DateCodec.INVALID_DAY; // Première date observée, ou DateCodec.INVALID_DAY
+        private int toDay = DateCodec.INVALID_DAY; // Dernière date observée, ou DateCodec.INVALID_DAY
+        private boolean paused; // Vrai si l'écran n'est pas visible
+        private boolean scheduled; // Vrai si une livraison est programmée
+        private boolean closed; // Vrai une fois l'abonnement fermé
+
+        private Subscription(String[] tables, Observer observer) {
+            this.tables = tables;
+            this.observer = observer;
+        }
+
+        /**
+         * Restreint l'abonnement aux écritures qui touchent l'intervalle de dates affiché.
+         *
+         * @param fromDay La première date affichée, ou DateCodec.INVALID_DAY si non bornée.
+         * @param toDay   La dernière date affichée, ou DateCodec.INVALID_DAY si non bornée.
+         */
+        public synchronized void setDayRange(int fromDay, int toDay) {
+            this.fromDay = fromDay;
+            this.toDay = toDay;
+        }
+
+        /**
+         * Met l'abonnement en pause : les écritures sont accumulées sans être livrées.
+         */
+        public synchronized void pause() {
+            paused = true;
+            if (scheduled) {
+                mainHandler.removeCallbacks(dispatchRunnable);
+                scheduled = false;
+            }
+        }
+
+        /**
+         * Reprend l'abonnement : les écritures accumulées pendant la pause sont livrées immédiatement.
+         */
+        public synchronized void resume() {
+            paused = false;
+            if (!pending.isEmpty() && !scheduled) {
+                scheduled = true;
+                mainHandler.post(dispatchRunnable);
+            }
+        }
+
+        /**
+         * Ferme l'abonnement : les écritures en attente sont oubliées.
+         */
+        public void close() {
+            subscriptions.remove(this);
+            synchronized (this) {
+                closed = true;
+                pending.clear();
+                mainHandler.removeCallbacks(dispatchRunnable);
+                scheduled = false;
+            }
+        }
+
+        // Retient l'écriture si elle est pertinente et programme sa livraison
+        private synchronized void offer(TableChange change) {
+            if (closed || !observes(change.getTable()) || !change.overlaps(fromDay, toDay)) {
+                return;
+            }
+            TableChange previous = pending.get(change.getTable());
+            pending.put(change.getTable(), previous == null ? change : previous.merge(change));
+            if (!paused && !scheduled) {
+                scheduled = true;
+                mainHandler.postDelayed(dispatchRunnable, COALESCE_DELAY_MS);
+            }
+        }
+
+        // Livre les écritures en attente à l'observateur (thread principal)
+        private void dispatch() {
+            List<TableChange> changes;
+            synchronized (this) {
+                scheduled = false;
+                if (closed || paused || pending.isEmpty()) {
+                    return;
+                }
+                changes = new ArrayList<>(pending.values());
+                pending.clear();
+            }
+            Log.d(TAG, changes.size() + " tables modifiées, livraison à l'écran");
+            observer.onChanged(changes);
+        }
+
+        private boolean observes(String table) {
+            for (String observed : tables) {
+                if (observed.equals(table)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package ensa.application01.app_budget.DataBase;
+
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.util.Log;
+
+import ensa.application01.app_budget.utils.DateCodec;
+import ensa.application01.app_budget.utils.LedgerSnapshot;
+
+/**
+ * LedgerSnapshotLoader remplit un {@link LedgerSnapshot} à partir de la table transactions :
+ * toute la table au premier chargement, puis seulement les lignes d'id supérieur au dernier id lu.
+ */
+final class LedgerSnapshotLoader {
+
+    private static final String TAG = "LedgerSnapshotLoader";
+
+    private LedgerSnapshotLoader() {
+    }
+
+    /**
+     * Charge toutes les transactions, ou ajoute au snapshot celles insérées depuis sa création.
+     * Doit être appelée hors du thread principal.
+     *
+     * @param dbHelper Le helper de la base de données.
+     * @param snapshot Le snapshot à compléter, ou null pour un premier chargement.
+     * @return Le snapshot à jour (le même s'il n'y a aucune nouvelle ligne).
+     */
+    static LedgerSnapshot appendNewRows(DatabaseHelper dbHelper, LedgerSnapshot snapshot) {
+        long startTime = System.currentTimeMillis();
+        SQLiteDatabase db = dbHelper.getReadableDatabase();
+        LedgerSnapshot base = snapshot != null ? snapshot : LedgerSnapshot.empty(countRows(db));
+
+        Cursor cursor = db.rawQuery("SELECT " + DatabaseHelper.COLUMN_ID + ", "
+                        + DatabaseHelper.COLUMN_DATE_DAY + ", " + DatabaseHelper.COLUMN_AMOUNT_MINOR + ", "
+                        + DatabaseHelper.COLUMN_CATEGORY_ID + ", " + DatabaseHelper.COLUMN_TYPE + " FROM " + DatabaseHelper.TABLE_TRANSACTIONS
+                        + " WHERE " + DatabaseHelper.COLUMN_ID + " > ? ORDER BY " + DatabaseHelper.COLUMN_ID,
+                new String[]{String.valueOf(base.getLastId())});
+        LedgerSnapshot result;
+        try {
+            result = base.appendRows(row -> {
+                if (!cursor.moveToNext()) {
+                    return false;
+                }
+                row.id = cursor.getLong(0);
+                row.day = cursor.isNull(1) ? DateCodec.INVALID_DAY : cursor.getInt(1);
+                row.amountMinor = cursor.getLong(2);
+                row.categoryId = cursor.getLong(3);
+                row.type = cursor.getString(4);
+                return true;
+            });
+        } finally {
+            cursor.close();
+        }
+
+        if (result != base || snapshot == null) {
+            Log.d(TAG, (result.size() - base.size()) + " lignes ajoutées au snapshot (" + result.size() + " au total) en "
+                    + (System.currentTimeMillis() - startTime) + " ms");
+        }
+        return result;
+    }
+
+    // Nombre de transactions, pour dimensionner les colonnes en une fois
+    private static int countRows(SQLiteDatabase db) {
+        Cursor cursor = db.rawQuery("SELECT COUNT(*) FROM " + DatabaseHelper.TABLE_TRANSACTIONS, null);
+        try {
+            return cursor.moveToFirst() ? cursor.getInt(0) : 0;
+        } finally {
+            cursor.close();
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package ensa.application01.app_budget.DataBase;
+
+import android.database.sqlite.SQLiteDatabase;
+
+/**
+ * Migration représente une étape versionnée du schéma de la base de données.
+ * {@link #migrate} est exécutée dans une transaction (celle d'onUpgrade, ou la sienne si l'étape a été
+ * différée) : elle ne doit contenir que des changements de schéma rapides (ALTER TABLE, CREATE TABLE,
+ * triggers). Tout travail proportionnel au nombre de lignes (remplissage, copie de table, index) est
+ * confié à un {@link ChunkedJob} enregistré par {@link MigrationRunner#enqueue}. Les travaux des étapes
+ * précédentes sont toujours terminés quand une étape s'applique.
+ */
+public abstract class Migration {
+
+    private final int version; // Version atteinte après cette étape
+
+    /**
+     * Constructeur de Migration.
+     *
+     * @param version La version du schéma atteinte après cette étape.
+     */
+    protected Migration(int version) {
+        this.version = version;
+    }
+
+    /**
+     * Retourne la version du schéma atteinte après cette étape.
+     *
+     * @return La version cible.
+     */
+    public int getVersion() {
+        return version;
+    }
+
+    /**
+     * Applique les changements de schéma de cette étape.
+     *
+     * @param db     La base de données, dans une transaction.
+     * @param runner Le runner, pour enregistrer les travaux par lots.
+     */
+    public abstract void migrate(SQLiteDatabase db, MigrationRunner runner);
+}
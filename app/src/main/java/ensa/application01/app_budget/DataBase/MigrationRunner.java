@@ -0,0 +1,365 @@
+package ensa.application01.app_budget.DataBase;
+
+import android.content.ContentValues;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.util.Log;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * MigrationRunner applique les migrations versionnées et exécute les travaux par lots qu'elles
+ * enregistrent. Une étape de schéma ne s'applique qu'une fois terminés les travaux des étapes
+ * précédentes : elle peut donc compter sur le schéma qu'ils produisent (table reconstruite,
+ * colonne remplie). Dans onUpgrade, les étapes sont jouées jusqu'à la première qui enregistre un
+ * travail ; les suivantes sont inscrites au journal (table migration_jobs) et jouées dans onOpen,
+ * chacune dans sa transaction, après les travaux qui les précèdent. Les travaux par lots sont repris
+ * depuis le journal à chaque ouverture de la base, un lot par transaction, jusqu'à ce qu'ils soient terminés.
+ */
+public class MigrationRunner {
+
+    private static final String TAG = "MigrationRunner";
+
+    // Journal des travaux par lots
+    public static final String TABLE_MIGRATION_JOBS = "migration_jobs";
+    private static final String COLUMN_SEQ = "seq";
+    private static final String COLUMN_NAME = "name";
+    private static final String COLUMN_LAST_ID = "last_id";
+    private static final String COLUMN_PROCESSED = "processed";
+    private static final String COLUMN_FINISHED = "finished"; // Voir STATE_PENDING, STATE_FINISHED et STATE_FAILED
+    private static final String COLUMN_VERSION = "version"; // Version de l'étape qui a inscrit l'entrée (0 : journal antérieur)
+
+    // États d'une entrée du journal ; une entrée en échec est retentée à l'ouverture suivante
+    private static final int STATE_PENDING = 0;
+    private static final int STATE_FINISHED = 1;
+    private static final int STATE_FAILED = 2;
+
+    // Préfixe du nom des étapes de schéma différées dans le journal (suivi de leur version)
+    private static final String DEFERRED_STEP_PREFIX = "migrate_v";
+
+    public static final int CHUNK_SIZE = 1000; // Nombre de lignes traitées par transaction
+
+    /**
+     * Listener notifié de l'avancement des travaux par lots.
+     */
+    public interface ProgressListener {
+        /**
+         * Appelé après chaque lot validé et à la fin de chaque travail.
+         *
+         * @param jobName   Le nom du travail.
+         * @param processed Le nombre de lignes déjà traitées.
+         * @param total     Le nombre total de lignes estimé.
+         */
+        void onProgress(String jobName, long processed, long total);
+    }
+
+    private final List<Migration> migrations; // Étapes de schéma, triées par version croissante
+    private final Map<String, ChunkedJob> jobs = new HashMap<>(); // Travaux connus, par nom
+    private volatile ProgressListener progressListener; // Listener de progression, ou null
+    private int currentVersion; // Version de l'étape en cours, enregistrée avec les travaux qu'elle inscrit
+
+    /**
+     * Constructeur de MigrationRunner.
+     *
+     * @param migrations Les étapes de schéma, triées par version croissante.
+     * @param jobs       Tous les travaux par lots que ces étapes peuvent enregistrer.
+     */
+    public MigrationRunner(List<Migration> migrations, List<ChunkedJob> jobs) {
+        this.migrations = migrations;
+        for (ChunkedJob job : jobs) {
+            this.jobs.put(job.getName(), job);
+        }
+    }
+
+    /**
+     * Définit le listener notifié de l'avancement des travaux par lots.
+     *
+     * @param progressListener Le listener, ou null pour se contenter des logs.
+     */
+    public void setProgressListener(ProgressListener progressListener) {
+        this.progressListener = progressListener;
+    }
+
+    /**
+     * Applique, dans l'ordre, les étapes dont la version est comprise dans ]oldVersion, newVersion].
+     * Dès qu'une entrée du journal n'est pas terminée (travail enregistré par une étape, ou reste d'une
+     * mise à jour précédente), les étapes suivantes sont différées : elles sont inscrites au journal
+     * et jouées par {@link #runPending} après ces travaux. Doit être appelée depuis onUpgrade (dans sa transaction).
+     *
+     * @param db         La base de données.
+     * @param oldVersion La version actuelle du schéma.
+     * @param newVersion La version cible du schéma.
+     */
+    public void upgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
+        createJournal(db);
+        boolean deferred = hasPendingEntries(db);
+        for (Migration migration : migrations) {
+            if (migration.getVersion() <= oldVersion || migration.getVersion() > newVersion) {
+                continue;
+            }
+            if (deferred) {
+                Log.d(TAG, "Migration vers la version " + migration.getVersion() + " différée après les travaux en cours");
+                ContentValues values = new ContentValues();
+                values.put(COLUMN_NAME, DEFERRED_STEP_PREFIX + migration.getVersion());
+                values.put(COLUMN_VERSION, migration.getVersion());
+                db.insertWithOnConflict(TABLE_MIGRATION_JOBS, null, values, SQLiteDatabase.CONFLICT_IGNORE);
+            } else {
+                Log.d(TAG, "Migration vers la version " + migration.getVersion());
+                currentVersion = migration.getVersion();
+                migration.migrate(db, this);
+                deferred = hasPendingEntries(db);
+            }
+        }
+    }
+
+    /**
+     * Enregistre un travail par lots dans le journal. Il sera exécuté à la prochaine ouverture,
+     * après les travaux enregistrés avant lui et avant l'étape de schéma suivante.
+     * Doit être appelée depuis {@link Migration#migrate}.
+     *
+     * @param db      La base de données.
+     * @param jobName Le nom d'un travail connu du runner.
+     */
+    public void enqueue(SQLiteDatabase db, String jobName) {
+        if (!jobs.containsKey(jobName)) {
+            throw new IllegalArgumentException("Travail de migration inconnu : " + jobName);
+        }
+        ContentValues values = new ContentValues();
+        values.put(COLUMN_NAME, jobName);
+        values.put(COLUMN_VERSION, currentVersion);
+        db.insertWithOnConflict(TABLE_MIGRATION_JOBS, null, values, SQLiteDatabase.CONFLICT_IGNORE);
+    }
+
+    /**
+     * Exécute les entrées non terminées du journal : travaux par lots et étapes de schéma différées,
+     * par version puis par ordre d'inscription. Doit être appelée hors de toute transaction
+     * (depuis onOpen) : chaque lot est validé séparément avec sa progression.
+     * Une entrée qui échoue est marquée en échec et l'exception est relancée : le schéma est incomplet,
+     * l'ouverture de la base échoue et aucune requête ne s'exécute sur une table ou une colonne manquante.
+     * L'entrée est retentée, avec les suivantes qui peuvent en dépendre, à l'ouverture suivante.
+     *
+     * @param db La base de données ouverte en écriture.
+     * @throws IllegalStateException Si une entrée du journal échoue.
+     */
+    public void runPending(SQLiteDatabase db) {
+        if (db.isReadOnly()) {
+            return;
+        }
+        createJournal(db);
+
+        while (true) {
+            String name;
+            int version;
+            long lastId;
+            long processed;
+            Cursor cursor = db.query(TABLE_MIGRATION_JOBS,
+                    new String[]{COLUMN_NAME, COLUMN_VERSION, COLUMN_LAST_ID, COLUMN_PROCESSED},
+                    COLUMN_FINISHED + " <> " + STATE_FINISHED, null, null, null,
+                    COLUMN_VERSION + ", " + COLUMN_SEQ, "1");
+            try {
+                if (!cursor.moveToFirst()) {
+                    return;
+                }
+                name = cursor.getString(0);
+                version = cursor.getInt(1);
+                lastId = cursor.getLong(2);
+                processed = cursor.getLong(3);
+            } finally {
+                cursor.close();
+            }
+
+            try {
+                if (name.startsWith(DEFERRED_STEP_PREFIX)) {
+                    runDeferredStep(db, name, version);
+                } else {
+                    ChunkedJob job = jobs.get(name);
+                    if (job == null) {
+                        throw new IllegalStateException("Travail de migration inconnu dans le journal : " + name);
+                    }
+                    runJob(db, job, lastId, processed);
+                }
+            } catch (Exception e) {
+                Log.e(TAG, "Échec de l'entrée de migration " + name + ", nouvel essai à la prochaine ouverture", e);
+                markFailed(db, name);
+                throw new IllegalStateException("Migration incomplète : échec de l'entrée " + name, e);
+            }
+        }
+    }
+
+    /**
+     * Applique une étape de schéma différée, dans sa propre transaction avec son marquage comme terminée.
+     *
+     * @param db      La base de données.
+     * @param name    Le nom de l'entrée dans le journal.
+     * @param version La version de l'étape.
+     */
+    private void runDeferredStep(SQLiteDatabase db, String name, int version) {
+        Migration migration = null;
+        for (Migration candidate : migrations) {
+            if (candidate.getVersion() == version) {
+                migration = candidate;
+            }
+        }
+        if (migration == null) {
+            throw new IllegalStateException("Étape de migration inconnue dans le journal : " + name);
+        }
+
+        Log.d(TAG, "Migration différée vers la version " + version);
+        db.beginTransaction();
+        try {
+            currentVersion = version;
+            migration.migrate(db, this);
+            ContentValues values = new ContentValues();
+            values.put(COLUMN_FINISHED, STATE_FINISHED);
+            db.update(TABLE_MIGRATION_JOBS, values, COLUMN_NAME + " = ?", new String[]{name});
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    /**
+     * Exécute un travail lot par lot à partir de sa dernière position validée.
+     *
+     * @param db        La base de données.
+     * @param job       Le travail à exécuter.
+     * @param lastId    Le dernier id traité lors d'une exécution précédente.
+     * @param processed Le nombre de lignes déjà traitées.
+     */
+    private void runJob(SQLiteDatabase db, ChunkedJob job, long lastId, long processed) {
+        long startTime = System.currentTimeMillis();
+        long total = processed + countRemaining(db, job, lastId);
+        Log.d(TAG, "Travail " + job.getName() + " : reprise à l'id " + lastId + " (" + processed + "/" + total + ")");
+
+        db.beginTransaction();
+        try {
+            job.prepare(db);
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+
+        while (job.getSourceTable() != null) {
+            long[] chunk = nextChunk(db, job.getSourceTable(), lastId);
+            if (chunk[1] == 0) {
+                break;
+            }
+            db.beginTransaction();
+            try {
+                job.processRange(db, lastId, chunk[0]);
+                saveProgress(db, job.getName(), chunk[0], processed + chunk[1], false);
+                db.setTransactionSuccessful();
+            } finally {
+                db.endTransaction();
+            }
+            lastId = chunk[0];
+            processed += chunk[1];
+            notifyProgress(job.getName(), processed, total);
+        }
+
+        // Construire les index et basculer les tables une fois les données copiées
+        db.beginTransaction();
+        try {
+            job.finish(db);
+            saveProgress(db, job.getName(), lastId, processed, true);
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+        notifyProgress(job.getName(), processed, total);
+        Log.d(TAG, "Travail " + job.getName() + " terminé en " + (System.currentTimeMillis() - startTime) + " ms");
+    }
+
+    // Retourne {dernier id, nombre de lignes} du prochain lot après lastId
+    private long[] nextChunk(SQLiteDatabase db, String table, long lastId) {
+        Cursor cursor = db.rawQuery("SELECT MAX(id), COUNT(*) FROM (SELECT id FROM " + table
+                        + " WHERE id > ? ORDER BY id LIMIT " + CHUNK_SIZE + ")",
+                new String[]{String.valueOf(lastId)});
+        try {
+            cursor.moveToFirst();
+            return new long[]{cursor.getLong(0), cursor.getLong(1)};
+        } finally {
+            cursor.close();
+        }
+    }
+
+    // Compte les lignes restant à traiter pour un travail
+    private long countRemaining(SQLiteDatabase db, ChunkedJob job, long lastId) {
+        if (job.getSourceTable() == null) {
+            return 0;
+        }
+        Cursor cursor = db.rawQuery("SELECT COUNT(*) FROM " + job.getSourceTable() + " WHERE id > ?",
+                new String[]{String.valueOf(lastId)});
+        try {
+            return cursor.moveToFirst() ? cursor.getLong(0) : 0;
+        } finally {
+            cursor.close();
+        }
+    }
+
+    // Enregistre la progression d'un travail dans le journal
+    private void saveProgress(SQLiteDatabase db, String jobName, long lastId, long processed, boolean finished) {
+        ContentValues values = new ContentValues();
+        values.put(COLUMN_LAST_ID, lastId);
+        values.put(COLUMN_PROCESSED, processed);
+        values.put(COLUMN_FINISHED, finished ? STATE_FINISHED : STATE_PENDING);
+        db.update(TABLE_MIGRATION_JOBS, values, COLUMN_NAME + " = ?", new String[]{jobName});
+    }
+
+    // Notifie le listener de progression, ou journalise à défaut
+    private void notifyProgress(String jobName, long processed, long total) {
+        ProgressListener listener = progressListener;
+        if (listener != null) {
+            listener.onProgress(jobName, processed, total);
+        } else {
+            Log.d(TAG, "Travail " + jobName + " : " + processed + "/" + total);
+        }
+    }
+
+    // Marque une entrée du journal en échec ; sa progression validée est conservée pour la reprise
+    private void markFailed(SQLiteDatabase db, String name) {
+        try {
+            ContentValues values = new ContentValues();
+            values.put(COLUMN_FINISHED, STATE_FAILED);
+            db.update(TABLE_MIGRATION_JOBS, values, COLUMN_NAME + " = ?", new String[]{name});
+        } catch (Exception e) {
+            Log.e(TAG, "Impossible de marquer l'entrée de migration " + name + " en échec", e);
+        }
+    }
+
+    // Indique si le journal contient une entrée non terminée (en attente ou en échec)
+    private boolean hasPendingEntries(SQLiteDatabase db) {
+        Cursor cursor = db.rawQuery("SELECT 1 FROM " + TABLE_MIGRATION_JOBS
+                + " WHERE " + COLUMN_FINISHED + " <> " + STATE_FINISHED + " LIMIT 1", null);
+        try {
+            return cursor.moveToFirst();
+        } finally {
+            cursor.close();
+        }
+    }
+
+    // Crée le journal des travaux par lots s'il n'existe pas, et ajoute la colonne version à un journal antérieur
+    private void createJournal(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE IF NOT EXISTS " + TABLE_MIGRATION_JOBS + "("
+                + COLUMN_SEQ + " INTEGER PRIMARY KEY AUTOINCREMENT,"
+                + COLUMN_NAME + " TEXT UNIQUE NOT NULL,"
+                + COLUMN_LAST_ID + " INTEGER NOT NULL DEFAULT 0,"
+                + COLUMN_PROCESSED + " INTEGER NOT NULL DEFAULT 0,"
+                + COLUMN_FINISHED + " INTEGER NOT NULL DEFAULT " + STATE_PENDING + ","
+                + COLUMN_VERSION + " INTEGER NOT NULL DEFAULT 0"
+                + ")");
+        Cursor cursor = db.rawQuery("SELECT * FROM " + TABLE_MIGRATION_JOBS + " LIMIT 0", null);
+        boolean hasVersion;
+        try {
+            hasVersion = cursor.getColumnIndex(COLUMN_VERSION) >= 0;
+        } finally {
+            cursor.close();
+        }
+        if (!hasVersion) {
+            // Les entrées d'un journal antérieur gardent la version 0 : elles passent avant les nouvelles
+            db.execSQL("ALTER TABLE " + TABLE_MIGRATION_JOBS + " ADD COLUMN " + COLUMN_VERSION + " INTEGER NOT NULL DEFAULT 0");
+        }
+    }
+}
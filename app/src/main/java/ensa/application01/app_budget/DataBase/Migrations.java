@@ -0,0 +1,417 @@
+package ensa.application01.app_budget.DataBase;
+
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Migrations regroupe les étapes versionnées du schéma, dans l'ordre.
+ * Le SQL de chaque étape est figé : il décrit le schéma tel qu'il était à cette version et ne doit
+ * pas utiliser les constantes de {@link DatabaseHelper}, qui suivent le schéma courant.
+ * Pour ajouter une version : ajouter une étape (et ses travaux par lots) à la fin des listes
+ * et incrémenter DATABASE_VERSION.
+ */
+public final class Migrations {
+
+    // Corps des triggers de monthly_summary (version 8) : ajout de NEW et retrait de OLD
+    private static final String V8_ADD_NEW = "INSERT OR IGNORE INTO monthly_summary (year, month, category_id, type)"
+            + " SELECT CAST(strftime('%Y', NEW.date_day * 86400, 'unixepoch') AS INTEGER),"
+            + " CAST(strftime('%m', NEW.date_day * 86400, 'unixepoch') AS INTEGER), NEW.category_id, NEW.type"
+            + " WHERE strftime('%Y', NEW.date_day * 86400, 'unixepoch') IS NOT NULL AND NEW.type IS NOT NULL; "
+            + "UPDATE monthly_summary SET total = total + NEW.amount_minor, count = count + 1"
+            + " WHERE year = CAST(strftime('%Y', NEW.date_day * 86400, 'unixepoch') AS INTEGER)"
+            + " AND month = CAST(strftime('%m', NEW.date_day * 86400, 'unixepoch') AS INTEGER)"
+            + " AND category_id = NEW.category_id AND type = NEW.type;";
+    private static final String V8_REMOVE_OLD = "UPDATE monthly_summary SET total = total - OLD.amount_minor, count = count - 1"
+            + " WHERE year = CAST(strftime('%Y', OLD.date_day * 86400, 'unixepoch') AS INTEGER)"
+            + " AND month = CAST(strftime('%m', OLD.date_day * 86400, 'unixepoch') AS INTEGER)"
+            + " AND category_id = OLD.category_id AND type = OLD.type; "
+            + "DELETE FROM monthly_summary"
+            + " WHERE year = CAST(strftime('%Y', OLD.date_day * 86400, 'unixepoch') AS INTEGER)"
+            + " AND month = CAST(strftime('%m', OLD.date_day * 86400, 'unixepoch') AS INTEGER)"
+            + " AND category_id = OLD.category_id AND type = OLD.type AND count <= 0;";
+
+    // Triggers de la table totals en centimes (version 6)
+    private static final String V6_TRIGGER_TOTALS_INSERT = "CREATE TRIGGER IF NOT EXISTS trg_totals_insert AFTER INSERT ON transactions BEGIN "
+            + "UPDATE totals SET "
+            + "income = income + (CASE WHEN NEW.type = 'Revenu' THEN NEW.amount_minor ELSE 0 END), "
+            + "expenses = expenses + (CASE WHEN NEW.type = 'Dépense' THEN NEW.amount_minor ELSE 0 END) "
+            + "WHERE id = 1; END";
+    private static final String V6_TRIGGER_TOTALS_DELETE = "CREATE TRIGGER IF NOT EXISTS trg_totals_delete AFTER DELETE ON transactions BEGIN "
+            + "UPDATE totals SET "
+            + "income = income - (CASE WHEN OLD.type = 'Revenu' THEN OLD.amount_minor ELSE 0 END), "
+            + "expenses = expenses - (CASE WHEN OLD.type = 'Dépense' THEN OLD.amount_minor ELSE 0 END) "
+            + "WHERE id = 1; END";
+    private static final String V6_TRIGGER_TOTALS_UPDATE = "CREATE TRIGGER IF NOT EXISTS trg_totals_update"
+            + " AFTER UPDATE OF type, amount_minor ON transactions BEGIN "
+            + "UPDATE totals SET "
+            + "income = income - (CASE WHEN OLD.type = 'Revenu' THEN OLD.amount_minor ELSE 0 END)"
+            + " + (CASE WHEN NEW.type = 'Revenu' THEN NEW.amount_minor ELSE 0 END), "
+            + "expenses = expenses - (CASE WHEN OLD.type = 'Dépense' THEN OLD.amount_minor ELSE 0 END)"
+            + " + (CASE WHEN NEW.type = 'Dépense' THEN NEW.amount_minor ELSE 0 END) "
+            + "WHERE id = 1; END";
+
+    // Triggers de monthly_summary (version 8)
+    private static final String V8_TRIGGER_SUMMARY_INSERT = "CREATE TRIGGER IF NOT EXISTS trg_summary_insert"
+            + " AFTER INSERT ON transactions BEGIN " + V8_ADD_NEW + " END";
+    private static final String V8_TRIGGER_SUMMARY_DELETE = "CREATE TRIGGER IF NOT EXISTS trg_summary_delete"
+            + " AFTER DELETE ON transactions BEGIN " + V8_REMOVE_OLD + " END";
+    private static final String V8_TRIGGER_SUMMARY_UPDATE = "CREATE TRIGGER IF NOT EXISTS trg_summary_update"
+            + " AFTER UPDATE OF type, amount_minor, category_id, date_day ON transactions BEGIN "
+            + V8_REMOVE_OLD + " " + V8_ADD_NEW + " END";
+
+    // Triggers de l'index plein texte (version 9)
+    private static final String V9_TRIGGER_FTS_INSERT = "CREATE TRIGGER IF NOT EXISTS trg_fts_insert AFTER INSERT ON transactions BEGIN "
+            + "INSERT INTO transactions_fts (docid, note, category) VALUES (NEW.id, NEW.note,"
+            + " (SELECT name FROM categories WHERE id = NEW.category_id)); END";
+    private static final String V9_TRIGGER_FTS_DELETE = "CREATE TRIGGER IF NOT EXISTS trg_fts_delete AFTER DELETE ON transactions BEGIN "
+            + "DELETE FROM transactions_fts WHERE docid = OLD.id; END";
+    private static final String V9_TRIGGER_FTS_UPDATE = "CREATE TRIGGER IF NOT EXISTS trg_fts_update"
+            + " AFTER UPDATE OF note, category_id ON transactions BEGIN "
+            + "UPDATE transactions_fts SET note = NEW.note,"
+            + " category = (SELECT name FROM categories WHERE id = NEW.category_id) WHERE docid = NEW.id; END";
+    private static final String V9_TRIGGER_FTS_CATEGORY_RENAME = "CREATE TRIGGER IF NOT EXISTS trg_fts_category_rename"
+            + " AFTER UPDATE OF name ON categories BEGIN "
+            + "UPDATE transactions_fts SET category = NEW.name"
+            + " WHERE docid IN (SELECT id FROM transactions WHERE category_id = NEW.id); END";
+
+    private Migrations() {
+    }
+
+    /**
+     * Remplace la table transactions par sa version reconstruite, puis recrée tous les triggers qui en dépendent.
+     * DROP TABLE supprime tous les triggers de la table, y compris ceux d'une version postérieure déjà installés
+     * par une mise à jour interrompue : à appeler depuis le finish() de chaque reconstruction de la table.
+     *
+     * @param db       La base de données.
+     * @param newTable La table reconstruite, renommée en transactions.
+     */
+    static void swapTransactionsTable(SQLiteDatabase db, String newTable) {
+        // Le renommage échoue tant qu'un trigger d'une autre table référence la table supprimée
+        db.execSQL("DROP TRIGGER IF EXISTS trg_fts_category_rename");
+        db.execSQL("DROP TABLE transactions");
+        db.execSQL("ALTER TABLE " + newTable + " RENAME TO transactions");
+        createTransactionTriggers(db);
+    }
+
+    /**
+     * Crée les triggers attendus sur la table transactions (montants en centimes) : ceux des totaux, puis ceux
+     * de monthly_summary et de l'index plein texte si ces tables existent déjà (sinon l'étape qui les crée
+     * installe leurs triggers). Les triggers existants sont conservés.
+     *
+     * @param db La base de données.
+     */
+    static void createTransactionTriggers(SQLiteDatabase db) {
+        db.execSQL(V6_TRIGGER_TOTALS_INSERT);
+        db.execSQL(V6_TRIGGER_TOTALS_DELETE);
+        db.execSQL(V6_TRIGGER_TOTALS_UPDATE);
+        if (tableExists(db, "monthly_summary")) {
+            db.execSQL(V8_TRIGGER_SUMMARY_INSERT);
+            db.execSQL(V8_TRIGGER_SUMMARY_DELETE);
+            db.execSQL(V8_TRIGGER_SUMMARY_UPDATE);
+        }
+        if (tableExists(db, "transactions_fts")) {
+            db.execSQL(V9_TRIGGER_FTS_INSERT);
+            db.execSQL(V9_TRIGGER_FTS_DELETE);
+            db.execSQL(V9_TRIGGER_FTS_UPDATE);
+            db.execSQL(V9_TRIGGER_FTS_CATEGORY_RENAME);
+        }
+    }
+
+    // Indique si une table existe dans le schéma
+    private static boolean tableExists(SQLiteDatabase db, String table) {
+        Cursor cursor = db.rawQuery("SELECT 1 FROM sqlite_master WHERE type = 'table' AND name = ?", new String[]{table});
+        try {
+            return cursor.moveToFirst();
+        } finally {
+            cursor.close();
+        }
+    }
+
+    /**
+     * Crée le runner contenant toutes les étapes et tous les travaux par lots connus.
+     *
+     * @return Le runner de migrations.
+     */
+    public static MigrationRunner createRunner() {
+        List<Migration> migrations = new ArrayList<>();
+        List<ChunkedJob> jobs = new ArrayList<>();
+
+        // Version 3 : colonne date_day (jours depuis le 01/01/1970), remplie par lots puis indexée
+        migrations.add(new Migration(3) {
+            @Override
+            public void migrate(SQLiteDatabase db, MigrationRunner runner) {
+                db.execSQL("ALTER TABLE transactions ADD COLUMN date_day INTEGER");
+                runner.enqueue(db, "v3_backfill_date_day");
+            }
+        });
+        jobs.add(new ChunkedJob("v3_backfill_date_day", "transactions") {
+            @Override
+            public void prepare(SQLiteDatabase db) {
+                // Une mise à jour interrompue a pu installer ce trigger sur l'ancienne table (sans category_id) :
+                // il ferait échouer la mise à jour de date_day ; la reconstruction de la version 6 le recrée
+                db.execSQL("DROP TRIGGER IF EXISTS trg_summary_update");
+            }
+
+            @Override
+            public void processRange(SQLiteDatabase db, long fromId, long toId) {
+                // julianday() attend "yyyy-MM-dd" ; 2440587.5 correspond au 01/01/1970 à minuit
+                db.execSQL("UPDATE transactions SET date_day = CAST(julianday("
+                                + "substr(date, 7, 4) || '-' || substr(date, 4, 2) || '-' || substr(date, 1, 2)"
+                                + ") - 2440587.5 AS INTEGER) WHERE id > ? AND id <= ?",
+                        new Object[]{fromId, toId});
+            }
+
+            @Override
+            public void finish(SQLiteDatabase db) {
+                db.execSQL("CREATE INDEX IF NOT EXISTS idx_transactions_date_day ON transactions(date_day)");
+            }
+        });
+
+        // Version 4 : index composites des filtres de l'historique
+        migrations.add(new Migration(4) {
+            @Override
+            public void migrate(SQLiteDatabase db, MigrationRunner runner) {
+                runner.enqueue(db, "v4_filter_indexes");
+            }
+        });
+        jobs.add(new ChunkedJob("v4_filter_indexes", null) {
+            @Override
+            public void finish(SQLiteDatabase db) {
+                db.execSQL("CREATE INDEX IF NOT EXISTS idx_transactions_type_category_date"
+                        + " ON transactions(type, category, date_day)");
+                db.execSQL("CREATE INDEX IF NOT EXISTS idx_transactions_category_date"
+                        + " ON transactions(category, date_day)");
+            }
+        });
+
+        // Version 5 : table totals tenue à jour par triggers, initialisée après l'ouverture
+        migrations.add(new Migration(5) {
+            @Override
+            public void migrate(SQLiteDatabase db, MigrationRunner runner) {
+                db.execSQL("CREATE TABLE IF NOT EXISTS totals(id INTEGER PRIMARY KEY,"
+                        + "income REAL NOT NULL DEFAULT 0,expenses REAL NOT NULL DEFAULT 0)");
+                db.execSQL("INSERT OR IGNORE INTO totals (id) VALUES (1)");
+                db.execSQL("CREATE TRIGGER IF NOT EXISTS trg_totals_insert AFTER INSERT ON transactions BEGIN "
+                        + "UPDATE totals SET "
+                        + "income = income + (CASE WHEN NEW.type = 'Revenu' THEN NEW.amount ELSE 0 END), "
+                        + "expenses = expenses + (CASE WHEN NEW.type = 'Dépense' THEN NEW.amount ELSE 0 END) "
+                        + "WHERE id = 1; END");
+                db.execSQL("CREATE TRIGGER IF NOT EXISTS trg_totals_delete AFTER DELETE ON transactions BEGIN "
+                        + "UPDATE totals SET "
+                        + "income = income - (CASE WHEN OLD.type = 'Revenu' THEN OLD.amount ELSE 0 END), "
+                        + "expenses = expenses - (CASE WHEN OLD.type = 'Dépense' THEN OLD.amount ELSE 0 END) "
+                        + "WHERE id = 1; END");
+                db.execSQL("CREATE TRIGGER IF NOT EXISTS trg_totals_update AFTER UPDATE OF type, amount ON transactions BEGIN "
+                        + "UPDATE totals SET "
+                        + "income = income - (CASE WHEN OLD.type = 'Revenu' THEN OLD.amount ELSE 0 END)"
+                        + " + (CASE WHEN NEW.type = 'Revenu' THEN NEW.amount ELSE 0 END), "
+                        + "expenses = expenses - (CASE WHEN OLD.type = 'Dépense' THEN OLD.amount ELSE 0 END)"
+                        + " + (CASE WHEN NEW.type = 'Dépense' THEN NEW.amount ELSE 0 END) "
+                        + "WHERE id = 1; END");
+                runner.enqueue(db, "v5_recompute_totals");
+            }
+        });
+        jobs.add(new ChunkedJob("v5_recompute_totals", null) {
+            @Override
+            public void finish(SQLiteDatabase db) {
+                // Les triggers couvrent les écritures faites depuis la migration : on remplace par la somme exacte
+                db.execSQL("INSERT OR REPLACE INTO totals (id, income, expenses) SELECT 1, "
+                        + "TOTAL(CASE WHEN type = 'Revenu' THEN amount END), "
+                        + "TOTAL(CASE WHEN type = 'Dépense' THEN amount END) FROM transactions");
+            }
+        });
+
+        // Version 6 : montants en centimes (INTEGER) au lieu de REAL, par reconstruction de la table
+        migrations.add(new Migration(6) {
+            @Override
+            public void migrate(SQLiteDatabase db, MigrationRunner runner) {
+                db.execSQL("CREATE TABLE IF NOT EXISTS transactions_v6("
+                        + "id INTEGER PRIMARY KEY AUTOINCREMENT,type TEXT,amount_minor INTEGER NOT NULL,category TEXT,"
+                        + "date TEXT,note TEXT,isAlarmEnabled INTEGER,alarmDate TEXT,alarmTime TEXT,date_day INTEGER,"
+                        + "UNIQUE(type, amount_minor, category, date, note))");
+                runner.enqueue(db, "v6_amount_minor_units");
+            }
+        });
+        jobs.add(new ChunkedJob("v6_amount_minor_units", "transactions") {
+            @Override
+            public void processRange(SQLiteDatabase db, long fromId, long toId) {
+                // Les montants qui ne différaient que sous le centime deviennent des doublons et sont ignorés
+                db.execSQL("INSERT OR IGNORE INTO transactions_v6 (id, type, amount_minor, category, date, note,"
+                                + " isAlarmEnabled, alarmDate, alarmTime, date_day)"
+                                + " SELECT id, type, CAST(ROUND(COALESCE(amount, 0) * 100) AS INTEGER), category, date, note,"
+                                + " isAlarmEnabled, alarmDate, alarmTime, date_day"
+                                + " FROM transactions WHERE id > ? AND id <= ?",
+                        new Object[]{fromId, toId});
+            }
+
+            @Override
+            public void finish(SQLiteDatabase db) {
+                // Supprimer l'ancienne table supprime aussi ses index : on les recrée sur la nouvelle
+                swapTransactionsTable(db, "transactions_v6");
+                db.execSQL("CREATE INDEX IF NOT EXISTS idx_transactions_date_day ON transactions(date_day)");
+                db.execSQL("CREATE INDEX IF NOT EXISTS idx_transactions_type_category_date"
+                        + " ON transactions(type, category, date_day)");
+                db.execSQL("CREATE INDEX IF NOT EXISTS idx_transactions_category_date"
+                        + " ON transactions(category, date_day)");
+
+                db.execSQL("DROP TABLE IF EXISTS totals");
+                db.execSQL("CREATE TABLE totals(id INTEGER PRIMARY KEY,"
+                        + "income INTEGER NOT NULL DEFAULT 0,expenses INTEGER NOT NULL DEFAULT 0)");
+                db.execSQL("INSERT INTO totals (id, income, expenses) SELECT 1, "
+                        + "COALESCE(SUM(CASE WHEN type = 'Revenu' THEN amount_minor END), 0), "
+                        + "COALESCE(SUM(CASE WHEN type = 'Dépense' THEN amount_minor END), 0) FROM transactions");
+            }
+        });
+
+        // Version 7 : catégorie référencée par un id entier (clé étrangère) au lieu de son nom
+        migrations.add(new Migration(7) {
+            @Override
+            public void migrate(SQLiteDatabase db, MigrationRunner runner) {
+                db.execSQL("CREATE TABLE IF NOT EXISTS transactions_v7("
+                        + "id INTEGER PRIMARY KEY AUTOINCREMENT,type TEXT,amount_minor INTEGER NOT NULL,"
+                        + "category_id INTEGER NOT NULL REFERENCES categories(id) ON DELETE RESTRICT,"
+                        + "date TEXT,note TEXT,isAlarmEnabled INTEGER,alarmDate TEXT,alarmTime TEXT,date_day INTEGER,"
+                        + "UNIQUE(type, amount_minor, category_id, date, note))");
+                runner.enqueue(db, "v7_category_ids");
+            }
+        });
+        jobs.add(new ChunkedJob("v7_category_ids", "transactions") {
+            @Override
+            public void processRange(SQLiteDatabase db, long fromId, long toId) {
+                // Les noms absents de la table categories (ajoutés avant sa création, ou supprimés depuis) y sont recréés
+                db.execSQL("INSERT OR IGNORE INTO categories (name)"
+                                + " SELECT DISTINCT COALESCE(NULLIF(category, ''), 'Autre')"
+                                + " FROM transactions WHERE id > ? AND id <= ?",
+                        new Object[]{fromId, toId});
+                db.execSQL("INSERT OR IGNORE INTO transactions_v7 (id, type, amount_minor, category_id, date, note,"
+                                + " isAlarmEnabled, alarmDate, alarmTime, date_day)"
+                                + " SELECT t.id, t.type, t.amount_minor, c.id, t.date, t.note,"
+                                + " t.isAlarmEnabled, t.alarmDate, t.alarmTime, t.date_day"
+                                + " FROM transactions t JOIN categories c ON c.name = COALESCE(NULLIF(t.category, ''), 'Autre')"
+                                + " WHERE t.id > ? AND t.id <= ?",
+                        new Object[]{fromId, toId});
+            }
+
+            @Override
+            public void finish(SQLiteDatabase db) {
+                swapTransactionsTable(db, "transactions_v7");
+                db.execSQL("CREATE INDEX IF NOT EXISTS idx_transactions_date_day ON transactions(date_day)");
+                db.execSQL("CREATE INDEX IF NOT EXISTS idx_transactions_type_category_date"
+                        + " ON transactions(type, category_id, date_day)");
+                db.execSQL("CREATE INDEX IF NOT EXISTS idx_transactions_category_date"
+                        + " ON transactions(category_id, date_day)");
+
+                // Catégories vides et NULL deviennent toutes deux 'Autre' : des doublons ont pu être ignorés, recalculer les totaux
+                db.execSQL("INSERT OR REPLACE INTO totals (id, income, expenses) SELECT 1, "
+                        + "COALESCE(SUM(CASE WHEN type = 'Revenu' THEN amount_minor END), 0), "
+                        + "COALESCE(SUM(CASE WHEN type = 'Dépense' THEN amount_minor END), 0) FROM transactions");
+            }
+        });
+
+        // Version 8 : table monthly_summary tenue à jour par triggers, remplie après l'ouverture
+        migrations.add(new Migration(8) {
+            @Override
+            public void migrate(SQLiteDatabase db, MigrationRunner runner) {
+                db.execSQL("CREATE TABLE IF NOT EXISTS monthly_summary(year INTEGER NOT NULL,month INTEGER NOT NULL,"
+                        + "category_id INTEGER NOT NULL,type TEXT NOT NULL,total INTEGER NOT NULL DEFAULT 0,"
+                        + "count INTEGER NOT NULL DEFAULT 0,PRIMARY KEY(year, month, category_id, type)) WITHOUT ROWID");
+                db.execSQL(V8_TRIGGER_SUMMARY_INSERT);
+                db.execSQL(V8_TRIGGER_SUMMARY_DELETE);
+                db.execSQL(V8_TRIGGER_SUMMARY_UPDATE);
+                runner.enqueue(db, "v8_fill_monthly_summary");
+            }
+        });
+        jobs.add(new ChunkedJob("v8_fill_monthly_summary", null) {
+            @Override
+            public void finish(SQLiteDatabase db) {
+                // Les triggers couvrent les écritures faites depuis la migration : on remplace par l'agrégat exact
+                db.execSQL("DELETE FROM monthly_summary");
+                db.execSQL("INSERT INTO monthly_summary (year, month, category_id, type, total, count)"
+                        + " SELECT CAST(strftime('%Y', date_day * 86400, 'unixepoch') AS INTEGER) AS y,"
+                        + " CAST(strftime('%m', date_day * 86400, 'unixepoch') AS INTEGER) AS m,"
+                        + " category_id, type, SUM(amount_minor), COUNT(*) FROM transactions"
+                        + " WHERE y IS NOT NULL AND type IS NOT NULL GROUP BY y, m, category_id, type");
+            }
+        });
+
+        // Version 9 : index plein texte (FTS4) de la note et du nom de catégorie, rempli par lots
+        migrations.add(new Migration(9) {
+            @Override
+            public void migrate(SQLiteDatabase db, MigrationRunner runner) {
+                db.execSQL("CREATE VIRTUAL TABLE IF NOT EXISTS transactions_fts USING fts4(note, category, tokenize=unicode61)");
+                db.execSQL(V9_TRIGGER_FTS_INSERT);
+                db.execSQL(V9_TRIGGER_FTS_DELETE);
+                db.execSQL(V9_TRIGGER_FTS_UPDATE);
+                db.execSQL(V9_TRIGGER_FTS_CATEGORY_RENAME);
+                runner.enqueue(db, "v9_fill_search_index");
+            }
+        });
+        jobs.add(new ChunkedJob("v9_fill_search_index", "transactions") {
+            @Override
+            public void processRange(SQLiteDatabase db, long fromId, long toId) {
+                // Les lignes écrites depuis la migration sont déjà indexées par les triggers
+                db.execSQL("INSERT INTO transactions_fts (docid, note, category)"
+                                + " SELECT t.id, t.note, c.name FROM transactions t JOIN categories c ON c.id = t.category_id"
+                                + " WHERE t.id > ? AND t.id <= ?"
+                                + " AND NOT EXISTS (SELECT 1 FROM transactions_fts WHERE docid = t.id)",
+                        new Object[]{fromId, toId});
+            }
+        });
+
+        // Version 10 : file persistante des rappels, indexée par heure de déclenchement.
+        // Les alarmes des transactions existantes encore à venir y sont reprises (heure locale "dd/MM/yyyy" "HH:mm")
+        migrations.add(new Migration(10) {
+            @Override
+            public void migrate(SQLiteDatabase db, MigrationRunner runner) {
+                db.execSQL("CREATE TABLE IF NOT EXISTS reminders(id INTEGER PRIMARY KEY AUTOINCREMENT,"
+                        + "transaction_id INTEGER REFERENCES transactions(id) ON DELETE CASCADE,"
+                        + "fire_at INTEGER NOT NULL,title TEXT,message TEXT)");
+                db.execSQL("CREATE INDEX IF NOT EXISTS idx_reminders_fire_at ON reminders(fire_at)");
+                runner.enqueue(db, "v10_fill_reminders");
+            }
+        });
+        jobs.add(new ChunkedJob("v10_fill_reminders", "transactions") {
+            @Override
+            public void processRange(SQLiteDatabase db, long fromId, long toId) {
+                // Le modificateur 'utc' convertit l'heure locale saisie en heure UTC ; une heure mal formée donne NULL
+                db.execSQL("INSERT INTO reminders (transaction_id, fire_at, title, message)"
+                                + " SELECT t.id, t.fire_at, 'Rappel de transaction', t.note FROM (SELECT id, note,"
+                                + " CAST(strftime('%s', substr(alarmDate, 7, 4) || '-' || substr(alarmDate, 4, 2) || '-'"
+                                + " || substr(alarmDate, 1, 2) || ' ' || alarmTime, 'utc') AS INTEGER) * 1000 AS fire_at"
+                                + " FROM transactions WHERE id > ? AND id <= ? AND isAlarmEnabled = 1) t"
+                                + " WHERE t.fire_at > CAST(strftime('%s', 'now') AS INTEGER) * 1000"
+                                + " AND NOT EXISTS (SELECT 1 FROM reminders r WHERE r.transaction_id = t.id)",
+                        new Object[]{fromId, toId});
+            }
+        });
+
+        // Version 11 : règles de répétition des transactions, dont les occurrences sont générées à la demande
+        migrations.add(new Migration(11) {
+            @Override
+            public void migrate(SQLiteDatabase db, MigrationRunner runner) {
+                db.execSQL("CREATE TABLE IF NOT EXISTS recurrence_rules(id INTEGER PRIMARY KEY AUTOINCREMENT,"
+                        + "type TEXT NOT NULL,amount_minor INTEGER NOT NULL,"
+                        + "category_id INTEGER NOT NULL REFERENCES categories(id) ON DELETE RESTRICT,"
+                        + "note TEXT,frequency TEXT NOT NULL,start_day INTEGER NOT NULL,end_day INTEGER,max_count INTEGER,"
+                        + "generated_count INTEGER NOT NULL DEFAULT 0,next_day INTEGER)");
+                db.execSQL("CREATE INDEX IF NOT EXISTS idx_recurrence_rules_next_day ON recurrence_rules(next_day)"
+                        + " WHERE next_day IS NOT NULL");
+            }
+        });
+
+        // Version 12 : limite mensuelle des dépenses par catégorie et seuils d'alerte
+        migrations.add(new Migration(12) {
+            @Override
+            public void migrate(SQLiteDatabase db, MigrationRunner runner) {
+                db.execSQL("CREATE TABLE IF NOT EXISTS category_limits("
+                        + "category_id INTEGER PRIMARY KEY REFERENCES categories(id) ON DELETE CASCADE,"
+                        + "limit_minor INTEGER NOT NULL,thresholds TEXT NOT NULL DEFAULT '80,100')");
+            }
+        });
+
+        return new MigrationRunner(migrations, jobs);
+    }
+}
@@ -0,0 +1,170 @@
+package ensa.application01.app_budget.DataBase;
+
+import android.util.Log;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+
+/**
+ * QueryCache garde en mémoire les derniers résultats de requêtes, dans la limite d'un nombre d'entrées
+ * (les moins récemment utilisées sont évincées). Chaque entrée est indexée par une clé normalisée
+ * (type de requête et paramètres) et déclare les tables et l'intervalle de dates qu'elle a lus :
+ * une écriture notifiée par {@link DatabaseHelper} n'invalide que les entrées qu'elle peut toucher.
+ * Les résultats mis en cache sont partagés et ne doivent pas être modifiés par les appelants.
+ */
+public class QueryCache implements DatabaseHelper.ChangeListener {
+
+    private static final String TAG = "QueryCache";
+
+    private final int maxEntries; // Nombre maximal d'entrées
+    private final LinkedHashMap<String, Entry> entries; // Entrées, de la moins à la plus récemment utilisée
+    private long generation; // Incrémenté à chaque écriture : un résultat lu avant n'est pas mis en cache
+    private int hitCount; // Lectures servies depuis la mémoire
+    private int missCount; // Lectures ayant interrogé la base
+    private int invalidationCount; // Entrées retirées à la suite d'une écriture
+
+    /**
+     * Constructeur de QueryCache.
+     *
+     * @param maxEntries Le nombre maximal d'entrées gardées en mémoire.
+     */
+    public QueryCache(int maxEntries) {
+        this.maxEntries = maxEntries;
+        this.entries = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > QueryCache.this.maxEntries;
+            }
+        };
+    }
+
+    /**
+     * Retourne le résultat en cache pour la clé, ou exécute la requête et met son résultat en cache.
+     * La requête est exécutée hors verrou : plusieurs lectures peuvent avoir lieu en parallèle.
+     *
+     * @param key     La clé normalisée de la requête.
+     * @param tables  Les tables lues par la requête.
+     * @param fromDay La première date lue, ou DateCodec.INVALID_DAY si non bornée.
+     * @param toDay   La dernière date lue, ou DateCodec.INVALID_DAY si non bornée.
+     * @param loader  La requête, exécutée en cas d'absence dans le cache.
+     * @param <T>     Le type du résultat.
+     * @return Le résultat (un résultat null n'est pas mis en cache).
+     * @throws Exception Si la requête échoue.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T getOrLoad(String key, String[] tables, int fromDay, int toDay, Callable<T> loader) throws Exception {
+        long loadGeneration;
+        synchronized (this) {
+            Entry entry = entries.get(key);
+            if (entry != null) {
+                hitCount++;
+                return (T) entry.value;
+            }
+            missCount++;
+            loadGeneration = generation;
+        }
+
+        T value = loader.call();
+
+        synchronized (this) {
+            // Une écriture pendant la lecture a pu rendre le résultat obsolète : ne pas le garder
+            if (value != null && loadGeneration == generation) {
+                entries.put(key, new Entry(value, tables, fromDay, toDay));
+            }
+        }
+        return value;
+    }
+
+    /**
+     * Retire les entrées qui ont lu la table modifiée dans l'intervalle de dates touché.
+     *
+     * @param change L'écriture notifiée.
+     */
+    @Override
+    public synchronized void onTableChanged(TableChange change) {
+        generation++;
+        int removed = 0;
+        Iterator<Entry> iterator = entries.values().iterator();
+        while (iterator.hasNext()) {
+            Entry entry = iterator.next();
+            if (entry.reads(change.getTable()) && change.overlaps(entry.fromDay, entry.toDay)) {
+                iterator.remove();
+                removed++;
+            }
+        }
+        invalidationCount += removed;
+        if (removed > 0) {
+            Log.d(TAG, "Écriture dans " + change.getTable() + " : " + removed + " entrées invalidées");
+        }
+    }
+
+    /**
+     * Vide le cache.
+     */
+    public synchronized void clear() {
+        generation++;
+        entries.clear();
+    }
+
+    /**
+     * Retourne le nombre de lectures servies depuis la mémoire.
+     *
+     * @return Le nombre de succès.
+     */
+    public synchronized int getHitCount() {
+        return hitCount;
+    }
+
+    /**
+     * Retourne le nombre de lectures ayant interrogé la base.
+     *
+     * @return Le nombre d'échecs.
+     */
+    public synchronized int getMissCount() {
+        return missCount;
+    }
+
+    /**
+     * Retourne le nombre d'entrées retirées à la suite d'écritures.
+     *
+     * @return Le nombre d'invalidations.
+     */
+    public synchronized int getInvalidationCount() {
+        return invalidationCount;
+    }
+
+    /**
+     * Retourne le nombre d'entrées en mémoire.
+     *
+     * @return La taille du cache.
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    // Résultat en cache, avec les tables et l'intervalle de dates qu'il a lus
+    private static final class Entry {
+        final Object value; // Résultat de la requête
+        final String[] tables; // Tables lues
+        final int fromDay; // Première date lue, ou DateCodec.INVALID_DAY
+        final int toDay; // Dernière date lue, ou DateCodec.INVALID_DAY
+
+        Entry(Object value, String[] tables, int fromDay, int toDay) {
+            this.value = value;
+            this.tables = tables;
+            this.fromDay = fromDay;
+            this.toDay = toDay;
+        }
+
+        boolean reads(String table) {
+            for (String read : tables) {
+                if (read.equals(table)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
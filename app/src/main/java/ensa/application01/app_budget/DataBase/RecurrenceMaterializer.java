@@ -0,0 +1,143 @@
+package ensa.application01.app_budget.DataBase;
+
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+import android.util.Log;
+
+import ensa.application01.app_budget.module.RecurrenceRule;
+import ensa.application01.app_budget.utils.DateCodec;
+
+/**
+ * RecurrenceMaterializer génère les transactions des règles de répétition jusqu'à un horizon, à la demande.
+ * Chaque règle mémorise le nombre d'occurrences déjà générées et la date de la suivante (next_day) :
+ * seules les règles dont next_day est échu sont lues (index partiel), et chaque occurrence est calculée
+ * directement depuis son indice. Le coût est donc proportionnel aux nouvelles occurrences, pas à
+ * l'historique des règles, et une longue absence est rattrapée en un seul passage.
+ * Toutes les occurrences sont insérées dans une seule transaction avec une requête précompilée ;
+ * INSERT OR IGNORE s'appuie sur la contrainte UNIQUE de la table transactions, ce qui rend la
+ * génération idempotente (une occurrence déjà saisie ou déjà générée n'est pas dupliquée).
+ * Les dépenses générées sont vérifiées contre les limites mensuelles sous le verrou du {@link BudgetLimitChecker},
+ * comme un ajout unitaire.
+ */
+public class RecurrenceMaterializer {
+
+    private static final String TAG = "RecurrenceMaterializer";
+
+    private final DatabaseHelper dbHelper; // Helper pour interagir avec la base de données
+    private final BudgetLimitChecker limitChecker; // Alertes de limites, et verrou des écritures de dépenses
+
+    /**
+     * Constructeur de RecurrenceMaterializer.
+     *
+     * @param dbHelper     Le helper de la base de données.
+     * @param limitChecker Le vérificateur des limites mensuelles.
+     */
+    public RecurrenceMaterializer(DatabaseHelper dbHelper, BudgetLimitChecker limitChecker) {
+        this.dbHelper = dbHelper;
+        this.limitChecker = limitChecker;
+    }
+
+    /**
+     * Génère toutes les occurrences échues jusqu'à l'horizon (inclus). Doit être appelée hors du thread principal.
+     *
+     * @param horizonDay La dernière date à générer, en jours depuis le 01/01/1970 (en général aujourd'hui).
+     * @return Le nombre de transactions insérées.
+     */
+    public synchronized int materialize(int horizonDay) {
+        SQLiteDatabase db = dbHelper.getWritableDatabase();
+        int inserted = 0;
+        int minDay = Integer.MAX_VALUE; // Intervalle des dates insérées, notifié à la fin
+        int maxDay = Integer.MIN_VALUE;
+        int rulesUpdated = 0;
+
+        SQLiteStatement insertTransaction = db.compileStatement("INSERT OR IGNORE INTO " + DatabaseHelper.TABLE_TRANSACTIONS + " ("
+                + DatabaseHelper.COLUMN_TYPE + ", " + DatabaseHelper.COLUMN_AMOUNT_MINOR + ", " + DatabaseHelper.COLUMN_CATEGORY_ID + ", "
+                + DatabaseHelper.COLUMN_DATE + ", " + DatabaseHelper.COLUMN_DATE_DAY + ", " + DatabaseHelper.COLUMN_NOTE + ", "
+                + DatabaseHelper.COLUMN_IS_ALARM_ENABLED + ") VALUES (?, ?, ?, ?, ?, ?, 0)");
+        SQLiteStatement updateRule = db.compileStatement("UPDATE " + DatabaseHelper.TABLE_RECURRENCE_RULES + " SET "
+                + DatabaseHelper.COLUMN_GENERATED_COUNT + " = ?, " + DatabaseHelper.COLUMN_NEXT_DAY + " = ? WHERE "
+                + DatabaseHelper.COLUMN_ID + " = ?");
+        BudgetLimitChecker.ExpenseBatch expenses = new BudgetLimitChecker.ExpenseBatch();
+        // Insertions et vérification des limites sous le verrou des écritures de dépenses
+        synchronized (limitChecker) {
+            db.beginTransaction();
+            try {
+                Cursor cursor = db.query(DatabaseHelper.TABLE_RECURRENCE_RULES,
+                        new String[]{DatabaseHelper.COLUMN_ID, DatabaseHelper.COLUMN_TYPE, DatabaseHelper.COLUMN_AMOUNT_MINOR,
+                                DatabaseHelper.COLUMN_CATEGORY_ID, DatabaseHelper.COLUMN_NOTE, DatabaseHelper.COLUMN_FREQUENCY,
+                                DatabaseHelper.COLUMN_START_DAY, DatabaseHelper.COLUMN_END_DAY, DatabaseHelper.COLUMN_MAX_COUNT,
+                                DatabaseHelper.COLUMN_GENERATED_COUNT, DatabaseHelper.COLUMN_NEXT_DAY},
+                        DatabaseHelper.COLUMN_NEXT_DAY + " <= ?", new String[]{String.valueOf(horizonDay)},
+                        null, null, null);
+                try {
+                    while (cursor.moveToNext()) {
+                        long ruleId = cursor.getLong(0);
+                        String type = cursor.getString(1);
+                        long amountMinor = cursor.getLong(2);
+                        long categoryId = cursor.getLong(3);
+                        String note = cursor.isNull(4) ? "" : cursor.getString(4);
+                        RecurrenceRule.Frequency frequency = RecurrenceRule.Frequency.valueOf(cursor.getString(5));
+                        int startDay = cursor.getInt(6);
+                        int endDay = cursor.isNull(7) ? DateCodec.INVALID_DAY : cursor.getInt(7);
+                        int maxCount = cursor.isNull(8) ? RecurrenceRule.NO_MAX_COUNT : cursor.getInt(8);
+                        int n = cursor.getInt(9);
+                        int day = cursor.getInt(10);
+
+                        // Générer les occurrences échues, depuis la dernière générée (rattrapage compris)
+                        while (day <= horizonDay && RecurrenceRule.isWithinLimits(endDay, maxCount, n, day)) {
+                            insertTransaction.bindString(1, type);
+                            insertTransaction.bindLong(2, amountMinor);
+                            insertTransaction.bindLong(3, categoryId);
+                            insertTransaction.bindString(4, DateCodec.format(day));
+                            insertTransaction.bindLong(5, day);
+                            insertTransaction.bindString(6, note);
+                            long transactionId = insertTransaction.executeInsert();
+                            if (transactionId != -1) {
+                                expenses.add(transactionId, type, amountMinor, categoryId, day);
+                                inserted++;
+                                minDay = Math.min(minDay, day);
+                                maxDay = Math.max(maxDay, day);
+                            }
+                            n++;
+                            day = RecurrenceRule.occurrenceDay(frequency, startDay, n);
+                        }
+
+                        // Mémoriser la progression : la prochaine exécution repart de l'occurrence suivante
+                        updateRule.bindLong(1, n);
+                        if (RecurrenceRule.isWithinLimits(endDay, maxCount, n, day)) {
+                            updateRule.bindLong(2, day);
+                        } else {
+                            updateRule.bindNull(2); // Règle terminée : elle sort de l'index partiel
+                        }
+                        updateRule.bindLong(3, ruleId);
+                        updateRule.executeUpdateDelete();
+                        rulesUpdated++;
+                    }
+                } finally {
+                    cursor.close();
+                }
+                db.setTransactionSuccessful();
+            } catch (Exception e) {
+                Log.e(TAG, "Erreur lors de la génération des transactions répétées", e);
+                inserted = 0;
+                rulesUpdated = 0;
+                expenses = new BudgetLimitChecker.ExpenseBatch(); // Lot annulé : rien à vérifier
+            } finally {
+                db.endTransaction();
+                insertTransaction.close();
+                updateRule.close();
+            }
+            limitChecker.checkBatch(expenses);
+        }
+
+        if (inserted > 0) {
+            dbHelper.notifyTransactionsChanged(null, minDay, maxDay);
+        }
+        if (rulesUpdated > 0) {
+            dbHelper.notifyTableChanged(DatabaseHelper.TABLE_RECURRENCE_RULES, null, DateCodec.INVALID_DAY, DateCodec.INVALID_DAY);
+            Log.d(TAG, rulesUpdated + " règles avancées, " + inserted + " transactions générées");
+        }
+        return inserted;
+    }
+}
@@ -0,0 +1,115 @@
+package ensa.application01.app_budget.DataBase;
+
+import ensa.application01.app_budget.utils.DateCodec;
+
+/**
+ * TableChange décrit une écriture validée dans une table : le nom de la table et, lorsqu'ils sont connus,
+ * les ids des lignes écrites et l'intervalle des dates des transactions concernées. Les caches et les
+ * écrans s'en servent pour n'invalider que les résultats réellement touchés.
+ */
+public final class TableChange {
+
+    static final int MAX_ROW_IDS = 256; // Au-delà, les ids de lignes fusionnées ne sont plus conservés
+
+    private final String table; // Table modifiée
+    private final long[] rowIds; // Ids des lignes écrites, ou null s'ils sont inconnus
+    private final int fromDay; // Première date concernée, ou DateCodec.INVALID_DAY si inconnue
+    private final int toDay; // Dernière date concernée, ou DateCodec.INVALID_DAY si inconnue
+
+    /**
+     * Constructeur de TableChange.
+     *
+     * @param table   Le nom de la table modifiée.
+     * @param fromDay La première date concernée, ou {@link DateCodec#INVALID_DAY} si elle est inconnue.
+     * @param toDay   La dernière date concernée, ou {@link DateCodec#INVALID_DAY} si elle est inconnue.
+     */
+    public TableChange(String table, int fromDay, int toDay) {
+        this(table, null, fromDay, toDay);
+    }
+
+    /**
+     * Constructeur de TableChange, avec les ids des lignes écrites.
+     *
+     * @param table   Le nom de la table modifiée.
+     * @param rowIds  Les ids des lignes écrites, ou null s'ils sont inconnus.
+     * @param fromDay La première date concernée, ou {@link DateCodec#INVALID_DAY} si elle est inconnue.
+     * @param toDay   La dernière date concernée, ou {@link DateCodec#INVALID_DAY} si elle est inconnue.
+     */
+    public TableChange(String table, long[] rowIds, int fromDay, int toDay) {
+        this.table = table;
+        this.rowIds = rowIds;
+        this.fromDay = fromDay;
+        this.toDay = toDay;
+    }
+
+    /**
+     * Fusionne deux écritures dans la même table : les intervalles de dates sont réunis et les ids
+     * de lignes concaténés (ils deviennent inconnus s'ils le sont d'un côté ou s'ils sont trop nombreux).
+     *
+     * @param other L'autre écriture, dans la même table.
+     * @return L'écriture fusionnée.
+     */
+    public TableChange merge(TableChange other) {
+        boolean unknownDays = fromDay == DateCodec.INVALID_DAY || toDay == DateCodec.INVALID_DAY
+                || other.fromDay == DateCodec.INVALID_DAY || other.toDay == DateCodec.INVALID_DAY;
+        int mergedFrom = unknownDays ? DateCodec.INVALID_DAY : Math.min(fromDay, other.fromDay);
+        int mergedTo = unknownDays ? DateCodec.INVALID_DAY : Math.max(toDay, other.toDay);
+
+        long[] mergedIds = null;
+        if (rowIds != null && other.rowIds != null && rowIds.length + other.rowIds.length <= MAX_ROW_IDS) {
+            mergedIds = new long[rowIds.length + other.rowIds.length];
+            System.arraycopy(rowIds, 0, mergedIds, 0, rowIds.length);
+            System.arraycopy(other.rowIds, 0, mergedIds, rowIds.length, other.rowIds.length);
+        }
+        return new TableChange(table, mergedIds, mergedFrom, mergedTo);
+    }
+
+    /**
+     * Retourne le nom de la table modifiée.
+     *
+     * @return Le nom de la table.
+     */
+    public String getTable() {
+        return table;
+    }
+
+    /**
+     * Retourne les ids des lignes écrites.
+     *
+     * @return Les ids, ou null s'ils sont inconnus (écriture en masse, fusion de trop nombreuses écritures).
+     */
+    public long[] getRowIds() {
+        return rowIds;
+    }
+
+    /**
+     * Retourne la première date concernée.
+     *
+     * @return La date en jours depuis le 01/01/1970, ou {@link DateCodec#INVALID_DAY} si elle est inconnue.
+     */
+    public int getFromDay() {
+        return fromDay;
+    }
+
+    /**
+     * Retourne la dernière date concernée.
+     *
+     * @return La date en jours depuis le 01/01/1970, ou {@link DateCodec#INVALID_DAY} si elle est inconnue.
+     */
+    public int getToDay() {
+        return toDay;
+    }
+
+    /**
+     * Indique si la modification peut toucher un résultat lu dans un intervalle de dates.
+     * Une borne égale à {@link DateCodec#INVALID_DAY}, d'un côté ou de l'autre, n'est pas limitante.
+     *
+     * @param from La première date lue, ou {@link DateCodec#INVALID_DAY} si non bornée.
+     * @param to   La dernière date lue, ou {@link DateCodec#INVALID_DAY} si non bornée.
+     * @return `true` si les deux intervalles se recouvrent.
+     */
+    public boolean overlaps(int from, int to) {
+        return (fromDay == DateCodec.INVALID_DAY || to == DateCodec.INVALID_DAY || fromDay <= to)
+                && (toDay == DateCodec.INVALID_DAY || from == DateCodec.INVALID_DAY || from <= toDay);
+    }
+}
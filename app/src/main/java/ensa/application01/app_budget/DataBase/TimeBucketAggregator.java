@@ -0,0 +1,345 @@
+package ensa.application01.app_budget.DataBase;
+
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import ensa.application01.app_budget.module.BucketSeries;
+import ensa.application01.app_budget.utils.DateCodec;
+import ensa.application01.app_budget.utils.LedgerSnapshot;
+
+/**
+ * TimeBucketAggregator calcule les totaux des revenus et des dépenses par période, quelle que soit
+ * la granularité, en un seul parcours d'un curseur trié par date.
+ * Les mois, trimestres et années sont lus dans la table monthly_summary ; les jours, semaines et
+ * fenêtres glissantes dans la table transactions, regroupée par jour le long de l'index date_day,
+ * ou dans un {@link LedgerSnapshot} en mémoire lorsqu'il est fourni.
+ * Les bornes demandées sont élargies aux périodes entières qui les contiennent.
+ */
+public class TimeBucketAggregator {
+
+    private static final String TAG = "TimeBucketAggregator";
+
+    /**
+     * Granularités des périodes. Chaque valeur sait calculer le début de la période d'un jour
+     * et le début de la période suivante.
+     */
+    public enum Granularity {
+        DAY {
+            @Override
+            public int startOf(int day) {
+                return day;
+            }
+
+            @Override
+            public int nextStart(int start) {
+                return start + 1;
+            }
+        },
+        WEEK {
+            @Override
+            public int startOf(int day) {
+                // Semaines du lundi au dimanche ; le 01/01/1970 était un jeudi
+                return day - ((day + 3) % 7 + 7) % 7;
+            }
+
+            @Override
+            public int nextStart(int start) {
+                return start + 7;
+            }
+        },
+        MONTH {
+            @Override
+            public int startOf(int day) {
+                int[] civil = DateCodec.toCivil(day);
+                return DateCodec.firstDayOfMonth(civil[0], civil[1]);
+            }
+
+            @Override
+            public int nextStart(int start) {
+                int[] civil = DateCodec.toCivil(start);
+                return start + DateCodec.lengthOfMonth(civil[0], civil[1]);
+            }
+        },
+        QUARTER {
+            @Override
+            public int startOf(int day) {
+                int[] civil = DateCodec.toCivil(day);
+                return DateCodec.firstDayOfMonth(civil[0], (civil[1] - 1) / 3 * 3 + 1);
+            }
+
+            @Override
+            public int nextStart(int start) {
+                int next = start;
+                for (int i = 0; i < 3; i++) {
+                    next = MONTH.nextStart(next);
+                }
+                return next;
+            }
+        },
+        YEAR {
+            @Override
+            public int startOf(int day) {
+                return DateCodec.firstDayOfYear(DateCodec.toCivil(day)[0]);
+            }
+
+            @Override
+            public int nextStart(int start) {
+                return DateCodec.firstDayOfYear(DateCodec.toCivil(start)[0] + 1);
+            }
+        };
+
+        /**
+         * Retourne le premier jour de la période contenant un jour.
+         *
+         * @param day Le jour, en jours depuis le 01/01/1970.
+         * @return Le premier jour de sa période.
+         */
+        public abstract int startOf(int day);
+
+        /**
+         * Retourne le premier jour de la période suivante.
+         *
+         * @param start Le premier jour d'une période.
+         * @return Le premier jour de la période suivante.
+         */
+        public abstract int nextStart(int start);
+
+        // Les périodes d'au moins un mois sont lues dans monthly_summary
+        boolean usesMonthlySummary() {
+            return this == MONTH || this == QUARTER || this == YEAR;
+        }
+    }
+
+    private final DatabaseHelper dbHelper; // Helper pour interagir avec la base de données
+    private final LedgerSnapshot snapshot; // Transactions en mémoire pour les jours et semaines, ou null
+
+    /**
+     * Constructeur de TimeBucketAggregator.
+     *
+     * @param dbHelper Le helper de la base de données.
+     */
+    public TimeBucketAggregator(DatabaseHelper dbHelper) {
+        this(dbHelper, null);
+    }
+
+    /**
+     * Constructeur de TimeBucketAggregator, avec un snapshot à jour des transactions : les périodes
+     * plus courtes qu'un mois et les fenêtres glissantes sont alors calculées sans lire SQLite.
+     *
+     * @param dbHelper Le helper de la base de données.
+     * @param snapshot Le snapshot des transactions, ou null pour lire la table transactions.
+     */
+    public TimeBucketAggregator(DatabaseHelper dbHelper, LedgerSnapshot snapshot) {
+        this.dbHelper = dbHelper;
+        this.snapshot = snapshot;
+    }
+
+    /**
+     * Calcule les totaux par période entre deux dates. Doit être appelée hors du thread principal.
+     *
+     * @param granularity La granularité des périodes.
+     * @param fromDay     La première date incluse, en jours depuis le 01/01/1970.
+     * @param toDay       La dernière date incluse, en jours depuis le 01/01/1970.
+     * @param categoryId  L'id de la catégorie, ou {@link TransactionFilter#ANY_CATEGORY} pour toutes.
+     * @return Les totaux de chaque période, y compris les périodes sans transaction.
+     */
+    public BucketSeries aggregate(Granularity granularity, int fromDay, int toDay, long categoryId) {
+        long startTime = System.currentTimeMillis();
+
+        // Bornes de chaque période, calculées avant la lecture du curseur
+        int[] bounds = bucketStarts(granularity, fromDay, toDay);
+        if (snapshot != null && !granularity.usesMonthlySummary()) {
+            BucketSeries series = snapshot.sumByPeriod(bounds, categoryId);
+            Log.d(TAG, series.size() + " périodes (" + granularity + ") calculées sur le snapshot en "
+                    + (System.currentTimeMillis() - startTime) + " ms");
+            return series;
+        }
+        int size = bounds.length - 1;
+        int[] startDays = Arrays.copyOf(bounds, size);
+        int[] endDays = new int[size];
+        for (int i = 0; i < size; i++) {
+            endDays[i] = bounds[i + 1] - 1;
+        }
+        long[] income = new long[size];
+        long[] expenses = new long[size];
+        int[] counts = new int[size];
+        if (size == 0) {
+            return new BucketSeries(startDays, endDays, income, expenses, counts);
+        }
+
+        Cursor cursor = granularity.usesMonthlySummary()
+                ? queryMonths(startDays[0], endDays[size - 1], categoryId)
+                : queryDays(startDays[0], endDays[size - 1], categoryId);
+        try {
+            // Le curseur est trié par date : l'index de période ne fait qu'avancer
+            int bucket = 0;
+            while (cursor.moveToNext()) {
+                int day = cursor.getInt(0);
+                while (bucket + 1 < size && startDays[bucket + 1] <= day) {
+                    bucket++;
+                }
+                accumulate(cursor, bucket, income, expenses, counts);
+            }
+        } finally {
+            cursor.close();
+        }
+
+        Log.d(TAG, size + " périodes (" + granularity + ") calculées en " + (System.currentTimeMillis() - startTime) + " ms");
+        return new BucketSeries(startDays, endDays, income, expenses, counts);
+    }
+
+    /**
+     * Calcule, pour chaque jour entre deux dates, les totaux de la fenêtre glissante des
+     * windowDays jours qui se termine ce jour-là. Doit être appelée hors du thread principal.
+     *
+     * @param windowDays La taille de la fenêtre, en jours (au moins 1).
+     * @param fromDay    Le premier jour affiché, en jours depuis le 01/01/1970.
+     * @param toDay      Le dernier jour affiché, en jours depuis le 01/01/1970.
+     * @param categoryId L'id de la catégorie, ou {@link TransactionFilter#ANY_CATEGORY} pour toutes.
+     * @return Une période par jour, couvrant les windowDays jours qui le précèdent (lui compris).
+     */
+    public BucketSeries aggregateRolling(int windowDays, int fromDay, int toDay, long categoryId) {
+        if (windowDays < 1) {
+            throw new IllegalArgumentException("Taille de fenêtre invalide : " + windowDays);
+        }
+        int size = Math.max(0, toDay - fromDay + 1);
+        int firstDay = fromDay - windowDays + 1; // Premier jour lu : début de la fenêtre du premier jour affiché
+        int daysRead = size == 0 ? 0 : toDay - firstDay + 1;
+
+        // Totaux quotidiens, en un parcours du curseur
+        long[] dailyIncome = new long[daysRead];
+        long[] dailyExpenses = new long[daysRead];
+        int[] dailyCounts = new int[daysRead];
+        if (daysRead > 0 && snapshot != null) {
+            BucketSeries days = snapshot.sumByPeriod(bucketStarts(Granularity.DAY, firstDay, toDay), categoryId);
+            for (int i = 0; i < daysRead; i++) {
+                dailyIncome[i] = days.getIncome(i);
+                dailyExpenses[i] = days.getExpenses(i);
+                dailyCounts[i] = days.getCount(i);
+            }
+        } else if (daysRead > 0) {
+            Cursor cursor = queryDays(firstDay, toDay, categoryId);
+            try {
+                while (cursor.moveToNext()) {
+                    accumulate(cursor, cursor.getInt(0) - firstDay, dailyIncome, dailyExpenses, dailyCounts);
+                }
+            } finally {
+                cursor.close();
+            }
+        }
+
+        // Fenêtre glissante : ajouter le jour qui entre, retirer celui qui sort
+        int[] startDays = new int[size];
+        int[] endDays = new int[size];
+        long[] income = new long[size];
+        long[] expenses = new long[size];
+        int[] counts = new int[size];
+        long windowIncome = 0;
+        long windowExpenses = 0;
+        int windowCount = 0;
+        for (int i = 0; i < daysRead; i++) {
+            windowIncome += dailyIncome[i];
+            windowExpenses += dailyExpenses[i];
+            windowCount += dailyCounts[i];
+            if (i >= windowDays) {
+                windowIncome -= dailyIncome[i - windowDays];
+                windowExpenses -= dailyExpenses[i - windowDays];
+                windowCount -= dailyCounts[i - windowDays];
+            }
+            int index = i - (windowDays - 1);
+            if (index >= 0) {
+                endDays[index] = fromDay + index;
+                startDays[index] = endDays[index] - windowDays + 1;
+                income[index] = windowIncome;
+                expenses[index] = windowExpenses;
+                counts[index] = windowCount;
+            }
+        }
+        return new BucketSeries(startDays, endDays, income, expenses, counts);
+    }
+
+    /**
+     * Retourne le premier jour de chaque période couvrant l'intervalle, suivi du premier jour
+     * de la période qui suit la dernière.
+     *
+     * @param granularity La granularité des périodes.
+     * @param fromDay     La première date incluse.
+     * @param toDay       La dernière date incluse.
+     * @return Les débuts de périodes, triés (un seul élément si l'intervalle est vide).
+     */
+    static int[] bucketStarts(Granularity granularity, int fromDay, int toDay) {
+        List<Integer> starts = new ArrayList<>();
+        int start = granularity.startOf(fromDay);
+        while (start <= toDay) {
+            starts.add(start);
+            start = granularity.nextStart(start);
+        }
+        starts.add(start);
+        int[] result = new int[starts.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = starts.get(i);
+        }
+        return result;
+    }
+
+    // Ajoute une ligne (jour, type, total, nombre) du curseur à la période donnée
+    private static void accumulate(Cursor cursor, int bucket, long[] income, long[] expenses, int[] counts) {
+        String type = cursor.getString(1);
+        if (DatabaseHelper.TYPE_INCOME.equals(type)) {
+            income[bucket] += cursor.getLong(2);
+        } else if (DatabaseHelper.TYPE_EXPENSE.equals(type)) {
+            expenses[bucket] += cursor.getLong(2);
+        }
+        counts[bucket] += cursor.getInt(3);
+    }
+
+    // Totaux par jour et par type, triés par jour (parcours de l'index date_day)
+    private Cursor queryDays(int fromDay, int toDay, long categoryId) {
+        SQLiteDatabase db = dbHelper.getReadableDatabase();
+        List<String> args = new ArrayList<>();
+        args.add(String.valueOf(fromDay));
+        args.add(String.valueOf(toDay));
+        String categoryCondition = "";
+        if (categoryId != TransactionFilter.ANY_CATEGORY) {
+            categoryCondition = " AND " + DatabaseHelper.COLUMN_CATEGORY_ID + " = ?";
+            args.add(String.valueOf(categoryId));
+        }
+        return db.rawQuery("SELECT " + DatabaseHelper.COLUMN_DATE_DAY + ", " + DatabaseHelper.COLUMN_TYPE + ", "
+                + "SUM(" + DatabaseHelper.COLUMN_AMOUNT_MINOR + "), COUNT(*) FROM " + DatabaseHelper.TABLE_TRANSACTIONS
+                + " WHERE " + DatabaseHelper.COLUMN_DATE_DAY + " BETWEEN ? AND ?" + categoryCondition
+                + " GROUP BY " + DatabaseHelper.COLUMN_DATE_DAY + ", " + DatabaseHelper.COLUMN_TYPE
+                + " ORDER BY " + DatabaseHelper.COLUMN_DATE_DAY, args.toArray(new String[0]));
+    }
+
+    // Totaux par mois et par type depuis monthly_summary, triés par mois ; la première colonne est le 1er du mois
+    private Cursor queryMonths(int fromDay, int toDay, long categoryId) {
+        SQLiteDatabase db = dbHelper.getReadableDatabase();
+        int[] from = DateCodec.toCivil(fromDay);
+        int[] to = DateCodec.toCivil(toDay);
+        List<String> args = new ArrayList<>();
+        args.add(String.valueOf(from[0]));
+        args.add(String.valueOf(to[0]));
+        args.add(String.valueOf(from[0] * 12 + from[1]));
+        args.add(String.valueOf(to[0] * 12 + to[1]));
+        String categoryCondition = "";
+        if (categoryId != TransactionFilter.ANY_CATEGORY) {
+            categoryCondition = " AND " + DatabaseHelper.COLUMN_CATEGORY_ID + " = ?";
+            args.add(String.valueOf(categoryId));
+        }
+        String month = DatabaseHelper.COLUMN_YEAR + " * 12 + " + DatabaseHelper.COLUMN_MONTH;
+        // julianday() attend "yyyy-MM-dd" ; 2440587.5 correspond au 01/01/1970 à minuit
+        String firstDay = "CAST(julianday(printf('%04d-%02d-01', " + DatabaseHelper.COLUMN_YEAR + ", "
+                + DatabaseHelper.COLUMN_MONTH + ")) - 2440587.5 AS INTEGER)";
+        return db.rawQuery("SELECT " + firstDay + ", " + DatabaseHelper.COLUMN_TYPE + ", "
+                + "SUM(" + DatabaseHelper.COLUMN_TOTAL + "), SUM(" + DatabaseHelper.COLUMN_COUNT + ") FROM "
+                + DatabaseHelper.TABLE_MONTHLY_SUMMARY
+                + " WHERE " + DatabaseHelper.COLUMN_YEAR + " BETWEEN ? AND ? AND " + month + " BETWEEN ? AND ?" + categoryCondition
+                + " GROUP BY " + DatabaseHelper.COLUMN_YEAR + ", " + DatabaseHelper.COLUMN_MONTH + ", " + DatabaseHelper.COLUMN_TYPE
+                + " ORDER BY " + DatabaseHelper.COLUMN_YEAR + ", " + DatabaseHelper.COLUMN_MONTH, args.toArray(new String[0]));
+    }
+}
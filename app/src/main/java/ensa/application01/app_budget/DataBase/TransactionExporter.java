@@ -0,0 +1,211 @@
+package ensa.application01.app_budget.DataBase;
+
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.os.CancellationSignal;
+import android.os.OperationCanceledException;
+import android.util.JsonWriter;
+import android.util.Log;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import ensa.application01.app_budget.utils.Money;
+
+/**
+ * TransactionExporter écrit les transactions correspondant à un filtre en CSV ou en JSON.
+ * Les lignes sont lues avec un curseur et écrites une à une dans un flux tamponné :
+ * la mémoire utilisée ne dépend pas du nombre de transactions exportées.
+ * Le CSV produit peut être réimporté par {@link TransactionImporter}.
+ */
+public class TransactionExporter {
+
+    private static final String TAG = "TransactionExporter";
+    private static final int BUFFER_SIZE = 64 * 1024; // Taille du tampon d'écriture
+    public static final int PROGRESS_INTERVAL = 500; // Nombre de lignes entre deux notifications de progression
+
+    /**
+     * Formats d'export disponibles.
+     */
+    public enum Format {
+        CSV("text/csv", "csv"),
+        JSON("application/json", "json");
+
+        private final String mimeType; // Type MIME du fichier produit
+        private final String extension; // Extension du fichier produit
+
+        Format(String mimeType, String extension) {
+            this.mimeType = mimeType;
+            this.extension = extension;
+        }
+
+        public String getMimeType() {
+            return mimeType;
+        }
+
+        public String getExtension() {
+            return extension;
+        }
+    }
+
+    /**
+     * Listener notifié de l'avancement de l'export, depuis le thread de l'export.
+     */
+    public interface ProgressListener {
+        void onProgress(int exported, int total);
+    }
+
+    private final DatabaseHelper dbHelper; // Helper pour interagir avec la base de données
+
+    /**
+     * Constructeur de TransactionExporter.
+     *
+     * @param dbHelper Le helper de la base de données.
+     */
+    public TransactionExporter(DatabaseHelper dbHelper) {
+        this.dbHelper = dbHelper;
+    }
+
+    /**
+     * Exporte les transactions du filtre, par date puis par id croissants. Doit être appelée hors du thread principal.
+     *
+     * @param filter   Le filtre des transactions à exporter.
+     * @param format   Le format du fichier.
+     * @param output   Le flux de destination (il n'est pas fermé par cette méthode).
+     * @param listener Le listener de progression, ou null.
+     * @param signal   Le signal d'annulation, vérifié entre chaque ligne.
+     * @return Le nombre de transactions exportées.
+     * @throws IOException                En cas d'erreur d'écriture.
+     * @throws OperationCanceledException Si l'export a été annulé.
+     */
+    public int export(TransactionFilter filter, Format format, OutputStream output,
+                      ProgressListener listener, CancellationSignal signal) throws IOException {
+        long startTime = System.currentTimeMillis();
+        SQLiteDatabase db = dbHelper.getReadableDatabase();
+        List<String> args = new ArrayList<>();
+        String selection = filter.buildSelection(args);
+        String[] selectionArgs = args.toArray(new String[0]);
+        String where = selection == null ? "" : " WHERE " + selection;
+
+        int total = count(db, where, selectionArgs, signal);
+        CategoryDictionary categories = dbHelper.getCategoryDictionary();
+        Cursor cursor = db.rawQuery("SELECT " + DatabaseHelper.COLUMN_ID + ", " + DatabaseHelper.COLUMN_DATE + ", "
+                + DatabaseHelper.COLUMN_TYPE + ", " + DatabaseHelper.COLUMN_AMOUNT_MINOR + ", " + DatabaseHelper.COLUMN_CATEGORY_ID + ", "
+                + DatabaseHelper.COLUMN_NOTE + " FROM " + DatabaseHelper.TABLE_TRANSACTIONS + where
+                + " ORDER BY " + DatabaseHelper.COLUMN_DATE_DAY + ", " + DatabaseHelper.COLUMN_ID, selectionArgs, signal);
+
+        Writer writer = new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8), BUFFER_SIZE);
+        int exported;
+        try {
+            exported = format == Format.JSON
+                    ? writeJson(cursor, categories, writer, total, listener, signal)
+                    : writeCsv(cursor, categories, writer, total, listener, signal);
+        } finally {
+            cursor.close();
+        }
+        writer.flush();
+
+        if (listener != null) {
+            listener.onProgress(exported, total);
+        }
+        Log.d(TAG, exported + " transactions exportées en " + format + " en " + (System.currentTimeMillis() - startTime) + " ms");
+        return exported;
+    }
+
+    // Écrit l'en-tête puis une ligne CSV par transaction
+    private int writeCsv(Cursor cursor, CategoryDictionary categories, Writer writer, int total,
+                         ProgressListener listener, CancellationSignal signal) throws IOException {
+        writer.write("date,type,montant,categorie,note\n");
+        int exported = 0;
+        while (cursor.moveToNext()) {
+            writeCsvField(writer, cursor.getString(1));
+            writer.write(',');
+            writeCsvField(writer, cursor.getString(2));
+            writer.write(',');
+            writer.write(Money.toPlainString(cursor.getLong(3)));
+            writer.write(',');
+            writeCsvField(writer, categories.getName(cursor.getLong(4)));
+            writer.write(',');
+            writeCsvField(writer, cursor.getString(5));
+            writer.write('\n');
+            exported = onRowWritten(exported, total, listener, signal);
+        }
+        return exported;
+    }
+
+    // Écrit un tableau JSON contenant un objet par transaction
+    private int writeJson(Cursor cursor, CategoryDictionary categories, Writer writer, int total,
+                          ProgressListener listener, CancellationSignal signal) throws IOException {
+        JsonWriter json = new JsonWriter(writer);
+        json.beginArray();
+        int exported = 0;
+        while (cursor.moveToNext()) {
+            json.beginObject();
+            json.name(DatabaseHelper.COLUMN_ID).value(cursor.getLong(0));
+            json.name(DatabaseHelper.COLUMN_DATE).value(cursor.getString(1));
+            json.name(DatabaseHelper.COLUMN_TYPE).value(cursor.getString(2));
+            json.name("amount").value(BigDecimal.valueOf(cursor.getLong(3), Money.SCALE));
+            json.name(DatabaseHelper.COLUMN_CATEGORY).value(categories.getName(cursor.getLong(4)));
+            json.name(DatabaseHelper.COLUMN_NOTE).value(cursor.getString(5));
+            json.endObject();
+            exported = onRowWritten(exported, total, listener, signal);
+        }
+        json.endArray();
+        json.flush(); // Ne pas fermer : le flux appartient à l'appelant
+        return exported;
+    }
+
+    // Compte la ligne écrite, notifie la progression et vérifie l'annulation
+    private int onRowWritten(int exported, int total, ProgressListener listener, CancellationSignal signal) {
+        exported++;
+        if (exported % PROGRESS_INTERVAL == 0) {
+            signal.throwIfCanceled();
+            if (listener != null) {
+                listener.onProgress(exported, total);
+            }
+        }
+        return exported;
+    }
+
+    // Compte les transactions du filtre pour la progression
+    private int count(SQLiteDatabase db, String where, String[] selectionArgs, CancellationSignal signal) {
+        Cursor cursor = db.rawQuery("SELECT COUNT(*) FROM " + DatabaseHelper.TABLE_TRANSACTIONS + where, selectionArgs, signal);
+        try {
+            return cursor.moveToFirst() ? cursor.getInt(0) : 0;
+        } finally {
+            cursor.close();
+        }
+    }
+
+    // Écrit un champ CSV, entre guillemets s'il contient un séparateur, un guillemet ou un retour à la ligne
+    private static void writeCsvField(Writer writer, String value) throws IOException {
+        if (value == null) {
+            return;
+        }
+        boolean quote = false;
+        for (int i = 0; i < value.length() && !quote; i++) {
+            char c = value.charAt(i);
+            quote = c == ',' || c == '"' || c == '\n' || c == '\r' || c == ';';
+        }
+        if (!quote) {
+            writer.write(value);
+            return;
+        }
+        writer.write('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"') {
+                writer.write('"');
+            }
+            writer.write(c);
+        }
+        writer.write('"');
+    }
+}
@@ -0,0 +1,183 @@
+package ensa.application01.app_budget.DataBase;
+
+import java.util.List;
+
+import ensa.application01.app_budget.utils.DateCodec;
+import ensa.application01.app_budget.utils.FtsQuery;
+
+/**
+ * TransactionFilter regroupe les critères de filtrage des transactions (type, catégorie,
+ * intervalle de dates, texte recherché) et les traduit en clause WHERE paramétrée pour SQLite.
+ * Un critère null (ou égal à {@link #ANY_CATEGORY} ou {@link DateCodec#INVALID_DAY}) n'est pas appliqué.
+ * Le texte recherché est cherché dans la note et le nom de catégorie via l'index plein texte transactions_fts.
+ */
+public class TransactionFilter {
+
+    public static final long ANY_CATEGORY = -1; // Pas de filtre sur la catégorie
+
+    private final String type; // Type de transaction (exemple : "Revenu"), ou null pour tous
+    private final long categoryId; // Id de la catégorie, ou ANY_CATEGORY pour toutes
+    private final int fromDay; // Première date incluse, en jours depuis le 01/01/1970
+    private final int toDay; // Dernière date incluse, en jours depuis le 01/01/1970
+    private final String matchExpression; // Expression MATCH de la recherche plein texte, ou null
+
+    /**
+     * Constructeur de TransactionFilter, sans recherche de texte.
+     *
+     * @param type       Le type de transaction, ou null pour tous les types.
+     * @param categoryId L'id de la catégorie, ou {@link #ANY_CATEGORY} pour toutes les catégories.
+     * @param fromDay    La première date incluse, ou {@link DateCodec#INVALID_DAY} pour ne pas borner.
+     * @param toDay      La dernière date incluse, ou {@link DateCodec#INVALID_DAY} pour ne pas borner.
+     */
+    public TransactionFilter(String type, long categoryId, int fromDay, int toDay) {
+        this(type, categoryId, fromDay, toDay, null);
+    }
+
+    /**
+     * Constructeur de TransactionFilter.
+     *
+     * @param type        Le type de transaction, ou null pour tous les types.
+     * @param categoryId  L'id de la catégorie, ou {@link #ANY_CATEGORY} pour toutes les catégories.
+     * @param fromDay     La première date incluse, ou {@link DateCodec#INVALID_DAY} pour ne pas borner.
+     * @param toDay       La dernière date incluse, ou {@link DateCodec#INVALID_DAY} pour ne pas borner.
+     * @param searchQuery Le texte saisi par l'utilisateur (plusieurs mots, préfixes acceptés), ou null.
+     */
+    public TransactionFilter(String type, long categoryId, int fromDay, int toDay, String searchQuery) {
+        this.type = type;
+        this.categoryId = categoryId;
+        this.fromDay = fromDay;
+        this.toDay = toDay;
+        this.matchExpression = FtsQuery.toMatchExpression(searchQuery);
+    }
+
+    /**
+     * Retourne un filtre qui accepte toutes les transactions.
+     *
+     * @return Un filtre sans critère.
+     */
+    public static TransactionFilter all() {
+        return new TransactionFilter(null, ANY_CATEGORY, DateCodec.INVALID_DAY, DateCodec.INVALID_DAY);
+    }
+
+    /**
+     * Retourne le type filtré.
+     *
+     * @return Le type de transaction, ou null pour tous les types.
+     */
+    public String getType() {
+        return type;
+    }
+
+    /**
+     * Retourne la catégorie filtrée.
+     *
+     * @return L'id de la catégorie, ou {@link #ANY_CATEGORY} pour toutes les catégories.
+     */
+    public long getCategoryId() {
+        return categoryId;
+    }
+
+    /**
+     * Retourne la première date incluse.
+     *
+     * @return La date en jours depuis le 01/01/1970, ou {@link DateCodec#INVALID_DAY} si non bornée.
+     */
+    public int getFromDay() {
+        return fromDay;
+    }
+
+    /**
+     * Retourne la dernière date incluse.
+     *
+     * @return La date en jours depuis le 01/01/1970, ou {@link DateCodec#INVALID_DAY} si non bornée.
+     */
+    public int getToDay() {
+        return toDay;
+    }
+
+    /**
+     * Retourne une clé normalisée du filtre : deux filtres équivalents ont la même clé, quel que soit
+     * le texte saisi tant qu'il donne la même expression de recherche.
+     *
+     * @return La clé du filtre, utilisée par le cache des requêtes.
+     */
+    public String getCacheKey() {
+        return type + "|" + categoryId + "|" + fromDay + "|" + toDay + "|" + matchExpression;
+    }
+
+    /**
+     * Retourne l'expression MATCH de la recherche plein texte : chaque mot saisi devient un préfixe
+     * ("resto" trouve "restaurant") et tous les mots doivent être présents.
+     *
+     * @return L'expression à passer à MATCH, ou null si aucun texte n'est recherché.
+     */
+    public String getMatchExpression() {
+        return matchExpression;
+    }
+
+    /**
+     * Indique si le filtre comporte une recherche de texte.
+     *
+     * @return `true` si une expression MATCH est active, sinon `false`.
+     */
+    public boolean hasSearch() {
+        return matchExpression != null;
+    }
+
+    /**
+     * Construit la clause WHERE correspondant au filtre et ajoute ses paramètres à la liste.
+     * Les colonnes sont testées dans l'ordre de l'index composite (type, category_id, date_day) ;
+     * la recherche de texte devient une sous-requête sur l'index plein texte.
+     *
+     * @param args La liste à laquelle ajouter les valeurs des paramètres "?".
+     * @return La clause WHERE (sans le mot-clé WHERE), ou null si aucun critère n'est actif.
+     */
+    public String buildSelection(List<String> args) {
+        String selection = buildAttributeSelection(args);
+        if (matchExpression == null) {
+            return selection;
+        }
+        String condition = DatabaseHelper.COLUMN_ID + " IN (SELECT docid FROM " + DatabaseHelper.TABLE_TRANSACTIONS_FTS
+                + " WHERE " + DatabaseHelper.TABLE_TRANSACTIONS_FTS + " MATCH ?)";
+        args.add(matchExpression);
+        return selection == null ? condition : selection + " AND " + condition;
+    }
+
+    /**
+     * Construit la clause WHERE des seuls critères de type, catégorie et date, sans la recherche de texte.
+     * Utilisée par les requêtes qui joignent déjà l'index plein texte pour classer les résultats.
+     *
+     * @param args La liste à laquelle ajouter les valeurs des paramètres "?".
+     * @return La clause WHERE (sans le mot-clé WHERE), ou null si aucun de ces critères n'est actif.
+     */
+    String buildAttributeSelection(List<String> args) {
+        StringBuilder selection = new StringBuilder();
+
+        if (type != null) {
+            appendCondition(selection, DatabaseHelper.COLUMN_TYPE + " = ?");
+            args.add(type);
+        }
+        if (categoryId != ANY_CATEGORY) {
+            appendCondition(selection, DatabaseHelper.COLUMN_CATEGORY_ID + " = ?");
+            args.add(String.valueOf(categoryId));
+        }
+        if (fromDay != DateCodec.INVALID_DAY) {
+            appendCondition(selection, DatabaseHelper.COLUMN_DATE_DAY + " >= ?");
+            args.add(String.valueOf(fromDay));
+        }
+        if (toDay != DateCodec.INVALID_DAY) {
+            appendCondition(selection, DatabaseHelper.COLUMN_DATE_DAY + " <= ?");
+            args.add(String.valueOf(toDay));
+        }
+
+        return selection.length() == 0 ? null : selection.toString();
+    }
+
+    // Ajoute une condition à la clause en la reliant par AND
+    private static void appendCondition(StringBuilder selection, String condition) {
+        if (selection.length() > 0) {
+            selection.append(" AND ");
+        }
+        selection.append(condition);
+    }
+}
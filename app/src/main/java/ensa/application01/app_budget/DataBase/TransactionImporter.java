@@ -0,0 +1,154 @@
+package ensa.application01.app_budget.DataBase;
+
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+import android.util.Log;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+import ensa.application01.app_budget.importer.ImportedRow;
+import ensa.application01.app_budget.importer.TransactionParser;
+import ensa.application01.app_budget.module.ImportStats;
+import ensa.application01.app_budget.utils.DateCodec;
+
+/**
+ * TransactionImporter insère en masse les transactions lues par un {@link TransactionParser}.
+ * Les lignes sont insérées par lots dans des transactions explicites (une seule synchronisation
+ * disque par lot) avec des requêtes précompilées. INSERT OR IGNORE s'appuie sur la contrainte
+ * UNIQUE de la table transactions : un doublon est compté et ignoré sans interrompre le lot.
+ * Chaque lot est écrit sous le verrou du {@link BudgetLimitChecker} et ses dépenses sont vérifiées
+ * contre les limites mensuelles dès sa validation.
+ */
+public class TransactionImporter {
+
+    private static final String TAG = "TransactionImporter";
+    public static final int BATCH_SIZE = 2000; // Nombre de lignes insérées par transaction
+
+    private final DatabaseHelper dbHelper; // Helper pour interagir avec la base de données
+    private final BudgetLimitChecker limitChecker; // Alertes de limites, et verrou des écritures de dépenses
+
+    /**
+     * Constructeur de TransactionImporter.
+     *
+     * @param dbHelper     Le helper de la base de données.
+     * @param limitChecker Le vérificateur des limites mensuelles.
+     */
+    public TransactionImporter(DatabaseHelper dbHelper, BudgetLimitChecker limitChecker) {
+        this.dbHelper = dbHelper;
+        this.limitChecker = limitChecker;
+    }
+
+    /**
+     * Importe toutes les transactions du parser. Doit être appelée hors du thread principal.
+     * Les lots déjà validés restent en base si une erreur de lecture interrompt l'import.
+     *
+     * @param parser Le parser du fichier importé (il n'est pas fermé par cette méthode).
+     * @return Le bilan de l'import.
+     * @throws IOException En cas d'erreur de lecture du fichier.
+     */
+    public ImportStats importAll(TransactionParser parser) throws IOException {
+        long startTime = System.currentTimeMillis();
+        SQLiteDatabase db = dbHelper.getWritableDatabase();
+        SQLiteStatement insertTransaction = db.compileStatement("INSERT OR IGNORE INTO " + DatabaseHelper.TABLE_TRANSACTIONS + " ("
+                + DatabaseHelper.COLUMN_TYPE + ", " + DatabaseHelper.COLUMN_AMOUNT_MINOR + ", " + DatabaseHelper.COLUMN_CATEGORY_ID + ", "
+                + DatabaseHelper.COLUMN_DATE + ", " + DatabaseHelper.COLUMN_DATE_DAY + ", " + DatabaseHelper.COLUMN_NOTE + ", "
+                + DatabaseHelper.COLUMN_IS_ALARM_ENABLED + ") VALUES (?, ?, ?, ?, ?, ?, 0)");
+        SQLiteStatement insertCategory = db.compileStatement("INSERT OR IGNORE INTO " + DatabaseHelper.TABLE_CATEGORIES
+                + " (" + DatabaseHelper.COLUMN_CATEGORY_NAME + ") VALUES (?)");
+        SQLiteStatement selectCategory = db.compileStatement("SELECT " + DatabaseHelper.COLUMN_ID + " FROM "
+                + DatabaseHelper.TABLE_CATEGORIES + " WHERE " + DatabaseHelper.COLUMN_CATEGORY_NAME + " = ?");
+
+        ImportedRow row = new ImportedRow();
+        CategoryDictionary dictionary = dbHelper.getCategoryDictionary();
+        Map<String, Long> createdCategories = new HashMap<>(); // Catégories créées pendant cet import, par nom
+        BudgetLimitChecker.ExpenseBatch expenses = new BudgetLimitChecker.ExpenseBatch(); // Dépenses du lot en cours
+        int inserted = 0;
+        int duplicates = 0;
+        int minDay = Integer.MAX_VALUE; // Intervalle des dates insérées, notifié à la fin de l'import
+        int maxDay = Integer.MIN_VALUE;
+        boolean hasMore = true;
+        try {
+            while (hasMore) {
+                // Lot et vérification des limites sous le verrou des écritures de dépenses
+                synchronized (limitChecker) {
+                    int batchCount = 0;
+                    int batchInserted = 0; // Comptés dans les totaux seulement une fois le lot validé
+                    int batchDuplicates = 0;
+                    int batchMinDay = Integer.MAX_VALUE;
+                    int batchMaxDay = Integer.MIN_VALUE;
+                    db.beginTransaction();
+                    try {
+                        while (batchCount < BATCH_SIZE && (hasMore = parser.next(row))) {
+                            long categoryId = dictionary.getId(row.category);
+                            if (categoryId == CategoryDictionary.NO_ID) {
+                                Long created = createdCategories.get(row.category);
+                                if (created == null) {
+                                    created = insertCategory(insertCategory, selectCategory, row.category);
+                                    createdCategories.put(row.category, created);
+                                }
+                                categoryId = created;
+                            }
+
+                            insertTransaction.bindString(1, row.type);
+                            insertTransaction.bindLong(2, row.amountMinor);
+                            insertTransaction.bindLong(3, categoryId);
+                            insertTransaction.bindString(4, DateCodec.format(row.dateDay));
+                            insertTransaction.bindLong(5, row.dateDay);
+                            insertTransaction.bindString(6, row.note);
+                            long transactionId = insertTransaction.executeInsert();
+                            if (transactionId == -1) {
+                                batchDuplicates++;
+                            } else {
+                                expenses.add(transactionId, row.type, row.amountMinor, categoryId, row.dateDay);
+                                batchInserted++;
+                                batchMinDay = Math.min(batchMinDay, row.dateDay);
+                                batchMaxDay = Math.max(batchMaxDay, row.dateDay);
+                            }
+                            batchCount++;
+                        }
+                        db.setTransactionSuccessful();
+                    } finally {
+                        db.endTransaction();
+                    }
+                    // Atteint seulement si le lot est validé : un lot annulé par une erreur de lecture n'est pas compté
+                    inserted += batchInserted;
+                    duplicates += batchDuplicates;
+                    minDay = Math.min(minDay, batchMinDay);
+                    maxDay = Math.max(maxDay, batchMaxDay);
+                    limitChecker.checkBatch(expenses);
+                }
+                Log.d(TAG, "Lot validé : " + inserted + " insérées, " + duplicates + " doublons");
+            }
+        } finally {
+            insertTransaction.close();
+            insertCategory.close();
+            selectCategory.close();
+            if (!createdCategories.isEmpty()) {
+                dbHelper.invalidateCategoryDictionary();
+            }
+            // Les lots déjà validés restent en base même si l'import s'interrompt
+            if (inserted > 0) {
+                dbHelper.notifyTransactionsChanged(null, minDay, maxDay);
+            }
+        }
+
+        ImportStats stats = new ImportStats(inserted, duplicates, parser.getRejectedCount(),
+                System.currentTimeMillis() - startTime);
+        Log.d(TAG, "Import terminé : " + stats.getInserted() + " insérées, " + stats.getDuplicates() + " doublons, "
+                + stats.getRejected() + " rejetées, " + Math.round(stats.getRowsPerSecond()) + " lignes/s");
+        return stats;
+    }
+
+    // Crée une catégorie et retourne son id (ou l'id existant si elle a été ajoutée entre-temps)
+    private static long insertCategory(SQLiteStatement insertCategory, SQLiteStatement selectCategory, String name) {
+        insertCategory.bindString(1, name);
+        long id = insertCategory.executeInsert();
+        if (id == -1) {
+            selectCategory.bindString(1, name);
+            id = selectCategory.simpleQueryForLong();
+        }
+        return id;
+    }
+}
@@ -0,0 +1,310 @@
+package ensa.application01.app_budget.DataBase;
+
+import android.database.Cursor;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import ensa.application01.app_budget.module.Transaction;
+import ensa.application01.app_budget.utils.TransactionFormatter;
+
+/**
+ * TransactionPagingSource charge l'historique des transactions par pages de taille fixe
+ * en pagination par clé (WHERE id < :dernierId LIMIT n), sans OFFSET. Les résultats d'une recherche
+ * de texte sont classés par pertinence et paginés sur la clé page_key (voir
+ * {@link DatabaseHelper#getTransactionsPageBefore}) au lieu de l'id.
+ * Seule une fenêtre de {@link #MAX_PAGES} pages est gardée en mémoire : les pages qui sortent
+ * de la fenêtre sont libérées et rechargées par clé si l'utilisateur revient en arrière.
+ * La fenêtre est manipulée depuis le thread principal ; seules les lectures (fetchBefore, fetchAfter)
+ * sont faites en arrière-plan, ainsi que le calcul des textes d'affichage si un formateur est défini.
+ */
+public class TransactionPagingSource {
+
+    public static final int PAGE_SIZE = 50; // Nombre de transactions par page
+    public static final int MAX_PAGES = 5; // Nombre maximal de pages gardées en mémoire
+
+    private final DatabaseHelper dbHelper; // Helper pour interagir avec la base de données
+    private final ArrayDeque<Page> pages = new ArrayDeque<>(); // Fenêtre des pages chargées, des plus récentes aux plus anciennes
+    private TransactionFilter filter = TransactionFilter.all(); // Filtre appliqué à toutes les pages
+    private boolean hasMoreBefore; // Des transactions plus récentes que la fenêtre existent
+    private boolean hasMoreAfter = true; // Des transactions plus anciennes que la fenêtre existent
+    private volatile TransactionFormatter formatter; // Formateur des textes d'affichage, ou null
+
+    /**
+     * Constructeur de TransactionPagingSource.
+     *
+     * @param dbHelper L'instance de DatabaseHelper utilisée pour les requêtes.
+     */
+    public TransactionPagingSource(DatabaseHelper dbHelper) {
+        this.dbHelper = dbHelper;
+    }
+
+    /**
+     * Définit le formateur utilisé pour précalculer les textes d'affichage de chaque page lue,
+     * afin que l'adapteur n'ait plus qu'à les affecter aux vues.
+     *
+     * @param formatter Le formateur, ou null pour ne pas précalculer les textes.
+     */
+    public void setFormatter(TransactionFormatter formatter) {
+        this.formatter = formatter;
+    }
+
+    /**
+     * Vide la fenêtre et change le filtre appliqué. La prochaine page chargée sera la plus récente.
+     *
+     * @param filter Le nouveau filtre.
+     */
+    public void reset(TransactionFilter filter) {
+        this.filter = filter;
+        pages.clear();
+        hasMoreBefore = false;
+        hasMoreAfter = true;
+    }
+
+    /**
+     * Retourne le filtre appliqué à la fenêtre.
+     *
+     * @return Le filtre courant.
+     */
+    public TransactionFilter getFilter() {
+        return filter;
+    }
+
+    /**
+     * Retourne la clé à partir de laquelle charger la page suivante (transactions plus anciennes).
+     *
+     * @return La clé de la dernière transaction de la fenêtre, ou Long.MAX_VALUE si elle est vide.
+     */
+    public long getNextAnchor() {
+        return pages.isEmpty() ? Long.MAX_VALUE : pages.getLast().getLastKey();
+    }
+
+    /**
+     * Retourne la clé à partir de laquelle recharger la page précédente (transactions plus récentes).
+     *
+     * @return La clé de la première transaction de la fenêtre.
+     */
+    public long getPreviousAnchor() {
+        return pages.isEmpty() ? 0 : pages.getFirst().getFirstKey();
+    }
+
+    /**
+     * Lit la page de transactions qui suivent anchorKey (plus anciennes, ou moins pertinentes).
+     * Ne modifie pas la fenêtre : peut être appelée depuis un thread d'arrière-plan.
+     *
+     * @param filter    Le filtre appliqué.
+     * @param anchorKey La clé de la dernière transaction déjà chargée.
+     * @return La page lue, éventuellement vide.
+     */
+    public Page fetchBefore(TransactionFilter filter, long anchorKey) {
+        return readPage(dbHelper.getTransactionsPageBefore(filter, anchorKey, PAGE_SIZE), false);
+    }
+
+    /**
+     * Lit la page de transactions qui précèdent anchorKey (plus récentes, ou plus pertinentes).
+     * Ne modifie pas la fenêtre : peut être appelée depuis un thread d'arrière-plan.
+     *
+     * @param filter    Le filtre appliqué.
+     * @param anchorKey La clé de la première transaction déjà chargée.
+     * @return La page lue, éventuellement vide.
+     */
+    public Page fetchAfter(TransactionFilter filter, long anchorKey) {
+        return readPage(dbHelper.getTransactionsPageAfter(filter, anchorKey, PAGE_SIZE), true);
+    }
+
+    /**
+     * Ajoute en fin de fenêtre une page lue par {@link #fetchBefore}.
+     *
+     * @param page La page lue.
+     * @return `true` si la page contient des transactions, sinon `false`.
+     */
+    public boolean appendPage(Page page) {
+        hasMoreAfter = page.size() == PAGE_SIZE;
+        if (page.size() == 0) {
+            return false;
+        }
+        pages.addLast(page);
+        return true;
+    }
+
+    /**
+     * Ajoute en début de fenêtre une page lue par {@link #fetchAfter}.
+     *
+     * @param page La page lue.
+     * @return `true` si la page contient des transactions, sinon `false`.
+     */
+    public boolean prependPage(Page page) {
+        hasMoreBefore = page.size() == PAGE_SIZE;
+        if (page.size() == 0) {
+            return false;
+        }
+        pages.addFirst(page);
+        return true;
+    }
+
+    /**
+     * Libère la première page si la fenêtre dépasse {@link #MAX_PAGES}.
+     *
+     * @return La page libérée, ou null si la fenêtre est dans sa limite.
+     */
+    public Page trimHead() {
+        if (pages.size() <= MAX_PAGES) {
+            return null;
+        }
+        hasMoreBefore = true;
+        return pages.removeFirst();
+    }
+
+    /**
+     * Libère la dernière page si la fenêtre dépasse {@link #MAX_PAGES}.
+     *
+     * @return La page libérée, ou null si la fenêtre est dans sa limite.
+     */
+    public Page trimTail() {
+        if (pages.size() <= MAX_PAGES) {
+            return null;
+        }
+        hasMoreAfter = true;
+        return pages.removeLast();
+    }
+
+    /**
+     * Indique si des transactions plus récentes que la fenêtre peuvent être rechargées.
+     *
+     * @return `true` si une page précédente existe, sinon `false`.
+     */
+    public boolean hasMoreBefore() {
+        return hasMoreBefore;
+    }
+
+    /**
+     * Indique si des transactions plus anciennes que la fenêtre restent à charger.
+     *
+     * @return `true` si une page suivante peut exister, sinon `false`.
+     */
+    public boolean hasMoreAfter() {
+        return hasMoreAfter;
+    }
+
+    /**
+     * Lit une page depuis le curseur et le ferme.
+     *
+     * @param cursor   Le curseur de la page (peut être null en cas d'erreur).
+     * @param reversed `true` si le curseur est trié par clé croissante et doit être inversé.
+     * @return La page lue, éventuellement vide.
+     */
+    private Page readPage(Cursor cursor, boolean reversed) {
+        List<Transaction> items = new ArrayList<>(PAGE_SIZE);
+        long firstKey = 0;
+        long lastKey = 0;
+
+        if (cursor != null) {
+            CategoryDictionary categories = dbHelper.getCategoryDictionary(); // Noms des catégories, déjà en mémoire
+            try {
+                // Résoudre les index de colonnes une seule fois
+                int idIndex = cursor.getColumnIndexOrThrow(DatabaseHelper.COLUMN_ID);
+                int typeIndex = cursor.getColumnIndexOrThrow(DatabaseHelper.COLUMN_TYPE);
+                int amountIndex = cursor.getColumnIndexOrThrow(DatabaseHelper.COLUMN_AMOUNT_MINOR);
+                int categoryIndex = cursor.getColumnIndexOrThrow(DatabaseHelper.COLUMN_CATEGORY_ID);
+                int dateIndex = cursor.getColumnIndexOrThrow(DatabaseHelper.COLUMN_DATE);
+                int noteIndex = cursor.getColumnIndexOrThrow(DatabaseHelper.COLUMN_NOTE);
+                int alarmEnabledIndex = cursor.getColumnIndexOrThrow(DatabaseHelper.COLUMN_IS_ALARM_ENABLED);
+                int alarmDateIndex = cursor.getColumnIndexOrThrow(DatabaseHelper.COLUMN_ALARM_DATE);
+                int alarmTimeIndex = cursor.getColumnIndexOrThrow(DatabaseHelper.COLUMN_ALARM_TIME);
+                int keyIndex = cursor.getColumnIndex(DatabaseHelper.COLUMN_PAGE_KEY); // Présente pour une recherche
+                if (keyIndex < 0) {
+                    keyIndex = idIndex;
+                }
+
+                while (cursor.moveToNext()) {
+                    long key = cursor.getLong(keyIndex);
+                    if (items.isEmpty()) {
+                        firstKey = key;
+                    }
+                    lastKey = key;
+                    items.add(new Transaction(
+                            cursor.getLong(idIndex),
+                            cursor.getString(typeIndex),
+                            cursor.getLong(amountIndex),
+                            categories.getName(cursor.getLong(categoryIndex)),
+                            cursor.getString(dateIndex),
+                            cursor.getString(noteIndex),
+                            cursor.getInt(alarmEnabledIndex) == 1,
+                            cursor.getString(alarmDateIndex),
+                            cursor.getString(alarmTimeIndex)));
+                }
+            } finally {
+                cursor.close();
+            }
+        }
+
+        TransactionFormatter pageFormatter = formatter;
+        if (pageFormatter != null) {
+            for (Transaction transaction : items) {
+                transaction.setLabels(pageFormatter.format(transaction));
+            }
+        }
+
+        if (reversed) {
+            Collections.reverse(items);
+            long swap = firstKey;
+            firstKey = lastKey;
+            lastKey = swap;
+        }
+        return new Page(items, firstKey, lastKey);
+    }
+
+    /**
+     * Page est une tranche contiguë de l'historique, triée par clé décroissante
+     * (id, ou pertinence puis id pour une recherche).
+     */
+    public static class Page {
+        private final List<Transaction> items; // Transactions de la page
+        private final long firstKey; // Clé de la première transaction (id, ou page_key pour une recherche)
+        private final long lastKey; // Clé de la dernière transaction
+
+        Page(List<Transaction> items, long firstKey, long lastKey) {
+            this.items = items;
+            this.firstKey = firstKey;
+            this.lastKey = lastKey;
+        }
+
+        /**
+         * Retourne les transactions de la page.
+         *
+         * @return Les transactions, de la plus récente à la plus ancienne.
+         */
+        public List<Transaction> getItems() {
+            return items;
+        }
+
+        /**
+         * Retourne la clé de pagination de la première transaction de la page.
+         *
+         * @return L'id de la première transaction, ou sa clé page_key pour une recherche.
+         */
+        public long getFirstKey() {
+            return firstKey;
+        }
+
+        /**
+         * Retourne la clé de pagination de la dernière transaction de la page.
+         *
+         * @return L'id de la dernière transaction, ou sa clé page_key pour une recherche.
+         */
+        public long getLastKey() {
+            return lastKey;
+        }
+
+        /**
+         * Retourne le nombre de transactions de la page.
+         *
+         * @return La taille de la page.
+         */
+        public int size() {
+            return items.size();
+        }
+    }
+}
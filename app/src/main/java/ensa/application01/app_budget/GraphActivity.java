@@ -1,29 +1,42 @@
 package ensa.application01.app_budget;
 
-import android.database.Cursor;
 import android.graphics.Color;
 import android.os.Bundle;
 import android.view.View;
 import android.widget.AdapterView;
 import android.widget.ArrayAdapter;
-import android.widget.LinearLayout;
 import android.widget.Spinner;
-import android.widget.TextView;
 
 import androidx.appcompat.app.AppCompatActivity;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
 
+import com.github.mikephil.charting.charts.LineChart;
 import com.github.mikephil.charting.charts.PieChart;
+import com.github.mikephil.charting.components.XAxis;
+import com.github.mikephil.charting.data.Entry;
+import com.github.mikephil.charting.data.LineData;
+import com.github.mikephil.charting.data.LineDataSet;
 import com.github.mikephil.charting.data.PieData;
 import com.github.mikephil.charting.data.PieDataSet;
 import com.github.mikephil.charting.data.PieEntry;
+import com.github.mikephil.charting.formatter.IndexAxisValueFormatter;
 
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.Calendar;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.List;
 
+import ensa.application01.app_budget.DataBase.BudgetRepository;
 import ensa.application01.app_budget.DataBase.DatabaseHelper;
+import ensa.application01.app_budget.DataBase.InvalidationTracker;
+import ensa.application01.app_budget.DataBase.TableChange;
+import ensa.application01.app_budget.DataBase.TimeBucketAggregator;
+import ensa.application01.app_budget.DataBase.TransactionFilter;
+import ensa.application01.app_budget.adapter.CategoryCardAdapter;
+import ensa.application01.app_budget.module.BucketSeries;
+import ensa.application01.app_budget.module.MonthSummary;
+import ensa.application01.app_budget.utils.DateCodec;
+import ensa.application01.app_budget.utils.Money;
 
 /**
  * GraphActivity est une activité qui affiche des graphiques et des statistiques
@@ -32,15 +45,22 @@ import ensa.application01.app_budget.DataBase.DatabaseHelper;
  */
 public class GraphActivity extends AppCompatActivity {
 
-    private LinearLayout layoutOutgoings; // Layout pour afficher les dépenses
-    private LinearLayout layoutIncomes; // Layout pour afficher les revenus
+    private CategoryCardAdapter outgoingsAdapter; // Cartes des dépenses, recyclées d'un mois à l'autre
+    private CategoryCardAdapter incomesAdapter; // Cartes des revenus, recyclées d'un mois à l'autre
     private Spinner spinnerMonth; // Spinner pour sélectionner le mois
     private Spinner spinnerYear; // Spinner pour sélectionner l'année
     private PieChart pieChart; // Graphique en camembert pour visualiser les données
-    private DatabaseHelper dbHelper; // Helper pour interagir avec la base de données
+    private LineChart trendChart; // Courbes mensuelles des revenus et des dépenses
+    private BudgetRepository repository; // Accès à la base de données en arrière-plan
+    private final BudgetRepository.TaskGroup tasks = new BudgetRepository.TaskGroup(); // Tâches annulées à la destruction
+    private BudgetRepository.Task monthTask; // Chargement du mois en cours, ou null
+    private InvalidationTracker.Subscription changesSubscription; // Écritures dans les tables lues par les graphiques
+    private int trendFirstYear; // Première année du graphique de tendance
+    private int trendLastYear; // Dernière année du graphique de tendance
 
     private static final String TAG = "GraphActivity"; // Tag pour les logs
-    private String[] years = {"2023", "2024", "2025"}; // Liste des années disponibles
+    private static final int[] PIE_COLORS = {Color.parseColor("#FF5733"), Color.parseColor("#33FF57")}; // Dépenses, revenus
+    private final List<String> years = new ArrayList<>(); // Années disponibles, déduites des transactions
 
     /**
      * Méthode appelée lors de la création de l'activité.
@@ -54,13 +74,20 @@ public class GraphActivity extends AppCompatActivity {
         setContentView(R.layout.activity_graph);
 
         // Initialisation des vues
-        layoutOutgoings = findViewById(R.id.layoutOutgoings);
-        layoutIncomes = findViewById(R.id.layoutIncomes);
+        RecyclerView recyclerOutgoings = findViewById(R.id.recyclerOutgoings);
+        RecyclerView recyclerIncomes = findViewById(R.id.recyclerIncomes);
         spinnerMonth = findViewById(R.id.spinnerMonth);
         spinnerYear = findViewById(R.id.spinnerYear);
         pieChart = findViewById(R.id.pieChart);
+        trendChart = findViewById(R.id.trendChart);
 
-        dbHelper = new DatabaseHelper(this);
+        repository = BudgetRepository.getInstance(this);
+
+        // Listes des cartes : les vues sont réutilisées d'un mois à l'autre, seules les cartes modifiées sont notifiées
+        incomesAdapter = new CategoryCardAdapter();
+        outgoingsAdapter = new CategoryCardAdapter();
+        setupCardList(recyclerIncomes, incomesAdapter);
+        setupCardList(recyclerOutgoings, outgoingsAdapter);
 
         // Configuration du spinner pour les mois
         String[] months = {"Janvier", "Février", "Mars", "Avril", "Mai", "Juin", "Juillet", "Août", "Septembre", "Octobre", "Novembre", "Décembre"};
@@ -68,17 +95,32 @@ public class GraphActivity extends AppCompatActivity {
         monthAdapter.setDropDownViewResource(android.R.layout.simple_spinner_dropdown_item);
         spinnerMonth.setAdapter(monthAdapter);
 
-        // Configuration du spinner pour les années
+        // Configuration du spinner pour les années (rempli une fois les années chargées)
         ArrayAdapter<String> yearAdapter = new ArrayAdapter<>(this, android.R.layout.simple_spinner_item, years);
         yearAdapter.setDropDownViewResource(android.R.layout.simple_spinner_dropdown_item);
         spinnerYear.setAdapter(yearAdapter);
 
-        // Sélectionner l'année actuelle par défaut
+        // Années disponibles : de la première à la dernière année ayant des transactions, et l'année actuelle
         int currentYear = Calendar.getInstance().get(Calendar.YEAR);
-        int yearPosition = Arrays.asList(years).indexOf(String.valueOf(currentYear));
-        if (yearPosition != -1) {
-            spinnerYear.setSelection(yearPosition);
-        }
+        tasks.add(repository.loadYearRange(range -> {
+            int firstYear = range != null ? Math.min(range[0], currentYear) : currentYear;
+            int lastYear = range != null ? Math.max(range[1], currentYear) : currentYear;
+            for (int year = firstYear; year <= lastYear; year++) {
+                years.add(String.valueOf(year));
+            }
+            yearAdapter.notifyDataSetChanged();
+
+            // Sélectionner l'année actuelle par défaut
+            spinnerYear.setSelection(years.indexOf(String.valueOf(currentYear)));
+            updateUI();
+            loadTrend(firstYear, lastYear);
+        }));
+
+        // Recharger les graphiques après les écritures qui les concernent
+        changesSubscription = repository.getInvalidationTracker().subscribe(new String[]{
+                DatabaseHelper.TABLE_TRANSACTIONS, DatabaseHelper.TABLE_MONTHLY_SUMMARY, DatabaseHelper.TABLE_CATEGORIES,
+                DatabaseHelper.TABLE_CATEGORY_LIMITS
+        }, this::onDataChanged);
 
         // Gestion du changement de sélection pour le mois
         spinnerMonth.setOnItemSelectedListener(new AdapterView.OnItemSelectedListener() {
@@ -105,161 +147,182 @@ public class GraphActivity extends AppCompatActivity {
         });
     }
 
+    /**
+     * Réagit aux écritures regroupées par le tracker : le mois affiché n'est relu que si une écriture
+     * touche ses dates, la tendance que si une écriture touche les années affichées.
+     *
+     * @param changes Les écritures, une par table modifiée.
+     */
+    private void onDataChanged(List<TableChange> changes) {
+        if (years.isEmpty()) {
+            return; // Premier chargement pas encore terminé : il lira des données à jour
+        }
+        int month = spinnerMonth.getSelectedItemPosition() + 1;
+        int year = Integer.parseInt(years.get(spinnerYear.getSelectedItemPosition()));
+        int monthFrom = DateCodec.firstDayOfMonth(year, month);
+        int monthTo = DateCodec.lastDayOfMonth(year, month);
+        int trendFrom = DateCodec.firstDayOfYear(trendFirstYear);
+        int trendTo = DateCodec.lastDayOfYear(trendLastYear);
+
+        boolean monthChanged = false;
+        boolean trendChanged = false;
+        for (TableChange change : changes) {
+            monthChanged |= change.overlaps(monthFrom, monthTo);
+            if (!DatabaseHelper.TABLE_CATEGORY_LIMITS.equals(change.getTable())) {
+                trendChanged |= change.overlaps(trendFrom, trendTo); // Les limites ne figurent que sur les cartes du mois
+            }
+        }
+        if (monthChanged) {
+            updateUI();
+        }
+        if (trendChanged) {
+            loadTrend(trendFirstYear, trendLastYear);
+        }
+    }
+
+    /**
+     * Configure une liste de cartes récapitulatives.
+     *
+     * @param recyclerView La liste.
+     * @param adapter      L'adapteur des cartes.
+     */
+    private void setupCardList(RecyclerView recyclerView, CategoryCardAdapter adapter) {
+        recyclerView.setLayoutManager(new LinearLayoutManager(this));
+        recyclerView.setHasFixedSize(true); // La hauteur de la liste ne dépend pas des cartes
+        recyclerView.setAdapter(adapter);
+    }
+
     /**
      * Met à jour l'interface utilisateur en fonction du mois et de l'année sélectionnés.
-     * Récupère les transactions de la base de données, affiche les cartes récapitulatives
-     * et met à jour le graphique en camembert.
+     * Le récapitulatif du mois (cartes et totaux) est calculé en arrière-plan en une seule lecture,
+     * puis les listes de cartes sont mises à jour par différence et le camembert est redessiné.
      */
     private void updateUI() {
         int month = spinnerMonth.getSelectedItemPosition() + 1; // Récupérer le mois sélectionné
-        String year = years[spinnerYear.getSelectedItemPosition()]; // Récupérer l'année sélectionnée
-
-        // Récupérer les transactions mensuelles par catégorie
-        Cursor monthlyTransactions = dbHelper.getMonthlyTransactionsByCategory(String.format("%02d", month), year);
-
-        if (monthlyTransactions == null) {
-            return;
+        if (years.isEmpty()) {
+            return; // Années pas encore chargées
         }
+        int year = Integer.parseInt(years.get(spinnerYear.getSelectedItemPosition())); // Récupérer l'année sélectionnée
 
-        // Effacer les anciennes vues
-        layoutOutgoings.removeAllViews();
-        layoutIncomes.removeAllViews();
+        if (monthTask != null) {
+            monthTask.cancel(); // Seul le dernier mois sélectionné doit être affiché
+        }
 
-        // Remplir les revenus et les dépenses
-        fillIncomes(monthlyTransactions);
-        fillOutgoings(monthlyTransactions);
+        // Récupérer le récapitulatif du mois
+        monthTask = tasks.add(repository.loadMonthSummary(month, year, summary -> {
+            monthTask = null;
 
-        // Mettre à jour le graphique en camembert
-        updatePieChart(monthlyTransactions);
+            // Remplir les revenus et les dépenses (le diff est calculé en arrière-plan)
+            incomesAdapter.submitList(summary.getIncomeCards());
+            outgoingsAdapter.submitList(summary.getExpenseCards());
 
-        monthlyTransactions.close();
+            // Mettre à jour le graphique en camembert
+            updatePieChart(summary);
+        }));
     }
 
     /**
-     * Remplit le layout des revenus avec des cartes récapitulatives pour chaque catégorie.
+     * Met à jour le graphique en camembert avec les totaux des revenus et des dépenses du mois.
      *
-     * @param monthlyTransactions Le curseur contenant les transactions mensuelles.
+     * @param summary Le récapitulatif du mois.
      */
-    private void fillIncomes(Cursor monthlyTransactions) {
-        Map<String, Double> categoryTotals = new HashMap<>(); // Total des revenus par catégorie
-
-        if (monthlyTransactions.moveToFirst()) {
-            do {
-                String category = monthlyTransactions.getString(monthlyTransactions.getColumnIndex(DatabaseHelper.COLUMN_CATEGORY));
-                String type = monthlyTransactions.getString(monthlyTransactions.getColumnIndex(DatabaseHelper.COLUMN_TYPE));
-                double total = monthlyTransactions.getDouble(monthlyTransactions.getColumnIndex("total"));
-
-                if (type.equals("Revenu")) {
-                    // Mettre à jour le total pour cette catégorie
-                    if (categoryTotals.containsKey(category)) {
-                        categoryTotals.put(category, categoryTotals.get(category) + total);
-                    } else {
-                        categoryTotals.put(category, total);
-                    }
-                }
-            } while (monthlyTransactions.moveToNext());
-        }
-
-        // Ajouter des cartes pour chaque catégorie de revenus
-        for (Map.Entry<String, Double> entry : categoryTotals.entrySet()) {
-            String category = entry.getKey();
-            double total = entry.getValue();
-
-            // Créer une carte
-            View cardView = getLayoutInflater().inflate(R.layout.card_item, null);
-            TextView tvCategoryTitle = cardView.findViewById(R.id.tvCategoryTitle);
-            TextView tvTotalAmount = cardView.findViewById(R.id.tvTotalAmount);
+    private void updatePieChart(MonthSummary summary) {
+        // Créer les entrées pour le graphique en camembert
+        ArrayList<PieEntry> entries = new ArrayList<>(2);
+        entries.add(new PieEntry(Money.toFloat(summary.getTotalExpenses()), "Dépenses"));
+        entries.add(new PieEntry(Money.toFloat(summary.getTotalIncome()), "Revenus"));
 
-            // Remplir la carte avec les données
-            tvCategoryTitle.setText(category);
-            tvTotalAmount.setText(String.format("%.2f DH", total));
+        // Configurer le dataset pour le graphique
+        PieDataSet dataSet = new PieDataSet(entries, "");
+        dataSet.setColors(PIE_COLORS);
+        dataSet.setValueTextSize(12f);
 
-            // Ajouter la carte au layout des revenus
-            layoutIncomes.addView(cardView);
+        // Créer les données du graphique ; seul le premier affichage est animé, pour que le changement de mois soit immédiat
+        boolean firstDisplay = pieChart.getData() == null;
+        pieChart.setData(new PieData(dataSet));
+        pieChart.getDescription().setEnabled(false); // Désactiver la description
+        pieChart.setCenterTextSize(12f); // Taille du texte au centre
+        if (firstDisplay) {
+            pieChart.animateY(1000); // Animation du graphique
+        } else {
+            pieChart.invalidate();
         }
     }
 
     /**
-     * Remplit le layout des dépenses avec des cartes récapitulatives pour chaque catégorie.
+     * Charge en une seule requête les totaux de chaque mois des années données, puis affiche
+     * les courbes des revenus et des dépenses.
      *
-     * @param monthlyTransactions Le curseur contenant les transactions mensuelles.
+     * @param firstYear La première année affichée.
+     * @param lastYear  La dernière année affichée.
      */
-    private void fillOutgoings(Cursor monthlyTransactions) {
-        Map<String, Double> categoryTotals = new HashMap<>(); // Total des dépenses par catégorie
-
-        if (monthlyTransactions.moveToFirst()) {
-            do {
-                String category = monthlyTransactions.getString(monthlyTransactions.getColumnIndex(DatabaseHelper.COLUMN_CATEGORY));
-                String type = monthlyTransactions.getString(monthlyTransactions.getColumnIndex(DatabaseHelper.COLUMN_TYPE));
-                double total = monthlyTransactions.getDouble(monthlyTransactions.getColumnIndex("total"));
-
-                if (type.equals("Dépense")) {
-                    // Mettre à jour le total pour cette catégorie
-                    if (categoryTotals.containsKey(category)) {
-                        categoryTotals.put(category, categoryTotals.get(category) + total);
-                    } else {
-                        categoryTotals.put(category, total);
-                    }
-                }
-            } while (monthlyTransactions.moveToNext());
-        }
-
-        // Ajouter des cartes pour chaque catégorie de dépenses
-        for (Map.Entry<String, Double> entry : categoryTotals.entrySet()) {
-            String category = entry.getKey();
-            double total = entry.getValue();
-
-            // Créer une carte
-            View cardView = getLayoutInflater().inflate(R.layout.card_item, null);
-            TextView tvCategoryTitle = cardView.findViewById(R.id.tvCategoryTitle);
-            TextView tvTotalAmount = cardView.findViewById(R.id.tvTotalAmount);
-
-            // Remplir la carte avec les données
-            tvCategoryTitle.setText(category);
-            tvTotalAmount.setText(String.format("%.2f DH", total));
-
-            // Ajouter la carte au layout des dépenses
-            layoutOutgoings.addView(cardView);
-        }
+    private void loadTrend(int firstYear, int lastYear) {
+        trendFirstYear = firstYear;
+        trendLastYear = lastYear;
+        tasks.add(repository.loadBuckets(TimeBucketAggregator.Granularity.MONTH,
+                DateCodec.firstDayOfYear(firstYear), DateCodec.lastDayOfYear(lastYear),
+                TransactionFilter.ANY_CATEGORY, this::updateTrendChart));
     }
 
     /**
-     * Met à jour le graphique en camembert avec les totaux des revenus et des dépenses.
+     * Met à jour le graphique de tendance avec une courbe des revenus et une courbe des dépenses.
      *
-     * @param monthlyTransactions Le curseur contenant les transactions mensuelles.
+     * @param series Les totaux de chaque mois.
      */
-    private void updatePieChart(Cursor monthlyTransactions) {
-        float totalRevenus = 0; // Total des revenus
-        float totalDepenses = 0; // Total des dépenses
-
-        if (monthlyTransactions.moveToFirst()) {
-            do {
-                String type = monthlyTransactions.getString(monthlyTransactions.getColumnIndex(DatabaseHelper.COLUMN_TYPE));
-                double total = monthlyTransactions.getDouble(monthlyTransactions.getColumnIndex("total"));
-
-                if (type.equals("Dépense")) {
-                    totalDepenses += total;
-                } else if (type.equals("Revenu")) {
-                    totalRevenus += total;
-                }
-            } while (monthlyTransactions.moveToNext());
+    private void updateTrendChart(BucketSeries series) {
+        List<Entry> incomeEntries = new ArrayList<>(series.size());
+        List<Entry> expenseEntries = new ArrayList<>(series.size());
+        String[] labels = new String[series.size()];
+        for (int i = 0; i < series.size(); i++) {
+            incomeEntries.add(new Entry(i, Money.toFloat(series.getIncome(i))));
+            expenseEntries.add(new Entry(i, Money.toFloat(series.getExpenses(i))));
+            labels[i] = DateCodec.format(series.getStartDay(i)).substring(3); // "MM/yyyy"
         }
 
-        // Créer les entrées pour le graphique en camembert
-        ArrayList<PieEntry> entries = new ArrayList<>();
-        entries.add(new PieEntry(totalDepenses, "Dépenses"));
-        entries.add(new PieEntry(totalRevenus, "Revenus"));
+        LineDataSet incomeSet = new LineDataSet(incomeEntries, "Revenus");
+        incomeSet.setColor(Color.parseColor("#33FF57"));
+        incomeSet.setDrawCircles(false);
+        incomeSet.setDrawValues(false);
+        LineDataSet expenseSet = new LineDataSet(expenseEntries, "Dépenses");
+        expenseSet.setColor(Color.parseColor("#FF5733"));
+        expenseSet.setDrawCircles(false);
+        expenseSet.setDrawValues(false);
+
+        trendChart.setData(new LineData(incomeSet, expenseSet));
+        trendChart.getXAxis().setValueFormatter(new IndexAxisValueFormatter(labels));
+        trendChart.getXAxis().setPosition(XAxis.XAxisPosition.BOTTOM);
+        trendChart.getXAxis().setGranularity(1f);
+        trendChart.getDescription().setEnabled(false); // Désactiver la description
+        trendChart.invalidate();
+    }
 
-        // Configurer le dataset pour le graphique
-        PieDataSet dataSet = new PieDataSet(entries, "");
-        dataSet.setColors(new int[]{Color.parseColor("#FF5733"), Color.parseColor("#33FF57")});
-        dataSet.setValueTextSize(12f);
+    /**
+     * Méthode appelée lorsque l'activité reprend.
+     * Recharge les graphiques uniquement si une écriture pertinente a eu lieu pendant la pause.
+     */
+    @Override
+    protected void onResume() {
+        super.onResume();
+        changesSubscription.resume();
+    }
 
-        // Créer les données du graphique
-        PieData pieData = new PieData(dataSet);
-        pieChart.setData(pieData);
-        pieChart.getDescription().setEnabled(false); // Désactiver la description
-        pieChart.setCenterTextSize(12f); // Taille du texte au centre
-        pieChart.animateY(1000); // Animation du graphique
+    /**
+     * Méthode appelée lorsque l'activité n'est plus au premier plan.
+     */
+    @Override
+    protected void onPause() {
+        changesSubscription.pause();
+        super.onPause();
+    }
+
+    /**
+     * Méthode appelée lors de la destruction de l'activité.
+     * Annule les chargements en cours pour ne pas livrer de résultat à une activité détruite.
+     */
+    @Override
+    protected void onDestroy() {
+        changesSubscription.close();
+        tasks.cancelAll();
+        super.onDestroy();
     }
 }
\ No newline at end of file
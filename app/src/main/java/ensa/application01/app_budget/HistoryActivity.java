@@ -1,13 +1,20 @@
 package ensa.application01.app_budget;
 
+import android.app.ActivityManager;
+import android.app.AlertDialog;
 import android.app.DatePickerDialog;
-import android.database.Cursor;
+import android.content.Intent;
 import android.os.Bundle;
+import android.text.Editable;
+import android.text.TextWatcher;
 import android.view.View;
 import android.widget.AdapterView;
 import android.widget.ArrayAdapter;
 import android.widget.Button;
+import android.widget.EditText;
+import android.widget.ProgressBar;
 import android.widget.Spinner;
+import android.widget.Toast;
 
 import androidx.appcompat.app.AppCompatActivity;
 import androidx.recyclerview.widget.LinearLayoutManager;
@@ -18,26 +25,57 @@ import java.util.Calendar;
 import java.util.List;
 import java.util.Locale;
 
+import ensa.application01.app_budget.DataBase.BudgetRepository;
+import ensa.application01.app_budget.DataBase.CategoryDictionary;
 import ensa.application01.app_budget.DataBase.DatabaseHelper;
+import ensa.application01.app_budget.DataBase.InvalidationTracker;
+import ensa.application01.app_budget.DataBase.TableChange;
+import ensa.application01.app_budget.DataBase.TransactionExporter;
+import ensa.application01.app_budget.DataBase.TransactionFilter;
+import ensa.application01.app_budget.DataBase.TransactionPagingSource;
 import ensa.application01.app_budget.adapter.TransactionAdapter;
-import ensa.application01.app_budget.module.Transaction;
+import ensa.application01.app_budget.adapter.TransactionCursorAdapter;
+import ensa.application01.app_budget.utils.DateCodec;
+import ensa.application01.app_budget.utils.TransactionFormatter;
 
 /**
  * HistoryActivity est une activité qui affiche l'historique des transactions.
- * Elle permet de filtrer les transactions par type, catégorie et date.
+ * Elle permet de filtrer les transactions par type, catégorie et date, et de rechercher un texte
+ * dans les notes et les noms de catégorie ; les résultats d'une recherche sont classés par pertinence.
+ * Sur les appareils à faible mémoire, la liste est liée directement à un curseur (une seule fenêtre
+ * en mémoire) au lieu de pages d'objets Transaction ; les résultats y sont triés par date d'ajout.
  */
 public class HistoryActivity extends AppCompatActivity {
 
     private RecyclerView recyclerViewHistory; // RecyclerView pour afficher les transactions
-    private DatabaseHelper dbHelper; // Helper pour interagir avec la base de données
-    private TransactionAdapter adapter; // Adapteur pour le RecyclerView
+    private BudgetRepository repository; // Accès à la base de données en arrière-plan
+    private final BudgetRepository.TaskGroup tasks = new BudgetRepository.TaskGroup(); // Tâches annulées à la destruction
+    private BudgetRepository.Task pageTask; // Chargement de page en cours, ou null
+    private TransactionAdapter adapter; // Adapteur par pages, ou null en mode curseur
+    private TransactionCursorAdapter cursorAdapter; // Adapteur lié à un curseur (faible mémoire), ou null
     private Spinner spinnerTypeFilter; // Spinner pour filtrer par type
     private Spinner spinnerCategoryFilter; // Spinner pour filtrer par catégorie
     private Button btnDateFilter; // Bouton pour filtrer par date
     private Button btnResetFilters; // Bouton pour réinitialiser les filtres
+    private EditText editSearch; // Champ de recherche plein texte
     private String selectedType = "Tous"; // Filtre par type sélectionné
     private String selectedCategory = "Toutes"; // Filtre par catégorie sélectionné
+    private CategoryDictionary categoryDictionary; // Correspondance nom ↔ id des catégories
+    private ArrayAdapter<String> categoryFilterAdapter; // Catégories proposées dans le filtre
+    private InvalidationTracker.Subscription changesSubscription; // Écritures dans les transactions et les catégories
     private String selectedDate = ""; // Filtre par date sélectionné
+    private String searchQuery = ""; // Texte recherché dans les notes et catégories
+    private TransactionPagingSource pagingSource; // Source paginée de l'historique
+    private Button btnExport; // Bouton pour exporter (ou annuler l'export)
+    private ProgressBar progressExport; // Progression de l'export
+    private BudgetRepository.Task exportTask; // Export en cours, ou null
+    private TransactionExporter.Format exportFormat; // Format choisi pour l'export
+
+    private static final int PREFETCH_DISTANCE = 15; // Nombre d'éléments avant le bord déclenchant le préchargement
+    private static final int REQUEST_EXPORT = 1; // Code de requête du sélecteur de document
+    private static final long SEARCH_DELAY_MS = 300; // Délai de saisie avant de relancer la recherche
+
+    private final Runnable searchRunnable = this::loadTransactionHistory; // Recherche différée pendant la saisie
 
     /**
      * Méthode appelée lors de la création de l'activité.
@@ -52,33 +90,100 @@ public class HistoryActivity extends AppCompatActivity {
 
         // Initialisation des vues
         recyclerViewHistory = findViewById(R.id.recyclerView_history);
-        dbHelper = new DatabaseHelper(this);
+        repository = BudgetRepository.getInstance(this);
+        // Recharger l'historique après les écritures qui le concernent (avant tout chargement, qui borne l'abonnement)
+        changesSubscription = repository.getInvalidationTracker().subscribe(
+                new String[]{DatabaseHelper.TABLE_TRANSACTIONS, DatabaseHelper.TABLE_CATEGORIES}, this::onDataChanged);
 
         // Configuration du RecyclerView
-        adapter = new TransactionAdapter(new ArrayList<>());
+        // Les textes des lignes sont calculés en arrière-plan avec chaque page, pas pendant le défilement
+        TransactionFormatter formatter = new TransactionFormatter(this);
         recyclerViewHistory.setLayoutManager(new LinearLayoutManager(this));
-        recyclerViewHistory.setAdapter(adapter);
+        pagingSource = new TransactionPagingSource(repository.getDatabaseHelper());
+        ActivityManager activityManager = (ActivityManager) getSystemService(ACTIVITY_SERVICE);
+        if (activityManager != null && activityManager.isLowRamDevice()) {
+            cursorAdapter = new TransactionCursorAdapter(formatter);
+            recyclerViewHistory.setAdapter(cursorAdapter);
+        } else {
+            adapter = new TransactionAdapter(formatter);
+            recyclerViewHistory.setAdapter(adapter);
+            pagingSource.setFormatter(formatter);
+        }
+
+        // Précharger les pages voisines pendant le défilement (hors du callback de défilement)
+        recyclerViewHistory.addOnScrollListener(new RecyclerView.OnScrollListener() {
+            @Override
+            public void onScrolled(RecyclerView recyclerView, int dx, int dy) {
+                recyclerView.post(HistoryActivity.this::prefetchIfNeeded);
+            }
+        });
 
         // Initialisation des spinners et boutons
         spinnerTypeFilter = findViewById(R.id.spinner_type_filter);
         spinnerCategoryFilter = findViewById(R.id.spinner_category_filter);
         btnDateFilter = findViewById(R.id.btn_date_filter);
         btnResetFilters = findViewById(R.id.btn_reset_filters);
+        editSearch = findViewById(R.id.edit_search);
+        btnExport = findViewById(R.id.btn_export);
+        progressExport = findViewById(R.id.progress_export);
 
         // Configurer les spinners
         setupTypeFilter();
         setupCategoryFilter();
 
+        // Relancer la recherche une fois la saisie interrompue, pas à chaque caractère
+        editSearch.addTextChangedListener(new TextWatcher() {
+            @Override
+            public void beforeTextChanged(CharSequence s, int start, int count, int after) {
+            }
+
+            @Override
+            public void onTextChanged(CharSequence s, int start, int before, int count) {
+            }
+
+            @Override
+            public void afterTextChanged(Editable s) {
+                searchQuery = s.toString();
+                editSearch.removeCallbacks(searchRunnable);
+                editSearch.postDelayed(searchRunnable, SEARCH_DELAY_MS);
+            }
+        });
+
         // Gestion du filtre par date
         btnDateFilter.setOnClickListener(v -> showDatePickerDialog());
 
         // Réinitialiser les filtres
         btnResetFilters.setOnClickListener(v -> resetFilters());
 
+        // Exporter les transactions filtrées, ou annuler l'export en cours
+        btnExport.setOnClickListener(v -> {
+            if (exportTask != null) {
+                cancelExport();
+            } else {
+                showExportFormatDialog();
+            }
+        });
+
         // Charger l'historique des transactions
         loadTransactionHistory();
     }
 
+    /**
+     * Réagit aux écritures regroupées par le tracker : recharge les catégories du filtre si elles ont
+     * changé, puis l'historique affiché.
+     *
+     * @param changes Les écritures, une par table modifiée.
+     */
+    private void onDataChanged(List<TableChange> changes) {
+        for (TableChange change : changes) {
+            if (DatabaseHelper.TABLE_CATEGORIES.equals(change.getTable())) {
+                loadCategoryNames();
+                break;
+            }
+        }
+        loadTransactionHistory();
+    }
+
     /**
      * Configure le spinner pour filtrer les transactions par type.
      */
@@ -108,14 +213,16 @@ public class HistoryActivity extends AppCompatActivity {
 
     /**
      * Configure le spinner pour filtrer les transactions par catégorie.
+     * Les catégories sont chargées en arrière-plan.
      */
     private void setupCategoryFilter() {
-        List<String> categories = dbHelper.getAllCategoriesAsList();
-        categories.add(0, "Toutes"); // Option pour afficher toutes les catégories
+        List<String> categories = new ArrayList<>();
+        categories.add("Toutes"); // Option pour afficher toutes les catégories
 
-        ArrayAdapter<String> categoryAdapter = new ArrayAdapter<>(this, android.R.layout.simple_spinner_item, categories);
-        categoryAdapter.setDropDownViewResource(android.R.layout.simple_spinner_dropdown_item);
-        spinnerCategoryFilter.setAdapter(categoryAdapter);
+        categoryFilterAdapter = new ArrayAdapter<>(this, android.R.layout.simple_spinner_item, categories);
+        categoryFilterAdapter.setDropDownViewResource(android.R.layout.simple_spinner_dropdown_item);
+        spinnerCategoryFilter.setAdapter(categoryFilterAdapter);
+        loadCategoryNames();
 
         // Gestion du changement de sélection pour la catégorie
         spinnerCategoryFilter.setOnItemSelectedListener(new AdapterView.OnItemSelectedListener() {
@@ -131,6 +238,21 @@ public class HistoryActivity extends AppCompatActivity {
         });
     }
 
+    /**
+     * Charge en arrière-plan les catégories proposées dans le filtre, en conservant la sélection courante
+     * si la catégorie existe toujours.
+     */
+    private void loadCategoryNames() {
+        tasks.add(repository.loadCategoryDictionary(result -> {
+            categoryDictionary = result;
+            categoryFilterAdapter.clear();
+            categoryFilterAdapter.add("Toutes");
+            categoryFilterAdapter.addAll(result.getNames());
+            int position = categoryFilterAdapter.getPosition(selectedCategory);
+            spinnerCategoryFilter.setSelection(Math.max(position, 0));
+        }));
+    }
+
     /**
      * Affiche un DatePickerDialog pour sélectionner une date de filtrage.
      */
@@ -158,71 +280,195 @@ public class HistoryActivity extends AppCompatActivity {
         selectedType = "Tous";
         selectedCategory = "Toutes";
         selectedDate = "";
+        searchQuery = "";
 
+        editSearch.setText("");
+        editSearch.removeCallbacks(searchRunnable); // setText a programmé une recherche : le rechargement suit
         spinnerTypeFilter.setSelection(0);
         spinnerCategoryFilter.setSelection(0);
         loadTransactionHistory();
     }
 
     /**
-     * Charge l'historique des transactions en fonction des filtres sélectionnés.
+     * Charge la première page de l'historique en fonction des filtres sélectionnés.
+     * Les pages suivantes sont chargées à la demande pendant le défilement.
      */
     private void loadTransactionHistory() {
-        List<Transaction> transactionHistory = getTransactionHistory(selectedType, selectedCategory, selectedDate);
-        adapter.updateData(transactionHistory);
+        if (pageTask != null) {
+            pageTask.cancel(); // Le résultat correspondrait à l'ancien filtre
+        }
+        pagingSource.reset(buildFilter(selectedType, selectedCategory, selectedDate, searchQuery));
+        // Seules les écritures dans l'intervalle de dates affiché demandent un rechargement
+        changesSubscription.setDayRange(pagingSource.getFilter().getFromDay(), pagingSource.getFilter().getToDay());
+        if (cursorAdapter != null) {
+            // Mode curseur : la requête s'exécute en arrière-plan, le curseur remplace le précédent
+            pageTask = tasks.add(repository.loadTransactionRows(pagingSource.getFilter(), cursor -> {
+                pageTask = null;
+                cursorAdapter.swapCursor(cursor);
+            }));
+            return;
+        }
+        pageTask = tasks.add(repository.loadPageBefore(pagingSource, pagingSource.getFilter(), pagingSource.getNextAnchor(), page -> {
+            pageTask = null;
+            pagingSource.appendPage(page);
+            adapter.updateData(page.getItems());
+        }));
     }
 
     /**
-     * Récupère l'historique des transactions en fonction des filtres appliqués.
+     * Précharge la page suivante ou précédente lorsque l'utilisateur approche d'un bord de la liste.
+     * Une seule page est chargée à la fois. Sans effet en mode curseur, où toutes les lignes sont accessibles.
+     */
+    private void prefetchIfNeeded() {
+        LinearLayoutManager layoutManager = (LinearLayoutManager) recyclerViewHistory.getLayoutManager();
+        if (layoutManager == null || adapter == null || (pageTask != null && !pageTask.isDone())) {
+            return;
+        }
+        int firstVisible = layoutManager.findFirstVisibleItemPosition();
+        int lastVisible = layoutManager.findLastVisibleItemPosition();
+
+        if (lastVisible >= adapter.getItemCount() - PREFETCH_DISTANCE && pagingSource.hasMoreAfter()) {
+            pageTask = tasks.add(repository.loadPageBefore(pagingSource, pagingSource.getFilter(), pagingSource.getNextAnchor(), page -> {
+                pageTask = null;
+                if (pagingSource.appendPage(page)) {
+                    adapter.appendData(page.getItems());
+                    TransactionPagingSource.Page dropped = pagingSource.trimHead();
+                    if (dropped != null) {
+                        adapter.removeFirst(dropped.size());
+                    }
+                }
+            }));
+        } else if (firstVisible <= PREFETCH_DISTANCE && pagingSource.hasMoreBefore()) {
+            pageTask = tasks.add(repository.loadPageAfter(pagingSource, pagingSource.getFilter(), pagingSource.getPreviousAnchor(), page -> {
+                pageTask = null;
+                if (pagingSource.prependPage(page)) {
+                    adapter.prependData(page.getItems());
+                    TransactionPagingSource.Page dropped = pagingSource.trimTail();
+                    if (dropped != null) {
+                        adapter.removeLast(dropped.size());
+                    }
+                }
+            }));
+        }
+    }
+
+    /**
+     * Affiche le choix du format d'export puis le sélecteur de document pour créer le fichier.
+     */
+    private void showExportFormatDialog() {
+        TransactionExporter.Format[] formats = TransactionExporter.Format.values();
+        String[] names = new String[formats.length];
+        for (int i = 0; i < formats.length; i++) {
+            names[i] = formats[i].name();
+        }
+        new AlertDialog.Builder(this)
+                .setTitle("Format d'export")
+                .setItems(names, (dialog, which) -> {
+                    exportFormat = formats[which];
+                    Intent intent = new Intent(Intent.ACTION_CREATE_DOCUMENT);
+                    intent.addCategory(Intent.CATEGORY_OPENABLE);
+                    intent.setType(exportFormat.getMimeType());
+                    intent.putExtra(Intent.EXTRA_TITLE, "transactions." + exportFormat.getExtension());
+                    startActivityForResult(intent, REQUEST_EXPORT);
+                })
+                .show();
+    }
+
+    /**
+     * Méthode appelée lorsque le sélecteur de document retourne le fichier à écrire.
+     * Lance l'export des transactions correspondant aux filtres sélectionnés.
      *
-     * @param typeFilter     Le filtre par type (exemple : "Revenu", "Dépense").
-     * @param categoryFilter Le filtre par catégorie (exemple : "Nourriture", "Transport").
-     * @param dateFilter     Le filtre par date (exemple : "01/01/2023").
-     * @return Une liste de transactions filtrées.
-     */
-    private List<Transaction> getTransactionHistory(String typeFilter, String categoryFilter, String dateFilter) {
-        List<Transaction> history = new ArrayList<>();
-        Cursor cursor = dbHelper.getAllTransactions();
-
-        if (cursor != null) {
-            try {
-                if (cursor.moveToFirst()) {
-                    do {
-                        String type = cursor.getString(cursor.getColumnIndexOrThrow("type"));
-                        String category = cursor.getString(cursor.getColumnIndexOrThrow("category"));
-                        String date = cursor.getString(cursor.getColumnIndexOrThrow("date"));
-
-                        // Appliquer les filtres
-                        boolean matchesType = typeFilter.equals("Tous") || type.equals(typeFilter);
-                        boolean matchesCategory = categoryFilter.equals("Toutes") || category.equals(categoryFilter);
-                        boolean matchesDate = dateFilter.isEmpty() || date.equals(dateFilter);
-
-                        if (matchesType && matchesCategory && matchesDate) {
-                            double amount = cursor.getDouble(cursor.getColumnIndexOrThrow("amount"));
-                            String note = cursor.getString(cursor.getColumnIndexOrThrow("note"));
-                            boolean isAlarmEnabled = cursor.getInt(cursor.getColumnIndexOrThrow("isAlarmEnabled")) == 1;
-                            String alarmDate = cursor.getString(cursor.getColumnIndexOrThrow("alarmDate"));
-                            String alarmTime = cursor.getString(cursor.getColumnIndexOrThrow("alarmTime"));
-
-                            history.add(new Transaction(type, amount, category, date, note, isAlarmEnabled, alarmDate, alarmTime));
+     * @param requestCode Le code de requête passé à startActivityForResult.
+     * @param resultCode  Le code de résultat retourné par le sélecteur.
+     * @param data        L'intent contenant l'URI du document créé.
+     */
+    @Override
+    protected void onActivityResult(int requestCode, int resultCode, Intent data) {
+        super.onActivityResult(requestCode, resultCode, data);
+        if (requestCode == REQUEST_EXPORT && resultCode == RESULT_OK && data != null && data.getData() != null
+                && exportFormat != null) {
+            progressExport.setProgress(0);
+            progressExport.setVisibility(View.VISIBLE);
+            btnExport.setText("Annuler l'export");
+            exportTask = tasks.add(repository.exportTransactions(getApplicationContext().getContentResolver(), data.getData(),
+                    buildFilter(selectedType, selectedCategory, selectedDate, searchQuery), exportFormat,
+                    percent -> progressExport.setProgress(percent),
+                    exported -> {
+                        onExportEnded();
+                        if (exported < 0) {
+                            Toast.makeText(this, "Erreur lors de l'export", Toast.LENGTH_LONG).show();
+                        } else {
+                            Toast.makeText(this, exported + " transactions exportées", Toast.LENGTH_LONG).show();
                         }
-                    } while (cursor.moveToNext());
-                }
-            } finally {
-                cursor.close();
-            }
+                    }));
         }
+    }
+
+    /**
+     * Annule l'export en cours ; le fichier partiel est supprimé.
+     */
+    private void cancelExport() {
+        exportTask.cancel();
+        onExportEnded();
+        Toast.makeText(this, "Export annulé", Toast.LENGTH_SHORT).show();
+    }
 
-        return history;
+    // Rétablit l'interface une fois l'export terminé ou annulé
+    private void onExportEnded() {
+        exportTask = null;
+        progressExport.setVisibility(View.GONE);
+        btnExport.setText("Exporter");
+    }
+
+    /**
+     * Traduit les sélections de l'interface en filtre SQL.
+     *
+     * @param typeFilter     Le type sélectionné ("Tous" pour ne pas filtrer).
+     * @param categoryFilter La catégorie sélectionnée ("Toutes" pour ne pas filtrer).
+     * @param dateFilter     La date sélectionnée au format "dd/MM/yyyy" (vide pour ne pas filtrer).
+     * @param search         Le texte recherché (vide pour ne pas filtrer).
+     * @return Le filtre correspondant.
+     */
+    private TransactionFilter buildFilter(String typeFilter, String categoryFilter, String dateFilter, String search) {
+        String type = typeFilter.equals("Tous") ? null : typeFilter;
+        long categoryId = categoryFilter.equals("Toutes") || categoryDictionary == null
+                ? TransactionFilter.ANY_CATEGORY : categoryDictionary.getId(categoryFilter);
+        int day = dateFilter.isEmpty() ? DateCodec.INVALID_DAY : DateCodec.parse(dateFilter);
+        return new TransactionFilter(type, categoryId, day, day, search);
     }
 
     /**
      * Méthode appelée lorsque l'activité reprend.
-     * Recharge l'historique des transactions.
+     * Recharge l'historique uniquement si une écriture pertinente a eu lieu pendant la pause.
      */
     @Override
     protected void onResume() {
         super.onResume();
-        loadTransactionHistory();
+        changesSubscription.resume();
+    }
+
+    /**
+     * Méthode appelée lorsque l'activité n'est plus au premier plan.
+     * Les écritures sont accumulées jusqu'au retour à l'écran.
+     */
+    @Override
+    protected void onPause() {
+        changesSubscription.pause();
+        super.onPause();
+    }
+
+    /**
+     * Méthode appelée lors de la destruction de l'activité.
+     * Annule les chargements en cours pour ne pas livrer de résultat à une activité détruite.
+     */
+    @Override
+    protected void onDestroy() {
+        editSearch.removeCallbacks(searchRunnable);
+        changesSubscription.close();
+        tasks.cancelAll();
+        if (cursorAdapter != null) {
+            cursorAdapter.swapCursor(null); // Ferme le curseur affiché
+        }
+        super.onDestroy();
     }
 }
\ No newline at end of file
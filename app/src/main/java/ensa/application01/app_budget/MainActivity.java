@@ -1,19 +1,19 @@
 package ensa.application01.app_budget;
 
-import android.content.ContentValues;
 import android.content.Intent;
-import android.database.Cursor;
-import android.database.sqlite.SQLiteDatabase;
+import android.net.Uri;
 import android.os.Bundle;
 import android.view.View;
 import android.widget.Button;
 import android.widget.TextView;
+import android.widget.Toast;
 
 import androidx.appcompat.app.AppCompatActivity;
 
-import java.util.ArrayList;
-
+import ensa.application01.app_budget.DataBase.BudgetRepository;
 import ensa.application01.app_budget.DataBase.DatabaseHelper;
+import ensa.application01.app_budget.DataBase.InvalidationTracker;
+import ensa.application01.app_budget.utils.Money;
 
 /**
  * MainActivity est l'activité principale de l'application.
@@ -23,12 +23,17 @@ import ensa.application01.app_budget.DataBase.DatabaseHelper;
  */
 public class MainActivity extends AppCompatActivity {
 
+    private static final int REQUEST_ADD_TRANSACTION = 1; // Code de requête de TransactionActivity
+    private static final int REQUEST_IMPORT = 2; // Code de requête du sélecteur de document
+
     private TextView tvExpenses; // Affiche le total des dépenses
     private TextView tvIncome; // Affiche le total des revenus
     private TextView tvBalance; // Affiche le solde (revenus - dépenses)
-    private double totalExpenses = 0.0; // Total des dépenses
-    private double totalIncome = 0.0; // Total des revenus
-    private DatabaseHelper dbHelper; // Helper pour interagir avec la base de données
+    private long totalExpenses = 0; // Total des dépenses en centimes
+    private long totalIncome = 0; // Total des revenus en centimes
+    private BudgetRepository repository; // Accès à la base de données en arrière-plan
+    private final BudgetRepository.TaskGroup tasks = new BudgetRepository.TaskGroup(); // Tâches annulées à la destruction
+    private InvalidationTracker.Subscription totalsSubscription; // Écritures dans la table totals, relues au retour à l'écran
 
     /**
      * Méthode appelée lors de la création de l'activité.
@@ -41,28 +46,32 @@ public class MainActivity extends AppCompatActivity {
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_main);
 
-        dbHelper = new DatabaseHelper(this); // Initialisation du DatabaseHelper
+        repository = BudgetRepository.getInstance(this); // Initialisation du repository
+        repository.rescheduleReminders(null); // Programmer l'alarme du prochain rappel en attente (ex. : après une migration)
 
         // Initialisation des vues
         tvExpenses = findViewById(R.id.tv_expenses);
         tvIncome = findViewById(R.id.tv_budget);
         tvBalance = findViewById(R.id.tv_balance);
 
-        // Réinitialiser les totaux à partir de la base de données
+        // Réinitialiser les totaux à partir de la base de données, puis à chaque écriture dans la table totals
         resetTotalsFromDatabase();
+        totalsSubscription = repository.getInvalidationTracker().subscribe(
+                new String[]{DatabaseHelper.TABLE_TOTALS}, changes -> resetTotalsFromDatabase());
 
         // Initialisation des boutons
         Button btnAdd = findViewById(R.id.button_add_transaction);
         Button btnChart = findViewById(R.id.button_view_graph);
         Button btnHistory = findViewById(R.id.button_view_history);
         Button btnManageCategories = findViewById(R.id.button_manage_categories);
+        Button btnImport = findViewById(R.id.button_import);
 
         // Gestion du clic sur le bouton "Ajouter une transaction"
         btnAdd.setOnClickListener(new View.OnClickListener() {
             @Override
             public void onClick(View v) {
                 Intent intent = new Intent(MainActivity.this, TransactionActivity.class);
-                startActivityForResult(intent, 1);
+                startActivityForResult(intent, REQUEST_ADD_TRANSACTION);
             }
         });
 
@@ -82,7 +91,6 @@ public class MainActivity extends AppCompatActivity {
             @Override
             public void onClick(View v) {
                 Intent intent = new Intent(MainActivity.this, HistoryActivity.class);
-                intent.putExtra("history", getTransactionHistory()); // Récupérer l'historique depuis la base de données
                 startActivity(intent);
             }
         });
@@ -95,128 +103,103 @@ public class MainActivity extends AppCompatActivity {
                 startActivity(intent);
             }
         });
-    }
 
-    /**
-     * Ajoute une transaction à la base de données.
-     *
-     * @param type           Le type de la transaction (exemple : "Revenu" ou "Dépense").
-     * @param amount         Le montant de la transaction.
-     * @param category       La catégorie de la transaction (exemple : "Nourriture", "Transport").
-     * @param date           La date de la transaction au format "dd/MM/yyyy".
-     * @param note           Une note ou description facultative de la transaction.
-     * @param isAlarmEnabled Indique si une alarme est activée pour cette transaction.
-     * @param alarmDate      La date de l'alarme au format "dd/MM/yyyy".
-     * @param alarmTime      L'heure de l'alarme au format "HH:mm".
-     */
-    private void addTransactionToDatabase(String type, double amount, String category, String date, String note, boolean isAlarmEnabled, String alarmDate, String alarmTime) {
-        SQLiteDatabase db = dbHelper.getWritableDatabase();
-        ContentValues values = new ContentValues();
-        values.put("type", type);
-        values.put("amount", amount);
-        values.put("category", category);
-        values.put("date", date);
-        values.put("note", note);
-        values.put("isAlarmEnabled", isAlarmEnabled ? 1 : 0); // Convertir boolean en int
-        values.put("alarmDate", alarmDate);
-        values.put("alarmTime", alarmTime);
-
-        db.insert("transactions", null, values);
-        db.close();
+        // Gestion du clic sur le bouton "Importer un relevé" (CSV ou OFX, via le sélecteur de documents)
+        btnImport.setOnClickListener(new View.OnClickListener() {
+            @Override
+            public void onClick(View v) {
+                Intent intent = new Intent(Intent.ACTION_OPEN_DOCUMENT);
+                intent.addCategory(Intent.CATEGORY_OPENABLE);
+                intent.setType("*/*");
+                intent.putExtra(Intent.EXTRA_MIME_TYPES, new String[]{"text/csv", "text/comma-separated-values",
+                        "text/plain", "application/x-ofx", "application/vnd.intu.qfx", "application/octet-stream"});
+                startActivityForResult(intent, REQUEST_IMPORT);
+            }
+        });
     }
 
     /**
      * Méthode appelée lorsqu'une activité lancée avec startActivityForResult retourne un résultat.
-     * Ajoute la transaction à la base de données et met à jour l'interface utilisateur.
+     * Lance l'import du relevé choisi. Une transaction ajoutée est déjà enregistrée par TransactionActivity :
+     * les totaux sont relus via l'abonnement aux écritures dans la table totals.
      *
      * @param requestCode Le code de requête passé à startActivityForResult.
      * @param resultCode  Le code de résultat retourné par l'activité enfant.
-     * @param data        L'intent contenant les données de la transaction.
+     * @param data        L'intent retourné (URI du document pour un import).
      */
     @Override
     protected void onActivityResult(int requestCode, int resultCode, Intent data) {
         super.onActivityResult(requestCode, resultCode, data);
-        if (requestCode == 1 && resultCode == RESULT_OK) {
-            String type = data.getStringExtra("type");
-            double amount = data.getDoubleExtra("amount", 0.0);
-            String category = data.getStringExtra("category");
-            String date = data.getStringExtra("date");
-            String note = data.getStringExtra("note");
-            boolean isAlarmEnabled = data.getBooleanExtra("isAlarmEnabled", false);
-            String alarmDate = data.getStringExtra("alarmDate");
-            String alarmTime = data.getStringExtra("alarmTime");
-
-            // Sauvegarder la transaction dans la base de données
-            addTransactionToDatabase(type, amount, category, date, note, isAlarmEnabled, alarmDate, alarmTime);
-
-            // Mettre à jour les totaux et l'interface utilisateur
-            if (type != null) {
-                if (type.equals("Revenu")) {
-                    totalIncome += amount;
-                } else if (type.equals("Dépense")) {
-                    totalExpenses += amount;
-                }
-            }
-
-            tvExpenses.setText(String.format("%.2f", totalExpenses));
-            tvIncome.setText(String.format("%.2f", totalIncome));
-            tvBalance.setText(String.format("%.2f", totalIncome - totalExpenses));
+        if (requestCode == REQUEST_IMPORT && resultCode == RESULT_OK && data != null && data.getData() != null) {
+            importStatement(data.getData());
         }
     }
 
     /**
-     * Récupère l'historique des transactions depuis la base de données.
+     * Importe un relevé bancaire en arrière-plan et affiche son bilan (les totaux sont relus via l'abonnement).
      *
-     * @return Une liste de chaînes représentant les transactions.
+     * @param uri L'URI du document choisi par l'utilisateur.
      */
-    private ArrayList<String> getTransactionHistory() {
-        ArrayList<String> history = new ArrayList<>();
-        SQLiteDatabase db = dbHelper.getReadableDatabase();
-        Cursor cursor = db.query("transactions", null, null, null, null, null, null);
-
-        if (cursor.moveToFirst()) {
-            do {
-                String type = cursor.getString(cursor.getColumnIndex("type"));
-                double amount = cursor.getDouble(cursor.getColumnIndex("amount"));
-                String category = cursor.getString(cursor.getColumnIndex("category"));
-                String date = cursor.getString(cursor.getColumnIndex("date"));
-                String note = cursor.getString(cursor.getColumnIndex("note"));
-                history.add(type + ": " + String.format("%.2f", amount) + " (" + date + ")");
-            } while (cursor.moveToNext());
-        }
-
-        cursor.close();
-        db.close();
-        return history;
+    private void importStatement(Uri uri) {
+        Toast.makeText(this, "Import en cours...", Toast.LENGTH_SHORT).show();
+        tasks.add(repository.importTransactions(getApplicationContext().getContentResolver(), uri, stats -> {
+            if (stats == null) {
+                Toast.makeText(this, "Impossible de lire le fichier", Toast.LENGTH_LONG).show();
+                return;
+            }
+            Toast.makeText(this, stats.getInserted() + " transactions importées, "
+                    + stats.getDuplicates() + " doublons ignorés, "
+                    + stats.getRejected() + " lignes rejetées ("
+                    + Math.round(stats.getRowsPerSecond()) + " lignes/s)", Toast.LENGTH_LONG).show();
+        }));
     }
 
     /**
      * Réinitialise les totaux des dépenses et des revenus en les chargeant depuis la base de données.
+     * Les totaux sont lus en arrière-plan dans la table totals, tenue à jour par des triggers SQLite.
      */
     private void resetTotalsFromDatabase() {
-        totalExpenses = 0.0;
-        totalIncome = 0.0;
-
-        Cursor cursor = dbHelper.getReadableDatabase().query("transactions", null, null, null, null, null, null);
-
-        if (cursor.moveToFirst()) {
-            do {
-                String type = cursor.getString(cursor.getColumnIndex("type"));
-                double amount = cursor.getDouble(cursor.getColumnIndex("amount"));
-
-                if (type.equals("Revenu")) {
-                    totalIncome += amount;
-                } else if (type.equals("Dépense")) {
-                    totalExpenses += amount;
-                }
-            } while (cursor.moveToNext());
-        }
+        tasks.add(repository.loadTotals(totals -> {
+            totalExpenses = totals.getExpenses();
+            totalIncome = totals.getIncome();
+
+            // Mettre à jour l'interface utilisateur (conversion des centimes uniquement à l'affichage)
+            tvExpenses.setText(Money.format(totalExpenses));
+            tvIncome.setText(Money.format(totalIncome));
+            tvBalance.setText(Money.format(totals.getBalance()));
+        }));
+    }
+
+    /**
+     * Méthode appelée lorsque l'activité redevient visible.
+     * Relit les totaux si une écriture a eu lieu pendant que l'activité était en pause.
+     */
+    @Override
+    protected void onResume() {
+        super.onResume();
+        totalsSubscription.resume();
+        // Générer les transactions répétées échues depuis la dernière ouverture ; les totaux suivent via l'abonnement
+        repository.materializeRecurrences(null);
+    }
 
-        cursor.close();
+    /**
+     * Méthode appelée lorsque l'activité n'est plus au premier plan.
+     * Les écritures sont accumulées jusqu'au retour à l'écran.
+     */
+    @Override
+    protected void onPause() {
+        totalsSubscription.pause();
+        super.onPause();
+    }
 
-        // Mettre à jour l'interface utilisateur
-        tvExpenses.setText(String.format("%.2f", totalExpenses));
-        tvIncome.setText(String.format("%.2f", totalIncome));
-        tvBalance.setText(String.format("%.2f", totalIncome - totalExpenses));
+    /**
+     * Méthode appelée lors de la destruction de l'activité.
+     * Annule les chargements en cours pour ne pas livrer de résultat à une activité détruite.
+     */
+    @Override
+    protected void onDestroy() {
+        totalsSubscription.close();
+        tasks.cancelAll();
+        super.onDestroy();
     }
 }
\ No newline at end of file
@@ -10,22 +10,25 @@ import androidx.appcompat.app.AppCompatActivity;
 import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 
-import java.util.ArrayList;
-
+import ensa.application01.app_budget.DataBase.BudgetRepository;
 import ensa.application01.app_budget.DataBase.DatabaseHelper;
+import ensa.application01.app_budget.DataBase.InvalidationTracker;
 import ensa.application01.app_budget.adapter.CategoryAdapter;
 
 /**
  * ManageCategoriesActivity est une activité permettant de gérer les catégories de transactions.
- * Elle permet d'ajouter de nouvelles catégories et d'afficher la liste des catégories existantes.
+ * Elle permet d'ajouter de nouvelles catégories, d'afficher la liste des catégories existantes
+ * et de définir leur limite mensuelle de dépenses.
  */
 public class ManageCategoriesActivity extends AppCompatActivity {
 
-    private DatabaseHelper dbHelper; // Helper pour interagir avec la base de données
+    private BudgetRepository repository; // Accès à la base de données en arrière-plan
+    private final BudgetRepository.TaskGroup tasks = new BudgetRepository.TaskGroup(); // Tâches annulées à la destruction
     private EditText etCategoryName; // Champ de saisie pour le nom de la catégorie
     private RecyclerView recyclerViewCategories; // RecyclerView pour afficher les catégories
     private CategoryAdapter adapter; // Adapteur pour le RecyclerView
-    private ArrayList<String> categories; // Liste des catégories
+    private InvalidationTracker.Subscription categoriesSubscription; // Écritures dans la table categories
+    private InvalidationTracker.Subscription limitsSubscription; // Écritures dans la table category_limits
 
     /**
      * Méthode appelée lors de la création de l'activité.
@@ -38,24 +41,26 @@ public class ManageCategoriesActivity extends AppCompatActivity {
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_manage_categories);
 
-        // Initialisation du DatabaseHelper
-        dbHelper = new DatabaseHelper(this);
+        // Initialisation du repository
+        repository = BudgetRepository.getInstance(this);
 
         // Liaison des vues aux IDs
         etCategoryName = findViewById(R.id.et_category_name);
         recyclerViewCategories = findViewById(R.id.recyclerView_categories);
         Button btnAddCategory = findViewById(R.id.btn_add_category);
 
-        // Initialisation de la liste des catégories
-        categories = new ArrayList<>();
-
-        // Configuration du RecyclerView
+        // Configuration du RecyclerView (les catégories sont fournies une fois chargées)
         recyclerViewCategories.setLayoutManager(new LinearLayoutManager(this));
-        adapter = new CategoryAdapter(this, categories, dbHelper, this::loadCategories);
+        adapter = new CategoryAdapter(this, null, repository, null); // La liste est rechargée via l'abonnement
         recyclerViewCategories.setAdapter(adapter);
 
-        // Charger les catégories existantes
+        // Charger les catégories existantes, puis les recharger après chaque ajout ou suppression
         loadCategories();
+        categoriesSubscription = repository.getInvalidationTracker().subscribe(
+                new String[]{DatabaseHelper.TABLE_CATEGORIES}, changes -> loadCategories());
+        loadLimits();
+        limitsSubscription = repository.getInvalidationTracker().subscribe(
+                new String[]{DatabaseHelper.TABLE_CATEGORY_LIMITS}, changes -> loadLimits());
 
         // Gestion du clic sur le bouton "Ajouter une catégorie"
         btnAddCategory.setOnClickListener(new View.OnClickListener() {
@@ -64,14 +69,14 @@ public class ManageCategoriesActivity extends AppCompatActivity {
                 String categoryName = etCategoryName.getText().toString().trim();
                 if (!categoryName.isEmpty()) {
                     // Ajouter la catégorie à la base de données
-                    long result = dbHelper.addCategory(categoryName);
-                    if (result != -1) {
-                        Toast.makeText(ManageCategoriesActivity.this, "Catégorie ajoutée", Toast.LENGTH_SHORT).show();
-                        loadCategories(); // Recharger la liste des catégories
-                        etCategoryName.setText(""); // Vider le champ de saisie
-                    } else {
-                        Toast.makeText(ManageCategoriesActivity.this, "Erreur : Catégorie déjà existante", Toast.LENGTH_SHORT).show();
-                    }
+                    tasks.add(repository.addCategory(categoryName, result -> {
+                        if (result != -1) {
+                            Toast.makeText(ManageCategoriesActivity.this, "Catégorie ajoutée", Toast.LENGTH_SHORT).show();
+                            etCategoryName.setText(""); // Vider le champ de saisie
+                        } else {
+                            Toast.makeText(ManageCategoriesActivity.this, "Erreur : Catégorie déjà existante", Toast.LENGTH_SHORT).show();
+                        }
+                    }));
                 } else {
                     Toast.makeText(ManageCategoriesActivity.this, "Veuillez entrer un nom de catégorie", Toast.LENGTH_SHORT).show();
                 }
@@ -80,11 +85,50 @@ public class ManageCategoriesActivity extends AppCompatActivity {
     }
 
     /**
-     * Charge les catégories depuis la base de données et met à jour l'adaptateur du RecyclerView.
+     * Charge les catégories depuis la base de données (en arrière-plan) et met à jour l'adaptateur du RecyclerView.
      */
     private void loadCategories() {
-        categories.clear(); // Vider la liste actuelle
-        categories.addAll(dbHelper.getAllCategoriesAsList()); // Ajouter les catégories depuis la base de données
-        adapter.notifyDataSetChanged(); // Notifier l'adaptateur du changement
+        // Le dictionnaire partagé est relu uniquement après une écriture dans la table categories
+        tasks.add(repository.loadCategoryDictionary(adapter::setCategories));
+    }
+
+    /**
+     * Charge les limites mensuelles des catégories (en arrière-plan) et met à jour l'adaptateur.
+     */
+    private void loadLimits() {
+        tasks.add(repository.loadCategoryLimits(adapter::setLimits));
+    }
+
+    /**
+     * Méthode appelée lorsque l'activité reprend.
+     * Recharge les catégories si elles ont été modifiées pendant la pause (par exemple par un import).
+     */
+    @Override
+    protected void onResume() {
+        super.onResume();
+        categoriesSubscription.resume();
+        limitsSubscription.resume();
+    }
+
+    /**
+     * Méthode appelée lorsque l'activité n'est plus au premier plan.
+     */
+    @Override
+    protected void onPause() {
+        categoriesSubscription.pause();
+        limitsSubscription.pause();
+        super.onPause();
+    }
+
+    /**
+     * Méthode appelée lors de la destruction de l'activité.
+     * Annule les chargements en cours pour ne pas livrer de résultat à une activité détruite.
+     */
+    @Override
+    protected void onDestroy() {
+        categoriesSubscription.close();
+        limitsSubscription.close();
+        tasks.cancelAll();
+        super.onDestroy();
     }
 }
\ No newline at end of file
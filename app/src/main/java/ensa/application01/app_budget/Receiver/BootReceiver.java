@@ -0,0 +1,31 @@
+package ensa.application01.app_budget.Receiver;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+
+import ensa.application01.app_budget.DataBase.BudgetRepository;
+
+/**
+ * BootReceiver reprogramme l'alarme des rappels après un redémarrage de l'appareil ou une mise à jour
+ * de l'application, qui effacent les alarmes système. Les rappels eux-mêmes sont conservés dans la
+ * table reminders.
+ */
+public class BootReceiver extends BroadcastReceiver {
+
+    /**
+     * Méthode appelée au démarrage de l'appareil ou après une mise à jour de l'application.
+     *
+     * @param context Le contexte de l'application.
+     * @param intent  L'intent reçu (BOOT_COMPLETED ou MY_PACKAGE_REPLACED).
+     */
+    @Override
+    public void onReceive(Context context, Intent intent) {
+        String action = intent.getAction();
+        if (!Intent.ACTION_BOOT_COMPLETED.equals(action) && !Intent.ACTION_MY_PACKAGE_REPLACED.equals(action)) {
+            return;
+        }
+        PendingResult pendingResult = goAsync();
+        BudgetRepository.getInstance(context).rescheduleReminders(pendingResult::finish);
+    }
+}
@@ -0,0 +1,216 @@
+package ensa.application01.app_budget.Receiver;
+
+import android.app.AlarmManager;
+import android.app.Notification;
+import android.app.NotificationChannel;
+import android.app.NotificationManager;
+import android.app.PendingIntent;
+import android.content.Context;
+import android.content.Intent;
+import android.database.Cursor;
+import android.os.Build;
+import android.util.Log;
+
+import androidx.core.app.NotificationCompat;
+
+import java.util.Calendar;
+
+import ensa.application01.app_budget.DataBase.DatabaseHelper;
+import ensa.application01.app_budget.R;
+
+/**
+ * ReminderScheduler gère la file persistante des rappels (table reminders) et l'unique alarme système
+ * qui la réveille. Une seule alarme est programmée à la fois, pour le rappel le plus proche ; à son
+ * déclenchement, tous les rappels échus dans la fenêtre de regroupement sont envoyés en une seule
+ * notification groupée, puis l'alarme est reprogrammée pour le rappel suivant.
+ * Les méthodes accèdent à la base de données : elles doivent être appelées hors du thread principal.
+ */
+public class ReminderScheduler {
+
+    private static final String TAG = "ReminderScheduler";
+    public static final String CHANNEL_ID = "alarm_channel"; // Canal des notifications de rappel
+    static final long COALESCE_WINDOW_MS = 5 * 60 * 1000L; // Les rappels échus dans cette fenêtre partent ensemble
+    private static final int ALARM_REQUEST_CODE = 0; // Code unique : une nouvelle programmation remplace la précédente
+    private static final int MAX_LINES = 5; // Lignes détaillées dans une notification groupée
+
+    private static volatile boolean channelCreated; // Vrai une fois le canal créé dans ce processus
+
+    private final Context context; // Contexte de l'application
+    private final DatabaseHelper dbHelper; // Accès à la table reminders
+
+    /**
+     * Constructeur de ReminderScheduler.
+     *
+     * @param context Un contexte quelconque (seul le contexte de l'application est conservé).
+     */
+    public ReminderScheduler(Context context) {
+        this.context = context.getApplicationContext();
+        this.dbHelper = DatabaseHelper.getInstance(context);
+    }
+
+    /**
+     * Convertit la date et l'heure saisies pour une alarme en heure de déclenchement.
+     *
+     * @param alarmDate La date au format "dd/MM/yyyy".
+     * @param alarmTime L'heure au format "HH:mm".
+     * @return L'heure de déclenchement (ms depuis le 01/01/1970), ou -1 si la saisie est invalide.
+     */
+    public static long fireTimeOf(String alarmDate, String alarmTime) {
+        try {
+            String[] dateParts = alarmDate.split("/");
+            String[] timeParts = alarmTime.split(":");
+            Calendar calendar = Calendar.getInstance();
+            calendar.clear();
+            calendar.set(Integer.parseInt(dateParts[2]), Integer.parseInt(dateParts[1]) - 1, Integer.parseInt(dateParts[0]),
+                    Integer.parseInt(timeParts[0]), Integer.parseInt(timeParts[1]), 0);
+            return calendar.getTimeInMillis();
+        } catch (RuntimeException e) {
+            Log.e(TAG, "Date ou heure d'alarme invalide : " + alarmDate + " " + alarmTime, e);
+            return -1;
+        }
+    }
+
+    /**
+     * Ajoute un rappel à la file et reprogramme l'alarme s'il devient le plus proche.
+     *
+     * @param transactionId La transaction rappelée.
+     * @param fireAt        L'heure de déclenchement (ms depuis le 01/01/1970).
+     * @param title         Le titre de la notification.
+     * @param message       Le texte de la notification.
+     * @return L'id du rappel, ou -1 en cas d'erreur.
+     */
+    public long add(long transactionId, long fireAt, String title, String message) {
+        long id = dbHelper.addReminder(transactionId, fireAt, title, message);
+        if (id != -1) {
+            reschedule();
+        }
+        return id;
+    }
+
+    /**
+     * Programme l'unique alarme système pour le rappel le plus proche, ou l'annule si la file est vide.
+     * Appelée après chaque modification de la file et au démarrage de l'appareil.
+     */
+    public void reschedule() {
+        AlarmManager alarmManager = (AlarmManager) context.getSystemService(Context.ALARM_SERVICE);
+        if (alarmManager == null) {
+            Log.e(TAG, "Erreur : AlarmManager est null");
+            return;
+        }
+        PendingIntent pendingIntent = alarmIntent();
+        long next = dbHelper.getNextReminderTime();
+        if (next == -1) {
+            alarmManager.cancel(pendingIntent);
+            Log.d(TAG, "Aucun rappel en attente, alarme annulée");
+            return;
+        }
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.S && !alarmManager.canScheduleExactAlarms()) {
+            // Alarmes exactes refusées : le système choisit l'instant dans la fenêtre de regroupement
+            alarmManager.setWindow(AlarmManager.RTC_WAKEUP, next, COALESCE_WINDOW_MS, pendingIntent);
+        } else {
+            alarmManager.setExact(AlarmManager.RTC_WAKEUP, next, pendingIntent);
+        }
+        Log.d(TAG, "Prochain rappel programmé à " + next);
+    }
+
+    /**
+     * Envoie en une seule notification tous les rappels échus dans la fenêtre de regroupement,
+     * les retire de la file puis reprogramme l'alarme pour le rappel suivant.
+     *
+     * @return Le nombre de rappels notifiés.
+     */
+    public int deliverDue() {
+        long upTo = System.currentTimeMillis() + COALESCE_WINDOW_MS;
+        int count = 0;
+        long maxId = -1;
+        String firstTitle = null;
+        String firstMessage = null;
+        NotificationCompat.InboxStyle inboxStyle = new NotificationCompat.InboxStyle();
+
+        Cursor cursor = dbHelper.getRemindersDueBefore(upTo);
+        if (cursor != null) {
+            try {
+                int idIndex = cursor.getColumnIndexOrThrow(DatabaseHelper.COLUMN_ID);
+                int titleIndex = cursor.getColumnIndexOrThrow(DatabaseHelper.COLUMN_TITLE);
+                int messageIndex = cursor.getColumnIndexOrThrow(DatabaseHelper.COLUMN_MESSAGE);
+                while (cursor.moveToNext()) {
+                    maxId = Math.max(maxId, cursor.getLong(idIndex));
+                    String message = cursor.getString(messageIndex);
+                    if (count == 0) {
+                        firstTitle = cursor.getString(titleIndex);
+                        firstMessage = message;
+                    }
+                    if (count < MAX_LINES) {
+                        inboxStyle.addLine(message);
+                    }
+                    count++;
+                }
+            } finally {
+                cursor.close();
+            }
+        }
+
+        if (count > 0) {
+            showNotification(count, maxId, firstTitle, firstMessage, inboxStyle);
+            dbHelper.deleteRemindersDueBefore(upTo, maxId);
+        }
+        reschedule();
+        return count;
+    }
+
+    // Affiche un rappel seul, ou un résumé groupé lorsque plusieurs rappels sont échus ensemble
+    private void showNotification(int count, long maxId, String firstTitle, String firstMessage, NotificationCompat.InboxStyle inboxStyle) {
+        NotificationManager notificationManager = (NotificationManager) context.getSystemService(Context.NOTIFICATION_SERVICE);
+        if (notificationManager == null) {
+            return;
+        }
+        ensureChannel(notificationManager);
+
+        NotificationCompat.Builder builder = new NotificationCompat.Builder(context, CHANNEL_ID)
+                .setSmallIcon(R.drawable.ic_alarm) // Icône de la notification
+                .setPriority(NotificationCompat.PRIORITY_DEFAULT); // Priorité de la notification
+        if (count == 1) {
+            builder.setContentTitle(firstTitle).setContentText(firstMessage);
+        } else {
+            if (count > MAX_LINES) {
+                inboxStyle.setSummaryText("+" + (count - MAX_LINES) + " autres");
+            }
+            builder.setContentTitle(count + " rappels de transaction")
+                    .setContentText(firstMessage)
+                    .setNumber(count)
+                    .setStyle(inboxStyle); // Une ligne par rappel du lot
+        }
+        Notification notification = builder.build();
+
+        // L'id du dernier rappel notifié distingue les lots sans jamais remplacer un lot précédent
+        notificationManager.notify((int) maxId, notification);
+    }
+
+    /**
+     * Crée le canal des notifications de rappel (Android 8.0 et supérieur), une seule fois par processus.
+     *
+     * @param notificationManager Le gestionnaire des notifications.
+     */
+    private static void ensureChannel(NotificationManager notificationManager) {
+        if (channelCreated || Build.VERSION.SDK_INT < Build.VERSION_CODES.O) {
+            return;
+        }
+        synchronized (ReminderScheduler.class) {
+            if (!channelCreated && notificationManager.getNotificationChannel(CHANNEL_ID) == null) {
+                NotificationChannel channel = new NotificationChannel(CHANNEL_ID, "Alarms", NotificationManager.IMPORTANCE_DEFAULT);
+                notificationManager.createNotificationChannel(channel);
+            }
+            channelCreated = true;
+        }
+    }
+
+    // PendingIntent de l'unique alarme : même code et même intent, donc chaque programmation remplace la précédente
+    private PendingIntent alarmIntent() {
+        Intent intent = new Intent(context, AlarmReceiver.class);
+        int flags = PendingIntent.FLAG_UPDATE_CURRENT;
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.M) {
+            flags |= PendingIntent.FLAG_IMMUTABLE;
+        }
+        return PendingIntent.getBroadcast(context, ALARM_REQUEST_CODE, intent, flags);
+    }
+}
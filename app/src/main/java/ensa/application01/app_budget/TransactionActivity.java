@@ -1,36 +1,40 @@
 package ensa.application01.app_budget;
 
-import android.app.AlarmManager;
 import android.app.AlertDialog;
-import android.app.PendingIntent;
-import android.content.ContentValues;
-import android.content.Context;
 import android.content.Intent;
 import android.os.Bundle;
 import android.util.Log;
 import android.view.View;
 import android.widget.Button;
 import android.widget.CheckBox;
+import android.widget.AdapterView;
+import android.widget.ArrayAdapter;
 import android.widget.EditText;
 import android.widget.LinearLayout;
 import android.widget.RadioButton;
 import android.widget.RadioGroup;
+import android.widget.Spinner;
 import android.widget.Toast;
 
 import androidx.appcompat.app.AppCompatActivity;
 
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.List;
 import java.util.Locale;
 
-import ensa.application01.app_budget.DataBase.DatabaseHelper;
-import ensa.application01.app_budget.Receiver.AlarmReceiver;
+import ensa.application01.app_budget.DataBase.BudgetRepository;
+import ensa.application01.app_budget.DataBase.CategoryDictionary;
+import ensa.application01.app_budget.module.RecurrenceRule;
+import ensa.application01.app_budget.utils.DateCodec;
+import ensa.application01.app_budget.utils.Money;
 
 /**
  * TransactionActivity est une activité permettant à l'utilisateur d'ajouter une nouvelle transaction.
  * Elle gère la saisie des informations de la transaction (montant, type, catégorie, date, note)
- * et permet de programmer une alarme pour les transactions récurrentes.
+ * et permet de programmer une alarme pour les transactions récurrentes, ou de répéter la transaction
+ * (chaque jour, semaine, mois ou année) jusqu'à une date de fin ou un nombre d'occurrences.
  */
 public class TransactionActivity extends AppCompatActivity {
 
@@ -43,9 +47,19 @@ public class TransactionActivity extends AppCompatActivity {
     private EditText etAlarmTime; // Champ de saisie pour l'heure de l'alarme
     private Button btnSave; // Bouton pour sauvegarder la transaction
     private EditText etCategory; // Champ de saisie pour la catégorie
-    private DatabaseHelper dbHelper; // Helper pour interagir avec la base de données
-    private List<String> categories; // Liste des catégories disponibles
+    private BudgetRepository repository; // Accès à la base de données en arrière-plan
+    private final BudgetRepository.TaskGroup tasks = new BudgetRepository.TaskGroup(); // Tâches annulées à la destruction
+    private List<String> categories = new ArrayList<>(); // Liste des catégories disponibles
+    private CategoryDictionary categoryDictionary; // Correspondance nom ↔ id des catégories
     private String selectedCategory = ""; // Catégorie sélectionnée
+    private Spinner spinnerRecurrence; // Sélecteur de la fréquence de répétition
+    private EditText etRecurrenceEnd; // Champ de saisie pour la date de fin de la répétition
+    private EditText etRecurrenceCount; // Champ de saisie pour le nombre d'occurrences
+
+    // Choix de répétition proposés, et fréquence correspondante (null : transaction unique)
+    private static final String[] RECURRENCE_LABELS = {"Ne pas répéter", "Chaque jour", "Chaque semaine", "Chaque mois", "Chaque année"};
+    private static final RecurrenceRule.Frequency[] RECURRENCE_FREQUENCIES = {null, RecurrenceRule.Frequency.DAILY,
+            RecurrenceRule.Frequency.WEEKLY, RecurrenceRule.Frequency.MONTHLY, RecurrenceRule.Frequency.YEARLY};
 
     /**
      * Méthode appelée lors de la création de l'activité.
@@ -69,10 +83,18 @@ public class TransactionActivity extends AppCompatActivity {
         btnSave = findViewById(R.id.btn_save);
         etCategory = findViewById(R.id.et_category);
 
+        spinnerRecurrence = findViewById(R.id.spinner_recurrence);
+        etRecurrenceEnd = findViewById(R.id.et_recurrence_end);
+        etRecurrenceCount = findViewById(R.id.et_recurrence_count);
+
         LinearLayout alarmFields = findViewById(R.id.alarm_fields);
+        LinearLayout recurrenceFields = findViewById(R.id.recurrence_fields);
 
-        dbHelper = new DatabaseHelper(this);
-        categories = dbHelper.getAllCategoriesAsList();
+        repository = BudgetRepository.getInstance(this);
+        tasks.add(repository.loadCategoryDictionary(result -> {
+            categoryDictionary = result;
+            categories = result.getNames();
+        }));
 
         // Définir la date actuelle par défaut
         etDate.setText(getCurrentDate());
@@ -91,6 +113,21 @@ public class TransactionActivity extends AppCompatActivity {
             }
         });
 
+        // Choix de la répétition : les limites ne sont proposées que pour une transaction répétée
+        ArrayAdapter<String> recurrenceAdapter = new ArrayAdapter<>(this, android.R.layout.simple_spinner_item, RECURRENCE_LABELS);
+        recurrenceAdapter.setDropDownViewResource(android.R.layout.simple_spinner_dropdown_item);
+        spinnerRecurrence.setAdapter(recurrenceAdapter);
+        spinnerRecurrence.setOnItemSelectedListener(new AdapterView.OnItemSelectedListener() {
+            @Override
+            public void onItemSelected(AdapterView<?> parent, View view, int position, long id) {
+                recurrenceFields.setVisibility(RECURRENCE_FREQUENCIES[position] != null ? View.VISIBLE : View.GONE);
+            }
+
+            @Override
+            public void onNothingSelected(AdapterView<?> parent) {
+            }
+        });
+
         // Gestion du clic sur le bouton "Sauvegarder"
         btnSave.setOnClickListener(v -> {
             Log.d("TransactionActivity", "Bouton Sauvegarder cliqué");
@@ -109,14 +146,14 @@ public class TransactionActivity extends AppCompatActivity {
 
             // Validation du format de la date de transaction
             String transactionDate = etDate.getText().toString();
-            if (!isValidDateFormat(transactionDate)) {
+            if (!DateCodec.hasDateFormat(transactionDate)) {
                 Toast.makeText(this, "Format de date invalide. Utilisez dd/MM/yyyy.", Toast.LENGTH_SHORT).show();
                 btnSave.setEnabled(true);
                 return;
             }
 
             // Validation de la date réelle de transaction
-            if (!isDateValid(transactionDate)) {
+            if (!DateCodec.isValid(transactionDate)) {
                 Toast.makeText(this, "Date de transaction invalide. Veuillez entrer une date valide.", Toast.LENGTH_SHORT).show();
                 btnSave.setEnabled(true);
                 return;
@@ -128,14 +165,14 @@ public class TransactionActivity extends AppCompatActivity {
 
             if (isAlarmEnabled) {
                 // Validation du format de la date d'alarme
-                if (!isValidDateFormat(alarmDate)) {
+                if (!DateCodec.hasDateFormat(alarmDate)) {
                     Toast.makeText(this, "Format de date d'alarme invalide. Utilisez dd/MM/yyyy.", Toast.LENGTH_SHORT).show();
                     btnSave.setEnabled(true);
                     return;
                 }
 
                 // Validation de la date réelle d'alarme
-                if (!isDateValid(alarmDate)) {
+                if (!DateCodec.isValid(alarmDate)) {
                     Toast.makeText(this, "Date d'alarme invalide. Veuillez entrer une date valide.", Toast.LENGTH_SHORT).show();
                     btnSave.setEnabled(true);
                     return;
@@ -154,10 +191,9 @@ public class TransactionActivity extends AppCompatActivity {
                 }
             }
 
-            double amount;
-            try {
-                amount = Double.parseDouble(etAmount.getText().toString());
-            } catch (NumberFormatException e) {
+            // Montant converti en centimes sans passer par un double
+            long amountMinor = Money.parse(etAmount.getText().toString());
+            if (amountMinor == Money.INVALID) {
                 Toast.makeText(TransactionActivity.this, "Veuillez entrer un montant valide.", Toast.LENGTH_SHORT).show();
                 btnSave.setEnabled(true);
                 return;
@@ -167,45 +203,63 @@ public class TransactionActivity extends AppCompatActivity {
             RadioButton selectedRadioButton = findViewById(selectedId);
             String type = selectedRadioButton.getText().toString();
 
-            if (isAlarmEnabled) {
-                scheduleAlarm(alarmDate, alarmTime, etNote.getText().toString());
-            }
+            String date = etDate.getText().toString();
+            String note = etNote.getText().toString();
+            long categoryId = categoryDictionary.getId(selectedCategory); // Chargé avant que la catégorie puisse être choisie
 
-            ContentValues values = new ContentValues();
-            values.put("type", type);
-            values.put("amount", amount);
-            values.put("category", selectedCategory);
-            values.put("date", etDate.getText().toString());
-            values.put("note", etNote.getText().toString());
-            values.put("isAlarmEnabled", isAlarmEnabled ? 1 : 0);
-            values.put("alarmDate", alarmDate);
-            values.put("alarmTime", alarmTime);
-
-            long newRowId = dbHelper.getWritableDatabase().insert("transactions", null, values);
-
-            if (newRowId == -1) {
-                Log.e("TransactionActivity", "Erreur lors de l'insertion de la transaction");
-                Toast.makeText(this, "Erreur lors de la sauvegarde", Toast.LENGTH_SHORT).show();
-            } else {
-                Log.d("TransactionActivity", "Transaction insérée avec succès, ID: " + newRowId);
-                Toast.makeText(this, "Transaction sauvegardée", Toast.LENGTH_SHORT).show();
+            // Règle de répétition éventuelle, dont la première occurrence est la transaction saisie
+            RecurrenceRule.Frequency frequency = RECURRENCE_FREQUENCIES[spinnerRecurrence.getSelectedItemPosition()];
+            RecurrenceRule recurrenceRule = null;
+            if (frequency != null) {
+                recurrenceRule = buildRecurrenceRule(type, amountMinor, categoryId, date, note, frequency);
+                if (recurrenceRule == null) {
+                    btnSave.setEnabled(true);
+                    return;
+                }
             }
+            RecurrenceRule rule = recurrenceRule;
+
+            // Si l'alarme est activée, le repository ajoute le rappel à la file des rappels avec la transaction
+            tasks.add(repository.addTransaction(type, amountMinor, categoryId, date, note, isAlarmEnabled, alarmDate, alarmTime, newRowId -> {
+                if (newRowId == -1) {
+                    Log.e("TransactionActivity", "Erreur lors de l'insertion de la transaction");
+                    Toast.makeText(this, "Erreur lors de la sauvegarde", Toast.LENGTH_SHORT).show();
+                } else {
+                    Log.d("TransactionActivity", "Transaction insérée avec succès, ID: " + newRowId);
+                    Toast.makeText(this, "Transaction sauvegardée", Toast.LENGTH_SHORT).show();
+                    if (rule != null) {
+                        // Hors du groupe de tâches : la règle doit être enregistrée même après la fermeture de l'activité.
+                        // Sa première occurrence, déjà insérée, est ignorée grâce à la contrainte UNIQUE
+                        repository.addRecurrenceRule(rule, null);
+                    }
+                }
 
-            Intent resultIntent = new Intent();
-            resultIntent.putExtra("type", type);
-            resultIntent.putExtra("amount", amount);
-            resultIntent.putExtra("category", selectedCategory);
-            resultIntent.putExtra("date", etDate.getText().toString());
-            resultIntent.putExtra("note", etNote.getText().toString());
-            resultIntent.putExtra("isAlarmEnabled", isAlarmEnabled);
-            resultIntent.putExtra("alarmDate", alarmDate);
-            resultIntent.putExtra("alarmTime", alarmTime);
-
-            setResult(RESULT_OK, resultIntent);
-            finish();
+                Intent resultIntent = new Intent();
+                resultIntent.putExtra("type", type);
+                resultIntent.putExtra("amountMinor", amountMinor);
+                resultIntent.putExtra("category", selectedCategory);
+                resultIntent.putExtra("date", date);
+                resultIntent.putExtra("note", note);
+                resultIntent.putExtra("isAlarmEnabled", isAlarmEnabled);
+                resultIntent.putExtra("alarmDate", alarmDate);
+                resultIntent.putExtra("alarmTime", alarmTime);
+
+                setResult(RESULT_OK, resultIntent);
+                finish();
+            }));
         });
     }
 
+    /**
+     * Méthode appelée lors de la destruction de l'activité.
+     * Annule les chargements en cours pour ne pas livrer de résultat à une activité détruite.
+     */
+    @Override
+    protected void onDestroy() {
+        tasks.cancelAll();
+        super.onDestroy();
+    }
+
     /**
      * Retourne la date actuelle au format "dd/MM/yyyy".
      *
@@ -260,68 +314,44 @@ public class TransactionActivity extends AppCompatActivity {
     }
 
     /**
-     * Programme une alarme pour la transaction.
+     * Construit la règle de répétition à partir des limites saisies, en affichant un message si elles sont invalides.
      *
-     * @param alarmDate La date de l'alarme au format "dd/MM/yyyy".
-     * @param alarmTime L'heure de l'alarme au format "HH:mm".
-     * @param note      La note associée à la transaction.
+     * @param type        Le type de la transaction.
+     * @param amountMinor Le montant en centimes.
+     * @param categoryId  L'id de la catégorie.
+     * @param date        La date de la première occurrence au format "dd/MM/yyyy".
+     * @param note        La note de la transaction.
+     * @param frequency   La fréquence de répétition.
+     * @return La règle, ou null si une limite est invalide.
      */
-    private void scheduleAlarm(String alarmDate, String alarmTime, String note) {
-        Calendar calendar = Calendar.getInstance();
-        String[] dateParts = alarmDate.split("/");
-        String[] timeParts = alarmTime.split(":");
-
-        calendar.set(Calendar.DAY_OF_MONTH, Integer.parseInt(dateParts[0]));
-        calendar.set(Calendar.MONTH, Integer.parseInt(dateParts[1]) - 1);
-        calendar.set(Calendar.YEAR, Integer.parseInt(dateParts[2]));
-        calendar.set(Calendar.HOUR_OF_DAY, Integer.parseInt(timeParts[0]));
-        calendar.set(Calendar.MINUTE, Integer.parseInt(timeParts[1]));
-        calendar.set(Calendar.SECOND, 0);
-
-        long alarmTimeInMillis = calendar.getTimeInMillis();
-
-        Intent intent = new Intent(this, AlarmReceiver.class);
-        intent.putExtra("alarmTitle", "Rappel de transaction");
-        intent.putExtra("alarmMessage", note);
-
-        int requestCode = (int) System.currentTimeMillis(); // ID unique basé sur l'horodatage
-        PendingIntent pendingIntent = PendingIntent.getBroadcast(this, requestCode, intent, PendingIntent.FLAG_UPDATE_CURRENT);
-
-        AlarmManager alarmManager = (AlarmManager) getSystemService(Context.ALARM_SERVICE);
-        if (alarmManager != null) {
-            alarmManager.setExact(AlarmManager.RTC_WAKEUP, alarmTimeInMillis, pendingIntent);
-            Log.d("TransactionActivity", "Alarme programmée avec succès pour : " + alarmDate + " " + alarmTime);
-        } else {
-            Log.e("TransactionActivity", "Erreur : AlarmManager est null");
+    private RecurrenceRule buildRecurrenceRule(String type, long amountMinor, long categoryId, String date, String note,
+                                               RecurrenceRule.Frequency frequency) {
+        int startDay = DateCodec.parse(date);
+
+        int endDay = DateCodec.INVALID_DAY;
+        String endDate = etRecurrenceEnd.getText().toString().trim();
+        if (!endDate.isEmpty()) {
+            endDay = DateCodec.parse(endDate);
+            if (endDay == DateCodec.INVALID_DAY || endDay < startDay) {
+                Toast.makeText(this, "Date de fin invalide. Utilisez dd/MM/yyyy, après la date de la transaction.", Toast.LENGTH_SHORT).show();
+                return null;
+            }
         }
-    }
-
-    /**
-     * Vérifie si une date est au format valide "dd/MM/yyyy".
-     *
-     * @param date La date à valider.
-     * @return `true` si la date est au format valide, sinon `false`.
-     */
-    private boolean isValidDateFormat(String date) {
-        String regex = "^(0[1-9]|[12][0-9]|3[01])/(0[1-9]|1[012])/(19|20)\\d\\d$";
-        return date.matches(regex);
-    }
-
-    /**
-     * Vérifie si une date est valide (existe dans le calendrier).
-     *
-     * @param date La date à valider.
-     * @return `true` si la date est valide, sinon `false`.
-     */
-    private boolean isDateValid(String date) {
-        SimpleDateFormat dateFormat = new SimpleDateFormat("dd/MM/yyyy", Locale.getDefault());
-        dateFormat.setLenient(false); // Désactiver la tolérance pour des dates invalides
 
-        try {
-            dateFormat.parse(date); // Tenter de parser la date
-            return true; // La date est valide
-        } catch (Exception e) {
-            return false; // La date est invalide
+        int maxCount = RecurrenceRule.NO_MAX_COUNT;
+        String count = etRecurrenceCount.getText().toString().trim();
+        if (!count.isEmpty()) {
+            try {
+                maxCount = Integer.parseInt(count);
+            } catch (NumberFormatException e) {
+                maxCount = -1;
+            }
+            if (maxCount < 1) {
+                Toast.makeText(this, "Nombre d'occurrences invalide.", Toast.LENGTH_SHORT).show();
+                return null;
+            }
         }
+
+        return new RecurrenceRule(type, amountMinor, categoryId, note, frequency, startDay, endDay, maxCount);
     }
 }
\ No newline at end of file
@@ -6,43 +6,70 @@ import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
 import android.widget.Button;
+import android.widget.EditText;
 import android.widget.TextView;
 import android.widget.Toast;
 
 import androidx.annotation.NonNull;
 import androidx.recyclerview.widget.RecyclerView;
 
-import java.util.List;
+import java.util.Collections;
+import java.util.Map;
 
-import ensa.application01.app_budget.DataBase.DatabaseHelper;
+import ensa.application01.app_budget.DataBase.BudgetRepository;
+import ensa.application01.app_budget.DataBase.CategoryDictionary;
 import ensa.application01.app_budget.R;
+import ensa.application01.app_budget.module.BudgetLimit;
+import ensa.application01.app_budget.utils.Money;
 
 /**
  * CategoryAdapter est un adapteur pour afficher une liste de catégories dans un RecyclerView.
- * Il permet également de supprimer des catégories via un bouton de suppression.
+ * Il permet également de supprimer des catégories via un bouton de suppression,
+ * et de définir la limite mensuelle des dépenses d'une catégorie en touchant sa ligne.
  */
 public class CategoryAdapter extends RecyclerView.Adapter<CategoryAdapter.CategoryViewHolder> {
 
     private Context context; // Contexte de l'application
-    private List<String> categories; // Liste des catégories à afficher
-    private DatabaseHelper dbHelper; // Helper pour interagir avec la base de données
+    private CategoryDictionary categories; // Catégories à afficher, avec leurs ids
+    private BudgetRepository repository; // Accès à la base de données en arrière-plan
     private Runnable onCategoryDeleted; // Callback exécuté après la suppression d'une catégorie
+    private Map<Long, BudgetLimit> limits = Collections.emptyMap(); // Limites mensuelles, par id de catégorie
 
     /**
      * Constructeur de CategoryAdapter.
      *
      * @param context          Le contexte de l'application.
-     * @param categories       La liste des catégories à afficher.
-     * @param dbHelper         L'instance de DatabaseHelper pour interagir avec la base de données.
-     * @param onCategoryDeleted Callback exécuté après la suppression d'une catégorie.
+     * @param categories       Le dictionnaire des catégories à afficher.
+     * @param repository       Le repository pour interagir avec la base de données.
+     * @param onCategoryDeleted Callback exécuté après la suppression d'une catégorie (peut être null).
      */
-    public CategoryAdapter(Context context, List<String> categories, DatabaseHelper dbHelper, Runnable onCategoryDeleted) {
+    public CategoryAdapter(Context context, CategoryDictionary categories, BudgetRepository repository, Runnable onCategoryDeleted) {
         this.context = context;
         this.categories = categories;
-        this.dbHelper = dbHelper;
+        this.repository = repository;
         this.onCategoryDeleted = onCategoryDeleted;
     }
 
+    /**
+     * Remplace les catégories affichées.
+     *
+     * @param categories Le nouveau dictionnaire des catégories.
+     */
+    public void setCategories(CategoryDictionary categories) {
+        this.categories = categories;
+        notifyDataSetChanged();
+    }
+
+    /**
+     * Remplace les limites mensuelles affichées.
+     *
+     * @param limits Les limites par id de catégorie.
+     */
+    public void setLimits(Map<Long, BudgetLimit> limits) {
+        this.limits = limits;
+        notifyDataSetChanged();
+    }
+
     /**
      * Crée une nouvelle instance de CategoryViewHolder.
      *
@@ -65,8 +92,16 @@ public class CategoryAdapter extends RecyclerView.Adapter<CategoryAdapter.Catego
      */
     @Override
     public void onBindViewHolder(@NonNull CategoryViewHolder holder, int position) {
-        String categoryName = categories.get(position);
+        String categoryName = categories.getNames().get(position);
+        long categoryId = categories.getId(categoryName);
         holder.textViewCategoryName.setText(categoryName);
+        BudgetLimit limit = limits.get(categoryId);
+        holder.textViewCategoryLimit.setText(limit != null
+                ? "Limite : " + Money.format(limit.getLimitMinor()) + " DH / mois"
+                : "Aucune limite mensuelle");
+
+        // Gestion du clic sur la ligne : modifier la limite mensuelle
+        holder.itemView.setOnClickListener(v -> showLimitDialog(categoryId, categoryName, limit));
 
         // Gestion du clic sur le bouton de suppression
         holder.btnDeleteCategory.setOnClickListener(v -> {
@@ -75,24 +110,63 @@ public class CategoryAdapter extends RecyclerView.Adapter<CategoryAdapter.Catego
                     .setTitle("Supprimer la catégorie")
                     .setMessage("Êtes-vous sûr de vouloir supprimer la catégorie \"" + categoryName + "\" ?")
                     .setPositiveButton("Oui", (dialog, which) -> {
-                        // Supprimer la catégorie de la base de données
-                        dbHelper.deleteCategoryByName(categoryName);
-
-                        // Supprimer la catégorie de la liste
-                        categories.remove(position);
-                        notifyItemRemoved(position);
-                        notifyItemRangeChanged(position, categories.size());
-
-                        // Recharger les catégories
-                        onCategoryDeleted.run();
-
-                        Toast.makeText(context, "Catégorie supprimée : " + categoryName, Toast.LENGTH_SHORT).show();
+                        // Supprimer la catégorie de la base de données, puis recharger les catégories
+                        repository.deleteCategory(categoryId, deleted -> {
+                            if (deleted == -1) {
+                                Toast.makeText(context, "Catégorie utilisée par des transactions : suppression impossible", Toast.LENGTH_SHORT).show();
+                                return;
+                            }
+                            if (onCategoryDeleted != null) {
+                                onCategoryDeleted.run();
+                            }
+                            Toast.makeText(context, "Catégorie supprimée : " + categoryName, Toast.LENGTH_SHORT).show();
+                        });
                     })
                     .setNegativeButton("Non", null)
                     .show();
         });
     }
 
+    /**
+     * Affiche la boîte de dialogue de la limite mensuelle d'une catégorie (montant et seuils d'alerte).
+     *
+     * @param categoryId   L'id de la catégorie.
+     * @param categoryName Le nom de la catégorie.
+     * @param limit        La limite actuelle, ou null si la catégorie n'en a pas.
+     */
+    private void showLimitDialog(long categoryId, String categoryName, BudgetLimit limit) {
+        View dialogView = LayoutInflater.from(context).inflate(R.layout.dialog_category_limit, null);
+        EditText etLimitAmount = dialogView.findViewById(R.id.et_limit_amount);
+        EditText etLimitThresholds = dialogView.findViewById(R.id.et_limit_thresholds);
+        if (limit != null) {
+            etLimitAmount.setText(Money.toPlainString(limit.getLimitMinor()));
+        }
+        etLimitThresholds.setText(BudgetLimit.formatThresholds(limit != null ? limit.getThresholds() : BudgetLimit.DEFAULT_THRESHOLDS));
+
+        AlertDialog.Builder builder = new AlertDialog.Builder(context)
+                .setTitle("Limite mensuelle : " + categoryName)
+                .setView(dialogView)
+                .setPositiveButton("Enregistrer", (dialog, which) -> {
+                    long limitMinor = Money.parse(etLimitAmount.getText().toString());
+                    int[] thresholds = BudgetLimit.parseThresholds(etLimitThresholds.getText().toString());
+                    if (limitMinor == Money.INVALID || limitMinor <= 0) {
+                        Toast.makeText(context, "Veuillez entrer une limite valide.", Toast.LENGTH_SHORT).show();
+                        return;
+                    }
+                    if (thresholds == null) {
+                        Toast.makeText(context, "Seuils invalides. Exemple : 80,100", Toast.LENGTH_SHORT).show();
+                        return;
+                    }
+                    // La liste est rechargée via l'abonnement à la table des limites
+                    repository.setCategoryLimit(new BudgetLimit(categoryId, limitMinor, thresholds), null);
+                })
+                .setNegativeButton("Annuler", null);
+        if (limit != null) {
+            builder.setNeutralButton("Supprimer la limite", (dialog, which) -> repository.deleteCategoryLimit(categoryId, null));
+        }
+        builder.show();
+    }
+
     /**
      * Retourne le nombre total d'éléments dans la liste.
      *
@@ -100,7 +174,7 @@ public class CategoryAdapter extends RecyclerView.Adapter<CategoryAdapter.Catego
      */
     @Override
     public int getItemCount() {
-        return categories.size();
+        return categories == null ? 0 : categories.size();
     }
 
     /**
@@ -108,6 +182,7 @@ public class CategoryAdapter extends RecyclerView.Adapter<CategoryAdapter.Catego
      */
     public static class CategoryViewHolder extends RecyclerView.ViewHolder {
         TextView textViewCategoryName; // Affiche le nom de la catégorie
+        TextView textViewCategoryLimit; // Affiche la limite mensuelle de la catégorie
         Button btnDeleteCategory; // Bouton pour supprimer la catégorie
 
         /**
@@ -118,6 +193,7 @@ public class CategoryAdapter extends RecyclerView.Adapter<CategoryAdapter.Catego
         public CategoryViewHolder(@NonNull View itemView) {
             super(itemView);
             textViewCategoryName = itemView.findViewById(R.id.textView_category_name);
+            textViewCategoryLimit = itemView.findViewById(R.id.textView_category_limit);
             btnDeleteCategory = itemView.findViewById(R.id.btn_delete_category);
         }
     }
@@ -0,0 +1,112 @@
+package ensa.application01.app_budget.adapter;
+
+import android.view.LayoutInflater;
+import android.view.View;
+import android.content.res.ColorStateList;
+import android.graphics.Color;
+import android.view.ViewGroup;
+import android.widget.ProgressBar;
+import android.widget.TextView;
+
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.DiffUtil;
+import androidx.recyclerview.widget.ListAdapter;
+import androidx.recyclerview.widget.RecyclerView;
+
+import ensa.application01.app_budget.R;
+import ensa.application01.app_budget.module.CategoryCard;
+
+/**
+ * CategoryCardAdapter affiche les cartes récapitulatives d'un mois (une par catégorie) dans un RecyclerView.
+ * Chaque nouveau mois est comparé au précédent en arrière-plan (DiffUtil) : les cartes des catégories
+ * présentes dans les deux mois gardent leur vue, seuls leurs textes sont mis à jour.
+ * Une carte de dépense dont la catégorie a une limite mensuelle affiche sa progression vers la limite.
+ */
+public class CategoryCardAdapter extends ListAdapter<CategoryCard, CategoryCardAdapter.CardViewHolder> {
+
+    private static final ColorStateList COLOR_UNDER_LIMIT = ColorStateList.valueOf(Color.parseColor("#33A852")); // Sous la limite
+    private static final ColorStateList COLOR_OVER_LIMIT = ColorStateList.valueOf(Color.parseColor("#FF5733")); // Limite atteinte
+
+    // Deux cartes représentent la même catégorie si elles ont le même id ; le contenu est comparé champ par champ
+    private static final DiffUtil.ItemCallback<CategoryCard> DIFF_CALLBACK = new DiffUtil.ItemCallback<CategoryCard>() {
+        @Override
+        public boolean areItemsTheSame(@NonNull CategoryCard oldItem, @NonNull CategoryCard newItem) {
+            return oldItem.getCategoryId() == newItem.getCategoryId();
+        }
+
+        @Override
+        public boolean areContentsTheSame(@NonNull CategoryCard oldItem, @NonNull CategoryCard newItem) {
+            return oldItem.equals(newItem);
+        }
+    };
+
+    /**
+     * Constructeur de CategoryCardAdapter. La liste est vide jusqu'au premier appel à submitList.
+     */
+    public CategoryCardAdapter() {
+        super(DIFF_CALLBACK);
+        setHasStableIds(true);
+    }
+
+    /**
+     * Crée une nouvelle carte.
+     *
+     * @param parent   Le ViewGroup dans lequel la nouvelle vue sera ajoutée.
+     * @param viewType Le type de vue (non utilisé ici).
+     * @return Une nouvelle instance de CardViewHolder.
+     */
+    @NonNull
+    @Override
+    public CardViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+        View view = LayoutInflater.from(parent.getContext()).inflate(R.layout.card_item, parent, false);
+        return new CardViewHolder(view);
+    }
+
+    /**
+     * Lie une carte à une vue : les textes sont déjà formatés, rien n'est alloué ici.
+     *
+     * @param holder   Le ViewHolder à mettre à jour.
+     * @param position La position de la carte dans la liste.
+     */
+    @Override
+    public void onBindViewHolder(@NonNull CardViewHolder holder, int position) {
+        CategoryCard card = getItem(position);
+        holder.tvCategoryTitle.setText(card.getCategory());
+        holder.tvTotalAmount.setText(card.getAmountText());
+        if (card.getLimitMinor() == CategoryCard.NO_LIMIT) {
+            holder.progressLimit.setVisibility(View.GONE);
+        } else {
+            int percent = card.getLimitPercent();
+            holder.progressLimit.setVisibility(View.VISIBLE);
+            holder.progressLimit.setProgress(Math.min(percent, 100));
+            holder.progressLimit.setProgressTintList(percent >= 100 ? COLOR_OVER_LIMIT : COLOR_UNDER_LIMIT);
+        }
+    }
+
+    /**
+     * Retourne l'id stable d'une carte : l'id de sa catégorie.
+     *
+     * @param position La position de la carte dans la liste.
+     * @return L'id de la catégorie.
+     */
+    @Override
+    public long getItemId(int position) {
+        return getItem(position).getCategoryId();
+    }
+
+    /**
+     * CardViewHolder est une classe interne qui contient les vues d'une carte récapitulative.
+     */
+    static class CardViewHolder extends RecyclerView.ViewHolder {
+        final TextView tvCategoryTitle; // Affiche le nom de la catégorie
+        final TextView tvTotalAmount; // Affiche le total de la catégorie
+        final ProgressBar progressLimit; // Progression vers la limite mensuelle (dépenses limitées uniquement)
+
+        CardViewHolder(@NonNull View itemView) {
+            super(itemView);
+            tvCategoryTitle = itemView.findViewById(R.id.tvCategoryTitle);
+            tvTotalAmount = itemView.findViewById(R.id.tvTotalAmount);
+            progressLimit = itemView.findViewById(R.id.progressLimit);
+        }
+    }
+}
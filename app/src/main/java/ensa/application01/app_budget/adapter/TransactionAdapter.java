@@ -6,28 +6,57 @@ import android.view.ViewGroup;
 import android.widget.TextView;
 
 import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.DiffUtil;
+import androidx.recyclerview.widget.ListAdapter;
 import androidx.recyclerview.widget.RecyclerView;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 import ensa.application01.app_budget.R;
 import ensa.application01.app_budget.module.Transaction;
+import ensa.application01.app_budget.module.TransactionLabels;
+import ensa.application01.app_budget.utils.TransactionFormatter;
 
 /**
  * TransactionAdapter est un adapteur pour afficher une liste de transactions dans un RecyclerView.
  * Il lie les données des transactions aux vues correspondantes dans l'interface utilisateur.
+ * Chaque nouvelle liste est comparée à la précédente en arrière-plan (DiffUtil) : seules les lignes
+ * ajoutées, retirées ou modifiées sont notifiées, et les ids stables des transactions permettent
+ * au RecyclerView de conserver ses ViewHolders et ses animations.
+ * Les textes affichés sont précalculés au chargement des pages ({@link TransactionLabels}) : l'affichage
+ * d'une ligne pendant le défilement n'alloue rien au-delà de la mise à jour des TextView.
  */
-public class TransactionAdapter extends RecyclerView.Adapter<TransactionAdapter.TransactionViewHolder> {
+public class TransactionAdapter extends ListAdapter<Transaction, TransactionAdapter.TransactionViewHolder> {
 
-    private List<Transaction> transactionList; // Liste des transactions à afficher
+    // Deux éléments représentent la même transaction s'ils ont le même id ; le contenu est comparé champ par champ
+    private static final DiffUtil.ItemCallback<Transaction> DIFF_CALLBACK = new DiffUtil.ItemCallback<Transaction>() {
+        @Override
+        public boolean areItemsTheSame(@NonNull Transaction oldItem, @NonNull Transaction newItem) {
+            return oldItem.getId() == newItem.getId();
+        }
+
+        @Override
+        public boolean areContentsTheSame(@NonNull Transaction oldItem, @NonNull Transaction newItem) {
+            return oldItem.equals(newItem);
+        }
+    };
+
+    private final TransactionFormatter formatter; // Calcule les textes des transactions qui n'en ont pas encore
+
+    // Dernière liste soumise : sert de base aux modifications suivantes, même si son diff n'est pas encore appliqué
+    private List<Transaction> transactionList = Collections.emptyList();
 
     /**
-     * Constructeur de TransactionAdapter.
+     * Constructeur de TransactionAdapter. La liste est vide jusqu'au premier appel à {@link #updateData}.
      *
-     * @param transactionList La liste des transactions à afficher.
+     * @param formatter Le formateur des textes, utilisé pour les transactions chargées sans textes précalculés.
      */
-    public TransactionAdapter(List<Transaction> transactionList) {
-        this.transactionList = transactionList;
+    public TransactionAdapter(TransactionFormatter formatter) {
+        super(DIFF_CALLBACK);
+        this.formatter = formatter;
+        setHasStableIds(true);
     }
 
     /**
@@ -52,42 +81,84 @@ public class TransactionAdapter extends RecyclerView.Adapter<TransactionAdapter.
      */
     @Override
     public void onBindViewHolder(@NonNull TransactionViewHolder holder, int position) {
-        Transaction transaction = transactionList.get(position);
-
-        // Afficher les détails de la transaction dans les TextView correspondants
-        holder.textViewType.setText("Type: " + transaction.getType());
-        holder.textViewAmount.setText("Montant: " + String.format("%.2f", transaction.getAmount()));
-        holder.textViewCategory.setText("Catégorie: " + transaction.getCategory());
-        holder.textViewDate.setText("Date: " + transaction.getDate());
-        holder.textViewNote.setText("Note: " + transaction.getNote());
-
-        // Afficher l'état de l'alarme
-        if (transaction.isAlarmEnabled()) {
-            holder.textViewAlarm.setText("Alarme: Activée à " + transaction.getAlarmDate() + " " + transaction.getAlarmTime());
-        } else {
-            holder.textViewAlarm.setText("Alarme: Désactivée");
-        }
+        TransactionLabels labels = formatter.labelsOf(getItem(position));
+
+        // Afficher les textes précalculés de la transaction dans les TextView correspondants
+        holder.textViewType.setText(labels.getType());
+        holder.textViewAmount.setText(labels.getAmount());
+        holder.textViewCategory.setText(labels.getCategory());
+        holder.textViewDate.setText(labels.getDate());
+        holder.textViewNote.setText(labels.getNote());
+        holder.textViewAlarm.setText(labels.getAlarm());
     }
 
     /**
-     * Retourne le nombre total d'éléments dans la liste.
+     * Retourne l'id stable d'un élément : l'id de la transaction dans la base.
      *
-     * @return Le nombre de transactions dans la liste.
+     * @param position La position de l'élément dans la liste.
+     * @return L'id de la transaction.
      */
     @Override
-    public int getItemCount() {
-        return transactionList != null ? transactionList.size() : 0;
+    public long getItemId(int position) {
+        return getItem(position).getId();
     }
 
     /**
-     * Met à jour la liste des transactions et notifie l'adapteur du changement.
+     * Remplace la liste des transactions. Le diff avec la liste affichée est calculé en arrière-plan,
+     * puis seules les lignes modifiées sont notifiées.
      *
      * @param newTransactionList La nouvelle liste de transactions.
      */
     public void updateData(List<Transaction> newTransactionList) {
-        transactionList.clear();
-        transactionList.addAll(newTransactionList);
-        notifyDataSetChanged();
+        submit(new ArrayList<>(newTransactionList));
+    }
+
+    /**
+     * Ajoute une page de transactions en fin de liste.
+     *
+     * @param page Les transactions à ajouter.
+     */
+    public void appendData(List<Transaction> page) {
+        List<Transaction> list = new ArrayList<>(transactionList.size() + page.size());
+        list.addAll(transactionList);
+        list.addAll(page);
+        submit(list);
+    }
+
+    /**
+     * Ajoute une page de transactions en début de liste.
+     *
+     * @param page Les transactions à ajouter.
+     */
+    public void prependData(List<Transaction> page) {
+        List<Transaction> list = new ArrayList<>(transactionList.size() + page.size());
+        list.addAll(page);
+        list.addAll(transactionList);
+        submit(list);
+    }
+
+    /**
+     * Retire les premières transactions de la liste (page sortie de la fenêtre).
+     *
+     * @param count Le nombre de transactions à retirer.
+     */
+    public void removeFirst(int count) {
+        submit(new ArrayList<>(transactionList.subList(count, transactionList.size())));
+    }
+
+    /**
+     * Retire les dernières transactions de la liste (page sortie de la fenêtre).
+     *
+     * @param count Le nombre de transactions à retirer.
+     */
+    public void removeLast(int count) {
+        submit(new ArrayList<>(transactionList.subList(0, transactionList.size() - count)));
+    }
+
+    // Soumet une nouvelle liste, qui ne doit plus être modifiée, et la garde comme base des modifications suivantes
+    private void submit(List<Transaction> list) {
+        transactionList = list;
+        submitList(list);
     }
 
     /**
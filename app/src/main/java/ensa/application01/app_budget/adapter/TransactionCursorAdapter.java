@@ -0,0 +1,129 @@
+package ensa.application01.app_budget.adapter;
+
+import android.database.Cursor;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.RecyclerView;
+
+import ensa.application01.app_budget.DataBase.DatabaseHelper;
+import ensa.application01.app_budget.R;
+import ensa.application01.app_budget.utils.TransactionFormatter;
+
+/**
+ * TransactionCursorAdapter affiche l'historique directement depuis un curseur
+ * ({@link DatabaseHelper#getTransactionRows}), sans créer d'objet Transaction par ligne :
+ * seule la fenêtre courante du curseur (CursorWindow) est gardée en mémoire.
+ * Les index de colonnes sont résolus une seule fois, à chaque changement de curseur.
+ * Le curseur est ouvert en arrière-plan puis confié à l'adapteur, qui le ferme lorsqu'il est remplacé.
+ */
+public class TransactionCursorAdapter extends RecyclerView.Adapter<TransactionAdapter.TransactionViewHolder> {
+
+    private final TransactionFormatter formatter; // Formateur des textes affichés
+    private Cursor cursor; // Curseur des lignes affichées, ou null
+    private int idIndex; // Index de la colonne id
+    private int typeIndex; // Index de la colonne type
+    private int amountIndex; // Index de la colonne amount_minor
+    private int categoryIndex; // Index de la colonne du nom de catégorie
+    private int dateIndex; // Index de la colonne date
+    private int noteIndex; // Index de la colonne note
+    private int alarmEnabledIndex; // Index de la colonne isAlarmEnabled
+    private int alarmDateIndex; // Index de la colonne alarmDate
+    private int alarmTimeIndex; // Index de la colonne alarmTime
+
+    /**
+     * Constructeur de TransactionCursorAdapter. La liste est vide jusqu'au premier appel à {@link #swapCursor}.
+     *
+     * @param formatter Le formateur des textes affichés.
+     */
+    public TransactionCursorAdapter(TransactionFormatter formatter) {
+        this.formatter = formatter;
+        setHasStableIds(true);
+    }
+
+    /**
+     * Remplace le curseur affiché et ferme l'ancien. Doit être appelée depuis le thread principal,
+     * avec un curseur déjà exécuté en arrière-plan (voir BudgetRepository.loadTransactionRows).
+     *
+     * @param newCursor Le nouveau curseur, ou null pour vider la liste.
+     */
+    public void swapCursor(Cursor newCursor) {
+        if (newCursor == cursor) {
+            return;
+        }
+        Cursor oldCursor = cursor;
+        cursor = newCursor;
+        if (newCursor != null) {
+            idIndex = newCursor.getColumnIndexOrThrow(DatabaseHelper.COLUMN_ID);
+            typeIndex = newCursor.getColumnIndexOrThrow(DatabaseHelper.COLUMN_TYPE);
+            amountIndex = newCursor.getColumnIndexOrThrow(DatabaseHelper.COLUMN_AMOUNT_MINOR);
+            categoryIndex = newCursor.getColumnIndexOrThrow(DatabaseHelper.COLUMN_CATEGORY);
+            dateIndex = newCursor.getColumnIndexOrThrow(DatabaseHelper.COLUMN_DATE);
+            noteIndex = newCursor.getColumnIndexOrThrow(DatabaseHelper.COLUMN_NOTE);
+            alarmEnabledIndex = newCursor.getColumnIndexOrThrow(DatabaseHelper.COLUMN_IS_ALARM_ENABLED);
+            alarmDateIndex = newCursor.getColumnIndexOrThrow(DatabaseHelper.COLUMN_ALARM_DATE);
+            alarmTimeIndex = newCursor.getColumnIndexOrThrow(DatabaseHelper.COLUMN_ALARM_TIME);
+        }
+        notifyDataSetChanged();
+        if (oldCursor != null) {
+            oldCursor.close();
+        }
+    }
+
+    /**
+     * Crée une nouvelle instance de TransactionViewHolder.
+     *
+     * @param parent   Le ViewGroup dans lequel la nouvelle vue sera ajoutée.
+     * @param viewType Le type de vue (non utilisé ici).
+     * @return Une nouvelle instance de TransactionViewHolder.
+     */
+    @NonNull
+    @Override
+    public TransactionAdapter.TransactionViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+        View view = LayoutInflater.from(parent.getContext()).inflate(R.layout.item_transaction, parent, false);
+        return new TransactionAdapter.TransactionViewHolder(view);
+    }
+
+    /**
+     * Lie la ligne du curseur à la position donnée à une vue (ViewHolder).
+     *
+     * @param holder   Le ViewHolder à mettre à jour.
+     * @param position La position de la ligne dans le curseur.
+     */
+    @Override
+    public void onBindViewHolder(@NonNull TransactionAdapter.TransactionViewHolder holder, int position) {
+        if (!cursor.moveToPosition(position)) {
+            return;
+        }
+        holder.textViewType.setText(formatter.typeText(cursor.getString(typeIndex)));
+        holder.textViewAmount.setText(formatter.amountText(cursor.getLong(amountIndex)));
+        holder.textViewCategory.setText(formatter.categoryText(cursor.getString(categoryIndex)));
+        holder.textViewDate.setText(formatter.dateText(cursor.getString(dateIndex)));
+        holder.textViewNote.setText(formatter.noteText(cursor.getString(noteIndex)));
+        holder.textViewAlarm.setText(formatter.alarmText(cursor.getInt(alarmEnabledIndex) == 1,
+                cursor.getString(alarmDateIndex), cursor.getString(alarmTimeIndex)));
+    }
+
+    /**
+     * Retourne l'id stable d'une ligne : l'id de la transaction dans la base.
+     *
+     * @param position La position de la ligne.
+     * @return L'id de la transaction, ou RecyclerView.NO_ID si la ligne n'existe pas.
+     */
+    @Override
+    public long getItemId(int position) {
+        return cursor != null && cursor.moveToPosition(position) ? cursor.getLong(idIndex) : RecyclerView.NO_ID;
+    }
+
+    /**
+     * Retourne le nombre de lignes du curseur.
+     *
+     * @return Le nombre de transactions affichées.
+     */
+    @Override
+    public int getItemCount() {
+        return cursor != null ? cursor.getCount() : 0;
+    }
+}
@@ -0,0 +1,72 @@
+package ensa.application01.app_budget.module;
+
+/**
+ * La classe ImportStats représente le bilan d'un import de relevé bancaire :
+ * lignes insérées, doublons ignorés, lignes rejetées et débit obtenu.
+ */
+public class ImportStats {
+    private final int inserted; // Nombre de transactions insérées
+    private final int duplicates; // Nombre de transactions déjà présentes, ignorées
+    private final int rejected; // Nombre de lignes illisibles ou invalides
+    private final long elapsedMillis; // Durée de l'import en millisecondes
+
+    /**
+     * Constructeur de la classe ImportStats.
+     *
+     * @param inserted      Le nombre de transactions insérées.
+     * @param duplicates    Le nombre de doublons ignorés.
+     * @param rejected      Le nombre de lignes rejetées.
+     * @param elapsedMillis La durée de l'import en millisecondes.
+     */
+    public ImportStats(int inserted, int duplicates, int rejected, long elapsedMillis) {
+        this.inserted = inserted;
+        this.duplicates = duplicates;
+        this.rejected = rejected;
+        this.elapsedMillis = elapsedMillis;
+    }
+
+    /**
+     * Retourne le nombre de transactions insérées.
+     *
+     * @return Le nombre de transactions insérées.
+     */
+    public int getInserted() {
+        return inserted;
+    }
+
+    /**
+     * Retourne le nombre de doublons ignorés.
+     *
+     * @return Le nombre de doublons.
+     */
+    public int getDuplicates() {
+        return duplicates;
+    }
+
+    /**
+     * Retourne le nombre de lignes rejetées.
+     *
+     * @return Le nombre de lignes rejetées.
+     */
+    public int getRejected() {
+        return rejected;
+    }
+
+    /**
+     * Retourne la durée de l'import.
+     *
+     * @return La durée en millisecondes.
+     */
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+
+    /**
+     * Retourne le débit de l'import (lignes insérées ou ignorées comme doublons, par seconde).
+     *
+     * @return Le nombre de lignes traitées par seconde.
+     */
+    public double getRowsPerSecond() {
+        return (inserted + duplicates) * 1000.0 / Math.max(1, elapsedMillis);
+    }
+}
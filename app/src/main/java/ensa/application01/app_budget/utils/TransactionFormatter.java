@@ -0,0 +1,161 @@
+package ensa.application01.app_budget.utils;
+
+import android.content.Context;
+import android.content.res.Resources;
+
+import ensa.application01.app_budget.R;
+import ensa.application01.app_budget.module.Transaction;
+import ensa.application01.app_budget.module.TransactionLabels;
+
+/**
+ * TransactionFormatter produit les textes affichés pour une transaction dans l'historique.
+ * Les libellés sont lus une seule fois dans les ressources ; le formatage est prévu pour être fait
+ * en arrière-plan, au chargement des pages, et non à chaque affichage d'une ligne.
+ * Une instance peut être utilisée depuis plusieurs threads.
+ */
+public class TransactionFormatter {
+
+    private final String typeLabel; // Libellé du type, avec un paramètre
+    private final String amountLabel; // Libellé du montant, avec un paramètre
+    private final String categoryLabel; // Libellé de la catégorie, avec un paramètre
+    private final String dateLabel; // Libellé de la date, avec un paramètre
+    private final String noteLabel; // Libellé de la note, avec un paramètre
+    private final String alarmOnLabel; // Libellé de l'alarme activée, avec la date et l'heure
+    private final String alarmOffLabel; // Libellé de l'alarme désactivée
+
+    /**
+     * Constructeur de TransactionFormatter.
+     *
+     * @param context Un contexte donnant accès aux ressources de l'application.
+     */
+    public TransactionFormatter(Context context) {
+        this(context.getResources());
+    }
+
+    // Lit les libellés dans les ressources de l'application
+    private TransactionFormatter(Resources resources) {
+        this(resources.getString(R.string.label_transaction_type),
+                resources.getString(R.string.label_transaction_amount),
+                resources.getString(R.string.label_transaction_category),
+                resources.getString(R.string.label_transaction_date),
+                resources.getString(R.string.label_transaction_note),
+                resources.getString(R.string.label_transaction_alarm_on),
+                resources.getString(R.string.label_transaction_alarm_off));
+    }
+
+    /**
+     * Constructeur de TransactionFormatter à partir des libellés eux-mêmes (tests sur la JVM, sans ressources).
+     *
+     * @param typeLabel     Le libellé du type, avec un paramètre.
+     * @param amountLabel   Le libellé du montant, avec un paramètre.
+     * @param categoryLabel Le libellé de la catégorie, avec un paramètre.
+     * @param dateLabel     Le libellé de la date, avec un paramètre.
+     * @param noteLabel     Le libellé de la note, avec un paramètre.
+     * @param alarmOnLabel  Le libellé de l'alarme activée, avec la date et l'heure.
+     * @param alarmOffLabel Le libellé de l'alarme désactivée.
+     */
+    public TransactionFormatter(String typeLabel, String amountLabel, String categoryLabel, String dateLabel,
+                                String noteLabel, String alarmOnLabel, String alarmOffLabel) {
+        this.typeLabel = typeLabel;
+        this.amountLabel = amountLabel;
+        this.categoryLabel = categoryLabel;
+        this.dateLabel = dateLabel;
+        this.noteLabel = noteLabel;
+        this.alarmOnLabel = alarmOnLabel;
+        this.alarmOffLabel = alarmOffLabel;
+    }
+
+    /**
+     * Calcule les textes d'affichage d'une transaction.
+     *
+     * @param transaction La transaction.
+     * @return Les textes à afficher.
+     */
+    public TransactionLabels format(Transaction transaction) {
+        return new TransactionLabels(
+                typeText(transaction.getType()),
+                amountText(transaction.getAmountMinor()),
+                categoryText(transaction.getCategory()),
+                dateText(transaction.getDate()),
+                noteText(transaction.getNote()),
+                alarmText(transaction.isAlarmEnabled(), transaction.getAlarmDate(), transaction.getAlarmTime()));
+    }
+
+    /**
+     * Retourne le texte du type d'une transaction.
+     *
+     * @param type Le type (exemple : "Revenu").
+     * @return Le texte à afficher.
+     */
+    public String typeText(String type) {
+        return String.format(typeLabel, type);
+    }
+
+    /**
+     * Retourne le texte du montant d'une transaction, formaté selon la langue.
+     *
+     * @param amountMinor Le montant en centimes.
+     * @return Le texte à afficher.
+     */
+    public String amountText(long amountMinor) {
+        return String.format(amountLabel, Money.format(amountMinor));
+    }
+
+    /**
+     * Retourne le texte de la catégorie d'une transaction.
+     *
+     * @param category Le nom de la catégorie.
+     * @return Le texte à afficher.
+     */
+    public String categoryText(String category) {
+        return String.format(categoryLabel, category);
+    }
+
+    /**
+     * Retourne le texte de la date d'une transaction.
+     *
+     * @param date La date au format "dd/MM/yyyy".
+     * @return Le texte à afficher.
+     */
+    public String dateText(String date) {
+        return String.format(dateLabel, date);
+    }
+
+    /**
+     * Retourne le texte de la note d'une transaction.
+     *
+     * @param note La note.
+     * @return Le texte à afficher.
+     */
+    public String noteText(String note) {
+        return String.format(noteLabel, note);
+    }
+
+    /**
+     * Retourne le texte de l'état de l'alarme d'une transaction.
+     *
+     * @param enabled   `true` si l'alarme est activée.
+     * @param alarmDate La date de l'alarme au format "dd/MM/yyyy".
+     * @param alarmTime L'heure de l'alarme au format "HH:mm".
+     * @return Le texte à afficher.
+     */
+    public String alarmText(boolean enabled, String alarmDate, String alarmTime) {
+        return enabled ? String.format(alarmOnLabel, alarmDate, alarmTime) : alarmOffLabel;
+    }
+
+    /**
+     * Retourne les textes d'affichage d'une transaction, en les calculant et en les conservant
+     * dans la transaction s'ils ne l'ont pas encore été.
+     *
+     * @param transaction La transaction.
+     * @return Les textes à afficher.
+     */
+    public TransactionLabels labelsOf(Transaction transaction) {
+        TransactionLabels labels = transaction.getLabels();
+        if (labels == null) {
+            labels = format(transaction);
+            transaction.setLabels(labels);
+        }
+        return labels;
+    }
+}
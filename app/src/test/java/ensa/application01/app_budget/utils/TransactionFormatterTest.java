@@ -0,0 +1,57 @@
+package ensa.application01.app_budget.utils;
+
+import org.junit.Test;
+
+import ensa.application01.app_budget.module.Transaction;
+import ensa.application01.app_budget.module.TransactionLabels;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests du cache des textes d'affichage de TransactionFormatter (sur la JVM, sans émulateur).
+ */
+public class TransactionFormatterTest {
+
+    // Compte les appels à format, c'est-à-dire les calculs effectifs des textes
+    private static class CountingFormatter extends TransactionFormatter {
+        int formatCount;
+
+        CountingFormatter() {
+            super("Type: %1$s", "Montant: %1$s", "Catégorie: %1$s", "Date: %1$s", "Note: %1$s",
+                    "Alarme: Activée à %1$s %2$s", "Alarme: Désactivée");
+        }
+
+        @Override
+        public TransactionLabels format(Transaction transaction) {
+            formatCount++;
+            return super.format(transaction);
+        }
+    }
+
+    @Test
+    public void labelsOf_formatsOnceThenReturnsCachedLabels() {
+        CountingFormatter formatter = new CountingFormatter();
+        Transaction transaction = new Transaction(1, Transaction.TYPE_EXPENSE, 1250, "Nourriture", "02/03/2024",
+                "Marché", true, "03/03/2024", "09:30");
+
+        TransactionLabels first = formatter.labelsOf(transaction);
+        assertEquals(1, formatter.formatCount);
+        assertEquals("Type: " + Transaction.TYPE_EXPENSE, first.getType());
+        assertEquals("Catégorie: Nourriture", first.getCategory());
+        assertEquals("Alarme: Activée à 03/03/2024 09:30", first.getAlarm());
+
+        assertSame(first, formatter.labelsOf(transaction)); // Textes conservés dans la transaction
+        assertEquals(1, formatter.formatCount); // Aucun nouveau formatage
+    }
+
+    @Test
+    public void labelsOf_formatsEachTransactionSeparately() {
+        CountingFormatter formatter = new CountingFormatter();
+        Transaction alarmOff = new Transaction(2, Transaction.TYPE_INCOME, 500000, "Salaire", "01/03/2024",
+                "Mars", false, "", "");
+
+        assertEquals("Alarme: Désactivée", formatter.labelsOf(alarmOff).getAlarm());
+        assertEquals("Note: Mars", alarmOff.getLabels().getNote());
+        assertEquals(1, formatter.formatCount);
+    }
+}
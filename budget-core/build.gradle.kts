@@ -0,0 +1,13 @@
+plugins {
+    `java-library`
+}
+
+// Logique métier en Java pur (modèles, dates, montants, import, recherche, agrégations) : testable sur la JVM, sans émulateur
+java {
+    sourceCompatibility = JavaVersion.VERSION_11
+    targetCompatibility = JavaVersion.VERSION_11
+}
+
+dependencies {
+    testImplementation(libs.junit)
+}
@@ -0,0 +1,258 @@
+package ensa.application01.app_budget.importer;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import ensa.application01.app_budget.utils.DateCodec;
+import ensa.application01.app_budget.utils.Money;
+
+/**
+ * CsvTransactionParser lit un export CSV ligne par ligne.
+ * Le séparateur (";", "," ou tabulation) est déduit de la première ligne. Si celle-ci est un en-tête,
+ * les colonnes sont associées par leur nom (date, type, montant, débit, crédit, catégorie, libellé...) ;
+ * sinon l'ordre de l'application est utilisé : date, type, montant, catégorie, note.
+ * Sans colonne type, le signe du montant (ou la colonne débit/crédit) détermine le type.
+ */
+public class CsvTransactionParser implements TransactionParser {
+
+    private final BufferedReader reader; // Flux du fichier importé
+    private final List<String> fields = new ArrayList<>(); // Champs de l'enregistrement courant, réutilisés
+    private final StringBuilder field = new StringBuilder(); // Champ en cours de lecture
+    private char delimiter; // Séparateur de champs
+    private boolean headerRead; // La première ligne a été analysée
+    private int rejectedCount; // Nombre de lignes rejetées
+
+    // Position des colonnes, -1 si absente
+    private int dateColumn = 0;
+    private int typeColumn = 1;
+    private int amountColumn = 2;
+    private int categoryColumn = 3;
+    private int noteColumn = 4;
+    private int debitColumn = -1;
+    private int creditColumn = -1;
+
+    /**
+     * Constructeur de CsvTransactionParser.
+     *
+     * @param reader Le flux du fichier CSV.
+     */
+    public CsvTransactionParser(BufferedReader reader) {
+        this.reader = reader;
+    }
+
+    @Override
+    public boolean next(ImportedRow row) throws IOException {
+        while (true) {
+            String line = reader.readLine();
+            if (line == null) {
+                return false;
+            }
+            if (line.trim().isEmpty()) {
+                continue;
+            }
+            if (!headerRead) {
+                headerRead = true;
+                if (line.charAt(0) == '\uFEFF') {
+                    line = line.substring(1); // Marque d'ordre des octets UTF-8
+                }
+                delimiter = detectDelimiter(line);
+                readRecord(line);
+                if (mapHeader()) {
+                    continue;
+                }
+            } else {
+                readRecord(line);
+            }
+            if (convert(row)) {
+                return true;
+            }
+            rejectedCount++;
+        }
+    }
+
+    @Override
+    public int getRejectedCount() {
+        return rejectedCount;
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+
+    // Convertit l'enregistrement courant vers les colonnes de la table transactions
+    private boolean convert(ImportedRow row) {
+        row.clear();
+        row.dateDay = ImportValues.parseDate(fieldAt(dateColumn));
+        if (row.dateDay == DateCodec.INVALID_DAY) {
+            return false;
+        }
+
+        long amount;
+        String debit = fieldAt(debitColumn);
+        if (debit != null && !debit.isEmpty()) {
+            amount = ImportValues.parseAmount(debit);
+            amount = amount == Money.INVALID ? amount : -Math.abs(amount);
+        } else if (creditColumn >= 0 && amountColumn < 0) {
+            amount = ImportValues.parseAmount(fieldAt(creditColumn));
+            amount = amount == Money.INVALID ? amount : Math.abs(amount);
+        } else {
+            amount = ImportValues.parseAmount(fieldAt(amountColumn));
+        }
+        if (amount == Money.INVALID) {
+            return false;
+        }
+
+        String type = fieldAt(typeColumn);
+        if (type == null || type.isEmpty()) {
+            row.type = amount < 0 ? ImportValues.TYPE_EXPENSE : ImportValues.TYPE_INCOME;
+        } else {
+            row.type = ImportValues.parseType(type);
+            if (row.type == null) {
+                return false;
+            }
+        }
+        row.amountMinor = Math.abs(amount);
+
+        String category = fieldAt(categoryColumn);
+        row.category = category == null || category.isEmpty() ? ImportValues.DEFAULT_CATEGORY : category;
+        String note = fieldAt(noteColumn);
+        row.note = note == null ? "" : note;
+        return true;
+    }
+
+    // Associe les colonnes par leur nom ; retourne false si la première ligne n'est pas un en-tête
+    private boolean mapHeader() {
+        int date = -1, type = -1, amount = -1, category = -1, note = -1, debit = -1, credit = -1;
+        for (int i = 0; i < fields.size(); i++) {
+            String name = normalize(fields.get(i));
+            if (name.contains("date")) {
+                if (date < 0) {
+                    date = i; // Première colonne de date : date d'opération
+                }
+            } else if (name.contains("type")) {
+                type = i;
+            } else if (name.contains("montant") || name.contains("amount") || name.contains("somme")) {
+                amount = i;
+            } else if (name.contains("debit")) {
+                debit = i;
+            } else if (name.contains("credit")) {
+                credit = i;
+            } else if (name.contains("categ")) {
+                category = i;
+            } else if (name.contains("note") || name.contains("libelle") || name.contains("description")
+                    || name.contains("memo") || name.contains("label")) {
+                note = i;
+            }
+        }
+        if (date < 0 || (amount < 0 && debit < 0 && credit < 0)) {
+            return false;
+        }
+        dateColumn = date;
+        typeColumn = type;
+        amountColumn = amount;
+        categoryColumn = category;
+        noteColumn = note;
+        debitColumn = debit;
+        creditColumn = credit;
+        return true;
+    }
+
+    // Découpe une ligne en champs ; un champ entre guillemets peut contenir le séparateur ou des retours à la ligne
+    private void readRecord(String line) throws IOException {
+        fields.clear();
+        field.setLength(0);
+        boolean quoted = false;
+        while (true) {
+            for (int i = 0; i < line.length(); i++) {
+                char c = line.charAt(i);
+                if (quoted) {
+                    if (c == '"') {
+                        if (i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                            field.append('"');
+                            i++;
+                        } else {
+                            quoted = false;
+                        }
+                    } else {
+                        field.append(c);
+                    }
+                } else if (c == '"') {
+                    quoted = true;
+                } else if (c == delimiter) {
+                    fields.add(field.toString().trim());
+                    field.setLength(0);
+                } else {
+                    field.append(c);
+                }
+            }
+            if (!quoted) {
+                break;
+            }
+            String nextLine = reader.readLine();
+            if (nextLine == null) {
+                break;
+            }
+            field.append('\n');
+            line = nextLine;
+        }
+        fields.add(field.toString().trim());
+    }
+
+    // Retourne le champ d'une colonne, ou null si la colonne est absente
+    private String fieldAt(int column) {
+        return column >= 0 && column < fields.size() ? fields.get(column) : null;
+    }
+
+    // Choisit le séparateur le plus fréquent hors guillemets dans la première ligne
+    private static char detectDelimiter(String line) {
+        int semicolons = 0, commas = 0, tabs = 0;
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (c == '"') {
+                quoted = !quoted;
+            } else if (!quoted) {
+                if (c == ';') {
+                    semicolons++;
+                } else if (c == ',') {
+                    commas++;
+                } else if (c == '\t') {
+                    tabs++;
+                }
+            }
+        }
+        if (tabs > semicolons && tabs > commas) {
+            return '\t';
+        }
+        return semicolons >= commas && semicolons > 0 ? ';' : ',';
+    }
+
+    // Met un nom de colonne en minuscules et sans accents pour la comparaison
+    private static String normalize(String name) {
+        StringBuilder out = new StringBuilder(name.length());
+        String lower = name.toLowerCase();
+        for (int i = 0; i < lower.length(); i++) {
+            char c = lower.charAt(i);
+            switch (c) {
+                case 'é':
+                case 'è':
+                case 'ê':
+                    out.append('e');
+                    break;
+                case 'à':
+                case 'â':
+                    out.append('a');
+                    break;
+                case 'ô':
+                    out.append('o');
+                    break;
+                default:
+                    out.append(c);
+            }
+        }
+        return out.toString();
+    }
+}
@@ -0,0 +1,142 @@
+package ensa.application01.app_budget.importer;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+import ensa.application01.app_budget.utils.DateCodec;
+import ensa.application01.app_budget.utils.Money;
+
+/**
+ * ImportValues convertit les valeurs textuelles des relevés bancaires (montants, dates, types)
+ * vers les valeurs de l'application.
+ */
+final class ImportValues {
+
+    // Types de transaction
+    static final String TYPE_INCOME = "Revenu";
+    static final String TYPE_EXPENSE = "Dépense";
+
+    static final String DEFAULT_CATEGORY = "Importé"; // Catégorie des lignes qui n'en ont pas
+
+    private ImportValues() {
+    }
+
+    /**
+     * Convertit un montant ("1 234,56", "-12.50", "(8,00)", "45 €"...) en centimes, sans passer par un double.
+     * Le dernier séparateur ("," ou ".") est considéré comme séparateur décimal.
+     *
+     * @param text Le montant textuel.
+     * @return Le montant en centimes, ou {@link Money#INVALID} s'il est invalide.
+     */
+    static long parseAmount(String text) {
+        if (text == null) {
+            return Money.INVALID;
+        }
+        StringBuilder digits = new StringBuilder(text.length());
+        boolean negative = false;
+        boolean hasDigit = false;
+        int decimalSeparator = Math.max(text.lastIndexOf(','), text.lastIndexOf('.'));
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c >= '0' && c <= '9') {
+                digits.append(c);
+                hasDigit = true;
+            } else if (c == '-' || c == '(') {
+                negative = true;
+            } else if (i == decimalSeparator) {
+                digits.append('.');
+            }
+            // Les espaces, séparateurs de milliers et symboles monétaires sont ignorés
+        }
+        if (!hasDigit) {
+            return Money.INVALID;
+        }
+        try {
+            long value = new BigDecimal(digits.toString())
+                    .setScale(Money.SCALE, RoundingMode.HALF_UP)
+                    .unscaledValue()
+                    .longValueExact();
+            return negative ? -value : value;
+        } catch (NumberFormatException | ArithmeticException e) {
+            return Money.INVALID;
+        }
+    }
+
+    /**
+     * Convertit une date "dd/MM/yyyy", "dd-MM-yyyy", "dd.MM.yyyy", "yyyy-MM-dd" ou "yyyyMMdd"
+     * (éventuellement suivie d'une heure) en jours depuis le 01/01/1970.
+     *
+     * @param text La date textuelle.
+     * @return Le nombre de jours, ou {@link DateCodec#INVALID_DAY} si la date est invalide.
+     */
+    static int parseDate(String text) {
+        if (text == null) {
+            return DateCodec.INVALID_DAY;
+        }
+        String date = text.trim();
+        int[] parts = new int[3];
+        int count = 0;
+        int value = -1;
+        int digits = 0;
+        for (int i = 0; i < date.length() && count < 3; i++) {
+            char c = date.charAt(i);
+            if (c >= '0' && c <= '9') {
+                value = (value < 0 ? 0 : value * 10) + (c - '0');
+                digits++;
+                // Date compacte "yyyyMMdd" (OFX)
+                if (count == 0 && digits == 8 && i == 7) {
+                    return toEpochDay(value / 10000, value / 100 % 100, value % 100);
+                }
+            } else if (c == '/' || c == '-' || c == '.') {
+                if (value < 0) {
+                    return DateCodec.INVALID_DAY;
+                }
+                parts[count++] = value;
+                value = -1;
+                digits = 0;
+            } else {
+                break; // Début de l'heure
+            }
+        }
+        if (count == 2 && value >= 0) {
+            parts[count++] = value;
+        }
+        if (count != 3) {
+            return DateCodec.INVALID_DAY;
+        }
+        return parts[0] > 31
+                ? toEpochDay(parts[0], parts[1], parts[2])
+                : toEpochDay(parts[2], parts[1], parts[0]);
+    }
+
+    /**
+     * Convertit un libellé de type ("Revenu", "Crédit", "income", "Débit"...) en type de l'application.
+     *
+     * @param text Le type textuel.
+     * @return Le type de l'application, ou null s'il n'est pas reconnu.
+     */
+    static String parseType(String text) {
+        if (text == null) {
+            return null;
+        }
+        String type = text.trim().toLowerCase();
+        if (type.startsWith("rev") || type.startsWith("cr") || type.startsWith("inc")) {
+            return TYPE_INCOME;
+        }
+        if (type.startsWith("dé") || type.startsWith("de") || type.startsWith("exp")) {
+            return TYPE_EXPENSE;
+        }
+        return null;
+    }
+
+    // Valide une date civile et la convertit en jours depuis le 01/01/1970
+    private static int toEpochDay(int year, int month, int day) {
+        if (year < 100) {
+            year += 2000; // Années sur deux chiffres
+        }
+        if (month < 1 || month > 12 || day < 1 || day > DateCodec.lengthOfMonth(year, month)) {
+            return DateCodec.INVALID_DAY;
+        }
+        return DateCodec.toEpochDay(year, month, day);
+    }
+}
@@ -0,0 +1,25 @@
+package ensa.application01.app_budget.importer;
+
+/**
+ * ImportedRow contient une transaction lue dans un fichier importé, déjà convertie
+ * vers les colonnes de la table transactions. Une seule instance est réutilisée pour
+ * toutes les lignes d'un import afin de ne pas allouer d'objet par ligne.
+ */
+public class ImportedRow {
+    public String type; // Type de la transaction ("Revenu" ou "Dépense")
+    public long amountMinor; // Montant positif de la transaction en centimes
+    public String category; // Catégorie de la transaction
+    public int dateDay; // Date en jours depuis le 01/01/1970
+    public String note; // Note ou libellé, jamais null (la contrainte UNIQUE ignore les NULL)
+
+    /**
+     * Réinitialise la ligne avant la lecture de la transaction suivante.
+     */
+    public void clear() {
+        type = null;
+        amountMinor = 0;
+        category = null;
+        dateDay = 0;
+        note = "";
+    }
+}
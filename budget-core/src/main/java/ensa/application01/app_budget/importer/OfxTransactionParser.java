@@ -0,0 +1,143 @@
+package ensa.application01.app_budget.importer;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+
+import ensa.application01.app_budget.utils.DateCodec;
+import ensa.application01.app_budget.utils.Money;
+
+/**
+ * OfxTransactionParser lit un relevé OFX (SGML 1.x ou XML 2.x) ligne par ligne.
+ * Seuls les blocs &lt;STMTTRN&gt; sont lus : DTPOSTED donne la date, le signe de TRNAMT le type,
+ * NAME et MEMO la note. Les balises peuvent être sur une ou plusieurs lignes, fermées ou non.
+ */
+public class OfxTransactionParser implements TransactionParser {
+
+    private final BufferedReader reader; // Flux du fichier importé
+    private String pendingLine; // Reste de la ligne courante, pas encore analysé
+    private int rejectedCount; // Nombre de transactions rejetées
+
+    // Valeurs du bloc STMTTRN en cours
+    private boolean inTransaction;
+    private String datePosted;
+    private String amount;
+    private String name;
+    private String memo;
+
+    /**
+     * Constructeur de OfxTransactionParser.
+     *
+     * @param reader Le flux du fichier OFX.
+     */
+    public OfxTransactionParser(BufferedReader reader) {
+        this.reader = reader;
+    }
+
+    @Override
+    public boolean next(ImportedRow row) throws IOException {
+        String tag;
+        while ((tag = nextTag()) != null) {
+            if (tag.equals("STMTTRN")) {
+                inTransaction = true;
+                datePosted = null;
+                amount = null;
+                name = null;
+                memo = null;
+            } else if (tag.equals("/STMTTRN")) {
+                inTransaction = false;
+                if (convert(row)) {
+                    return true;
+                }
+                rejectedCount++;
+            } else if (inTransaction) {
+                switch (tag) {
+                    case "DTPOSTED":
+                        datePosted = readValue();
+                        break;
+                    case "TRNAMT":
+                        amount = readValue();
+                        break;
+                    case "NAME":
+                        name = readValue();
+                        break;
+                    case "MEMO":
+                        memo = readValue();
+                        break;
+                    default:
+                        break;
+                }
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public int getRejectedCount() {
+        return rejectedCount;
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+
+    // Convertit le bloc STMTTRN lu vers les colonnes de la table transactions
+    private boolean convert(ImportedRow row) {
+        row.clear();
+        row.dateDay = ImportValues.parseDate(datePosted);
+        long value = ImportValues.parseAmount(amount);
+        if (row.dateDay == DateCodec.INVALID_DAY || value == Money.INVALID) {
+            return false;
+        }
+        row.type = value < 0 ? ImportValues.TYPE_EXPENSE : ImportValues.TYPE_INCOME;
+        row.amountMinor = Math.abs(value);
+        row.category = ImportValues.DEFAULT_CATEGORY;
+        if (name != null && memo != null && !memo.equals(name)) {
+            row.note = name + " - " + memo;
+        } else {
+            row.note = name != null ? name : memo != null ? memo : "";
+        }
+        return true;
+    }
+
+    // Retourne le nom de la prochaine balise (exemple : "STMTTRN" ou "/STMTTRN"), ou null en fin de fichier
+    private String nextTag() throws IOException {
+        while (true) {
+            if (pendingLine == null) {
+                pendingLine = reader.readLine();
+                if (pendingLine == null) {
+                    return null;
+                }
+            }
+            int start = pendingLine.indexOf('<');
+            int end = start < 0 ? -1 : pendingLine.indexOf('>', start);
+            if (end < 0) {
+                pendingLine = null;
+                continue;
+            }
+            String tag = pendingLine.substring(start + 1, end).trim().toUpperCase();
+            pendingLine = pendingLine.substring(end + 1);
+            return tag;
+        }
+    }
+
+    // Lit la valeur qui suit la balise courante, jusqu'à la balise suivante ou la fin de ligne
+    private String readValue() {
+        if (pendingLine == null) {
+            return null;
+        }
+        int end = pendingLine.indexOf('<');
+        String value = (end < 0 ? pendingLine : pendingLine.substring(0, end)).trim();
+        pendingLine = end < 0 ? null : pendingLine.substring(end);
+        return value.isEmpty() ? null : unescape(value);
+    }
+
+    // Décode les entités XML courantes
+    private static String unescape(String value) {
+        if (value.indexOf('&') < 0) {
+            return value;
+        }
+        return value.replace("&lt;", "<").replace("&gt;", ">").replace("&quot;", "\"")
+                .replace("&apos;", "'").replace("&amp;", "&");
+    }
+}
@@ -0,0 +1,27 @@
+package ensa.application01.app_budget.importer;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * TransactionParser lit un relevé bancaire en flux, une transaction à la fois.
+ * Les lignes qui ne peuvent pas être converties sont ignorées et comptées comme rejetées.
+ */
+public interface TransactionParser extends Closeable {
+
+    /**
+     * Lit la prochaine transaction valide.
+     *
+     * @param row La ligne à remplir.
+     * @return `true` si une transaction a été lue, `false` à la fin du fichier.
+     * @throws IOException En cas d'erreur de lecture.
+     */
+    boolean next(ImportedRow row) throws IOException;
+
+    /**
+     * Retourne le nombre de lignes rejetées jusqu'ici.
+     *
+     * @return Le nombre de lignes rejetées.
+     */
+    int getRejectedCount();
+}
@@ -0,0 +1,41 @@
+package ensa.application01.app_budget.importer;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+
+/**
+ * TransactionParsers choisit le parser adapté au contenu d'un fichier importé (OFX ou CSV).
+ */
+public final class TransactionParsers {
+
+    private static final int BUFFER_SIZE = 64 * 1024; // Taille du tampon de lecture
+    private static final int SNIFF_SIZE = 1024; // Nombre de caractères examinés pour détecter le format
+
+    private TransactionParsers() {
+    }
+
+    /**
+     * Ouvre le parser correspondant au contenu du flux : OFX si l'en-tête OFX est présent, CSV sinon.
+     *
+     * @param input   Le flux du fichier.
+     * @param charset L'encodage du fichier.
+     * @return Le parser, à fermer après utilisation.
+     * @throws IOException En cas d'erreur de lecture.
+     */
+    public static TransactionParser open(InputStream input, Charset charset) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(input, charset), BUFFER_SIZE);
+        reader.mark(SNIFF_SIZE);
+        char[] head = new char[SNIFF_SIZE];
+        int length = reader.read(head, 0, SNIFF_SIZE);
+        reader.reset();
+
+        String start = length > 0 ? new String(head, 0, length).toUpperCase() : "";
+        if (start.contains("OFXHEADER") || start.contains("<OFX>")) {
+            return new OfxTransactionParser(reader);
+        }
+        return new CsvTransactionParser(reader);
+    }
+}
@@ -0,0 +1,100 @@
+package ensa.application01.app_budget.module;
+
+/**
+ * La classe BucketSeries contient les totaux des transactions regroupés par période
+ * (jour, semaine, mois, trimestre, année ou fenêtre glissante). Les valeurs sont rangées dans
+ * des tableaux primitifs parallèles, indexés par période dans l'ordre chronologique.
+ */
+public class BucketSeries {
+    private final int[] startDays; // Premier jour de chaque période, en jours depuis le 01/01/1970
+    private final int[] endDays; // Dernier jour (inclus) de chaque période
+    private final long[] income; // Total des revenus de chaque période, en centimes
+    private final long[] expenses; // Total des dépenses de chaque période, en centimes
+    private final int[] counts; // Nombre de transactions de chaque période
+
+    /**
+     * Constructeur de la classe BucketSeries. Les tableaux sont conservés sans copie.
+     *
+     * @param startDays Le premier jour de chaque période.
+     * @param endDays   Le dernier jour (inclus) de chaque période.
+     * @param income    Le total des revenus de chaque période, en centimes.
+     * @param expenses  Le total des dépenses de chaque période, en centimes.
+     * @param counts    Le nombre de transactions de chaque période.
+     */
+    public BucketSeries(int[] startDays, int[] endDays, long[] income, long[] expenses, int[] counts) {
+        this.startDays = startDays;
+        this.endDays = endDays;
+        this.income = income;
+        this.expenses = expenses;
+        this.counts = counts;
+    }
+
+    /**
+     * Retourne le nombre de périodes.
+     *
+     * @return Le nombre de périodes.
+     */
+    public int size() {
+        return startDays.length;
+    }
+
+    /**
+     * Retourne le premier jour d'une période.
+     *
+     * @param index L'index de la période.
+     * @return Le premier jour, en jours depuis le 01/01/1970.
+     */
+    public int getStartDay(int index) {
+        return startDays[index];
+    }
+
+    /**
+     * Retourne le dernier jour (inclus) d'une période.
+     *
+     * @param index L'index de la période.
+     * @return Le dernier jour, en jours depuis le 01/01/1970.
+     */
+    public int getEndDay(int index) {
+        return endDays[index];
+    }
+
+    /**
+     * Retourne le total des revenus d'une période.
+     *
+     * @param index L'index de la période.
+     * @return Le total des revenus en centimes.
+     */
+    public long getIncome(int index) {
+        return income[index];
+    }
+
+    /**
+     * Retourne le total des dépenses d'une période.
+     *
+     * @param index L'index de la période.
+     * @return Le total des dépenses en centimes.
+     */
+    public long getExpenses(int index) {
+        return expenses[index];
+    }
+
+    /**
+     * Retourne le solde (revenus - dépenses) d'une période.
+     *
+     * @param index L'index de la période.
+     * @return Le solde en centimes.
+     */
+    public long getBalance(int index) {
+        return income[index] - expenses[index];
+    }
+
+    /**
+     * Retourne le nombre de transactions d'une période.
+     *
+     * @param index L'index de la période.
+     * @return Le nombre de transactions.
+     */
+    public int getCount(int index) {
+        return counts[index];
+    }
+}
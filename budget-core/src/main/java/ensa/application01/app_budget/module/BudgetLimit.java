@@ -0,0 +1,129 @@
+package ensa.application01.app_budget.module;
+
+import java.util.Arrays;
+
+/**
+ * La classe BudgetLimit représente la limite mensuelle des dépenses d'une catégorie et les seuils
+ * d'alerte associés, en pourcentage de la limite (exemple : 80 et 100).
+ * Un seuil est franchi par une dépense lorsque le cumul du mois passe de sous le seuil à au-dessus :
+ * le test ne dépend que des cumuls avant et après la dépense, pas de l'historique du mois.
+ */
+public class BudgetLimit {
+
+    public static final int[] DEFAULT_THRESHOLDS = {80, 100}; // Seuils proposés par défaut, en pourcentage
+    public static final int NO_THRESHOLD = -1; // Aucun seuil franchi
+
+    private final long categoryId; // Id de la catégorie
+    private final long limitMinor; // Limite mensuelle en centimes
+    private final int[] thresholds; // Seuils d'alerte en pourcentage, triés par ordre croissant
+
+    /**
+     * Constructeur de la classe BudgetLimit.
+     *
+     * @param categoryId L'id de la catégorie.
+     * @param limitMinor La limite mensuelle en centimes (strictement positive).
+     * @param thresholds Les seuils d'alerte en pourcentage.
+     */
+    public BudgetLimit(long categoryId, long limitMinor, int[] thresholds) {
+        this.categoryId = categoryId;
+        this.limitMinor = limitMinor;
+        this.thresholds = thresholds.clone();
+        Arrays.sort(this.thresholds);
+    }
+
+    /**
+     * Lit une liste de seuils saisie ou stockée sous la forme "80,100".
+     *
+     * @param text Les seuils séparés par des virgules.
+     * @return Les seuils, ou null si la liste est vide ou contient une valeur invalide (hors de 1 à 1000).
+     */
+    public static int[] parseThresholds(String text) {
+        if (text == null || text.trim().isEmpty()) {
+            return null;
+        }
+        String[] parts = text.split(",");
+        int[] thresholds = new int[parts.length];
+        try {
+            for (int i = 0; i < parts.length; i++) {
+                thresholds[i] = Integer.parseInt(parts[i].trim());
+                if (thresholds[i] < 1 || thresholds[i] > 1000) {
+                    return null;
+                }
+            }
+        } catch (NumberFormatException e) {
+            return null;
+        }
+        return thresholds;
+    }
+
+    /**
+     * Écrit une liste de seuils sous la forme "80,100" (format de stockage).
+     *
+     * @param thresholds Les seuils en pourcentage.
+     * @return Le texte des seuils.
+     */
+    public static String formatThresholds(int[] thresholds) {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < thresholds.length; i++) {
+            if (i > 0) {
+                builder.append(',');
+            }
+            builder.append(thresholds[i]);
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Retourne le plus haut seuil franchi en passant d'un cumul à l'autre.
+     *
+     * @param spentBefore Le cumul des dépenses du mois avant la dépense, en centimes.
+     * @param spentAfter  Le cumul des dépenses du mois après la dépense, en centimes.
+     * @return Le seuil franchi en pourcentage, ou NO_THRESHOLD.
+     */
+    public int crossedThreshold(long spentBefore, long spentAfter) {
+        for (int i = thresholds.length - 1; i >= 0; i--) {
+            long level = limitMinor * thresholds[i]; // Comparaison en centimes x 100, sans arrondi
+            if (spentBefore * 100 < level && spentAfter * 100 >= level) {
+                return thresholds[i];
+            }
+        }
+        return NO_THRESHOLD;
+    }
+
+    /**
+     * Retourne la part de la limite consommée par un cumul.
+     *
+     * @param spent Le cumul des dépenses en centimes.
+     * @return Le pourcentage de la limite (peut dépasser 100).
+     */
+    public int percentOf(long spent) {
+        return (int) Math.min(Integer.MAX_VALUE, spent * 100 / limitMinor);
+    }
+
+    /**
+     * Retourne l'id de la catégorie.
+     *
+     * @return L'id de la catégorie.
+     */
+    public long getCategoryId() {
+        return categoryId;
+    }
+
+    /**
+     * Retourne la limite mensuelle.
+     *
+     * @return La limite en centimes.
+     */
+    public long getLimitMinor() {
+        return limitMinor;
+    }
+
+    /**
+     * Retourne les seuils d'alerte.
+     *
+     * @return Les seuils en pourcentage, par ordre croissant (copie).
+     */
+    public int[] getThresholds() {
+        return thresholds.clone();
+    }
+}
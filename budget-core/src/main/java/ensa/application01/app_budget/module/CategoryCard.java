@@ -0,0 +1,111 @@
+package ensa.application01.app_budget.module;
+
+/**
+ * La classe CategoryCard représente une carte récapitulative du graphique mensuel : le total
+ * d'une catégorie pour un type de transaction, avec son texte déjà formaté pour l'affichage
+ * et, pour les dépenses, la limite mensuelle de la catégorie.
+ * Les instances sont immuables et comparables, pour que la liste des cartes puisse être
+ * comparée d'un mois à l'autre sans recréer les vues.
+ */
+public class CategoryCard {
+    public static final long NO_LIMIT = 0; // La catégorie n'a pas de limite mensuelle
+
+    private final long categoryId; // Id de la catégorie (id stable de la carte)
+    private final String category; // Nom de la catégorie
+    private final long total; // Somme des montants en centimes
+    private final String amountText; // Texte du montant (exemple : "125.50 DH")
+    private final long limitMinor; // Limite mensuelle en centimes, ou NO_LIMIT
+
+    /**
+     * Constructeur de la classe CategoryCard.
+     *
+     * @param categoryId L'id de la catégorie.
+     * @param category   Le nom de la catégorie.
+     * @param total      La somme des montants en centimes.
+     * @param amountText Le texte du montant affiché sur la carte.
+     * @param limitMinor La limite mensuelle en centimes, ou NO_LIMIT.
+     */
+    public CategoryCard(long categoryId, String category, long total, String amountText, long limitMinor) {
+        this.categoryId = categoryId;
+        this.category = category;
+        this.total = total;
+        this.amountText = amountText;
+        this.limitMinor = limitMinor;
+    }
+
+    /**
+     * Retourne l'id de la catégorie.
+     *
+     * @return L'id de la catégorie.
+     */
+    public long getCategoryId() {
+        return categoryId;
+    }
+
+    /**
+     * Retourne le nom de la catégorie.
+     *
+     * @return Le nom de la catégorie.
+     */
+    public String getCategory() {
+        return category;
+    }
+
+    /**
+     * Retourne la somme des montants.
+     *
+     * @return Le total en centimes.
+     */
+    public long getTotal() {
+        return total;
+    }
+
+    /**
+     * Retourne le texte du montant.
+     *
+     * @return Le texte du montant.
+     */
+    public String getAmountText() {
+        return amountText;
+    }
+
+    /**
+     * Retourne la limite mensuelle de la catégorie.
+     *
+     * @return La limite en centimes, ou NO_LIMIT.
+     */
+    public long getLimitMinor() {
+        return limitMinor;
+    }
+
+    /**
+     * Retourne la part de la limite consommée par le total de la carte.
+     *
+     * @return Le pourcentage de la limite (peut dépasser 100), ou 0 sans limite.
+     */
+    public int getLimitPercent() {
+        return limitMinor == NO_LIMIT ? 0 : (int) Math.min(Integer.MAX_VALUE, total * 100 / limitMinor);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof CategoryCard)) {
+            return false;
+        }
+        CategoryCard other = (CategoryCard) o;
+        return categoryId == other.categoryId && total == other.total && limitMinor == other.limitMinor
+                && category.equals(other.category);
+    }
+
+    @Override
+    public int hashCode() {
+        int result = Long.hashCode(categoryId);
+        result = 31 * result + category.hashCode();
+        result = 31 * result + Long.hashCode(total);
+        result = 31 * result + Long.hashCode(limitMinor);
+        return result;
+    }
+}
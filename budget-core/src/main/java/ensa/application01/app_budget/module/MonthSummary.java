@@ -0,0 +1,67 @@
+package ensa.application01.app_budget.module;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * La classe MonthSummary contient tout ce qu'affiche le graphique d'un mois : les cartes des revenus,
+ * les cartes des dépenses et les totaux du camembert. Elle est calculée en une seule lecture,
+ * en arrière-plan, puis partagée sans copie (les listes ne sont pas modifiables).
+ */
+public class MonthSummary {
+    private final List<CategoryCard> incomeCards; // Cartes des revenus, du plus grand au plus petit total
+    private final List<CategoryCard> expenseCards; // Cartes des dépenses, du plus grand au plus petit total
+    private final long totalIncome; // Total des revenus du mois en centimes
+    private final long totalExpenses; // Total des dépenses du mois en centimes
+
+    /**
+     * Constructeur de la classe MonthSummary.
+     *
+     * @param incomeCards   Les cartes des revenus.
+     * @param expenseCards  Les cartes des dépenses.
+     * @param totalIncome   Le total des revenus en centimes.
+     * @param totalExpenses Le total des dépenses en centimes.
+     */
+    public MonthSummary(List<CategoryCard> incomeCards, List<CategoryCard> expenseCards, long totalIncome, long totalExpenses) {
+        this.incomeCards = Collections.unmodifiableList(incomeCards);
+        this.expenseCards = Collections.unmodifiableList(expenseCards);
+        this.totalIncome = totalIncome;
+        this.totalExpenses = totalExpenses;
+    }
+
+    /**
+     * Retourne les cartes des revenus.
+     *
+     * @return Les cartes des revenus (liste non modifiable).
+     */
+    public List<CategoryCard> getIncomeCards() {
+        return incomeCards;
+    }
+
+    /**
+     * Retourne les cartes des dépenses.
+     *
+     * @return Les cartes des dépenses (liste non modifiable).
+     */
+    public List<CategoryCard> getExpenseCards() {
+        return expenseCards;
+    }
+
+    /**
+     * Retourne le total des revenus du mois.
+     *
+     * @return Le total des revenus en centimes.
+     */
+    public long getTotalIncome() {
+        return totalIncome;
+    }
+
+    /**
+     * Retourne le total des dépenses du mois.
+     *
+     * @return Le total des dépenses en centimes.
+     */
+    public long getTotalExpenses() {
+        return totalExpenses;
+    }
+}
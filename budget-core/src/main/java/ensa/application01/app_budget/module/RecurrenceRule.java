@@ -0,0 +1,182 @@
+package ensa.application01.app_budget.module;
+
+import ensa.application01.app_budget.utils.DateCodec;
+
+/**
+ * La classe RecurrenceRule représente une transaction répétée (loyer, salaire, abonnement) :
+ * le modèle de la transaction, sa fréquence, sa première date et sa limite (date de fin et/ou nombre
+ * d'occurrences). La n-ième occurrence est calculée directement à partir de la première date, sans
+ * parcourir les précédentes, et un jour du mois absent (31, 29 février) est ramené au dernier jour du mois
+ * (voir {@link DateCodec#plusMonths}).
+ */
+public class RecurrenceRule {
+
+    /**
+     * Fréquence de répétition d'une règle.
+     */
+    public enum Frequency {
+        DAILY, WEEKLY, MONTHLY, YEARLY
+    }
+
+    public static final int NO_MAX_COUNT = 0; // Nombre d'occurrences non limité
+
+    private final String type; // Type des transactions générées (exemple : "Revenu" ou "Dépense")
+    private final long amountMinor; // Montant en centimes
+    private final long categoryId; // Id de la catégorie
+    private final String note; // Note des transactions générées
+    private final Frequency frequency; // Fréquence de répétition
+    private final int startDay; // Première occurrence, en jours depuis le 01/01/1970
+    private final int endDay; // Dernière date possible (incluse), ou DateCodec.INVALID_DAY si aucune
+    private final int maxCount; // Nombre maximal d'occurrences, ou NO_MAX_COUNT
+
+    /**
+     * Constructeur de la classe RecurrenceRule.
+     *
+     * @param type        Le type des transactions générées.
+     * @param amountMinor Le montant en centimes.
+     * @param categoryId  L'id de la catégorie.
+     * @param note        La note des transactions générées.
+     * @param frequency   La fréquence de répétition.
+     * @param startDay    La première occurrence, en jours depuis le 01/01/1970.
+     * @param endDay      La dernière date possible (incluse), ou DateCodec.INVALID_DAY si aucune.
+     * @param maxCount    Le nombre maximal d'occurrences, ou NO_MAX_COUNT.
+     */
+    public RecurrenceRule(String type, long amountMinor, long categoryId, String note, Frequency frequency,
+                          int startDay, int endDay, int maxCount) {
+        this.type = type;
+        this.amountMinor = amountMinor;
+        this.categoryId = categoryId;
+        this.note = note;
+        this.frequency = frequency;
+        this.startDay = startDay;
+        this.endDay = endDay;
+        this.maxCount = maxCount;
+    }
+
+    /**
+     * Calcule la date de la n-ième occurrence d'une règle (la première occurrence a l'indice 0).
+     *
+     * @param frequency La fréquence de répétition.
+     * @param startDay  La première occurrence, en jours depuis le 01/01/1970.
+     * @param n         L'indice de l'occurrence.
+     * @return La date de l'occurrence, en jours depuis le 01/01/1970.
+     */
+    public static int occurrenceDay(Frequency frequency, int startDay, int n) {
+        switch (frequency) {
+            case DAILY:
+                return startDay + n;
+            case WEEKLY:
+                return startDay + 7 * n;
+            case MONTHLY:
+                return DateCodec.plusMonths(startDay, n);
+            case YEARLY:
+                return DateCodec.plusYears(startDay, n);
+            default:
+                throw new IllegalArgumentException("Fréquence inconnue : " + frequency);
+        }
+    }
+
+    /**
+     * Indique si la n-ième occurrence, à la date donnée, respecte les limites d'une règle.
+     *
+     * @param endDay   La dernière date possible (incluse), ou DateCodec.INVALID_DAY si aucune.
+     * @param maxCount Le nombre maximal d'occurrences, ou NO_MAX_COUNT.
+     * @param n        L'indice de l'occurrence.
+     * @param day      La date de l'occurrence.
+     * @return `true` si l'occurrence existe, sinon `false` (la règle est terminée).
+     */
+    public static boolean isWithinLimits(int endDay, int maxCount, int n, int day) {
+        return (maxCount == NO_MAX_COUNT || n < maxCount) && (endDay == DateCodec.INVALID_DAY || day <= endDay);
+    }
+
+    /**
+     * Retourne la date de la n-ième occurrence de cette règle.
+     *
+     * @param n L'indice de l'occurrence (0 pour la première).
+     * @return La date de l'occurrence, en jours depuis le 01/01/1970.
+     */
+    public int occurrenceDay(int n) {
+        return occurrenceDay(frequency, startDay, n);
+    }
+
+    /**
+     * Retourne la première occurrence à générer, ou DateCodec.INVALID_DAY si la règle n'en a aucune.
+     *
+     * @return La date de la première occurrence.
+     */
+    public int firstPendingDay() {
+        return isWithinLimits(endDay, maxCount, 0, startDay) ? startDay : DateCodec.INVALID_DAY;
+    }
+
+    /**
+     * Retourne le type des transactions générées.
+     *
+     * @return Le type (exemple : "Revenu" ou "Dépense").
+     */
+    public String getType() {
+        return type;
+    }
+
+    /**
+     * Retourne le montant des transactions générées.
+     *
+     * @return Le montant en centimes.
+     */
+    public long getAmountMinor() {
+        return amountMinor;
+    }
+
+    /**
+     * Retourne l'id de la catégorie.
+     *
+     * @return L'id de la catégorie.
+     */
+    public long getCategoryId() {
+        return categoryId;
+    }
+
+    /**
+     * Retourne la note des transactions générées.
+     *
+     * @return La note.
+     */
+    public String getNote() {
+        return note;
+    }
+
+    /**
+     * Retourne la fréquence de répétition.
+     *
+     * @return La fréquence.
+     */
+    public Frequency getFrequency() {
+        return frequency;
+    }
+
+    /**
+     * Retourne la première occurrence.
+     *
+     * @return La date en jours depuis le 01/01/1970.
+     */
+    public int getStartDay() {
+        return startDay;
+    }
+
+    /**
+     * Retourne la dernière date possible (incluse).
+     *
+     * @return La date en jours depuis le 01/01/1970, ou DateCodec.INVALID_DAY si aucune.
+     */
+    public int getEndDay() {
+        return endDay;
+    }
+
+    /**
+     * Retourne le nombre maximal d'occurrences.
+     *
+     * @return Le nombre d'occurrences, ou NO_MAX_COUNT.
+     */
+    public int getMaxCount() {
+        return maxCount;
+    }
+}
@@ -0,0 +1,48 @@
+package ensa.application01.app_budget.module;
+
+/**
+ * La classe Totals représente le résumé global des transactions affiché sur l'écran principal :
+ * total des revenus, total des dépenses et solde.
+ */
+public class Totals {
+    private final long income; // Total des revenus en centimes
+    private final long expenses; // Total des dépenses en centimes
+
+    /**
+     * Constructeur de la classe Totals.
+     *
+     * @param income   Le total des revenus en centimes.
+     * @param expenses Le total des dépenses en centimes.
+     */
+    public Totals(long income, long expenses) {
+        this.income = income;
+        this.expenses = expenses;
+    }
+
+    /**
+     * Retourne le total des revenus.
+     *
+     * @return Le total des revenus en centimes.
+     */
+    public long getIncome() {
+        return income;
+    }
+
+    /**
+     * Retourne le total des dépenses.
+     *
+     * @return Le total des dépenses en centimes.
+     */
+    public long getExpenses() {
+        return expenses;
+    }
+
+    /**
+     * Retourne le solde (revenus - dépenses).
+     *
+     * @return Le solde en centimes.
+     */
+    public long getBalance() {
+        return income - expenses;
+    }
+}
@@ -1,25 +1,35 @@
 package ensa.application01.app_budget.module;
 
+import java.util.Objects;
+
 /**
  * La classe Transaction représente une transaction financière.
  * Elle contient des informations telles que le type, le montant, la catégorie, la date, une note,
  * ainsi que des détails sur l'alarme associée (si activée).
+ * Deux transactions sont égales si tous leurs champs, id compris, sont égaux ; les textes d'affichage
+ * précalculés ({@link TransactionLabels}) n'entrent pas dans la comparaison.
  */
 public class Transaction {
+    public static final String TYPE_INCOME = "Revenu"; // Type d'un revenu
+    public static final String TYPE_EXPENSE = "Dépense"; // Type d'une dépense
+
+    private long id; // Id de la ligne dans la table transactions
     private String type; // Type de la transaction (exemple : "Revenu" ou "Dépense")
-    private double amount; // Montant de la transaction
+    private long amountMinor; // Montant de la transaction en centimes
     private String category; // Catégorie de la transaction (exemple : "Nourriture", "Transport")
     private String date; // Date de la transaction au format "dd/MM/yyyy"
     private String note; // Note ou description facultative de la transaction
     private boolean isAlarmEnabled; // Indique si une alarme est activée pour cette transaction
     private String alarmDate; // Date de l'alarme au format "dd/MM/yyyy"
     private String alarmTime; // Heure de l'alarme au format "HH:mm"
+    private TransactionLabels labels; // Textes d'affichage précalculés, ou null s'ils ne sont pas encore calculés
 
     /**
      * Constructeur de la classe Transaction.
      *
+     * @param id             L'id de la ligne dans la table transactions.
      * @param type           Le type de la transaction (exemple : "Revenu" ou "Dépense").
-     * @param amount         Le montant de la transaction.
+     * @param amountMinor    Le montant de la transaction en centimes.
      * @param category       La catégorie de la transaction (exemple : "Nourriture", "Transport").
      * @param date           La date de la transaction au format "dd/MM/yyyy".
      * @param note           Une note ou description facultative de la transaction.
@@ -27,9 +37,10 @@ public class Transaction {
      * @param alarmDate      La date de l'alarme au format "dd/MM/yyyy".
      * @param alarmTime      L'heure de l'alarme au format "HH:mm".
      */
-    public Transaction(String type, double amount, String category, String date, String note, boolean isAlarmEnabled, String alarmDate, String alarmTime) {
+    public Transaction(long id, String type, long amountMinor, String category, String date, String note, boolean isAlarmEnabled, String alarmDate, String alarmTime) {
+        this.id = id;
         this.type = type;
-        this.amount = amount;
+        this.amountMinor = amountMinor;
         this.category = category;
         this.date = date;
         this.note = note;
@@ -38,6 +49,15 @@ public class Transaction {
         this.alarmTime = alarmTime;
     }
 
+    /**
+     * Retourne l'id de la transaction.
+     *
+     * @return L'id de la ligne dans la table transactions, stable pour toute la vie de la transaction.
+     */
+    public long getId() {
+        return id;
+    }
+
     /**
      * Retourne le type de la transaction.
      *
@@ -50,10 +70,10 @@ public class Transaction {
     /**
      * Retourne le montant de la transaction.
      *
-     * @return Le montant de la transaction.
+     * @return Le montant de la transaction en centimes.
      */
-    public double getAmount() {
-        return amount;
+    public long getAmountMinor() {
+        return amountMinor;
     }
 
     /**
@@ -109,4 +129,47 @@ public class Transaction {
     public String getAlarmTime() {
         return alarmTime;
     }
-}
\ No newline at end of file
+
+    /**
+     * Retourne les textes d'affichage précalculés de la transaction.
+     *
+     * @return Les textes, ou null s'ils n'ont pas encore été calculés.
+     */
+    public TransactionLabels getLabels() {
+        return labels;
+    }
+
+    /**
+     * Définit les textes d'affichage précalculés de la transaction.
+     *
+     * @param labels Les textes calculés pour cette transaction.
+     */
+    public void setLabels(TransactionLabels labels) {
+        this.labels = labels;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof Transaction)) {
+            return false;
+        }
+        Transaction other = (Transaction) o;
+        return id == other.id
+                && amountMinor == other.amountMinor
+                && isAlarmEnabled == other.isAlarmEnabled
+                && Objects.equals(type, other.type)
+                && Objects.equals(category, other.category)
+                && Objects.equals(date, other.date)
+                && Objects.equals(note, other.note)
+                && Objects.equals(alarmDate, other.alarmDate)
+                && Objects.equals(alarmTime, other.alarmTime);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(id, type, amountMinor, category, date, note, isAlarmEnabled, alarmDate, alarmTime);
+    }
+}
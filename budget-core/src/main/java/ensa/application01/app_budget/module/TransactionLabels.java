@@ -0,0 +1,88 @@
+package ensa.application01.app_budget.module;
+
+/**
+ * La classe TransactionLabels contient les textes affichés pour une transaction dans l'historique.
+ * Ils sont calculés une seule fois, en arrière-plan, pour que l'affichage d'une ligne pendant
+ * le défilement se limite à mettre à jour les TextView.
+ */
+public class TransactionLabels {
+    private final String type; // Texte du type (exemple : "Type: Dépense")
+    private final String amount; // Texte du montant, formaté selon la langue
+    private final String category; // Texte de la catégorie
+    private final String date; // Texte de la date
+    private final String note; // Texte de la note
+    private final String alarm; // Texte de l'état de l'alarme
+
+    /**
+     * Constructeur de la classe TransactionLabels.
+     *
+     * @param type     Le texte du type.
+     * @param amount   Le texte du montant.
+     * @param category Le texte de la catégorie.
+     * @param date     Le texte de la date.
+     * @param note     Le texte de la note.
+     * @param alarm    Le texte de l'état de l'alarme.
+     */
+    public TransactionLabels(String type, String amount, String category, String date, String note, String alarm) {
+        this.type = type;
+        this.amount = amount;
+        this.category = category;
+        this.date = date;
+        this.note = note;
+        this.alarm = alarm;
+    }
+
+    /**
+     * Retourne le texte du type.
+     *
+     * @return Le texte du type.
+     */
+    public String getType() {
+        return type;
+    }
+
+    /**
+     * Retourne le texte du montant.
+     *
+     * @return Le texte du montant.
+     */
+    public String getAmount() {
+        return amount;
+    }
+
+    /**
+     * Retourne le texte de la catégorie.
+     *
+     * @return Le texte de la catégorie.
+     */
+    public String getCategory() {
+        return category;
+    }
+
+    /**
+     * Retourne le texte de la date.
+     *
+     * @return Le texte de la date.
+     */
+    public String getDate() {
+        return date;
+    }
+
+    /**
+     * Retourne le texte de la note.
+     *
+     * @return Le texte de la note.
+     */
+    public String getNote() {
+        return note;
+    }
+
+    /**
+     * Retourne le texte de l'état de l'alarme.
+     *
+     * @return Le texte de l'état de l'alarme.
+     */
+    public String getAlarm() {
+        return alarm;
+    }
+}
@@ -0,0 +1,247 @@
+package ensa.application01.app_budget.utils;
+
+import java.util.Calendar;
+
+/**
+ * DateCodec convertit les dates "dd/MM/yyyy" de l'application en jours depuis l'époque Unix
+ * (1970-01-01 = 0) et inversement. Les jours entiers sont triables et indexables par SQLite,
+ * ce qui permet de filtrer par mois, année ou intervalle avec un simple parcours d'index.
+ *
+ * Les calculs sont faits en arithmétique entière (calendrier grégorien proleptique)
+ * pour rester compatibles avec minSdk 22, où java.time n'est pas disponible.
+ */
+public final class DateCodec {
+
+    // Valeur renvoyée lorsqu'une date ne peut pas être décodée
+    public static final int INVALID_DAY = Integer.MIN_VALUE;
+
+    private DateCodec() {
+    }
+
+    /**
+     * Convertit une date civile en nombre de jours depuis le 01/01/1970.
+     *
+     * @param year  L'année (exemple : 2024).
+     * @param month Le mois, de 1 à 12.
+     * @param day   Le jour du mois, de 1 à 31.
+     * @return Le nombre de jours depuis l'époque Unix.
+     */
+    public static int toEpochDay(int year, int month, int day) {
+        int y = month <= 2 ? year - 1 : year;
+        int era = (y >= 0 ? y : y - 399) / 400;
+        int yoe = y - era * 400;
+        int doy = (153 * (month + (month > 2 ? -3 : 9)) + 2) / 5 + day - 1;
+        int doe = yoe * 365 + yoe / 4 - yoe / 100 + doy;
+        return era * 146097 + doe - 719468;
+    }
+
+    /**
+     * Convertit une date au format "dd/MM/yyyy" en nombre de jours depuis le 01/01/1970.
+     *
+     * @param date La date au format "dd/MM/yyyy".
+     * @return Le nombre de jours depuis l'époque Unix, ou {@link #INVALID_DAY} si la date est invalide.
+     */
+    public static int parse(String date) {
+        if (date == null || date.length() != 10 || date.charAt(2) != '/' || date.charAt(5) != '/') {
+            return INVALID_DAY;
+        }
+        int day = parseDigits(date, 0, 2);
+        int month = parseDigits(date, 3, 5);
+        int year = parseDigits(date, 6, 10);
+        if (day < 1 || month < 1 || month > 12 || year < 0 || day > lengthOfMonth(year, month)) {
+            return INVALID_DAY;
+        }
+        return toEpochDay(year, month, day);
+    }
+
+    /**
+     * Indique si un texte a la forme d'une date saisie "dd/MM/yyyy" : jour de 01 à 31, mois de 01 à 12
+     * et année de 1900 à 2099. L'existence de la date (exemple : 31/04) n'est pas vérifiée, voir {@link #isValid}.
+     *
+     * @param date Le texte à vérifier.
+     * @return `true` si le texte a le format attendu, sinon `false`.
+     */
+    public static boolean hasDateFormat(String date) {
+        if (date == null || date.length() != 10 || date.charAt(2) != '/' || date.charAt(5) != '/') {
+            return false;
+        }
+        int day = parseDigits(date, 0, 2);
+        int month = parseDigits(date, 3, 5);
+        int year = parseDigits(date, 6, 10);
+        return day >= 1 && day <= 31 && month >= 1 && month <= 12 && year >= 1900 && year <= 2099;
+    }
+
+    /**
+     * Indique si une date au format "dd/MM/yyyy" existe dans le calendrier (exemple : 29/02/2023 n'existe pas).
+     *
+     * @param date La date à vérifier.
+     * @return `true` si la date est valide, sinon `false`.
+     */
+    public static boolean isValid(String date) {
+        return parse(date) != INVALID_DAY;
+    }
+
+    /**
+     * Convertit un nombre de jours depuis le 01/01/1970 en date au format "dd/MM/yyyy".
+     *
+     * @param epochDay Le nombre de jours depuis l'époque Unix.
+     * @return La date au format "dd/MM/yyyy".
+     */
+    public static String format(int epochDay) {
+        int[] civil = toCivil(epochDay);
+        char[] out = new char[10];
+        out[0] = (char) ('0' + civil[2] / 10);
+        out[1] = (char) ('0' + civil[2] % 10);
+        out[2] = '/';
+        out[3] = (char) ('0' + civil[1] / 10);
+        out[4] = (char) ('0' + civil[1] % 10);
+        out[5] = '/';
+        out[6] = (char) ('0' + civil[0] / 1000 % 10);
+        out[7] = (char) ('0' + civil[0] / 100 % 10);
+        out[8] = (char) ('0' + civil[0] / 10 % 10);
+        out[9] = (char) ('0' + civil[0] % 10);
+        return new String(out);
+    }
+
+    /**
+     * Décompose un nombre de jours depuis le 01/01/1970 en date civile.
+     *
+     * @param epochDay Le nombre de jours depuis l'époque Unix.
+     * @return Un tableau {année, mois (1-12), jour (1-31)}.
+     */
+    public static int[] toCivil(int epochDay) {
+        int z = epochDay + 719468;
+        int era = (z >= 0 ? z : z - 146096) / 146097;
+        int doe = z - era * 146097;
+        int yoe = (doe - doe / 1460 + doe / 36524 - doe / 146096) / 365;
+        int doy = doe - (365 * yoe + yoe / 4 - yoe / 100);
+        int mp = (5 * doy + 2) / 153;
+        int day = doy - (153 * mp + 2) / 5 + 1;
+        int month = mp < 10 ? mp + 3 : mp - 9;
+        int year = yoe + era * 400 + (month <= 2 ? 1 : 0);
+        return new int[]{year, month, day};
+    }
+
+    /**
+     * Retourne la date du jour (fuseau horaire de l'appareil).
+     *
+     * @return Aujourd'hui, en jours depuis l'époque Unix.
+     */
+    public static int today() {
+        Calendar calendar = Calendar.getInstance();
+        return toEpochDay(calendar.get(Calendar.YEAR), calendar.get(Calendar.MONTH) + 1, calendar.get(Calendar.DAY_OF_MONTH));
+    }
+
+    /**
+     * Retourne le premier jour (inclus) d'un mois donné.
+     *
+     * @param year  L'année.
+     * @param month Le mois, de 1 à 12.
+     * @return Le premier jour du mois en jours depuis l'époque Unix.
+     */
+    public static int firstDayOfMonth(int year, int month) {
+        return toEpochDay(year, month, 1);
+    }
+
+    /**
+     * Retourne le dernier jour (inclus) d'un mois donné.
+     *
+     * @param year  L'année.
+     * @param month Le mois, de 1 à 12.
+     * @return Le dernier jour du mois en jours depuis l'époque Unix.
+     */
+    public static int lastDayOfMonth(int year, int month) {
+        return toEpochDay(year, month, lengthOfMonth(year, month));
+    }
+
+    /**
+     * Retourne le premier jour (inclus) d'une année donnée.
+     *
+     * @param year L'année.
+     * @return Le 1er janvier de l'année en jours depuis l'époque Unix.
+     */
+    public static int firstDayOfYear(int year) {
+        return toEpochDay(year, 1, 1);
+    }
+
+    /**
+     * Retourne le dernier jour (inclus) d'une année donnée.
+     *
+     * @param year L'année.
+     * @return Le 31 décembre de l'année en jours depuis l'époque Unix.
+     */
+    public static int lastDayOfYear(int year) {
+        return toEpochDay(year, 12, 31);
+    }
+
+    /**
+     * Ajoute des mois à une date ; un jour absent du mois d'arrivée (31, 29 février) est ramené au dernier jour du mois.
+     * Le jour est toujours pris dans la date de départ : ajouter 2 mois au 31/01 donne le 31/03, pas le 28/03.
+     *
+     * @param epochDay La date de départ, en jours depuis l'époque Unix.
+     * @param months   Le nombre de mois à ajouter (négatif pour reculer).
+     * @return La date obtenue, en jours depuis l'époque Unix.
+     */
+    public static int plusMonths(int epochDay, int months) {
+        int[] civil = toCivil(epochDay);
+        int totalMonths = civil[0] * 12 + civil[1] - 1 + months;
+        int year = Math.floorDiv(totalMonths, 12);
+        int month = Math.floorMod(totalMonths, 12) + 1;
+        return toEpochDay(year, month, Math.min(civil[2], lengthOfMonth(year, month)));
+    }
+
+    /**
+     * Ajoute des années à une date ; le 29 février devient le 28 février des années non bissextiles.
+     *
+     * @param epochDay La date de départ, en jours depuis l'époque Unix.
+     * @param years    Le nombre d'années à ajouter (négatif pour reculer).
+     * @return La date obtenue, en jours depuis l'époque Unix.
+     */
+    public static int plusYears(int epochDay, int years) {
+        return plusMonths(epochDay, 12 * years);
+    }
+
+    /**
+     * Retourne le nombre de jours d'un mois.
+     *
+     * @param year  L'année (pour les années bissextiles).
+     * @param month Le mois, de 1 à 12.
+     * @return Le nombre de jours du mois.
+     */
+    public static int lengthOfMonth(int year, int month) {
+        switch (month) {
+            case 2:
+                return isLeapYear(year) ? 29 : 28;
+            case 4:
+            case 6:
+            case 9:
+            case 11:
+                return 30;
+            default:
+                return 31;
+        }
+    }
+
+    /**
+     * Indique si une année est bissextile.
+     *
+     * @param year L'année.
+     * @return `true` si l'année est bissextile, sinon `false`.
+     */
+    public static boolean isLeapYear(int year) {
+        return (year % 4 == 0 && year % 100 != 0) || year % 400 == 0;
+    }
+
+    // Lit un entier décimal positif entre start (inclus) et end (exclu), ou -1 si un caractère n'est pas un chiffre
+    private static int parseDigits(String s, int start, int end) {
+        int value = 0;
+        for (int i = start; i < end; i++) {
+            char c = s.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+}
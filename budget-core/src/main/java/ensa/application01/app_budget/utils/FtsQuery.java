@@ -0,0 +1,43 @@
+package ensa.application01.app_budget.utils;
+
+import java.util.Locale;
+
+/**
+ * FtsQuery traduit le texte saisi dans la recherche en expression MATCH pour l'index plein texte
+ * transactions_fts : mots en minuscules suivis de '*' (recherche par préfixe), reliés par un ET implicite.
+ * Seuls les lettres et chiffres sont gardés : guillemets, '*', '-', ':' ou parenthèses ne peuvent pas
+ * rendre l'expression invalide, et "OR", "NEAR" ou "NOT", une fois en minuscules, ne sont plus des opérateurs.
+ */
+public final class FtsQuery {
+
+    private FtsQuery() {
+    }
+
+    /**
+     * Construit l'expression MATCH d'un texte recherché.
+     *
+     * @param searchQuery Le texte saisi, ou null.
+     * @return L'expression MATCH (exemple : "loyer* mars*"), ou null si le texte ne contient aucun mot.
+     */
+    public static String toMatchExpression(String searchQuery) {
+        if (searchQuery == null) {
+            return null;
+        }
+        StringBuilder expression = new StringBuilder();
+        StringBuilder term = new StringBuilder();
+        String text = searchQuery.toLowerCase(Locale.ROOT);
+        for (int i = 0; i <= text.length(); i++) {
+            char c = i < text.length() ? text.charAt(i) : ' ';
+            if (Character.isLetterOrDigit(c)) {
+                term.append(c);
+            } else if (term.length() > 0) {
+                if (expression.length() > 0) {
+                    expression.append(' ');
+                }
+                expression.append(term).append('*');
+                term.setLength(0);
+            }
+        }
+        return expression.length() == 0 ? null : expression.toString();
+    }
+}
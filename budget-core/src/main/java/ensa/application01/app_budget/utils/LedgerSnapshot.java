@@ -0,0 +1,357 @@
+package ensa.application01.app_budget.utils;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+import ensa.application01.app_budget.module.BucketSeries;
+import ensa.application01.app_budget.module.Transaction;
+
+/**
+ * LedgerSnapshot est une copie en mémoire, en colonnes, des transactions : une colonne par champ
+ * (date, montant, catégorie, type) sous forme de tableau primitif. Les agrégations la parcourent
+ * en parallèle (fork/join) sans requête SQLite et sans créer d'objet par ligne.
+ * Seuls les revenus et les dépenses datés sont gardés : une ligne sans date ou d'un autre type
+ * (type NULL ou inconnu) n'est comptée dans aucune somme.
+ * <p>
+ * Un snapshot est en lecture seule : {@link #appendRows} retourne un nouveau snapshot contenant
+ * en plus les lignes lues (ids supérieurs au dernier id lu). Les modifications et suppressions
+ * de lignes existantes ne sont pas suivies : il faut alors repartir d'un snapshot vide.
+ */
+public final class LedgerSnapshot {
+
+    private static final int LEAF_SIZE = 64 * 1024; // Nombre de lignes traitées sans découpage par une tâche fork/join
+    private static final int MIN_CAPACITY = 1024; // Capacité initiale minimale des colonnes
+
+    public static final byte TYPE_INCOME = 0; // Code de type d'un revenu
+    public static final byte TYPE_EXPENSE = 1; // Code de type d'une dépense
+    public static final byte TYPE_ANY = -1; // Pas de filtre sur le type
+    public static final long ANY_CATEGORY = -1; // Pas de filtre sur la catégorie
+
+    private static ForkJoinPool pool; // Pool partagé par les agrégations, créé à la première utilisation
+
+    private final Columns columns; // Colonnes, partagées avec les snapshots obtenus par ajout
+    private final int[] days; // Date en jours depuis le 01/01/1970
+    private final long[] amounts; // Montant en centimes
+    private final short[] categoryIds; // Id de la catégorie
+    private final byte[] types; // TYPE_INCOME ou TYPE_EXPENSE
+    private final int size; // Nombre de lignes visibles dans ce snapshot (les suivantes appartiennent aux snapshots plus récents)
+    private final long lastId; // Plus grand id de transaction lu
+    private final int maxCategoryId; // Plus grand id de catégorie lu
+
+    private LedgerSnapshot(Columns columns, int size, long lastId, int maxCategoryId) {
+        this.columns = columns;
+        this.days = columns.days;
+        this.amounts = columns.amounts;
+        this.categoryIds = columns.categoryIds;
+        this.types = columns.types;
+        this.size = size;
+        this.lastId = lastId;
+        this.maxCategoryId = maxCategoryId;
+    }
+
+    /**
+     * Row contient une transaction à ajouter au snapshot. Une seule instance est réutilisée
+     * pour toutes les lignes d'un ajout.
+     */
+    public static final class Row {
+        public long id; // Id de la transaction
+        public int day = DateCodec.INVALID_DAY; // Date en jours depuis le 01/01/1970, ou DateCodec.INVALID_DAY
+        public long amountMinor; // Montant en centimes
+        public long categoryId; // Id de la catégorie
+        public String type; // Type de la transaction ("Revenu" ou "Dépense"), ou null
+    }
+
+    /**
+     * Source des lignes à ajouter, lues dans l'ordre croissant des ids (exemple : un curseur).
+     */
+    public interface RowReader {
+        /**
+         * Remplit la ligne suivante.
+         *
+         * @param row La ligne à remplir.
+         * @return `true` si une ligne a été lue, `false` à la fin des lignes.
+         */
+        boolean next(Row row);
+    }
+
+    /**
+     * Retourne un snapshot vide.
+     *
+     * @param expectedRows Le nombre de lignes attendu, pour dimensionner les colonnes en une fois.
+     * @return Le snapshot vide.
+     */
+    public static LedgerSnapshot empty(int expectedRows) {
+        return new LedgerSnapshot(new Columns(Math.max(MIN_CAPACITY, expectedRows)), 0, 0, 0);
+    }
+
+    /**
+     * Retourne le code de type d'une transaction.
+     *
+     * @param type Le type (exemple : {@link Transaction#TYPE_EXPENSE}), ou null.
+     * @return {@link #TYPE_INCOME}, {@link #TYPE_EXPENSE}, ou {@link #TYPE_ANY} si le type n'est ni l'un ni l'autre.
+     */
+    public static byte typeCodeOf(String type) {
+        if (Transaction.TYPE_INCOME.equals(type)) {
+            return TYPE_INCOME;
+        }
+        if (Transaction.TYPE_EXPENSE.equals(type)) {
+            return TYPE_EXPENSE;
+        }
+        return TYPE_ANY;
+    }
+
+    /**
+     * Retourne un snapshot contenant en plus les lignes lues. Ce snapshot reste utilisable et inchangé.
+     *
+     * @param reader La source des lignes, d'ids supérieurs à {@link #getLastId()}.
+     * @return Le nouveau snapshot, ou celui-ci si aucune ligne n'a été lue.
+     * @throws IllegalStateException Si un id de catégorie ne tient pas sur un short.
+     */
+    public LedgerSnapshot appendRows(RowReader reader) {
+        synchronized (columns) {
+            // Écrire à la suite sans copie, sauf si un snapshot plus récent a déjà écrit après nos lignes
+            Columns target = columns.filled == size && columns.days == days ? columns : columns.copy(size);
+            int newSize = size;
+            long newLastId = lastId;
+            int newMaxCategoryId = maxCategoryId;
+
+            Row row = new Row();
+            while (reader.next(row)) {
+                newLastId = Math.max(newLastId, row.id);
+                byte type = typeCodeOf(row.type);
+                if (row.day == DateCodec.INVALID_DAY || type == TYPE_ANY) {
+                    continue; // Date invalide, ou ni revenu ni dépense : ligne ignorée
+                }
+                if (row.categoryId < 0 || row.categoryId > Short.MAX_VALUE) {
+                    throw new IllegalStateException("Id de catégorie hors limites pour le snapshot : " + row.categoryId);
+                }
+                if (newSize == target.days.length) {
+                    target.grow();
+                }
+                target.days[newSize] = row.day;
+                target.amounts[newSize] = row.amountMinor;
+                target.categoryIds[newSize] = (short) row.categoryId;
+                target.types[newSize] = type;
+                newMaxCategoryId = Math.max(newMaxCategoryId, (int) row.categoryId);
+                newSize++;
+                target.filled = newSize;
+            }
+
+            if (newLastId == lastId) {
+                return this;
+            }
+            return new LedgerSnapshot(target, newSize, newLastId, newMaxCategoryId);
+        }
+    }
+
+    /**
+     * Retourne le nombre de transactions du snapshot.
+     *
+     * @return Le nombre de lignes.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Retourne le plus grand id de transaction lu, à partir duquel lire les lignes suivantes.
+     *
+     * @return L'id, ou 0 si le snapshot est vide.
+     */
+    public long getLastId() {
+        return lastId;
+    }
+
+    /**
+     * Calcule la somme des montants des transactions correspondant aux critères.
+     *
+     * @param type       {@link #TYPE_INCOME}, {@link #TYPE_EXPENSE} ou {@link #TYPE_ANY}.
+     * @param fromDay    La première date incluse, en jours depuis le 01/01/1970.
+     * @param toDay      La dernière date incluse, en jours depuis le 01/01/1970.
+     * @param categoryId L'id de la catégorie, ou {@link #ANY_CATEGORY} pour toutes.
+     * @return La somme en centimes.
+     */
+    public long sum(byte type, int fromDay, int toDay, long categoryId) {
+        return run(1, row -> 0, type, fromDay, toDay, categoryId)[0];
+    }
+
+    /**
+     * Calcule la somme des montants par catégorie.
+     *
+     * @param type    {@link #TYPE_INCOME}, {@link #TYPE_EXPENSE} ou {@link #TYPE_ANY}.
+     * @param fromDay La première date incluse, en jours depuis le 01/01/1970.
+     * @param toDay   La dernière date incluse, en jours depuis le 01/01/1970.
+     * @return Un tableau indexé par id de catégorie contenant la somme en centimes.
+     */
+    public long[] sumByCategory(byte type, int fromDay, int toDay) {
+        long[] result = run(maxCategoryId + 1, row -> categoryIds[row], type, fromDay, toDay, ANY_CATEGORY);
+        return Arrays.copyOf(result, maxCategoryId + 1);
+    }
+
+    /**
+     * Calcule les revenus, les dépenses et le nombre de transactions par période.
+     *
+     * @param bounds     Le premier jour de chaque période, dans l'ordre, suivi du premier jour de la période
+     *                   qui suit la dernière (un seul élément si aucune période).
+     * @param categoryId L'id de la catégorie, ou {@link #ANY_CATEGORY} pour toutes.
+     * @return Les totaux de chaque période.
+     */
+    public BucketSeries sumByPeriod(int[] bounds, long categoryId) {
+        int buckets = bounds.length - 1;
+        int[] endDays = new int[buckets];
+        for (int i = 0; i < buckets; i++) {
+            endDays[i] = bounds[i + 1] - 1;
+        }
+        if (buckets == 0) {
+            return new BucketSeries(new int[0], endDays, new long[0], new long[0], new int[0]);
+        }
+
+        // Deux cases par période : revenus (2 * i) et dépenses (2 * i + 1)
+        long[] result = run(buckets * 2, row -> {
+            int bucket = Arrays.binarySearch(bounds, 0, buckets, days[row]);
+            if (bucket < 0) {
+                bucket = -bucket - 2; // Période dont le début précède la date
+            }
+            return bucket * 2 + types[row];
+        }, TYPE_ANY, bounds[0], bounds[buckets] - 1, categoryId);
+
+        long[] income = new long[buckets];
+        long[] expenses = new long[buckets];
+        int[] counts = new int[buckets];
+        int slots = buckets * 2;
+        for (int i = 0; i < buckets; i++) {
+            income[i] = result[2 * i];
+            expenses[i] = result[2 * i + 1];
+            counts[i] = (int) (result[slots + 2 * i] + result[slots + 2 * i + 1]);
+        }
+        return new BucketSeries(Arrays.copyOf(bounds, buckets), endDays, income, expenses, counts);
+    }
+
+    // Exécute une agrégation sur toutes les lignes, avec le pool partagé
+    private long[] run(int slots, SlotFunction slotFunction, byte type, int fromDay, int toDay, long categoryId) {
+        return getPool().invoke(new Aggregation(this, slots, slotFunction, type, fromDay, toDay, categoryId, 0, size));
+    }
+
+    // Pool fork/join d'un thread par cœur (ForkJoinPool.commonPool() demande l'API 24)
+    private static synchronized ForkJoinPool getPool() {
+        if (pool == null) {
+            pool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+        }
+        return pool;
+    }
+
+    /**
+     * Columns contient les colonnes partagées par un snapshot et ceux obtenus par ajout.
+     * Les lignes au-delà de la taille d'un snapshot ne sont jamais lues par celui-ci : on peut donc
+     * écrire à la suite sans copier. Les accès en écriture se font sous le verrou de l'instance.
+     */
+    private static final class Columns {
+        int[] days;
+        long[] amounts;
+        short[] categoryIds;
+        byte[] types;
+        int filled; // Nombre de lignes écrites
+
+        Columns(int capacity) {
+            days = new int[capacity];
+            amounts = new long[capacity];
+            categoryIds = new short[capacity];
+            types = new byte[capacity];
+        }
+
+        // Double la capacité ; les snapshots existants gardent les anciens tableaux
+        void grow() {
+            int capacity = days.length * 2;
+            days = Arrays.copyOf(days, capacity);
+            amounts = Arrays.copyOf(amounts, capacity);
+            categoryIds = Arrays.copyOf(categoryIds, capacity);
+            types = Arrays.copyOf(types, capacity);
+        }
+
+        // Copie des size premières lignes, pour ajouter des lignes à partir d'un ancien snapshot
+        Columns copy(int size) {
+            Columns copy = new Columns(Math.max(MIN_CAPACITY, size * 2));
+            System.arraycopy(days, 0, copy.days, 0, size);
+            System.arraycopy(amounts, 0, copy.amounts, 0, size);
+            System.arraycopy(categoryIds, 0, copy.categoryIds, 0, size);
+            System.arraycopy(types, 0, copy.types, 0, size);
+            copy.filled = size;
+            return copy;
+        }
+    }
+
+    /**
+     * Fonction donnant la case de résultat d'une ligne retenue par le filtre.
+     */
+    private interface SlotFunction {
+        int slotOf(int row);
+    }
+
+    /**
+     * Aggregation filtre les lignes d'un intervalle et additionne leurs montants dans des cases.
+     * Le résultat contient les sommes (cases 0 à slots - 1) suivies des nombres de lignes.
+     * Les intervalles de plus de LEAF_SIZE lignes sont coupés en deux et traités en parallèle.
+     */
+    private static final class Aggregation extends RecursiveTask<long[]> {
+        private final LedgerSnapshot snapshot;
+        private final int slots; // Nombre de cases de résultat
+        private final SlotFunction slotFunction; // Case de chaque ligne retenue
+        private final byte type; // Type filtré, ou TYPE_ANY
+        private final int fromDay; // Première date incluse
+        private final int toDay; // Dernière date incluse
+        private final long categoryId; // Catégorie filtrée, ou ANY_CATEGORY
+        private final int from; // Première ligne traitée
+        private final int to; // Ligne suivant la dernière ligne traitée
+
+        Aggregation(LedgerSnapshot snapshot, int slots, SlotFunction slotFunction, byte type, int fromDay, int toDay,
+                    long categoryId, int from, int to) {
+            this.snapshot = snapshot;
+            this.slots = slots;
+            this.slotFunction = slotFunction;
+            this.type = type;
+            this.fromDay = fromDay;
+            this.toDay = toDay;
+            this.categoryId = categoryId;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected long[] compute() {
+            if (to - from <= LEAF_SIZE) {
+                return computeLeaf();
+            }
+            int middle = (from + to) >>> 1;
+            Aggregation left = new Aggregation(snapshot, slots, slotFunction, type, fromDay, toDay, categoryId, from, middle);
+            Aggregation right = new Aggregation(snapshot, slots, slotFunction, type, fromDay, toDay, categoryId, middle, to);
+            left.fork();
+            long[] result = right.compute();
+            long[] other = left.join();
+            for (int i = 0; i < result.length; i++) {
+                result[i] += other[i];
+            }
+            return result;
+        }
+
+        private long[] computeLeaf() {
+            long[] result = new long[slots * 2];
+            int[] days = snapshot.days;
+            long[] amounts = snapshot.amounts;
+            short[] categoryIds = snapshot.categoryIds;
+            byte[] types = snapshot.types;
+            for (int row = from; row < to; row++) {
+                int day = days[row];
+                if (day < fromDay || day > toDay
+                        || (type != TYPE_ANY && types[row] != type)
+                        || (categoryId != ANY_CATEGORY && categoryIds[row] != categoryId)) {
+                    continue;
+                }
+                int slot = slotFunction.slotOf(row);
+                result[slot] += amounts[row];
+                result[slots + slot]++;
+            }
+            return result;
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package ensa.application01.app_budget.utils;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.text.NumberFormat;
+import java.util.Locale;
+
+/**
+ * Money convertit les montants entre leur forme textuelle et leur forme stockée :
+ * un entier 64 bits de centimes (unités mineures). Les sommes se font en arithmétique entière
+ * exacte ; la conversion en texte ou en float n'a lieu qu'à l'affichage.
+ */
+public final class Money {
+
+    public static final int SCALE = 2; // Nombre de décimales de la devise (centimes de DH)
+
+    // Valeur renvoyée lorsqu'un montant ne peut pas être décodé
+    public static final long INVALID = Long.MIN_VALUE;
+
+    // Formateur de chaque thread (NumberFormat n'est pas thread-safe), recréé si la langue change
+    private static final ThreadLocal<DisplayFormat> FORMAT = new ThreadLocal<>();
+
+    private Money() {
+    }
+
+    /**
+     * Convertit un montant saisi ("12", "12.5", "12,50", "-3.1") en centimes.
+     * Les décimales au-delà des centimes sont arrondies au plus proche.
+     *
+     * @param text Le montant textuel.
+     * @return Le montant en centimes, ou {@link #INVALID} s'il est invalide.
+     */
+    public static long parse(String text) {
+        if (text == null) {
+            return INVALID;
+        }
+        try {
+            return new BigDecimal(text.trim().replace(',', '.'))
+                    .setScale(SCALE, RoundingMode.HALF_UP)
+                    .unscaledValue()
+                    .longValueExact();
+        } catch (NumberFormatException | ArithmeticException e) {
+            return INVALID;
+        }
+    }
+
+    /**
+     * Formate un montant en centimes pour l'affichage, avec le séparateur décimal de la langue (exemple : "1234,56").
+     *
+     * @param minorUnits Le montant en centimes.
+     * @return Le montant formaté avec deux décimales.
+     */
+    public static String format(long minorUnits) {
+        return displayFormat().format(BigDecimal.valueOf(minorUnits, SCALE));
+    }
+
+    // Retourne le formateur d'affichage du thread courant pour la langue courante
+    private static NumberFormat displayFormat() {
+        DisplayFormat cached = FORMAT.get();
+        Locale locale = Locale.getDefault();
+        if (cached == null || !cached.locale.equals(locale)) {
+            cached = new DisplayFormat(locale);
+            FORMAT.set(cached);
+        }
+        return cached.format;
+    }
+
+    // Formateur à deux décimales, sans séparateur de milliers, associé à sa langue
+    private static final class DisplayFormat {
+        final Locale locale; // Langue du formateur
+        final NumberFormat format; // Formateur de la langue
+
+        DisplayFormat(Locale locale) {
+            this.locale = locale;
+            this.format = NumberFormat.getNumberInstance(locale);
+            format.setGroupingUsed(false);
+            format.setMinimumFractionDigits(SCALE);
+            format.setMaximumFractionDigits(SCALE);
+            format.setRoundingMode(RoundingMode.HALF_UP);
+        }
+    }
+
+    /**
+     * Formate un montant en centimes pour les fichiers exportés, indépendamment de la langue (exemple : "1234.56").
+     *
+     * @param minorUnits Le montant en centimes.
+     * @return Le montant avec un point décimal et deux décimales.
+     */
+    public static String toPlainString(long minorUnits) {
+        return BigDecimal.valueOf(minorUnits, SCALE).toPlainString();
+    }
+
+    /**
+     * Convertit un montant en centimes en float pour les graphiques.
+     *
+     * @param minorUnits Le montant en centimes.
+     * @return Le montant en unités de la devise.
+     */
+    public static float toFloat(long minorUnits) {
+        return minorUnits / 100f;
+    }
+}
@@ -0,0 +1,120 @@
+package ensa.application01.app_budget.importer;
+
+import org.junit.Test;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+
+import ensa.application01.app_budget.utils.DateCodec;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests de CsvTransactionParser (sur la JVM, sans émulateur).
+ */
+public class CsvTransactionParserTest {
+
+    @Test
+    public void next_detectsSemicolonAndMapsDebitCreditColumns() throws IOException {
+        CsvTransactionParser parser = parser("Date opération;Date valeur;Libellé;Débit;Crédit\n"
+                + "15/03/2024;16/03/2024;Courses;12,50;\n"
+                + "16/03/2024;16/03/2024;Virement;;1 500,00\n");
+        ImportedRow row = new ImportedRow();
+
+        assertTrue(parser.next(row));
+        assertEquals(ImportValues.TYPE_EXPENSE, row.type);
+        assertEquals(1250, row.amountMinor);
+        assertEquals(DateCodec.toEpochDay(2024, 3, 15), row.dateDay); // Première colonne de date
+        assertEquals(ImportValues.DEFAULT_CATEGORY, row.category);
+        assertEquals("Courses", row.note);
+
+        assertTrue(parser.next(row));
+        assertEquals(ImportValues.TYPE_INCOME, row.type);
+        assertEquals(150000, row.amountMinor);
+        assertEquals("Virement", row.note);
+
+        assertFalse(parser.next(row));
+        assertEquals(0, parser.getRejectedCount());
+    }
+
+    @Test
+    public void next_detectsCommaAndKeepsQuotedSeparators() throws IOException {
+        CsvTransactionParser parser = parser("15/03/2024,Revenu,\"1,234.56\",Salaire,\"Paie, mars\"\n");
+        ImportedRow row = new ImportedRow();
+
+        assertTrue(parser.next(row)); // Sans en-tête : ordre de l'application
+        assertEquals(ImportValues.TYPE_INCOME, row.type);
+        assertEquals(123456, row.amountMinor);
+        assertEquals("Salaire", row.category);
+        assertEquals("Paie, mars", row.note);
+        assertFalse(parser.next(row));
+    }
+
+    @Test
+    public void next_detectsTabAndUsesAmountSign() throws IOException {
+        CsvTransactionParser parser = parser("\uFEFFdate\tmontant\tcatégorie\n"
+                + "01/02/2024\t-8,00\tTransport\n"
+                + "02/02/2024\t20\tTransport\n");
+        ImportedRow row = new ImportedRow();
+
+        assertTrue(parser.next(row));
+        assertEquals(ImportValues.TYPE_EXPENSE, row.type);
+        assertEquals(800, row.amountMinor);
+        assertEquals("Transport", row.category);
+        assertEquals("", row.note); // Pas de colonne note
+
+        assertTrue(parser.next(row));
+        assertEquals(ImportValues.TYPE_INCOME, row.type);
+        assertEquals(2000, row.amountMinor);
+    }
+
+    @Test
+    public void next_readsQuotedFieldOverSeveralLines() throws IOException {
+        CsvTransactionParser parser = parser("date;montant;note\n"
+                + "03/03/2024;-4,20;\"Boulangerie\n\"\"Chez Paul\"\"\"\n");
+        ImportedRow row = new ImportedRow();
+
+        assertTrue(parser.next(row));
+        assertEquals("Boulangerie\n\"Chez Paul\"", row.note);
+        assertFalse(parser.next(row));
+    }
+
+    @Test
+    public void next_countsRejectedRows() throws IOException {
+        CsvTransactionParser parser = parser("date;type;montant\n"
+                + "31/02/2024;Dépense;5\n" // Date inexistante
+                + "01/03/2024;Autre;5\n" // Type inconnu
+                + "01/03/2024;Dépense;abc\n" // Montant invalide
+                + "\n"
+                + "01/03/2024;Dépense;5\n");
+        ImportedRow row = new ImportedRow();
+
+        assertTrue(parser.next(row));
+        assertEquals(500, row.amountMinor);
+        assertFalse(parser.next(row));
+        assertEquals(3, parser.getRejectedCount());
+    }
+
+    @Test
+    public void next_returnsDuplicateRowsUnchanged() throws IOException {
+        // Les doublons sont écartés à l'insertion par la contrainte UNIQUE : le parser les rend tels quels
+        CsvTransactionParser parser = parser("date;montant;note\n"
+                + "05/03/2024;-9,99;Cinéma\n"
+                + "05/03/2024;-9,99;Cinéma\n");
+        ImportedRow first = new ImportedRow();
+        ImportedRow second = new ImportedRow();
+
+        assertTrue(parser.next(first));
+        assertTrue(parser.next(second));
+        assertEquals(first.dateDay, second.dateDay);
+        assertEquals(first.amountMinor, second.amountMinor);
+        assertEquals(first.note, second.note);
+        assertFalse(parser.next(first));
+        assertEquals(0, parser.getRejectedCount());
+    }
+
+    private static CsvTransactionParser parser(String content) {
+        return new CsvTransactionParser(new BufferedReader(new StringReader(content)));
+    }
+}
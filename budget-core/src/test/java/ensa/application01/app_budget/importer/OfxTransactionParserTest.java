@@ -0,0 +1,125 @@
+package ensa.application01.app_budget.importer;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import ensa.application01.app_budget.utils.DateCodec;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests de OfxTransactionParser et de la détection du format par TransactionParsers (sur la JVM, sans émulateur).
+ */
+public class OfxTransactionParserTest {
+
+    // OFX 1.x : en-tête texte, balises SGML non fermées, une par ligne
+    private static final String SGML = "OFXHEADER:100\n"
+            + "DATA:OFXSGML\n"
+            + "VERSION:102\n"
+            + "\n"
+            + "<OFX>\n"
+            + "<BANKMSGSRSV1><STMTTRNRS><STMTRS>\n"
+            + "<BANKTRANLIST>\n"
+            + "<STMTTRN>\n"
+            + "<TRNTYPE>DEBIT\n"
+            + "<DTPOSTED>20240315120000[+1:CET]\n"
+            + "<TRNAMT>-12.50\n"
+            + "<NAME>CARREFOUR\n"
+            + "<MEMO>Courses\n"
+            + "</STMTTRN>\n"
+            + "<STMTTRN>\n"
+            + "<TRNTYPE>CREDIT\n"
+            + "<DTPOSTED>20240301\n"
+            + "<TRNAMT>3000,00\n"
+            + "<NAME>SALAIRE\n"
+            + "<MEMO>SALAIRE\n"
+            + "</STMTTRN>\n"
+            + "</BANKTRANLIST>\n"
+            + "</STMTRS></STMTTRNRS></BANKMSGSRSV1>\n"
+            + "</OFX>\n";
+
+    // OFX 2.x : XML, balises fermées, plusieurs par ligne
+    private static final String XML = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+            + "<?OFX OFXHEADER=\"200\" VERSION=\"211\"?>\n"
+            + "<OFX><BANKMSGSRSV1><STMTTRNRS><STMTRS><BANKTRANLIST>"
+            + "<STMTTRN><TRNTYPE>CREDIT</TRNTYPE><DTPOSTED>20240402</DTPOSTED><TRNAMT>45.00</TRNAMT>"
+            + "<NAME>Remboursement &amp; frais</NAME></STMTTRN>\n"
+            + "<STMTTRN><TRNTYPE>DEBIT</TRNTYPE><DTPOSTED>20240403</DTPOSTED>"
+            + "<MEMO>Sans montant</MEMO></STMTTRN>\n"
+            + "<STMTTRN><TRNTYPE>DEBIT</TRNTYPE><DTPOSTED>20240431</DTPOSTED><TRNAMT>-3.00</TRNAMT></STMTTRN>\n"
+            + "<STMTTRN><TRNTYPE>DEBIT</TRNTYPE><DTPOSTED>20240405</DTPOSTED><TRNAMT>-7.25</TRNAMT>"
+            + "<MEMO>Parking</MEMO></STMTTRN>\n"
+            + "</BANKTRANLIST></STMTRS></STMTTRNRS></BANKMSGSRSV1></OFX>\n";
+
+    @Test
+    public void next_readsSgmlStatement() throws IOException {
+        TransactionParser parser = open(SGML);
+        ImportedRow row = new ImportedRow();
+
+        assertTrue(parser.next(row));
+        assertEquals(ImportValues.TYPE_EXPENSE, row.type);
+        assertEquals(1250, row.amountMinor);
+        assertEquals(DateCodec.toEpochDay(2024, 3, 15), row.dateDay); // L'heure et le fuseau sont ignorés
+        assertEquals(ImportValues.DEFAULT_CATEGORY, row.category);
+        assertEquals("CARREFOUR - Courses", row.note);
+
+        assertTrue(parser.next(row));
+        assertEquals(ImportValues.TYPE_INCOME, row.type);
+        assertEquals(300000, row.amountMinor);
+        assertEquals("SALAIRE", row.note); // MEMO identique à NAME : pas répété
+
+        assertFalse(parser.next(row));
+        assertEquals(0, parser.getRejectedCount());
+    }
+
+    @Test
+    public void next_readsXmlStatementAndCountsRejected() throws IOException {
+        TransactionParser parser = open(XML);
+        ImportedRow row = new ImportedRow();
+
+        assertTrue(parser.next(row));
+        assertEquals(ImportValues.TYPE_INCOME, row.type);
+        assertEquals(4500, row.amountMinor);
+        assertEquals(DateCodec.toEpochDay(2024, 4, 2), row.dateDay);
+        assertEquals("Remboursement & frais", row.note);
+
+        assertTrue(parser.next(row)); // Sans montant puis date inexistante : rejetées
+        assertEquals(ImportValues.TYPE_EXPENSE, row.type);
+        assertEquals(725, row.amountMinor);
+        assertEquals("Parking", row.note);
+
+        assertFalse(parser.next(row));
+        assertEquals(2, parser.getRejectedCount());
+    }
+
+    @Test
+    public void next_returnsDuplicateTransactionsUnchanged() throws IOException {
+        // Les doublons sont écartés à l'insertion par la contrainte UNIQUE : le parser les rend tels quels
+        String block = "<STMTTRN><DTPOSTED>20240510<TRNAMT>-5.00<NAME>Café</STMTTRN>\n";
+        TransactionParser parser = open("<OFX>\n" + block + block + "</OFX>\n");
+        ImportedRow row = new ImportedRow();
+
+        assertTrue(parser.next(row));
+        assertEquals("Café", row.note);
+        assertTrue(parser.next(row));
+        assertEquals("Café", row.note);
+        assertEquals(500, row.amountMinor);
+        assertFalse(parser.next(row));
+    }
+
+    @Test
+    public void open_detectsFormat() throws IOException {
+        assertTrue(open(SGML) instanceof OfxTransactionParser);
+        assertTrue(open(XML) instanceof OfxTransactionParser);
+        assertTrue(open("date;montant\n01/01/2024;5\n") instanceof CsvTransactionParser);
+        assertTrue(open("") instanceof CsvTransactionParser);
+    }
+
+    private static TransactionParser open(String content) throws IOException {
+        return TransactionParsers.open(new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8)),
+                StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,68 @@
+package ensa.application01.app_budget.module;
+
+import org.junit.Test;
+
+import ensa.application01.app_budget.module.RecurrenceRule.Frequency;
+import ensa.application01.app_budget.utils.DateCodec;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests du calcul des occurrences de RecurrenceRule (sur la JVM, sans émulateur).
+ */
+public class RecurrenceRuleTest {
+
+    @Test
+    public void occurrenceDay_dailyAndWeekly() {
+        int start = DateCodec.toEpochDay(2024, 12, 30);
+        assertEquals(DateCodec.toEpochDay(2025, 1, 2), RecurrenceRule.occurrenceDay(Frequency.DAILY, start, 3));
+        assertEquals(DateCodec.toEpochDay(2025, 1, 13), RecurrenceRule.occurrenceDay(Frequency.WEEKLY, start, 2));
+    }
+
+    @Test
+    public void occurrenceDay_monthlyClampsToMonthEnd() {
+        int start = DateCodec.toEpochDay(2023, 12, 31);
+        assertEquals(start, RecurrenceRule.occurrenceDay(Frequency.MONTHLY, start, 0));
+        assertEquals(DateCodec.toEpochDay(2024, 1, 31), RecurrenceRule.occurrenceDay(Frequency.MONTHLY, start, 1));
+        assertEquals(DateCodec.toEpochDay(2024, 2, 29), RecurrenceRule.occurrenceDay(Frequency.MONTHLY, start, 2));
+        assertEquals(DateCodec.toEpochDay(2024, 3, 31), RecurrenceRule.occurrenceDay(Frequency.MONTHLY, start, 3)); // Pas de dérive au 29
+        assertEquals(DateCodec.toEpochDay(2024, 4, 30), RecurrenceRule.occurrenceDay(Frequency.MONTHLY, start, 4));
+        assertEquals(DateCodec.toEpochDay(2025, 2, 28), RecurrenceRule.occurrenceDay(Frequency.MONTHLY, start, 14));
+    }
+
+    @Test
+    public void occurrenceDay_yearlyFromFebruary29() {
+        int start = DateCodec.toEpochDay(2024, 2, 29);
+        assertEquals(DateCodec.toEpochDay(2025, 2, 28), RecurrenceRule.occurrenceDay(Frequency.YEARLY, start, 1));
+        assertEquals(DateCodec.toEpochDay(2027, 2, 28), RecurrenceRule.occurrenceDay(Frequency.YEARLY, start, 3));
+        assertEquals(DateCodec.toEpochDay(2028, 2, 29), RecurrenceRule.occurrenceDay(Frequency.YEARLY, start, 4));
+    }
+
+    @Test
+    public void isWithinLimits_checksEndDayAndCount() {
+        int endDay = DateCodec.toEpochDay(2024, 6, 30);
+        assertTrue(RecurrenceRule.isWithinLimits(endDay, RecurrenceRule.NO_MAX_COUNT, 100, endDay)); // Date de fin incluse
+        assertFalse(RecurrenceRule.isWithinLimits(endDay, RecurrenceRule.NO_MAX_COUNT, 100, endDay + 1));
+
+        assertTrue(RecurrenceRule.isWithinLimits(DateCodec.INVALID_DAY, 3, 2, endDay)); // Troisième occurrence (indice 2)
+        assertFalse(RecurrenceRule.isWithinLimits(DateCodec.INVALID_DAY, 3, 3, endDay));
+
+        assertFalse(RecurrenceRule.isWithinLimits(endDay, 12, 1, endDay + 1)); // La première limite atteinte l'emporte
+        assertTrue(RecurrenceRule.isWithinLimits(DateCodec.INVALID_DAY, RecurrenceRule.NO_MAX_COUNT, 10_000, Integer.MAX_VALUE));
+    }
+
+    @Test
+    public void firstPendingDay_respectsLimits() {
+        int start = DateCodec.toEpochDay(2024, 1, 31);
+        RecurrenceRule rule = new RecurrenceRule("Dépense", 80000, 1, "Loyer", Frequency.MONTHLY,
+                start, DateCodec.toEpochDay(2024, 3, 31), RecurrenceRule.NO_MAX_COUNT);
+        assertEquals(start, rule.firstPendingDay());
+        assertEquals(DateCodec.toEpochDay(2024, 2, 29), rule.occurrenceDay(1));
+        assertTrue(RecurrenceRule.isWithinLimits(rule.getEndDay(), rule.getMaxCount(), 2, rule.occurrenceDay(2)));
+        assertFalse(RecurrenceRule.isWithinLimits(rule.getEndDay(), rule.getMaxCount(), 3, rule.occurrenceDay(3)));
+
+        RecurrenceRule ended = new RecurrenceRule("Dépense", 80000, 1, "Loyer", Frequency.MONTHLY,
+                start, start - 1, RecurrenceRule.NO_MAX_COUNT);
+        assertEquals(DateCodec.INVALID_DAY, ended.firstPendingDay());
+    }
+}
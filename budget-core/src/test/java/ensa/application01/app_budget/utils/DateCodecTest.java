@@ -0,0 +1,62 @@
+package ensa.application01.app_budget.utils;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests de DateCodec (sur la JVM, sans émulateur).
+ */
+public class DateCodecTest {
+
+    @Test
+    public void parse_knownDates() {
+        assertEquals(0, DateCodec.parse("01/01/1970"));
+        assertEquals(19723, DateCodec.parse("01/01/2024"));
+        assertEquals(DateCodec.toEpochDay(2024, 2, 29), DateCodec.parse("29/02/2024"));
+    }
+
+    @Test
+    public void formatAndParse_roundTrip() {
+        for (int day = DateCodec.toEpochDay(1900, 1, 1); day <= DateCodec.toEpochDay(2099, 12, 31); day++) {
+            assertEquals(day, DateCodec.parse(DateCodec.format(day)));
+        }
+    }
+
+    @Test
+    public void isValid_rejectsMissingDays() {
+        assertFalse(DateCodec.isValid("29/02/2023"));
+        assertFalse(DateCodec.isValid("31/04/2024"));
+        assertFalse(DateCodec.isValid("1/1/2024"));
+        assertTrue(DateCodec.isValid("31/12/2024"));
+    }
+
+    @Test
+    public void hasDateFormat_checksShapeAndRanges() {
+        assertTrue(DateCodec.hasDateFormat("31/04/2024")); // Format correct, même si la date n'existe pas
+        assertFalse(DateCodec.hasDateFormat("32/01/2024"));
+        assertFalse(DateCodec.hasDateFormat("01/13/2024"));
+        assertFalse(DateCodec.hasDateFormat("01/01/2124"));
+        assertFalse(DateCodec.hasDateFormat("01-01-2024"));
+        assertFalse(DateCodec.hasDateFormat(null));
+    }
+
+    @Test
+    public void plusMonths_clampsToMonthEnd() {
+        int jan31 = DateCodec.toEpochDay(2024, 1, 31);
+        assertEquals(DateCodec.toEpochDay(2024, 2, 29), DateCodec.plusMonths(jan31, 1)); // Année bissextile
+        assertEquals(DateCodec.toEpochDay(2023, 2, 28), DateCodec.plusMonths(DateCodec.toEpochDay(2023, 1, 31), 1));
+        assertEquals(DateCodec.toEpochDay(2024, 3, 31), DateCodec.plusMonths(jan31, 2)); // Le jour de départ est conservé
+        assertEquals(DateCodec.toEpochDay(2024, 4, 30), DateCodec.plusMonths(jan31, 3));
+        assertEquals(DateCodec.toEpochDay(2025, 1, 31), DateCodec.plusMonths(jan31, 12));
+        assertEquals(DateCodec.toEpochDay(2023, 11, 30), DateCodec.plusMonths(jan31, -2));
+    }
+
+    @Test
+    public void plusYears_mapsFebruary29() {
+        int feb29 = DateCodec.toEpochDay(2024, 2, 29);
+        assertEquals(DateCodec.toEpochDay(2025, 2, 28), DateCodec.plusYears(feb29, 1));
+        assertEquals(DateCodec.toEpochDay(2028, 2, 29), DateCodec.plusYears(feb29, 4));
+        assertEquals(DateCodec.toEpochDay(2100, 2, 28), DateCodec.plusYears(feb29, 76)); // 2100 n'est pas bissextile
+    }
+}
@@ -0,0 +1,44 @@
+package ensa.application01.app_budget.utils;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests de FtsQuery (sur la JVM, sans émulateur).
+ */
+public class FtsQueryTest {
+
+    @Test
+    public void toMatchExpression_prefixesEachWord() {
+        assertEquals("loyer*", FtsQuery.toMatchExpression("Loyer"));
+        assertEquals("loyer* mars*", FtsQuery.toMatchExpression("  loyer   MARS "));
+        assertEquals("café* 2024*", FtsQuery.toMatchExpression("Café 2024")); // Accents et chiffres gardés
+    }
+
+    @Test
+    public void toMatchExpression_dropsQuotesAndWildcards() {
+        assertEquals("chez* paul*", FtsQuery.toMatchExpression("\"chez paul"));
+        assertEquals("l* épicerie*", FtsQuery.toMatchExpression("l'épicerie"));
+        assertEquals("abo*", FtsQuery.toMatchExpression("abo*"));
+        assertEquals("a* b*", FtsQuery.toMatchExpression("a**b"));
+    }
+
+    @Test
+    public void toMatchExpression_neutralizesOperators() {
+        assertEquals("loyer* courses*", FtsQuery.toMatchExpression("loyer -courses")); // Pas d'exclusion
+        assertEquals("note* loyer*", FtsQuery.toMatchExpression("note:loyer")); // Pas de filtre de colonne
+        assertEquals("loyer* or* courses*", FtsQuery.toMatchExpression("loyer OR courses"));
+        assertEquals("loyer* near* courses*", FtsQuery.toMatchExpression("loyer NEAR courses"));
+        assertEquals("near* 3* loyer*", FtsQuery.toMatchExpression("NEAR/3 (loyer)"));
+        assertEquals("not* and*", FtsQuery.toMatchExpression("NOT AND"));
+    }
+
+    @Test
+    public void toMatchExpression_returnsNullWithoutWords() {
+        assertNull(FtsQuery.toMatchExpression(null));
+        assertNull(FtsQuery.toMatchExpression(""));
+        assertNull(FtsQuery.toMatchExpression("   "));
+        assertNull(FtsQuery.toMatchExpression("\"*-()\":^"));
+    }
+}
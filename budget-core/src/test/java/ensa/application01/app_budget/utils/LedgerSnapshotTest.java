@@ -0,0 +1,142 @@
+package ensa.application01.app_budget.utils;
+
+import org.junit.Test;
+
+import ensa.application01.app_budget.module.BucketSeries;
+import ensa.application01.app_budget.module.Transaction;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests de LedgerSnapshot (sur la JVM, sans émulateur).
+ */
+public class LedgerSnapshotTest {
+
+    private static final int MARCH_1 = DateCodec.toEpochDay(2024, 3, 1);
+    private static final int MARCH_15 = DateCodec.toEpochDay(2024, 3, 15);
+    private static final int APRIL_2 = DateCodec.toEpochDay(2024, 4, 2);
+
+    // {id, jour, montant, catégorie} ; le type est donné à part
+    private static final long[][] ROWS = {
+            {1, MARCH_1, 300000, 1},
+            {2, MARCH_1, 1250, 2},
+            {3, MARCH_15, 4000, 3},
+            {4, APRIL_2, 750, 2},
+            {5, APRIL_2, 999, 2}, // Type inconnu
+            {6, APRIL_2, 888, 2}, // Type NULL
+            {7, DateCodec.INVALID_DAY, 555, 2}, // Sans date
+    };
+    private static final String[] TYPES = {Transaction.TYPE_INCOME, Transaction.TYPE_EXPENSE, Transaction.TYPE_EXPENSE,
+            Transaction.TYPE_EXPENSE, "Virement", null, Transaction.TYPE_EXPENSE};
+
+    @Test
+    public void appendRows_keepsOnlyDatedIncomeAndExpenses() {
+        LedgerSnapshot snapshot = load(LedgerSnapshot.empty(0), 0, ROWS.length);
+        assertEquals(4, snapshot.size());
+        assertEquals(7, snapshot.getLastId());
+        assertEquals(1250 + 4000 + 750, snapshot.sum(LedgerSnapshot.TYPE_EXPENSE, MARCH_1, APRIL_2, LedgerSnapshot.ANY_CATEGORY));
+        assertEquals(300000, snapshot.sum(LedgerSnapshot.TYPE_INCOME, MARCH_1, APRIL_2, LedgerSnapshot.ANY_CATEGORY));
+        assertEquals(LedgerSnapshot.TYPE_ANY, LedgerSnapshot.typeCodeOf(null));
+        assertEquals(LedgerSnapshot.TYPE_ANY, LedgerSnapshot.typeCodeOf("Virement"));
+    }
+
+    @Test
+    public void appendRows_leavesPreviousSnapshotUnchanged() {
+        LedgerSnapshot first = load(LedgerSnapshot.empty(0), 0, 3);
+        LedgerSnapshot second = load(first, 3, ROWS.length);
+        assertEquals(3, first.size());
+        assertEquals(4, second.size());
+        assertEquals(1250 + 4000, first.sum(LedgerSnapshot.TYPE_EXPENSE, MARCH_1, APRIL_2, LedgerSnapshot.ANY_CATEGORY));
+        assertEquals(1250 + 4000 + 750, second.sum(LedgerSnapshot.TYPE_EXPENSE, MARCH_1, APRIL_2, LedgerSnapshot.ANY_CATEGORY));
+        assertSame(second, load(second, ROWS.length, ROWS.length)); // Aucune nouvelle ligne
+    }
+
+    @Test
+    public void sum_appliesFilters() {
+        LedgerSnapshot snapshot = load(LedgerSnapshot.empty(0), 0, ROWS.length);
+        assertEquals(1250 + 750, snapshot.sum(LedgerSnapshot.TYPE_EXPENSE, MARCH_1, APRIL_2, 2));
+        assertEquals(1250 + 4000, snapshot.sum(LedgerSnapshot.TYPE_EXPENSE, MARCH_1, MARCH_15, LedgerSnapshot.ANY_CATEGORY));
+        assertEquals(4000, snapshot.sum(LedgerSnapshot.TYPE_EXPENSE, MARCH_1 + 1, MARCH_15, LedgerSnapshot.ANY_CATEGORY));
+        assertEquals(300000 + 1250, snapshot.sum(LedgerSnapshot.TYPE_ANY, MARCH_1, MARCH_1, LedgerSnapshot.ANY_CATEGORY));
+    }
+
+    @Test
+    public void sumByCategory_indexesByCategoryId() {
+        LedgerSnapshot snapshot = load(LedgerSnapshot.empty(0), 0, ROWS.length);
+        long[] sums = snapshot.sumByCategory(LedgerSnapshot.TYPE_EXPENSE, MARCH_1, APRIL_2);
+        assertEquals(4, sums.length);
+        assertEquals(0, sums[1]); // Revenu uniquement
+        assertEquals(1250 + 750, sums[2]);
+        assertEquals(4000, sums[3]);
+    }
+
+    @Test
+    public void sumByPeriod_splitsIncomeAndExpensesByMonth() {
+        LedgerSnapshot snapshot = load(LedgerSnapshot.empty(0), 0, ROWS.length);
+        int[] bounds = {DateCodec.firstDayOfMonth(2024, 2), MARCH_1, DateCodec.firstDayOfMonth(2024, 4),
+                DateCodec.firstDayOfMonth(2024, 5)};
+        BucketSeries series = snapshot.sumByPeriod(bounds, LedgerSnapshot.ANY_CATEGORY);
+
+        assertEquals(3, series.size());
+        assertEquals(DateCodec.lastDayOfMonth(2024, 3), series.getEndDay(1));
+        assertEquals(0, series.getCount(0));
+        assertEquals(300000, series.getIncome(1));
+        assertEquals(1250 + 4000, series.getExpenses(1));
+        assertEquals(3, series.getCount(1));
+        assertEquals(750, series.getExpenses(2));
+        assertEquals(1, series.getCount(2));
+
+        BucketSeries category = snapshot.sumByPeriod(bounds, 3);
+        assertEquals(4000, category.getExpenses(1));
+        assertEquals(0, category.getExpenses(2));
+        assertEquals(0, snapshot.sumByPeriod(new int[]{MARCH_1}, LedgerSnapshot.ANY_CATEGORY).size());
+    }
+
+    @Test
+    public void sumByPeriod_matchesSequentialSumOverManyRows() {
+        int rows = 300_000; // Plusieurs tâches fork/join
+        LedgerSnapshot snapshot = LedgerSnapshot.empty(0).appendRows(new LedgerSnapshot.RowReader() {
+            private int next;
+
+            @Override
+            public boolean next(LedgerSnapshot.Row row) {
+                if (next == rows) {
+                    return false;
+                }
+                row.id = ++next;
+                row.day = MARCH_1 + next % 60;
+                row.amountMinor = next % 1000;
+                row.categoryId = next % 7;
+                row.type = next % 3 == 0 ? Transaction.TYPE_INCOME : Transaction.TYPE_EXPENSE;
+                return true;
+            }
+        });
+
+        long expected = 0;
+        for (int i = 1; i <= rows; i++) {
+            if (i % 3 != 0 && i % 7 == 4 && i % 60 < 30) {
+                expected += i % 1000;
+            }
+        }
+        assertEquals(rows, snapshot.size());
+        assertEquals(expected, snapshot.sum(LedgerSnapshot.TYPE_EXPENSE, MARCH_1, MARCH_1 + 29, 4));
+    }
+
+    // Ajoute les lignes [from, to) de ROWS au snapshot
+    private static LedgerSnapshot load(LedgerSnapshot snapshot, int from, int to) {
+        int[] next = {from};
+        return snapshot.appendRows(row -> {
+            if (next[0] == to) {
+                return false;
+            }
+            long[] values = ROWS[next[0]];
+            row.id = values[0];
+            row.day = (int) values[1];
+            row.amountMinor = values[2];
+            row.categoryId = values[3];
+            row.type = TYPES[next[0]];
+            next[0]++;
+            return true;
+        });
+    }
+}
@@ -23,4 +23,5 @@ dependencyResolutionManagement {
 
 rootProject.name = "App-Budget"
 include(":app")
+include(":budget-core")
  
\ No newline at end of file